@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering;
+
+import org.ddogleg.clustering.gmm.CovarianceType;
+import org.ddogleg.clustering.gmm.ExpectationMaximizationGmm_F64;
+import org.ddogleg.clustering.gmm.ExpectationMaximizationGmm_MT_F64;
+import org.ddogleg.clustering.gmm.GaussianGmm_F64;
+import org.ddogleg.clustering.gmm.InitializeGmm_F64;
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.ejml.dense.row.CommonOps_DDRM;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how well {@link ExpectationMaximizationGmm_MT_F64} scales with the number of threads. By default
+ * a mixture is fit to 1,000,000 points with 64 dimensions. The same initial Gaussians are used each time
+ * and a fixed number of iterations is run so that only the EM steps are timed.  Diagonal and spherical
+ * covariances are timed at the end.
+ *
+ * @author Peter Abeles
+ */
+public class BenchmarkGmmExpectationMaximization {
+
+	Random rand = new Random(234);
+
+	int DOF = 64;
+	int numPoints = 1_000_000;
+	int numClusters = 8;
+	int numIterations = 5;
+
+	List<double[]> points = new ArrayList<>();
+	List<double[]> centers = new ArrayList<>();
+
+	/**
+	 * Initial Gaussians are centered on the true cluster centers with identity covariance
+	 */
+	class FixedSeeds implements InitializeGmm_F64 {
+		@Override public void init( int pointDimension, long randomSeed ) {}
+
+		@Override
+		public void selectSeeds( List<double[]> points, List<GaussianGmm_F64> seeds ) {
+			for (int i = 0; i < seeds.size(); i++) {
+				GaussianGmm_F64 g = seeds.get(i);
+				g.zero();
+				g.setMean(centers.get(i));
+				if( g.covarianceType == CovarianceType.FULL ) {
+					for (int j = 0; j < DOF; j++) {
+						g.covariance.set(j,j,1.0);
+					}
+				} else {
+					CommonOps_DDRM.fill(g.covariance,1.0);
+				}
+				g.weight = 1.0/seeds.size();
+			}
+		}
+
+		@Override public void setVerbose( boolean verbose ) {}
+	}
+
+	public long process( ExpectationMaximizationGmm_F64 alg ) {
+		alg.init(DOF, 234);
+		long timeStart = System.currentTimeMillis();
+		alg.process(points, numClusters);
+		long timeStop = System.currentTimeMillis();
+		return timeStop - timeStart;
+	}
+
+	public void process() {
+		createPoints();
+
+		System.out.println("Points = "+numPoints+"  DOF = "+DOF+"  clusters = "+numClusters+
+				"  iterations = "+numIterations);
+
+		// convergence is disabled so that every run does the same amount of work
+		long timeSingle = process(new ExpectationMaximizationGmm_F64(numIterations, -1, new FixedSeeds()));
+		System.out.println("Single threaded  time = "+timeSingle+" (ms)");
+
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ConcurrencyOps.setMaxThreads(threads);
+			long time = process(new ExpectationMaximizationGmm_MT_F64(numIterations, -1, new FixedSeeds()));
+			System.out.printf("Threads %3d      time = %d (ms)  speed up %.2f\n",
+					threads, time, timeSingle/(double)time);
+		}
+
+		// With diagonal and spherical covariances the likelihood is O(DOF) instead of O(DOF^2)
+		for( CovarianceType type : new CovarianceType[]{CovarianceType.DIAGONAL,CovarianceType.SPHERICAL} ) {
+			long time = process(new ExpectationMaximizationGmm_MT_F64(numIterations, -1, type, new FixedSeeds()));
+			System.out.printf("%-9s threads %3d  time = %d (ms)  speed up %.2f\n",
+					type, ConcurrencyOps.getMaxThreads(), time, timeSingle/(double)time);
+		}
+	}
+
+	private void createPoints() {
+		for (int i = 0; i < numClusters; i++) {
+			double[] c = new double[DOF];
+			for (int j = 0; j < DOF; j++) {
+				c[j] = rand.nextGaussian()*5;
+			}
+			centers.add(c);
+		}
+		for (int i = 0; i < numPoints; i++) {
+			double[] c = centers.get(i%numClusters);
+			double[] p = new double[DOF];
+			for (int j = 0; j < DOF; j++) {
+				p[j] = c[j] + rand.nextGaussian();
+			}
+			points.add(p);
+		}
+	}
+
+	public static void main( String[] args ) {
+		BenchmarkGmmExpectationMaximization benchmark = new BenchmarkGmmExpectationMaximization();
+		if( args.length >= 2 ) {
+			benchmark.numPoints = Integer.parseInt(args[0]);
+			benchmark.DOF = Integer.parseInt(args[1]);
+		}
+		benchmark.process();
+	}
+}
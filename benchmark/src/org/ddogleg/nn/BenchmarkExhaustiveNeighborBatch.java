@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.ddogleg.Performer;
+import org.ddogleg.ProfileOperation;
+import org.ddogleg.nn.alg.ExhaustiveNeighborBatch_F32;
+import org.ddogleg.nn.alg.ExhaustiveNeighborBatch_F64;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.PackedTupleArray_F32;
+import org.ddogleg.struct.PackedTupleArray_F64;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the speed of a blocked brute force batch search against {@link org.ddogleg.nn.wrap.WrapExhaustiveNeighbor}
+ * searching one point at a time.
+ *
+ * @author Peter Abeles
+ */
+public class BenchmarkExhaustiveNeighborBatch {
+
+	int numNeighbors;
+	List<double[]> cloud;
+	List<double[]> search;
+	PackedTupleArray_F64 cloud64;
+	PackedTupleArray_F64 search64;
+	PackedTupleArray_F32 cloud32;
+	PackedTupleArray_F32 search32;
+
+	int[] indexes;
+	double[] distances;
+
+	public class Wrapped implements Performer {
+		NearestNeighbor<double[]> alg;
+		FastQueue<NnData<double[]>> results = new FastQueue<>(NnData::new);
+
+		public Wrapped() {
+			alg = FactoryNearestNeighbor.exhaustive(new KdTreeEuclideanSq_F64(cloud64.dof));
+			alg.setPoints(cloud,true);
+		}
+
+		@Override
+		public void process() {
+			NearestNeighbor.Search<double[]> s = alg.createSearch();
+			for( double[] p : search ) {
+				s.findNearest(p,-1,numNeighbors,results);
+			}
+		}
+
+		@Override
+		public String getName() {
+			return "Wrapped Exhaustive";
+		}
+	}
+
+	public class Batch64 implements Performer {
+		ExhaustiveNeighborBatch_F64 alg = new ExhaustiveNeighborBatch_F64();
+
+		public Batch64() {
+			alg.setPoints(cloud64);
+		}
+
+		@Override
+		public void process() {
+			alg.findNearest(search64,-1,numNeighbors,indexes,distances);
+		}
+
+		@Override
+		public String getName() {
+			return "Batch F64";
+		}
+	}
+
+	public class Batch32 implements Performer {
+		ExhaustiveNeighborBatch_F32 alg = new ExhaustiveNeighborBatch_F32();
+
+		public Batch32() {
+			alg.setPoints(cloud32);
+		}
+
+		@Override
+		public void process() {
+			alg.findNearest(search32,-1,numNeighbors,indexes,distances);
+		}
+
+		@Override
+		public String getName() {
+			return "Batch F32";
+		}
+	}
+
+	public void evaluateDataSet( int dimen , int cloudSize , int searchSize , int numNeighbors ) {
+		Random rand = new Random(234);
+
+		this.numNeighbors = numNeighbors;
+		this.search = BenchmarkNearestNeighbor.createData(rand,searchSize,dimen);
+		this.cloud = BenchmarkNearestNeighbor.createData(rand,cloudSize,dimen);
+		this.search64 = new PackedTupleArray_F64(dimen);
+		this.search64.setTo(search);
+		this.cloud64 = new PackedTupleArray_F64(dimen);
+		this.cloud64.setTo(cloud);
+		this.search32 = new PackedTupleArray_F32(dimen);
+		this.search32.setTo(BenchmarkNearestNeighbor_F32.toFloat(search));
+		this.cloud32 = new PackedTupleArray_F32(dimen);
+		this.cloud32.setTo(BenchmarkNearestNeighbor_F32.toFloat(cloud));
+		this.indexes = new int[searchSize*numNeighbors];
+		this.distances = new double[searchSize*numNeighbors];
+
+		System.out.println("Dimen = "+dimen+"  cloud = "+cloudSize+"  search = "+searchSize+"  k = "+numNeighbors);
+		List<Performer> algs = new ArrayList<>();
+		algs.add(new Wrapped());
+		algs.add(new Batch64());
+		algs.add(new Batch32());
+		for( Performer alg : algs ) {
+			ProfileOperation.printOpsPerSec(alg,1000);
+		}
+		System.out.println();
+	}
+
+	public static void main( String args[] ) {
+		BenchmarkExhaustiveNeighborBatch app = new BenchmarkExhaustiveNeighborBatch();
+
+		app.evaluateDataSet(10,5000,1000,1);
+		app.evaluateDataSet(64,5000,1000,1);
+		app.evaluateDataSet(128,5000,1000,5);
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.ddogleg.Performer;
+import org.ddogleg.ProfileOperation;
+import org.ddogleg.nn.alg.ConfigIvfPq;
+import org.ddogleg.nn.alg.ExhaustiveNeighborBatch_F64;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.nn.wrap.IvfPqNearestNeighbor;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.PackedTupleArray_F64;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Evaluates recall, speed, and memory of {@link IvfPqNearestNeighbor} for different numbers of probed lists.
+ * Recall is computed against the exact solution found by brute force.
+ *
+ * @author Peter Abeles
+ */
+public class BenchmarkIvfPq {
+
+	int numNeighbors = 10;
+	List<double[]> cloud;
+	List<double[]> search;
+
+	// true nearest neighbors for each search point
+	int[] truth;
+
+	public class Search implements Performer {
+		NearestNeighbor.Search<double[]> alg;
+		FastQueue<NnData<double[]>> results = new FastQueue<>(NnData::new);
+
+		public Search( NearestNeighbor<double[]> nn ) {
+			alg = nn.createSearch();
+		}
+
+		@Override
+		public void process() {
+			for( double[] p : search ) {
+				alg.findNearest(p,-1,numNeighbors,results);
+			}
+		}
+
+		@Override
+		public String getName() {
+			return "Searches "+search.size();
+		}
+	}
+
+	public void evaluateDataSet( int dimen , int cloudSize , int searchSize , int numSubspaces ) {
+		Random rand = new Random(234);
+
+		this.cloud = createClusteredData(rand,cloudSize,dimen);
+		this.search = createClusteredData(rand,searchSize,dimen);
+		computeTruth(dimen);
+
+		System.out.println("Dimen = "+dimen+"  cloud = "+cloudSize+"  search = "+searchSize+
+				"  sub-spaces = "+numSubspaces+"  k = "+numNeighbors);
+
+		ConfigIvfPq config = new ConfigIvfPq();
+		config.numLists = (int)Math.sqrt(cloudSize);
+		config.numSubspaces = numSubspaces;
+
+		IvfPqNearestNeighbor<double[]> alg = FactoryNearestNeighbor.ivfpq(new KdTreeEuclideanSq_F64(dimen),config);
+		long time0 = System.currentTimeMillis();
+		alg.setPoints(cloud,true);
+		long time1 = System.currentTimeMillis();
+
+		long rawBytes = cloudSize*(long)dimen*8;
+		System.out.printf("Build %d ms. Memory: raw %.1f MB  codes %.1f MB\n",
+				time1-time0,rawBytes/1e6,alg.getStorageBytes()/1e6);
+
+		for( int numProbe : new int[]{1,4,16,64} ) {
+			if( numProbe > config.numLists )
+				break;
+			alg.setNumProbe(numProbe);
+			System.out.printf("probe %3d recall@1 %.3f recall@%d %.3f  ",
+					numProbe,recallAt1(alg),numNeighbors,recallAtK(alg));
+			ProfileOperation.printOpsPerSec(new Search(alg),1000);
+		}
+		System.out.println();
+	}
+
+	private void computeTruth( int dimen ) {
+		PackedTupleArray_F64 packedCloud = new PackedTupleArray_F64(dimen);
+		packedCloud.setTo(cloud);
+		PackedTupleArray_F64 packedSearch = new PackedTupleArray_F64(dimen);
+		packedSearch.setTo(search);
+
+		ExhaustiveNeighborBatch_F64 exhaustive = new ExhaustiveNeighborBatch_F64();
+		exhaustive.setPoints(packedCloud);
+		truth = new int[search.size()*numNeighbors];
+		exhaustive.findNearest(packedSearch,-1,numNeighbors,truth,null);
+	}
+
+	/** Fraction of searches where the true nearest neighbor is the first result */
+	private double recallAt1( NearestNeighbor<double[]> alg ) {
+		NearestNeighbor.Search<double[]> s = alg.createSearch();
+		NnData<double[]> result = new NnData<>();
+		int correct = 0;
+		for (int i = 0; i < search.size(); i++) {
+			if( s.findNearest(search.get(i),-1,result) && result.index == truth[i*numNeighbors] )
+				correct++;
+		}
+		return correct/(double)search.size();
+	}
+
+	/** Fraction of the true k nearest neighbors which are found */
+	private double recallAtK( NearestNeighbor<double[]> alg ) {
+		NearestNeighbor.Search<double[]> s = alg.createSearch();
+		FastQueue<NnData<double[]>> results = new FastQueue<>(NnData::new);
+		int correct = 0;
+		for (int i = 0; i < search.size(); i++) {
+			s.findNearest(search.get(i),-1,numNeighbors,results);
+			for (int j = 0; j < results.size; j++) {
+				int index = results.get(j).index;
+				for (int k = 0; k < numNeighbors; k++) {
+					if( truth[i*numNeighbors+k] == index ) {
+						correct++;
+						break;
+					}
+				}
+			}
+		}
+		return correct/(double)(search.size()*numNeighbors);
+	}
+
+	/**
+	 * Points are clustered around random centers, which is closer to real descriptors than uniform noise
+	 */
+	public static List<double[]> createClusteredData( Random rand , int size , int dimen ) {
+		List<double[]> centers = BenchmarkNearestNeighbor.createData(new Random(2345),100,dimen);
+		List<double[]> ret = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			double[] c = centers.get(rand.nextInt(centers.size()));
+			double[] p = new double[dimen];
+			for (int j = 0; j < dimen; j++) {
+				p[j] = c[j] + rand.nextGaussian()*0.3;
+			}
+			ret.add(p);
+		}
+		return ret;
+	}
+
+	public static void main( String args[] ) {
+		BenchmarkIvfPq app = new BenchmarkIvfPq();
+
+		app.evaluateDataSet(64,100_000,1000,8);
+		app.evaluateDataSet(64,100_000,1000,16);
+		app.evaluateDataSet(128,100_000,1000,16);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.ddogleg.Performer;
+import org.ddogleg.ProfileOperation;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.struct.FastQueue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the query rate and memory allocated per query of best-bin-first searches, which are used by
+ * the approximate K-D tree and random forest.
+ *
+ * @author Peter Abeles
+ */
+public class BenchmarkKdTreeSearchBbf {
+
+	List<double[]> cloud;
+	List<double[]> targets;
+
+	public class Search implements Performer {
+		NearestNeighbor.Search<double[]> search;
+		NnData<double[]> result = new NnData<>();
+		FastQueue<NnData<double[]>> results = new FastQueue<>(NnData::new);
+		int numNeighbors;
+		String name;
+
+		public Search( NearestNeighbor<double[]> alg , int numNeighbors , String name ) {
+			alg.setPoints(cloud,true);
+			this.search = alg.createSearch();
+			this.numNeighbors = numNeighbors;
+			this.name = name;
+		}
+
+		@Override
+		public void process() {
+			for (int i = 0; i < targets.size(); i++) {
+				if( numNeighbors == 1 )
+					search.findNearest(targets.get(i),-1,result);
+				else
+					search.findNearest(targets.get(i),-1,numNeighbors,results);
+			}
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * Number of bytes allocated by the current thread. Returns -1 if not supported by the JVM.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if( !(bean instanceof com.sun.management.ThreadMXBean) )
+			return -1;
+		return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	public void evaluate( int dimen , int cloudSize , int searchSize ) {
+		Random rand = new Random(234);
+		cloud = BenchmarkNearestNeighbor.createData(rand,cloudSize,dimen);
+		targets = BenchmarkNearestNeighbor.createData(rand,searchSize,dimen);
+		KdTreeEuclideanSq_F64 distance = new KdTreeEuclideanSq_F64(dimen);
+
+		System.out.println("Dimen = "+dimen+"  cloud = "+cloudSize+"  search = "+searchSize);
+		Search[] algs = new Search[]{
+				new Search(FactoryNearestNeighbor.kdtree(distance,200),1,"kdtree P 1-NN"),
+				new Search(FactoryNearestNeighbor.kdtree(distance,200),5,"kdtree P 5-NN"),
+				new Search(FactoryNearestNeighbor.kdRandomForest(distance,200,10,5,234),1,"Forest 1-NN"),
+				new Search(FactoryNearestNeighbor.kdRandomForest(distance,200,10,5,234),5,"Forest 5-NN")};
+
+		for( Search alg : algs ) {
+			ProfileOperation.printOpsPerSec(alg,1000);
+
+			long before = allocatedBytes();
+			alg.process();
+			long after = allocatedBytes();
+			System.out.printf("%30s  %.1f bytes/query\n","",(after-before)/(double)targets.size());
+		}
+		System.out.println();
+	}
+
+	public static void main( String args[] ) {
+		BenchmarkKdTreeSearchBbf app = new BenchmarkKdTreeSearchBbf();
+
+		app.evaluate(10,20000,2000);
+		app.evaluate(64,20000,2000);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -21,6 +21,7 @@ package org.ddogleg.nn;
 import org.ddogleg.Performer;
 import org.ddogleg.ProfileOperation;
 import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.nn.alg.distance.MetricEuclidean_F64;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -103,9 +104,13 @@ public class BenchmarkNearestNeighbor {
 		ret.add( new Set(FactoryNearestNeighbor.exhaustive(distance),"Exhaustive"));
 		ret.add( new Set(FactoryNearestNeighbor.kdtree(distance),"kdtree"));
 		ret.add( new Set(FactoryNearestNeighbor.kdtree(distance),"kdtree-tracking",true));
+		ret.add( new Set(FactoryNearestNeighbor.kdtreeFlat(distance),"kdtree-flat"));
 		ret.add( new Set(FactoryNearestNeighbor.kdtree(distance,1000),"kdtree P"));
 		ret.add( new Set(FactoryNearestNeighbor.kdRandomForest(distance,200,20,5,23423432),"K-D Random Forest"));
 		ret.add( new Set(FactoryNearestNeighbor.vptree(0xDEADBEEF),"VP-Tree"));
+		ret.add( new Set(FactoryNearestNeighbor.vptree(new MetricEuclidean_F64(),20,0xDEADBEEF),"VP-Tree Flat"));
+		ret.add( new Set(FactoryNearestNeighbor.kmeansTree(distance,32,10,23423432),"K-Means Tree"));
+		ret.add( new Set(FactoryNearestNeighbor.hnsw(distance,null),"HNSW"));
 
 		return ret;
 	}
@@ -118,9 +123,13 @@ public class BenchmarkNearestNeighbor {
 		ret.add( new Search(FactoryNearestNeighbor.exhaustive(distance),"Exhaustive"));
 		ret.add( new Search(FactoryNearestNeighbor.kdtree(distance),"kdtree"));
 		ret.add( new Search(FactoryNearestNeighbor.kdtree(distance),"kdtree-tracking",true));
+		ret.add( new Search(FactoryNearestNeighbor.kdtreeFlat(distance),"kdtree-flat"));
 		ret.add( new Search(FactoryNearestNeighbor.kdtree(distance,1000),"kdtree P"));
 		ret.add( new Search(FactoryNearestNeighbor.kdRandomForest(distance,200,20,5,23423432),"K-D Random Forest"));
 		ret.add( new Search(FactoryNearestNeighbor.vptree(0xDEADBEEF),"VP-Tree"));
+		ret.add( new Search(FactoryNearestNeighbor.vptree(new MetricEuclidean_F64(),20,0xDEADBEEF),"VP-Tree Flat"));
+		ret.add( new Search(FactoryNearestNeighbor.kmeansTree(distance,32,10,23423432),"K-Means Tree"));
+		ret.add( new Search(FactoryNearestNeighbor.hnsw(distance,null),"HNSW"));
 
 		return ret;
 	}
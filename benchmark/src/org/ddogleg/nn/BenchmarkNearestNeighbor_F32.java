@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.ddogleg.Performer;
+import org.ddogleg.ProfileOperation;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F32;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares the memory used and the query rate of float and double nearest neighbor algorithms. Memory
+ * is the change in used heap after building the data structure. Memory used by the points is reported separately.
+ *
+ * @author Peter Abeles
+ */
+public class BenchmarkNearestNeighbor_F32 {
+
+	int dimen;
+	List<double[]> cloud64;
+	List<double[]> search64;
+	List<float[]> cloud32;
+	List<float[]> search32;
+	double maxDistance = -1;
+
+	public class Search<P> implements Performer {
+
+		NearestNeighbor<P> alg;
+		List<P> searchSet;
+		NnData<P> result = new NnData<>();
+		String name;
+
+		public Search( NearestNeighbor<P> alg, List<P> cloud, List<P> searchSet, String name) {
+			this.alg = alg;
+			this.searchSet = searchSet;
+			this.name = name;
+
+			alg.setPoints(cloud,true);
+		}
+
+		@Override
+		public void process() {
+			NearestNeighbor.Search<P> search = alg.createSearch();
+			for( P p : searchSet ) {
+				search.findNearest(p,maxDistance,result);
+			}
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+
+	public List<Performer> createSearch() {
+		List<Performer> ret = new ArrayList<>();
+
+		KdTreeEuclideanSq_F64 distance64 = new KdTreeEuclideanSq_F64(dimen);
+		KdTreeEuclideanSq_F32 distance32 = new KdTreeEuclideanSq_F32(dimen);
+
+		ret.add( new Search<>(FactoryNearestNeighbor.kdtree(distance64),cloud64,search64,"kdtree F64"));
+		ret.add( new Search<>(FactoryNearestNeighbor.kdtree(distance32),cloud32,search32,"kdtree F32"));
+		ret.add( new Search<>(FactoryNearestNeighbor.kdtreeFlat(distance64),cloud64,search64,"kdtree-flat F64"));
+		ret.add( new Search<>(FactoryNearestNeighbor.kdtreeFlat(distance32),cloud32,search32,"kdtree-flat F32"));
+		ret.add( new Search<>(FactoryNearestNeighbor.kdtree(distance64,1000),cloud64,search64,"kdtree P F64"));
+		ret.add( new Search<>(FactoryNearestNeighbor.kdtree(distance32,1000),cloud32,search32,"kdtree P F32"));
+		ret.add( new Search<>(FactoryNearestNeighbor.vptree(0xDEADBEEF),cloud64,search64,"VP-Tree F64"));
+		ret.add( new Search<>(FactoryNearestNeighbor.vptree_F32(0xDEADBEEF),cloud32,search32,"VP-Tree F32"));
+
+		return ret;
+	}
+
+	/**
+	 * Estimates how much memory is used by the points and the data structure
+	 */
+	public void printMemory() {
+		KdTreeEuclideanSq_F64 distance64 = new KdTreeEuclideanSq_F64(dimen);
+		KdTreeEuclideanSq_F32 distance32 = new KdTreeEuclideanSq_F32(dimen);
+
+		System.out.printf("%30s  %d KB\n","points F64",memoryUsed(()->createData(new Random(234),cloud64.size(),dimen))/1024);
+		System.out.printf("%30s  %d KB\n","points F32",memoryUsed(()->toFloat(cloud64))/1024);
+		printMemory("kdtree F64",()->FactoryNearestNeighbor.kdtree(distance64),cloud64);
+		printMemory("kdtree F32",()->FactoryNearestNeighbor.kdtree(distance32),cloud32);
+		printMemory("kdtree-flat F64",()->FactoryNearestNeighbor.kdtreeFlat(distance64),cloud64);
+		printMemory("kdtree-flat F32",()->FactoryNearestNeighbor.kdtreeFlat(distance32),cloud32);
+		printMemory("VP-Tree F64",()->FactoryNearestNeighbor.vptree(0xDEADBEEF),cloud64);
+		printMemory("VP-Tree F32",()->FactoryNearestNeighbor.vptree_F32(0xDEADBEEF),cloud32);
+	}
+
+	private <P> void printMemory( String name , Supplier<NearestNeighbor<P>> factory , List<P> cloud ) {
+		long bytes = memoryUsed(()->{
+			NearestNeighbor<P> alg = factory.get();
+			alg.setPoints(cloud,true);
+			return alg;
+		});
+		System.out.printf("%30s  %d KB (excluding points)\n",name,bytes/1024);
+	}
+
+	/**
+	 * Measures the change in used heap memory after creating an object. Approximate.
+	 */
+	private static long memoryUsed( Supplier<Object> creator ) {
+		long before = usedMemory();
+		Object o = creator.get();
+		long after = usedMemory();
+		// keep a reference until after memory has been measured
+		if( o == null )
+			throw new RuntimeException("BUG");
+		return after-before;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException ignore) {}
+		}
+		return runtime.totalMemory()-runtime.freeMemory();
+	}
+
+	public void evaluateDataSet( int dimen , int cloudSize , int searchSize ) {
+		Random rand = new Random(234);
+
+		this.dimen = dimen;
+		this.search64 = createData(rand,searchSize,dimen);
+		this.cloud64 = createData(rand,cloudSize,dimen);
+		this.search32 = toFloat(search64);
+		this.cloud32 = toFloat(cloud64);
+
+		System.out.println("Dimen = "+dimen+"  cloud = "+cloudSize+"  search = "+searchSize);
+		System.out.println("           Memory");
+		printMemory();
+		System.out.println("           Search");
+		for( Performer alg : createSearch() ) {
+			ProfileOperation.printOpsPerSec(alg,100);
+		}
+		System.out.println();
+	}
+
+	public static List<double[]> createData( Random rand , int size , int k ) {
+		return BenchmarkNearestNeighbor.createData(rand,size,k);
+	}
+
+	public static List<float[]> toFloat( List<double[]> input ) {
+		List<float[]> ret = new ArrayList<>();
+		for( double[] d : input ) {
+			float[] f = new float[d.length];
+			for (int i = 0; i < d.length; i++) {
+				f[i] = (float)d[i];
+			}
+			ret.add(f);
+		}
+		return ret;
+	}
+
+	public static void main( String args[] ) {
+		BenchmarkNearestNeighbor_F32 app = new BenchmarkNearestNeighbor_F32();
+
+		app.evaluateDataSet(10,10000,10000);
+		app.evaluateDataSet(64,10000,10000);
+		app.evaluateDataSet(128,10000,10000);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2015, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,12 +18,19 @@
 
 package org.ddogleg.clustering;
 
+import org.ddogleg.clustering.gmm.CovarianceType;
 import org.ddogleg.clustering.gmm.ExpectationMaximizationGmm_F64;
+import org.ddogleg.clustering.gmm.ExpectationMaximizationGmm_MT_F64;
 import org.ddogleg.clustering.gmm.SeedFromKMeans_F64;
+import org.ddogleg.clustering.kmeans.ElkanKMeans_F64;
+import org.ddogleg.clustering.kmeans.HamerlyKMeans_F64;
 import org.ddogleg.clustering.kmeans.InitializeKMeans_F64;
+import org.ddogleg.clustering.kmeans.InitializeParallel_MT_F64;
 import org.ddogleg.clustering.kmeans.InitializePlusPlus;
 import org.ddogleg.clustering.kmeans.InitializeStandard_F64;
+import org.ddogleg.clustering.kmeans.MiniBatchKMeans_F64;
 import org.ddogleg.clustering.kmeans.StandardKMeans_F64;
+import org.ddogleg.clustering.kmeans.StandardKMeans_MT_F64;
 
 /**
  * Factory for creating clustering algorithms.
@@ -47,11 +54,47 @@ public class FactoryClustering {
 	 */
 	public static ExpectationMaximizationGmm_F64 gaussianMixtureModelEM_F64(
 			int maxIterations, int maxConverge , double convergeTol) {
+		return gaussianMixtureModelEM_F64(maxIterations,maxConverge,convergeTol,CovarianceType.FULL);
+	}
+
+	/**
+	 * Same as {@link #gaussianMixtureModelEM_F64(int, int, double)} but the type of covariance can be specified.
+	 * Diagonal and spherical covariances are faster to compute and more stable in high dimensions.
+	 *
+	 * @param maxIterations Maximum number of iterations it will perform.
+	 * @param maxConverge Maximum iterations allowed before convergence.  Re-seeded if it doesn't converge.
+	 * @param convergeTol Distance based convergence tolerance.  Try 1e-8
+	 * @param covarianceType Type of covariance estimated for each Gaussian
+	 * @return ExpectationMaximizationGmm_F64
+	 */
+	public static ExpectationMaximizationGmm_F64 gaussianMixtureModelEM_F64(
+			int maxIterations, int maxConverge , double convergeTol, CovarianceType covarianceType ) {
 
 		StandardKMeans_F64 kmeans = kMeans_F64(null,maxIterations,maxConverge,convergeTol);
 		SeedFromKMeans_F64 seeds = new SeedFromKMeans_F64(kmeans);
 
-		return new ExpectationMaximizationGmm_F64(maxIterations,convergeTol,seeds);
+		return new ExpectationMaximizationGmm_F64(maxIterations,convergeTol,covarianceType,seeds);
+	}
+
+	/**
+	 * Concurrent version of {@link #gaussianMixtureModelEM_F64}. Both EM and the k-means used to seed it
+	 * are concurrent.
+	 *
+	 * @see ExpectationMaximizationGmm_MT_F64
+	 *
+	 * @param maxIterations Maximum number of iterations it will perform.
+	 * @param maxConverge Maximum iterations allowed before convergence.  Re-seeded if it doesn't converge.
+	 * @param convergeTol Distance based convergence tolerance.  Try 1e-8
+	 * @param covarianceType Type of covariance estimated for each Gaussian
+	 * @return ExpectationMaximizationGmm_MT_F64
+	 */
+	public static ExpectationMaximizationGmm_MT_F64 gaussianMixtureModelEM_MT_F64(
+			int maxIterations, int maxConverge , double convergeTol, CovarianceType covarianceType ) {
+
+		StandardKMeans_MT_F64 kmeans = kMeans_MT_F64(null,maxIterations,maxConverge,convergeTol);
+		SeedFromKMeans_F64 seeds = new SeedFromKMeans_F64(kmeans);
+
+		return new ExpectationMaximizationGmm_MT_F64(maxIterations,convergeTol,covarianceType,seeds);
 	}
 
 	/**
@@ -66,24 +109,81 @@ public class FactoryClustering {
 	 */
 	public static StandardKMeans_F64 kMeans_F64( KMeansInitializers initializer,
 												 int maxIterations, int maxConverge , double convergeTol) {
-		InitializeKMeans_F64 seed;
-
-		if( initializer == null ) {
-			seed = new InitializePlusPlus();
-		} else {
-			switch (initializer) {
-				case PLUS_PLUS:
-					seed = new InitializePlusPlus();
-					break;
-
-				case STANDARD:
-					seed = new InitializeStandard_F64();
-					break;
-
-				default:
-					throw new RuntimeException("Unknown initializer " + initializer);
-			}
+		return new StandardKMeans_F64(maxIterations,maxConverge,convergeTol,createInitializer(initializer));
+	}
+
+	/**
+	 * Concurrent version of {@link #kMeans_F64}. Points are assigned to clusters in parallel. Results are
+	 * deterministic for a fixed number of threads.
+	 *
+	 * @see StandardKMeans_MT_F64
+	 *
+	 * @param initializer Specify which method should be used to select the initial seeds for the clusters.  null means default.
+	 * @param maxIterations Maximum number of iterations it will perform.
+	 * @param maxConverge Maximum iterations allowed before convergence.  Re-seeded if it doesn't converge.
+	 * @param convergeTol Distance based convergence tolerance.  Try 1e-8
+	 * @return StandardKMeans_MT_F64
+	 */
+	public static StandardKMeans_MT_F64 kMeans_MT_F64( KMeansInitializers initializer,
+													   int maxIterations, int maxConverge , double convergeTol) {
+		return new StandardKMeans_MT_F64(maxIterations,maxConverge,convergeTol,createInitializer(initializer));
+	}
+
+	/**
+	 * Creates k-means which uses the triangle inequality to skip most distance computations. Results are
+	 * identical to {@link #kMeans_F64}. {@link HamerlyKMeans_F64} is used when there are only a few clusters and
+	 * {@link ElkanKMeans_F64}, which uses more memory but skips more distance computations, when there are many.
+	 *
+	 * @param initializer Specify which method should be used to select the initial seeds for the clusters.  null means default.
+	 * @param maxIterations Maximum number of iterations it will perform.
+	 * @param maxConverge Maximum iterations allowed before convergence.  Re-seeded if it doesn't converge.
+	 * @param convergeTol Distance based convergence tolerance.  Try 1e-8
+	 * @param expectedClusters Number of clusters it will be used to find. Used to select the algorithm.
+	 * @return k-means
+	 */
+	public static StandardKMeans_F64 kMeansAccelerated_F64( KMeansInitializers initializer,
+															int maxIterations, int maxConverge , double convergeTol,
+															int expectedClusters ) {
+		InitializeKMeans_F64 seed = createInitializer(initializer);
+		if( expectedClusters <= 100 )
+			return new HamerlyKMeans_F64(maxIterations,maxConverge,convergeTol,seed);
+		else
+			return new ElkanKMeans_F64(maxIterations,maxConverge,convergeTol,seed);
+	}
+
+	/**
+	 * Creates mini-batch k-means, which updates the clusters using small batches of points. Use this when
+	 * there are too many points to cluster at once, since they can be streamed in.
+	 *
+	 * @see MiniBatchKMeans_F64
+	 *
+	 * @param initializer Specify which method should be used to select the initial seeds for the clusters.  null means default.
+	 * @param batchSize Number of points in each mini-batch. Try 1000
+	 * @param maxIterations Number of passes through the points when given a list.
+	 * @param sampleSize Number of points read from a stream to select the initial seeds. Try 10*batchSize
+	 * @return MiniBatchKMeans_F64
+	 */
+	public static MiniBatchKMeans_F64 kMeansMiniBatch_F64( KMeansInitializers initializer,
+														   int batchSize, int maxIterations, int sampleSize ) {
+		return new MiniBatchKMeans_F64(batchSize,maxIterations,sampleSize,createInitializer(initializer));
+	}
+
+	private static InitializeKMeans_F64 createInitializer( KMeansInitializers initializer ) {
+		if( initializer == null )
+			return new InitializePlusPlus();
+
+		switch (initializer) {
+			case PLUS_PLUS:
+				return new InitializePlusPlus();
+
+			case STANDARD:
+				return new InitializeStandard_F64();
+
+			case PARALLEL:
+				return new InitializeParallel_MT_F64();
+
+			default:
+				throw new RuntimeException("Unknown initializer " + initializer);
 		}
-		return new StandardKMeans_F64(maxIterations,maxConverge,convergeTol,seed);
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2015, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -32,5 +32,10 @@ public enum KMeansInitializers {
 	 * See {@link org.ddogleg.clustering.kmeans.InitializePlusPlus}.  Selects points randomly based on
 	 * distance from previously selected clusters.
 	 */
-	PLUS_PLUS
+	PLUS_PLUS,
+	/**
+	 * See {@link org.ddogleg.clustering.kmeans.InitializeParallel_MT_F64}.  k-means|| samples many candidates
+	 * in a few concurrent passes then selects the seeds from them.  Faster than PLUS_PLUS when there are many clusters.
+	 */
+	PARALLEL
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2015, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -25,6 +25,7 @@ import java.util.List;
 
 /**
  * Given a mixture model it will compute the hard and soft assignment of a point to Gaussians in the cluster.
+ * Log likelihoods are used so that the assignment doesn't fail when likelihoods underflow in high dimensions.
  *
  * @author Peter Abeles
  */
@@ -62,10 +63,10 @@ public class AssignGmm_F64 implements AssignCluster<double[]> {
 	@Override
 	public int assign(double[] point) {
 		int indexBest = -1;
-		double scoreBest = 0;
+		double scoreBest = Double.NEGATIVE_INFINITY;
 
 		for (int i = 0; i < mixture.size(); i++) {
-			double score = glm.getLikelihood(i).likelihood(point);
+			double score = glm.getLikelihood(i).logLikelihood(point);
 			if( score > scoreBest ) {
 				scoreBest = score;
 				indexBest = i;
@@ -77,14 +78,13 @@ public class AssignGmm_F64 implements AssignCluster<double[]> {
 
 	@Override
 	public void assign(double[] point, double[] fit) {
-		double total = 0;
+		double best = Double.NEGATIVE_INFINITY;
 		for (int i = 0; i < mixture.size(); i++) {
-			total += fit[i] = glm.getLikelihood(i).likelihood(point);
+			fit[i] = glm.getLikelihood(i).logLikelihood(point);
+			best = Math.max(best, fit[i]);
 		}
 
-		for (int i = 0; i < mixture.size(); i++) {
-			fit[i] /= total;
-		}
+		ExpectationMaximizationGmm_F64.normalizeLogLikelihoods(fit, mixture.size(), best);
 	}
 
 	@Override
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.gmm;
+
+/**
+ * Specifies which type of covariance matrix is estimated for each Gaussian in a mixture
+ *
+ * @author Peter Abeles
+ */
+public enum CovarianceType {
+	/**
+	 * Full covariance matrix.  Stored as a N by N matrix.
+	 */
+	FULL,
+	/**
+	 * Only the diagonal elements.  Each dimension has its own variance and dimensions are independent.
+	 * Stored as a N by 1 vector.
+	 */
+	DIAGONAL,
+	/**
+	 * A single variance which is shared by every dimension.  Stored as a 1 by 1 matrix.
+	 */
+	SPHERICAL
+}
@@ -24,12 +24,15 @@ import org.ddogleg.struct.FastQueue;
 import org.ddogleg.struct.GrowQueue_F64;
 import org.ejml.dense.row.CommonOps_DDRM;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Standard expectation maximization based approach to fitting mixture-of-Gaussian models to a set of data.
- * A locally optimal maximum likelihood estimate is found.  The full covariance is found.  Some other
- * variants will estimate just diagonal elements or a single covariance, but that isn't yet supported.
+ * A locally optimal maximum likelihood estimate is found.  The full covariance, just the diagonal elements, or a
+ * single spherical variance is estimated for each Gaussian, see {@link CovarianceType}.
+ * Responsibilities are computed from log likelihoods using log-sum-exp so that they don't underflow in
+ * high dimensions.
  *
  * <p>
  * Converged if, {@code(D[i] - D[i-1])/D[i] <= tol}, where D is the sum of point from cluster distance at iteration 'i',
@@ -38,9 +41,7 @@ import java.util.List;
  *
  * @author Peter Abeles
  */
-// TODO Unconstrained covariance
-// TODO just diagonal covariance
-	// TODO added shared and tied covariance?
+// TODO added shared and tied covariance?
 public class ExpectationMaximizationGmm_F64 implements ComputeClusters<double[]>  {
 
 	 // Used to select initial parameters
@@ -52,6 +53,9 @@ public class ExpectationMaximizationGmm_F64 implements ComputeClusters<double[]>
 	// info for each points
 	FastQueue<PointInfo> info = new FastQueue<>(PointInfo::new);
 
+	// Type of covariance which is estimated
+	CovarianceType covarianceType;
+
 	// Maximum number of iterations\
 	int maxIterations;
 
@@ -81,7 +85,23 @@ public class ExpectationMaximizationGmm_F64 implements ComputeClusters<double[]>
 	public ExpectationMaximizationGmm_F64(int maxIterations,
 										  double convergeTol,
 										  InitializeGmm_F64 selectInitial) {
+		this(maxIterations,convergeTol,CovarianceType.FULL,selectInitial);
+	}
+
+	/**
+	 * Configures EM parameters
+	 *
+	 * @param maxIterations Maximum number of iterations
+	 * @param convergeTol If the relative change in score is less or equal than this amount it has converged
+	 * @param covarianceType Type of covariance which is estimated for each Gaussian
+	 * @param selectInitial Used to select initial seeds for the clusters
+	 */
+	public ExpectationMaximizationGmm_F64(int maxIterations,
+										  double convergeTol,
+										  CovarianceType covarianceType,
+										  InitializeGmm_F64 selectInitial) {
 		this.maxIterations = maxIterations;
+		this.covarianceType = covarianceType;
 		this.convergeTol = convergeTol;
 		this.selectInitial = selectInitial;
 
@@ -90,7 +110,7 @@ public class ExpectationMaximizationGmm_F64 implements ComputeClusters<double[]>
 
 	@Override
 	public void init(final int pointDimension, long randomSeed) {
-		mixture = new FastQueue<>(()->new GaussianGmm_F64(pointDimension));
+		mixture = new FastQueue<>(()->new GaussianGmm_F64(pointDimension,covarianceType));
 		selectInitial.init(pointDimension,randomSeed);
 
 		if( dx.length < pointDimension )
@@ -154,27 +174,22 @@ public class ExpectationMaximizationGmm_F64 implements ComputeClusters<double[]>
 			PointInfo p = info.get(i);
 
 			// identify the best cluster match and save it's chi-square for convergence testing
-			double bestLikelihood = 0;
+			double bestLogLikelihood = Double.NEGATIVE_INFINITY;
 			double bestChiSq = Double.MAX_VALUE;
 
-			double total = 0;
 			for (int j = 0; j < mixture.size; j++) {
 				GaussianLikelihoodManager.Likelihood g = likelihoodManager.getLikelihood(j);
-				double likelihood = g.likelihood(p.point);
-				total += p.weights.data[j] = likelihood;
+				double logLikelihood = g.logLikelihood(p.point);
+				p.weights.data[j] = logLikelihood;
 
-				if( likelihood > bestLikelihood ) {
-					bestLikelihood = likelihood;
+				if( logLikelihood > bestLogLikelihood ) {
+					bestLogLikelihood = logLikelihood;
 					bestChiSq = g.getChisq();
 				}
 			}
 
 			// make sure it sums up to 1
-			if( total > 0 ) {
-				for (int j = 0; j < mixture.size; j++) {
-					p.weights.data[j] /= total;
-				}
-			}
+			normalizeLogLikelihoods(p.weights.data, mixture.size, bestLogLikelihood);
 
 			// only add the best chi-square since the other mixtures might be far away
 			// I guess I could use the weights to do this too.
@@ -184,6 +199,29 @@ public class ExpectationMaximizationGmm_F64 implements ComputeClusters<double[]>
 		return sumChiSq;
 	}
 
+	/**
+	 * Converts log likelihoods into weights which sum up to one. The largest log likelihood is subtracted
+	 * before exponentiating to avoid underflow. If no Gaussian is valid then all the weights are set to zero.
+	 *
+	 * @param weights (Input) log likelihoods, (Output) weights
+	 * @param length Number of elements in weights
+	 * @param maxLogLikelihood The largest log likelihood in weights
+	 */
+	static void normalizeLogLikelihoods( double[] weights, int length, double maxLogLikelihood ) {
+		if( maxLogLikelihood == Double.NEGATIVE_INFINITY ) {
+			Arrays.fill(weights,0,length,0);
+			return;
+		}
+
+		double total = 0;
+		for (int j = 0; j < length; j++) {
+			total += weights[j] = Math.exp(weights[j] - maxLogLikelihood);
+		}
+		for (int j = 0; j < length; j++) {
+			weights[j] /= total;
+		}
+	}
+
 	/**
 	 * Using points responsibility information to recompute the Gaussians and their weights, maximizing
 	 * the likelihood of the mixture.
@@ -248,6 +286,10 @@ public class ExpectationMaximizationGmm_F64 implements ComputeClusters<double[]>
 		return errorChiSquare;
 	}
 
+	public CovarianceType getCovarianceType() {
+		return covarianceType;
+	}
+
 	@Override
 	public void setVerbose(boolean verbose) {
 		selectInitial.setVerbose(verbose);
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.gmm;
+
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.ddogleg.struct.FastQueue;
+import org.ejml.data.DMatrixRMaj;
+
+import java.util.Arrays;
+
+/**
+ * Concurrent implementation of {@link ExpectationMaximizationGmm_F64}. Points are split into blocks which are
+ * processed by different threads. In the maximization step each block accumulates its own weighted sums for the
+ * mean and covariance of every Gaussian, which are then merged in the same order each time. Results are
+ * deterministic for a fixed number of threads, but can differ slightly from the single threaded version
+ * due to the order floating point numbers are summed.
+ *
+ * @author Peter Abeles
+ */
+public class ExpectationMaximizationGmm_MT_F64 extends ExpectationMaximizationGmm_F64 {
+
+	/** Minimum number of points processed by a thread */
+	public int minimumBlock = 200;
+
+	// number of elements in each point
+	int N;
+
+	// per-block sufficient statistics
+	FastQueue<Partial> partials = new FastQueue<>(Partial::new);
+
+	/**
+	 * Configures EM parameters
+	 *
+	 * @param maxIterations Maximum number of iterations
+	 * @param convergeTol If the relative change in score is less or equal than this amount it has converged
+	 * @param selectInitial Used to select initial seeds for the clusters
+	 */
+	public ExpectationMaximizationGmm_MT_F64( int maxIterations, double convergeTol,
+											  InitializeGmm_F64 selectInitial ) {
+		super(maxIterations, convergeTol, selectInitial);
+	}
+
+	/**
+	 * Configures EM parameters
+	 *
+	 * @param maxIterations Maximum number of iterations
+	 * @param convergeTol If the relative change in score is less or equal than this amount it has converged
+	 * @param covarianceType Type of covariance which is estimated for each Gaussian
+	 * @param selectInitial Used to select initial seeds for the clusters
+	 */
+	public ExpectationMaximizationGmm_MT_F64( int maxIterations, double convergeTol,
+											  CovarianceType covarianceType,
+											  InitializeGmm_F64 selectInitial ) {
+		super(maxIterations, convergeTol, covarianceType, selectInitial);
+	}
+
+	@Override
+	public void init( int pointDimension, long randomSeed ) {
+		super.init(pointDimension, randomSeed);
+		this.N = pointDimension;
+	}
+
+	@Override
+	protected double expectation() {
+		final int K = mixture.size;
+
+		ConcurrencyOps.loopBlocks(0, info.size, minimumBlock, partials, ( partial, i0, i1 ) -> {
+			partial.diff.reshape(N,1);
+			partial.sumChiSq = 0;
+
+			for (int i = i0; i < i1; i++) {
+				PointInfo p = info.get(i);
+
+				double bestLogLikelihood = Double.NEGATIVE_INFINITY;
+				double bestChiSq = Double.MAX_VALUE;
+
+				for (int j = 0; j < K; j++) {
+					GaussianLikelihoodManager.Likelihood g = likelihoodManager.getLikelihood(j);
+					double logLikelihood = Double.NEGATIVE_INFINITY;
+					if( g.valid ) {
+						double chisq = g.computeChiSq(p.point, partial.diff);
+						logLikelihood = g.logLeftSide - 0.5*chisq;
+						if( logLikelihood > bestLogLikelihood ) {
+							bestLogLikelihood = logLikelihood;
+							bestChiSq = chisq;
+						}
+					}
+					p.weights.data[j] = logLikelihood;
+				}
+
+				normalizeLogLikelihoods(p.weights.data, K, bestLogLikelihood);
+				partial.sumChiSq += bestChiSq;
+			}
+		});
+
+		double sumChiSq = 0;
+		for (int i = 0; i < partials.size; i++) {
+			sumChiSq += partials.get(i).sumChiSq;
+		}
+		return sumChiSq;
+	}
+
+	@Override
+	protected void maximization() {
+		final int K = mixture.size;
+
+		// discard previous parameters by zeroing
+		for (int i = 0; i < K; i++) {
+			mixture.get(i).zero();
+		}
+
+		// compute the new mean
+		ConcurrencyOps.loopBlocks(0, info.size, minimumBlock, partials, ( partial, i0, i1 ) -> {
+			partial.resetMean(K, N);
+			for (int i = i0; i < i1; i++) {
+				PointInfo p = info.get(i);
+				for (int j = 0; j < K; j++) {
+					double w = p.weights.data[j];
+					if( w == 0 )
+						continue;
+					double[] mean = partial.mean[j];
+					for (int k = 0; k < N; k++) {
+						mean[k] += w*p.point[k];
+					}
+					partial.weight[j] += w;
+				}
+			}
+		});
+		for (int i = 0; i < partials.size; i++) {
+			Partial partial = partials.get(i);
+			for (int j = 0; j < K; j++) {
+				GaussianGmm_F64 g = mixture.get(j);
+				double[] mean = partial.mean[j];
+				for (int k = 0; k < N; k++) {
+					g.mean.data[k] += mean[k];
+				}
+				g.weight += partial.weight[j];
+			}
+		}
+		for (int i = 0; i < K; i++) {
+			GaussianGmm_F64 g = mixture.get(i);
+			if( g.weight > 0 ) {
+				for (int k = 0; k < N; k++) {
+					g.mean.data[k] /= g.weight;
+				}
+			}
+		}
+
+		// compute new covariance. Only the upper triangle of a full covariance is summed
+		final boolean full = covarianceType == CovarianceType.FULL;
+		final int covLength = mixture.get(0).covariance.getNumElements();
+		ConcurrencyOps.loopBlocks(0, info.size, minimumBlock, partials, ( partial, i0, i1 ) -> {
+			partial.resetCovariance(K, N, covLength);
+			double[] dx = partial.dx;
+			for (int i = i0; i < i1; i++) {
+				PointInfo p = info.get(i);
+				for (int j = 0; j < K; j++) {
+					double w = p.weights.data[j];
+					if( w == 0 )
+						continue;
+					double[] mean = mixture.get(j).mean.data;
+					for (int k = 0; k < N; k++) {
+						dx[k] = p.point[k] - mean[k];
+					}
+					addCovariance(dx, w, partial.covariance[j]);
+				}
+			}
+		});
+		for (int i = 0; i < partials.size; i++) {
+			Partial partial = partials.get(i);
+			for (int j = 0; j < K; j++) {
+				double[] cov = partial.covariance[j];
+				double[] dst = mixture.get(j).covariance.data;
+				if( full ) {
+					for (int row = 0; row < N; row++) {
+						int index = row*N;
+						for (int col = row; col < N; col++) {
+							dst[index+col] += cov[index+col];
+						}
+					}
+				} else {
+					for (int k = 0; k < covLength; k++) {
+						dst[k] += cov[k];
+					}
+				}
+			}
+		}
+
+		double totalMixtureWeight = 0;
+		for (int i = 0; i < K; i++) {
+			GaussianGmm_F64 g = mixture.get(i);
+			DMatrixRMaj cov = g.covariance;
+			if( full ) {
+				for (int row = 0; row < N; row++) {
+					for (int col = 0; col < row; col++) {
+						cov.data[row*N+col] = cov.data[col*N+row];
+					}
+				}
+			}
+			if( g.weight > 0 ) {
+				for (int k = 0; k < cov.data.length; k++) {
+					cov.data[k] /= g.weight;
+				}
+				totalMixtureWeight += g.weight;
+			}
+		}
+
+		// update the weight
+		for (int i = 0; i < K; i++) {
+			mixture.get(i).weight /= totalMixtureWeight;
+		}
+	}
+
+	/**
+	 * Adds the weighted difference to the covariance sum. Computed the same way as
+	 * {@link GaussianGmm_F64#addCovariance} but only the upper triangle of a full covariance is updated.
+	 */
+	void addCovariance( double[] dx, double w, double[] cov ) {
+		switch( covarianceType ) {
+			case FULL:
+				for (int row = 0; row < N; row++) {
+					double wdx = w*dx[row];
+					int index = row*N;
+					for (int col = row; col < N; col++) {
+						cov[index+col] += wdx*dx[col];
+					}
+				}
+				break;
+
+			case DIAGONAL:
+				for (int k = 0; k < N; k++) {
+					cov[k] += w*dx[k]*dx[k];
+				}
+				break;
+
+			case SPHERICAL: {
+				double sum = 0;
+				for (int k = 0; k < N; k++) {
+					sum += dx[k]*dx[k];
+				}
+				cov[0] += w*sum/N;
+			} break;
+
+			default:
+				throw new IllegalArgumentException("Unknown type "+covarianceType);
+		}
+	}
+
+	/**
+	 * Sums computed by a single block of points
+	 */
+	static class Partial {
+		DMatrixRMaj diff = new DMatrixRMaj(1,1);
+		double[] dx = new double[0];
+		double sumChiSq;
+
+		double[] weight = new double[0];
+		double[][] mean = new double[0][];
+		double[][] covariance = new double[0][];
+
+		void resetMean( int K, int N ) {
+			if( weight.length != K || (K > 0 && mean[0].length != N) ) {
+				weight = new double[K];
+				mean = new double[K][N];
+			} else {
+				Arrays.fill(weight,0);
+				for (int i = 0; i < K; i++) {
+					Arrays.fill(mean[i],0);
+				}
+			}
+		}
+
+		void resetCovariance( int K, int N, int length ) {
+			if( dx.length != N )
+				dx = new double[N];
+			if( covariance.length != K || (K > 0 && covariance[0].length != length) ) {
+				covariance = new double[K][length];
+			} else {
+				for (int i = 0; i < K; i++) {
+					Arrays.fill(covariance[i],0);
+				}
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2017, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -25,7 +25,8 @@ import java.io.Serializable;
 
 /**
  * A Gaussian in a Gaussian Mixture Model.  Contains a mean, covariance, and weight.  Additional functions
- * are provided to help compute the Gaussian's parameters.
+ * are provided to help compute the Gaussian's parameters.  The shape of covariance depends on the
+ * {@link CovarianceType}.  A full covariance is N by N, diagonal is N by 1, and spherical is 1 by 1.
  *
  * @author Peter Abeles
  */
@@ -34,14 +35,31 @@ public class GaussianGmm_F64 implements Serializable {
 	public DMatrixRMaj mean;
 	public DMatrixRMaj covariance;
 	public double weight;
+	// Specifies which type of covariance is being estimated
+	public CovarianceType covarianceType = CovarianceType.FULL;
 
 	/**
-	 * Declares internal data strucures
+	 * Declares internal data strucures with a full covariance
 	 * @param DOF Number of degrees-of-freedom in the sampled points.
 	 */
 	public GaussianGmm_F64( int DOF ) {
+		this(DOF,CovarianceType.FULL);
+	}
+
+	/**
+	 * Declares internal data strucures
+	 * @param DOF Number of degrees-of-freedom in the sampled points.
+	 * @param covarianceType Which type of covariance is estimated
+	 */
+	public GaussianGmm_F64( int DOF , CovarianceType covarianceType ) {
+		this.covarianceType = covarianceType;
 		mean = new DMatrixRMaj(DOF,1);
-		covariance = new DMatrixRMaj(DOF,DOF);
+		switch( covarianceType ) {
+			case FULL: covariance = new DMatrixRMaj(DOF,DOF); break;
+			case DIAGONAL: covariance = new DMatrixRMaj(DOF,1); break;
+			case SPHERICAL: covariance = new DMatrixRMaj(1,1); break;
+			default: throw new IllegalArgumentException("Unknown type "+covarianceType);
+		}
 	}
 
 	public GaussianGmm_F64() {
@@ -68,10 +86,25 @@ public class GaussianGmm_F64 implements Serializable {
 
 	/**
 	 * Helper function for computing Gaussian parameters.  Adds the difference between point and mean to covariance,
-	 * adjusted by the weight.
+	 * adjusted by the weight.  For a spherical covariance the squared difference is averaged across all
+	 * the dimensions.
 	 */
 	public void addCovariance( double[] difference , double responsibility ) {
 		int N = mean.numRows;
+		if( covarianceType == CovarianceType.DIAGONAL ) {
+			for (int i = 0; i < N; i++) {
+				covariance.data[i] += responsibility*difference[i]*difference[i];
+			}
+			return;
+		} else if( covarianceType == CovarianceType.SPHERICAL ) {
+			double sum = 0;
+			for (int i = 0; i < N; i++) {
+				sum += difference[i]*difference[i];
+			}
+			covariance.data[0] += responsibility*sum/N;
+			return;
+		}
+
 		for (int i = 0; i < N; i++) {
 			for (int j = i; j < N; j++) {
 				covariance.data[i*N+j] += responsibility*difference[i]*difference[j];
@@ -93,7 +126,7 @@ public class GaussianGmm_F64 implements Serializable {
 	}
 
 	public GaussianGmm_F64 copy() {
-		GaussianGmm_F64 out = new GaussianGmm_F64(mean.getNumElements());
+		GaussianGmm_F64 out = new GaussianGmm_F64(mean.getNumElements(),covarianceType);
 
 		out.mean.set(mean);
 		out.covariance.set(covariance);
@@ -119,6 +152,10 @@ public class GaussianGmm_F64 implements Serializable {
 		this.covariance = covariance;
 	}
 
+	public CovarianceType getCovarianceType() {
+		return covarianceType;
+	}
+
 	public double getWeight() {
 		return weight;
 	}
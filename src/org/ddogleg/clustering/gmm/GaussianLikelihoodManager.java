@@ -21,6 +21,7 @@ package org.ddogleg.clustering.gmm;
 import org.ddogleg.struct.FastQueue;
 import org.ejml.LinearSolverSafe;
 import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
 import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
 import org.ejml.dense.row.mult.VectorVectorMult_DDRM;
 import org.ejml.interfaces.decomposition.CholeskyDecomposition_F64;
@@ -30,6 +31,8 @@ import java.util.List;
 
 /**
  * Computes the likelihood of a Gaussian distribution.  Parts of the equation are precomputed to seed up the process.
+ * Full covariance matrices are inverted using a Cholesky decomposition.  Diagonal and spherical covariances are
+ * inverted element-wise, making the likelihood O(N) to compute instead of O(N<sup>2</sup>).
  *
  * @author Peter Abeles
  */
@@ -46,6 +49,9 @@ public class GaussianLikelihoodManager {
 	// Used internally when computing difference between point and mean
 	DMatrixRMaj diff;
 
+	// Storage for the Cholesky decomposition of the covariance
+	DMatrixRMaj cholesky;
+
 	public GaussianLikelihoodManager( final int pointDimension , List<GaussianGmm_F64> mixtures ) {
 		this.mixtures = mixtures;
 
@@ -56,6 +62,7 @@ public class GaussianLikelihoodManager {
 		precomputes = new FastQueue<>(()->new Likelihood(pointDimension));
 
 		diff = new DMatrixRMaj(pointDimension,1);
+		cholesky = new DMatrixRMaj(pointDimension,pointDimension);
 	}
 
 	/**
@@ -84,7 +91,10 @@ public class GaussianLikelihoodManager {
 
 		// used to precompute parts of the likelihood function
 		public DMatrixRMaj invCov;
+		public double[] invVariance; // inverse of each variance for diagonal and spherical covariances
+		public boolean diagonal; // true if the covariance is diagonal or spherical
 		public double leftSide; // precomputed left side of likelihood
+		public double logLeftSide; // log of the left side
 
 		public double chisq; // chi-sq (x-mu)'*inv(Sigma)*(x-mu)
 
@@ -92,6 +102,7 @@ public class GaussianLikelihoodManager {
 
 		public Likelihood(int N) {
 			invCov = new DMatrixRMaj(N,N);
+			invVariance = new double[N];
 		}
 
 		/**
@@ -100,6 +111,12 @@ public class GaussianLikelihoodManager {
 		 */
 		public void setGaussian(GaussianGmm_F64 gaussian) {
 			this.gaussian = gaussian;
+			this.diagonal = gaussian.covarianceType != CovarianceType.FULL;
+
+			if( diagonal ) {
+				setDiagonal();
+				return;
+			}
 
 			if (!solver.setA(gaussian.covariance)) {
 				valid = false;
@@ -109,11 +126,44 @@ public class GaussianLikelihoodManager {
 			}
 			solver.invert(invCov);
 
+			// The log determinant is found from the diagonal elements since the determinant will
+			// overflow or underflow in high dimensions
 			CholeskyDecomposition_F64<DMatrixRMaj> decomposition = solver.getDecomposition();
-			double det = decomposition.computeDeterminant().real;
+			CommonOps_DDRM.fill(cholesky,0);
+			decomposition.getT(cholesky);
+			double logDet = 0;
+			for (int i = 0; i < cholesky.numRows; i++) {
+				logDet += 2.0*Math.log(cholesky.unsafe_get(i,i));
+			}
 
 			// (2*PI)^(D/2) has been omitted since it's the same for all the Gaussians and will get normalized out
-			leftSide = 1.0 / Math.sqrt(det);
+			logLeftSide = -0.5*logDet;
+			leftSide = Math.exp(logLeftSide);
+		}
+
+		/**
+		 * Inverts each variance in a diagonal or spherical covariance.  The determinant is the product of
+		 * the variances.
+		 */
+		private void setDiagonal() {
+			int N = gaussian.mean.numRows;
+			double[] variance = gaussian.covariance.data;
+			boolean spherical = gaussian.covarianceType == CovarianceType.SPHERICAL;
+
+			double logDet = 0;
+			for (int i = 0; i < N; i++) {
+				double v = spherical ? variance[0] : variance[i];
+				if( !(v > 0) ) {
+					valid = false;
+					return;
+				}
+				invVariance[i] = 1.0/v;
+				logDet += Math.log(v);
+			}
+			valid = true;
+
+			logLeftSide = -0.5*logDet;
+			leftSide = Math.exp(logLeftSide);
 		}
 
 		/**
@@ -126,14 +176,52 @@ public class GaussianLikelihoodManager {
 			if( !valid )
 				return 0;
 
+			chisq = computeChiSq(point, diff);
+
+			return leftSide * Math.exp(-0.5 * chisq);
+		}
+
+		/**
+		 * Computes log(p(x|mu,Sigma)) where x is the point.  Unlike {@link #likelihood} this won't underflow
+		 * in high dimensions.  The chi-square value is also computed.
+		 *
+		 * @param point     The point being examined
+		 * @return log likelihood of the point or -infinity if the distribution isn't valid
+		 */
+		public double logLikelihood(double[] point) {
+			if( !valid )
+				return Double.NEGATIVE_INFINITY;
+
+			chisq = computeChiSq(point, diff);
+
+			return logLeftSide - 0.5 * chisq;
+		}
+
+		/**
+		 * Computes the chi-square value, (x-mu)'*inv(Sigma)*(x-mu). Doesn't modify internal state so it
+		 * can be called from multiple threads at once.
+		 *
+		 * @param point     The point being examined
+		 * @param diff      (Output) Storage for the difference between the point and the mean. Not used by
+		 *                  diagonal or spherical covariances.
+		 * @return chi-square
+		 */
+		public double computeChiSq(double[] point, DMatrixRMaj diff) {
 			int N = gaussian.mean.numRows;
+			if( diagonal ) {
+				double chisq = 0;
+				for (int i = 0; i < N; i++) {
+					double d = point[i] - gaussian.mean.data[i];
+					chisq += d*d*invVariance[i];
+				}
+				return chisq;
+			}
+
 			// x - mu
 			for (int i = 0; i < N; i++) {
 				diff.data[i] = point[i] - gaussian.mean.data[i];
 			}
-			chisq = VectorVectorMult_DDRM.innerProdA(diff, invCov, diff);
-
-			return leftSide * Math.exp(-0.5 * chisq);
+			return VectorVectorMult_DDRM.innerProdA(diff, invCov, diff);
 		}
 
 		public double getChisq() {
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2017, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -87,8 +87,14 @@ public class SeedFromKMeans_F64 implements InitializeGmm_F64 {
 				dx[j] = m[j]-p[j];
 			}
 
+			GaussianGmm_F64 g = seeds.get(label);
+			if( g.covarianceType != CovarianceType.FULL ) {
+				g.addCovariance(dx, 1.0);
+				continue;
+			}
+
 			// add to the covariance while taking advantage of symmetry
-			DMatrixRMaj cov = seeds.get(label).covariance;
+			DMatrixRMaj cov = g.covariance;
 
 			for (int j = 0; j < N; j++) {
 				for (int k = j; k < N; k++) {
@@ -99,6 +105,8 @@ public class SeedFromKMeans_F64 implements InitializeGmm_F64 {
 
 		// fill in the lower half
 		for (int i = 0; i < seeds.size(); i++) {
+			if( seeds.get(i).covarianceType != CovarianceType.FULL )
+				continue;
 			DMatrixRMaj cov = seeds.get(i).covariance;
 			for (int j = 0; j < N; j++) {
 				for (int k = 0; k < j; k++) {
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Base class for k-means implementations which use the triangle inequality to skip distance computations
+ * when assigning points to clusters. The result is identical to {@link StandardKMeans_F64}, including how ties
+ * are broken, since a cluster is only skipped if it is guaranteed to be farther away than the current best.
+ * </p>
+ *
+ * <p>
+ * Bounds are updated using how far each cluster center has moved since the previous iteration. This is computed by
+ * comparing against a copy of the previous centers, which means bounds remain valid if the clusters are reseeded.
+ * The distance to the assigned cluster is always computed exactly so that the sum of distances, which is used to
+ * test for convergence, is the same as it would be without the bounds. Bounds are made slightly conservative to
+ * account for round off errors.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public abstract class BoundedKMeans_F64 extends StandardKMeans_F64 {
+
+	// fractional amount the bounds are loosened by to account for numerical errors
+	protected static final double TOL = 1e-10;
+
+	// Cluster centers from the previous iteration
+	protected FastQueue<double[]> previous;
+	// How far each cluster center moved since the previous iteration
+	protected GrowQueue_F64 drift = new GrowQueue_F64();
+	// half the distance between each pair of cluster centers. Row-major K by K
+	protected GrowQueue_F64 halfCenter = new GrowQueue_F64();
+	// half the distance from each cluster center to its closest cluster center
+	protected GrowQueue_F64 halfClosest = new GrowQueue_F64();
+
+	// true if the bounds have been initialized for the current points
+	boolean initialized;
+
+	// Number of times the distance between a point and a cluster has been computed. Used for profiling
+	protected long distanceCount;
+
+	protected BoundedKMeans_F64( int maxIterations, int maxConverge, double convergeTol,
+								 InitializeKMeans_F64 seedSelector ) {
+		super(maxIterations, maxConverge, convergeTol, seedSelector);
+	}
+
+	@Override
+	public void init( int pointDimension, long randomSeed ) {
+		super.init(pointDimension, randomSeed);
+		previous = new FastQueue<>(() -> new double[pointDimension]);
+	}
+
+	@Override
+	public void process( List<double[]> points, int numCluster ) {
+		initialized = false;
+		distanceCount = 0;
+		previous.resize(numCluster);
+		super.process(points, numCluster);
+	}
+
+	@Override
+	protected void matchPointsToClusters( List<double[]> points ) {
+		final int K = clusters.size;
+		sumDistance = 0;
+
+		if( initialized ) {
+			computeDrift();
+			computeCenterDistances();
+			updateBounds(points.size());
+		} else {
+			initializeBounds(points.size());
+		}
+
+		for (int i = 0; i < points.size(); i++) {
+			double[] p = points.get(i);
+
+			int bestCluster = initialized ? assignBounded(i, p, labels.data[i]) : assignAll(i, p);
+
+			// sum up all the points which are members of this cluster
+			double[] c = workClusters.get(bestCluster);
+			for (int j = 0; j < c.length; j++) {
+				c[j] += p[j];
+			}
+			memberCount.data[bestCluster]++;
+			labels.data[i] = bestCluster;
+			sumDistance += bestDistance;
+		}
+
+		// save the centers so that how far they move can be computed
+		for (int i = 0; i < K; i++) {
+			System.arraycopy(clusters.data[i], 0, previous.data[i], 0, N);
+		}
+		initialized = true;
+	}
+
+	/**
+	 * Computes how far each cluster center has moved since the previous iteration. A center which has become NaN can
+	 * never be selected, so its bounds don't matter. A center which used to be NaN could be anywhere.
+	 */
+	protected void computeDrift() {
+		final int K = clusters.size;
+		drift.resize(K);
+		for (int j = 0; j < K; j++) {
+			double[] c = clusters.data[j];
+			double[] p = previous.data[j];
+			if( Double.isNaN(c[0]) ) {
+				drift.data[j] = 0;
+			} else if( Double.isNaN(p[0]) ) {
+				drift.data[j] = Double.POSITIVE_INFINITY;
+			} else {
+				drift.data[j] = Math.sqrt(distanceSq(c, p))*(1.0+TOL);
+			}
+		}
+	}
+
+	/**
+	 * Computes half the distance between each pair of clusters and from each cluster to its closest cluster
+	 */
+	protected void computeCenterDistances() {
+		final int K = clusters.size;
+		halfCenter.resize(K*K);
+		halfClosest.resize(K);
+		halfClosest.fill(Double.POSITIVE_INFINITY);
+
+		for (int a = 0; a < K; a++) {
+			halfCenter.data[a*K+a] = 0;
+			double[] ca = clusters.data[a];
+			for (int b = a+1; b < K; b++) {
+				double d = 0.5*Math.sqrt(distanceSq(ca, clusters.data[b]))*(1.0-TOL);
+				halfCenter.data[a*K+b] = d;
+				halfCenter.data[b*K+a] = d;
+				// NaN is ignored here since a NaN cluster can't be selected
+				if( d < halfClosest.data[a] )
+					halfClosest.data[a] = d;
+				if( d < halfClosest.data[b] )
+					halfClosest.data[b] = d;
+			}
+		}
+	}
+
+	/**
+	 * Computes the distance squared between a point and a cluster
+	 */
+	protected double distanceToCluster( double[] p, int cluster ) {
+		distanceCount++;
+		return distanceSq(p, clusters.data[cluster]);
+	}
+
+	/**
+	 * Allocates memory for the bounds when the points are first assigned
+	 */
+	protected abstract void initializeBounds( int numPoints );
+
+	/**
+	 * Adjusts the lower bounds of each point using how far the clusters moved
+	 */
+	protected abstract void updateBounds( int numPoints );
+
+	/**
+	 * Assigns the point to a cluster by computing the distance to every cluster. Bounds are initialized.
+	 * bestDistance must be set to the distance squared of the selected cluster.
+	 *
+	 * @return The selected cluster
+	 */
+	protected abstract int assignAll( int index, double[] p );
+
+	/**
+	 * Assigns the point to a cluster using bounds to skip clusters which can't be the closest. bestDistance must be
+	 * set to the distance squared of the selected cluster.
+	 *
+	 * @param previousCluster Cluster the point was assigned to in the previous iteration
+	 * @return The selected cluster
+	 */
+	protected abstract int assignBounded( int index, double[] p, int previousCluster );
+
+	/**
+	 * Number of times the distance between a point and a cluster has been computed in the most recent call to
+	 * {@link #process}.
+	 */
+	public long getDistanceCount() {
+		return distanceCount;
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.struct.GrowQueue_F64;
+
+/**
+ * <p>
+ * Accelerated k-means which keeps a lower bound on the distance from each point to each cluster [1]. A cluster is
+ * skipped if its lower bound, or half its distance to the best cluster so far, is more than the distance to the best
+ * cluster. Requires storage for the number of points times the number of clusters, but skips more distance
+ * computations than {@link HamerlyKMeans_F64} when there are many clusters. Produces identical results to
+ * {@link StandardKMeans_F64}.
+ * </p>
+ *
+ * <p>
+ * [1] Elkan, Charles. "Using the triangle inequality to accelerate k-means." ICML 2003.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ElkanKMeans_F64 extends BoundedKMeans_F64 {
+
+	// lower bound on the distance from each point to each cluster. Row-major N by K
+	GrowQueue_F64 lower = new GrowQueue_F64();
+
+	/**
+	 * Configures k-means parameters
+	 *
+	 * @param maxIterations Maximum number of iterations
+	 * @param maxConverge Maximum iterations before it converges.  It is reseeded if it doesn't converge.
+	 * @param convergeTol Clusters have converged if the change in score is &le; to this amount.
+	 * @param seedSelector Used to select initial seeds for the clusters
+	 */
+	public ElkanKMeans_F64( int maxIterations, int maxConverge, double convergeTol,
+							InitializeKMeans_F64 seedSelector ) {
+		super(maxIterations, maxConverge, convergeTol, seedSelector);
+	}
+
+	@Override
+	protected void initializeBounds( int numPoints ) {
+		lower.resize(numPoints*clusters.size);
+	}
+
+	@Override
+	protected void updateBounds( int numPoints ) {
+		final int K = clusters.size;
+		for (int i = 0; i < numPoints; i++) {
+			int offset = i*K;
+			for (int j = 0; j < K; j++) {
+				lower.data[offset+j] -= drift.data[j];
+			}
+		}
+	}
+
+	@Override
+	protected int assignAll( int index, double[] p ) {
+		final int offset = index*clusters.size;
+		int bestCluster = -1;
+		bestDistance = Double.MAX_VALUE;
+
+		for (int j = 0; j < clusters.size; j++) {
+			double d = distanceToCluster(p, j);
+			lower.data[offset+j] = Math.sqrt(d);
+			if( d < bestDistance ) {
+				bestDistance = d;
+				bestCluster = j;
+			}
+		}
+		return bestCluster;
+	}
+
+	@Override
+	protected int assignBounded( int index, double[] p, int previousCluster ) {
+		final int K = clusters.size;
+		final int offset = index*K;
+
+		double bestD = distanceToCluster(p, previousCluster);
+		if( Double.isNaN(bestD) )
+			return assignAll(index, p);
+		lower.data[offset+previousCluster] = Math.sqrt(bestD);
+
+		int best = previousCluster;
+		double upper = Math.sqrt(bestD)*(1.0+TOL);
+
+		// No other cluster can be as close
+		if( upper < halfClosest.data[best] ) {
+			bestDistance = bestD;
+			return best;
+		}
+
+		for (int j = 0; j < K; j++) {
+			if( j == previousCluster )
+				continue;
+			// skip if the cluster is guaranteed to be farther away than the best cluster
+			if( upper < lower.data[offset+j] || upper < halfCenter.data[best*K+j] )
+				continue;
+
+			double d = distanceToCluster(p, j);
+			lower.data[offset+j] = Math.sqrt(d);
+			// ties are broken the same way as a search through all the clusters
+			if( d < bestD || (d == bestD && j < best) ) {
+				bestD = d;
+				best = j;
+				upper = Math.sqrt(d)*(1.0+TOL);
+			}
+		}
+
+		bestDistance = bestD;
+		return best;
+	}
+}
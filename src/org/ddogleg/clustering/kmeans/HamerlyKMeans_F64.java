@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.struct.GrowQueue_F64;
+
+/**
+ * <p>
+ * Accelerated k-means which keeps for each point a single lower bound on the distance to every cluster it's not
+ * assigned to [1]. If the distance to the assigned cluster is less than this bound, or less than half the distance
+ * from the assigned cluster to its closest cluster, then no other cluster needs to be considered. Uses less memory
+ * than {@link ElkanKMeans_F64} and is faster when there are only a few clusters. Produces identical results to
+ * {@link StandardKMeans_F64}.
+ * </p>
+ *
+ * <p>
+ * [1] Hamerly, Greg. "Making k-means even faster." Proceedings of the 2010 SIAM international conference on data
+ * mining. 2010.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class HamerlyKMeans_F64 extends BoundedKMeans_F64 {
+
+	// lower bound on the distance from each point to the closest cluster it's not assigned to
+	GrowQueue_F64 lower = new GrowQueue_F64();
+
+	/**
+	 * Configures k-means parameters
+	 *
+	 * @param maxIterations Maximum number of iterations
+	 * @param maxConverge Maximum iterations before it converges.  It is reseeded if it doesn't converge.
+	 * @param convergeTol Clusters have converged if the change in score is &le; to this amount.
+	 * @param seedSelector Used to select initial seeds for the clusters
+	 */
+	public HamerlyKMeans_F64( int maxIterations, int maxConverge, double convergeTol,
+							  InitializeKMeans_F64 seedSelector ) {
+		super(maxIterations, maxConverge, convergeTol, seedSelector);
+	}
+
+	@Override
+	protected void initializeBounds( int numPoints ) {
+		lower.resize(numPoints);
+	}
+
+	@Override
+	protected void updateBounds( int numPoints ) {
+		// find the two clusters which moved the most
+		int largestIdx = -1;
+		double largest = 0, second = 0;
+		for (int j = 0; j < drift.size; j++) {
+			double d = drift.data[j];
+			if( d > largest ) {
+				second = largest;
+				largest = d;
+				largestIdx = j;
+			} else if( d > second ) {
+				second = d;
+			}
+		}
+
+		// the closest other cluster can have moved at most by the largest drift of the other clusters
+		for (int i = 0; i < numPoints; i++) {
+			lower.data[i] -= labels.data[i] == largestIdx ? second : largest;
+		}
+	}
+
+	@Override
+	protected int assignAll( int index, double[] p ) {
+		int bestCluster = -1;
+		bestDistance = Double.MAX_VALUE;
+		double secondDistance = Double.MAX_VALUE;
+
+		for (int j = 0; j < clusters.size; j++) {
+			double d = distanceToCluster(p, j);
+			if( d < bestDistance ) {
+				secondDistance = bestDistance;
+				bestDistance = d;
+				bestCluster = j;
+			} else if( d < secondDistance ) {
+				secondDistance = d;
+			}
+		}
+		lower.data[index] = Math.sqrt(secondDistance);
+		return bestCluster;
+	}
+
+	@Override
+	protected int assignBounded( int index, double[] p, int previousCluster ) {
+		double d = distanceToCluster(p, previousCluster);
+		if( Double.isNaN(d) )
+			return assignAll(index, p);
+
+		// No other cluster can be as close if the distance is less than the bounds
+		double upper = Math.sqrt(d)*(1.0+TOL);
+		if( upper < halfClosest.data[previousCluster] || upper < lower.data[index] ) {
+			bestDistance = d;
+			return previousCluster;
+		}
+
+		return assignAll(index, p);
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Implementation of the k-means|| seeding strategy described in [1]. Instead of selecting one seed at a time
+ * like {@link InitializePlusPlus}, which requires a pass over all the points for every seed, several candidates
+ * are sampled each round. Each point becomes a candidate with a probability proportional to its distance from
+ * the closest candidate. After a few rounds the candidates are weighted by the number of points closest to them
+ * and the seeds are selected from the candidates using weighted k-means++.
+ * </p>
+ *
+ * <p>
+ * Updating the distance of every point from the new candidates is done concurrently. Random numbers are drawn
+ * in a single thread so the selected seeds don't depend on the number of threads.
+ * </p>
+ *
+ * <p>
+ * [1] Bahmani, Bahman, et al. "Scalable k-means++." Proceedings of the VLDB Endowment 5.7 (2012): 622-633.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class InitializeParallel_MT_F64 implements InitializeKMeans_F64 {
+
+	/** Expected number of candidates sampled in each round is oversampling times the number of seeds */
+	public double oversampling = 0.5;
+	/** Number of rounds in which candidates are sampled */
+	public int rounds = 5;
+	/** Minimum number of points processed by a thread */
+	public int minimumBlock = 1000;
+
+	Random rand;
+
+	// the distance of each point to the candidate it is closest to
+	GrowQueue_F64 distance = new GrowQueue_F64();
+	// index of the candidate each point is closest to
+	GrowQueue_I32 nearest = new GrowQueue_I32();
+	double totalDistance;
+
+	// candidate seeds and the number of points closest to each
+	List<double[]> candidates = new ArrayList<>();
+	GrowQueue_F64 weights = new GrowQueue_F64();
+
+	// distance of each candidate from the closest selected seed, scaled by its weight
+	GrowQueue_F64 candidateDistance = new GrowQueue_F64();
+
+	@Override
+	public void init( int pointDimension, long randomSeed ) {
+		rand = new Random(randomSeed);
+	}
+
+	@Override
+	public void selectSeeds( List<double[]> points, List<double[]> seeds ) {
+		if( seeds.size() > points.size() )
+			throw new IllegalArgumentException("More seeds requested than points!");
+
+		selectCandidates(points, seeds.size());
+		computeWeights();
+
+		if( candidates.size() <= seeds.size() ) {
+			// all the unique points are candidates. Duplicates are used for the remaining seeds
+			for (int i = 0; i < seeds.size(); i++) {
+				copyInto(candidates.get(Math.min(i,candidates.size()-1)), seeds.get(i));
+			}
+		} else {
+			recluster(seeds);
+		}
+		candidates.clear();
+	}
+
+	/**
+	 * Samples candidates until there are enough of them and the number of rounds has been reached, or
+	 * every unique point is a candidate
+	 */
+	void selectCandidates( List<double[]> points, int numSeeds ) {
+		candidates.clear();
+		distance.resize(points.size());
+		distance.fill(Double.MAX_VALUE);
+		nearest.resize(points.size());
+
+		// the first candidate is randomly selected
+		candidates.add(points.get(rand.nextInt(points.size())));
+		updateDistances(points, 0);
+
+		double ell = oversampling*numSeeds;
+		for (int round = 0; round < rounds || candidates.size() < numSeeds; round++) {
+			if( totalDistance == 0 )
+				break;
+
+			// randomly select new candidates. Points which are already candidates have a distance of zero
+			int first = candidates.size();
+			for (int i = 0; i < points.size(); i++) {
+				double probability = ell*distance.data[i]/totalDistance;
+				if( rand.nextDouble() < probability )
+					candidates.add(points.get(i));
+			}
+
+			updateDistances(points, first);
+		}
+	}
+
+	/**
+	 * Updates the distance of each point from the closest candidate using candidates from 'first' and after
+	 */
+	void updateDistances( List<double[]> points, int first ) {
+		final int last = candidates.size();
+		ConcurrencyOps.loopBlocks(0, points.size(), minimumBlock, ( i0, i1 ) -> {
+			for (int i = i0; i < i1; i++) {
+				double[] p = points.get(i);
+				double best = distance.data[i];
+				int bestIndex = nearest.data[i];
+				for (int j = first; j < last; j++) {
+					double d = StandardKMeans_F64.distanceSq(p, candidates.get(j));
+					if( d < best ) {
+						best = d;
+						bestIndex = j;
+					}
+				}
+				distance.data[i] = best;
+				nearest.data[i] = bestIndex;
+			}
+		});
+
+		// summed in a single thread so that the results don't depend on the number of threads
+		totalDistance = 0;
+		for (int i = 0; i < distance.size; i++) {
+			totalDistance += distance.data[i];
+		}
+	}
+
+	/**
+	 * The weight of each candidate is the number of points which are closest to it
+	 */
+	void computeWeights() {
+		weights.resize(candidates.size());
+		weights.fill(0);
+		for (int i = 0; i < nearest.size; i++) {
+			weights.data[nearest.data[i]]++;
+		}
+	}
+
+	/**
+	 * Selects the seeds from the candidates using weighted k-means++
+	 */
+	void recluster( List<double[]> seeds ) {
+		final int C = candidates.size();
+		candidateDistance.resize(C);
+
+		// the first seed is selected based on weight alone
+		double[] seed = candidates.get(selectWeighted(weights, sum(weights)));
+		copyInto(seed, seeds.get(0));
+		for (int i = 0; i < C; i++) {
+			candidateDistance.data[i] = weights.data[i]*StandardKMeans_F64.distanceSq(candidates.get(i), seed);
+		}
+
+		for (int seedIdx = 1; seedIdx < seeds.size(); seedIdx++) {
+			double total = sum(candidateDistance);
+			if( total == 0 ) {
+				copyInto(seed, seeds.get(seedIdx));
+				continue;
+			}
+			seed = candidates.get(selectWeighted(candidateDistance, total));
+			copyInto(seed, seeds.get(seedIdx));
+
+			for (int i = 0; i < C; i++) {
+				double d = weights.data[i]*StandardKMeans_F64.distanceSq(candidates.get(i), seed);
+				if( d < candidateDistance.data[i] )
+					candidateDistance.data[i] = d;
+			}
+		}
+	}
+
+	/**
+	 * Randomly selects an index with a probability proportional to its value
+	 */
+	int selectWeighted( GrowQueue_F64 values, double total ) {
+		double target = rand.nextDouble()*total;
+		double sum = 0;
+		int last = -1;
+		for (int i = 0; i < values.size; i++) {
+			if( values.data[i] == 0 )
+				continue;
+			sum += values.data[i];
+			last = i;
+			if( sum >= target )
+				return i;
+		}
+		// round off error
+		if( last >= 0 )
+			return last;
+		throw new RuntimeException("This shouldn't happen");
+	}
+
+	private static double sum( GrowQueue_F64 values ) {
+		double total = 0;
+		for (int i = 0; i < values.size; i++) {
+			total += values.data[i];
+		}
+		return total;
+	}
+
+	private static void copyInto( double[] src, double[] dst ) {
+		System.arraycopy(src,0,dst,0,src.length);
+	}
+}
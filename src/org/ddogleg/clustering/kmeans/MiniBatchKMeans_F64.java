@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.clustering.AssignCluster;
+import org.ddogleg.clustering.ComputeClusters;
+import org.ddogleg.struct.FastQueue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>
+ * Mini-batch k-means [1]. Instead of assigning every point before the centers are updated, points are processed
+ * in small batches and each center is moved towards the points assigned to it with a learning rate of
+ * 1/(number of points it has been assigned). Only the current batch needs to be in memory, allowing data sets
+ * which are much larger than memory to be clustered by streaming them from disk.
+ * </p>
+ *
+ * <p>
+ * Streaming usage:
+ * </p>
+ * <ol>
+ * <li>{@link #init}</li>
+ * <li>{@link #initialize} with a sample of the points, or {@link #resume} from a checkpoint</li>
+ * <li>{@link #process(Iterator)} or {@link #update} as many times as needed</li>
+ * <li>{@link #getAssignment()} and optionally {@link #checkpoint()}</li>
+ * </ol>
+ *
+ * <p>
+ * {@link #process(List, int)} is also supported. The seeds are selected from all the points and then
+ * the list is passed through maxIterations times in mini-batches.
+ * </p>
+ *
+ * <p>
+ * [1] Sculley, D. "Web-scale k-means clustering." Proceedings of the 19th international conference on
+ * World wide web. 2010.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class MiniBatchKMeans_F64 implements ComputeClusters<double[]> {
+
+	// number of elements in each point
+	int N;
+
+	// flag for verbose mode
+	boolean verbose = false;
+
+	// Number of points in each mini-batch
+	int batchSize;
+	// Number of times it passes through the points in process(List)
+	int maxIterations;
+	// Number of points read from the stream to select the initial seeds
+	int sampleSize;
+
+	// selects the initial locations of each seed
+	InitializeKMeans_F64 seedSelector;
+
+	// location of each cluster center
+	FastQueue<double[]> clusters;
+	// number of points which have been assigned to each cluster. Defines the learning rate
+	long[] counts = new long[0];
+	// total number of points which have been processed
+	long totalPoints;
+
+	// copy of the current batch and which cluster each point in it was assigned to
+	FastQueue<double[]> batch;
+	int[] batchLabels = new int[0];
+
+	// sum of distances for all the points in the most recent pass
+	double sumDistance;
+
+	/**
+	 * Configures mini-batch k-means
+	 *
+	 * @param batchSize Number of points in each mini-batch. Try 1000
+	 * @param maxIterations Number of passes through the points in {@link #process(List, int)}.
+	 * @param sampleSize Number of points read from a stream to select the initial seeds
+	 * @param seedSelector Used to select initial seeds for the clusters
+	 */
+	public MiniBatchKMeans_F64( int batchSize, int maxIterations, int sampleSize,
+								InitializeKMeans_F64 seedSelector ) {
+		setBatchSize(batchSize);
+		this.maxIterations = maxIterations;
+		this.sampleSize = sampleSize;
+		this.seedSelector = seedSelector;
+	}
+
+	@Override
+	public void init( final int pointDimension, long randomSeed ) {
+		seedSelector.init(pointDimension,randomSeed);
+		this.N = pointDimension;
+		clusters = new FastQueue<>(() -> new double[pointDimension]);
+		batch = new FastQueue<>(() -> new double[pointDimension]);
+		totalPoints = 0;
+	}
+
+	@Override
+	public void process( List<double[]> points, int numCluster ) {
+		initialize(points,numCluster);
+
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			process(points.iterator());
+			if( verbose )
+				System.out.println(iteration+"  score: "+sumDistance);
+		}
+
+		// score the final clusters
+		sumDistance = 0;
+		for (int i = 0; i < points.size(); i++) {
+			double[] p = points.get(i);
+			sumDistance += StandardKMeans_F64.distanceSq(p,clusters.get(findBestMatch(p)));
+		}
+	}
+
+	/**
+	 * Selects the initial clusters from a sample of the points. Any previous state is discarded.
+	 *
+	 * @param sample (Input) Points which the seeds are selected from. Not modified.
+	 * @param numCluster Number of clusters
+	 */
+	public void initialize( List<double[]> sample, int numCluster ) {
+		clusters.resize(numCluster);
+		counts = new long[numCluster];
+		totalPoints = 0;
+		seedSelector.selectSeeds(sample, clusters.toList());
+	}
+
+	/**
+	 * Reads all the points from the source in mini-batches and updates the clusters. If the clusters have not
+	 * been initialized then they are selected from the first sampleSize points.
+	 *
+	 * @param source (Input) Source of points. Points are not modified and references are not saved.
+	 * @param numCluster Number of clusters. Only used if the clusters have not been initialized
+	 */
+	public void process( Iterator<double[]> source, int numCluster ) {
+		if( clusters.size == 0 ) {
+			// the sample is copied since the source is allowed to recycle points
+			List<double[]> sample = new ArrayList<>();
+			while( sample.size() < sampleSize && source.hasNext() ) {
+				sample.add(source.next().clone());
+			}
+			initialize(sample, numCluster);
+			sumDistance = 0;
+			for (int i = 0; i < sample.size(); i += batchSize) {
+				updateBatch(sample.subList(i, Math.min(sample.size(), i+batchSize)));
+			}
+			readBatches(source);
+		} else {
+			process(source);
+		}
+	}
+
+	/**
+	 * Reads all the points from the source in mini-batches and updates the clusters. The clusters must
+	 * already be initialized.
+	 *
+	 * @param source (Input) Source of points. Points are not modified and references are not saved.
+	 */
+	public void process( Iterator<double[]> source ) {
+		sumDistance = 0;
+		readBatches(source);
+	}
+
+	private void readBatches( Iterator<double[]> source ) {
+		while( source.hasNext() ) {
+			// points are copied since the source is allowed to recycle them
+			batch.reset();
+			while( batch.size < batchSize && source.hasNext() ) {
+				System.arraycopy(source.next(),0,batch.grow(),0,N);
+			}
+			updateBatch(batch.toList());
+		}
+	}
+
+	/**
+	 * Updates the clusters using a single mini-batch of points.
+	 *
+	 * @param points (Input) Points in the mini-batch. Not modified.
+	 */
+	public void update( List<double[]> points ) {
+		sumDistance = 0;
+		updateBatch(points);
+	}
+
+	/**
+	 * Assigns all the points in the batch to the current clusters, then moves each cluster towards its points.
+	 */
+	void updateBatch( List<double[]> points ) {
+		if( clusters.size == 0 )
+			throw new IllegalArgumentException("Clusters have not been initialized");
+		if( batchLabels.length < points.size() )
+			batchLabels = new int[points.size()];
+
+		// assign points using the clusters from the start of the batch
+		for (int i = 0; i < points.size(); i++) {
+			double[] p = points.get(i);
+			int best = findBestMatch(p);
+			batchLabels[i] = best;
+			sumDistance += StandardKMeans_F64.distanceSq(p,clusters.get(best));
+		}
+
+		// gradient step with a per-cluster learning rate
+		for (int i = 0; i < points.size(); i++) {
+			double[] p = points.get(i);
+			int best = batchLabels[i];
+			double eta = 1.0/(++counts[best]);
+			double[] c = clusters.get(best);
+			for (int j = 0; j < N; j++) {
+				c[j] += eta*(p[j] - c[j]);
+			}
+		}
+		totalPoints += points.size();
+	}
+
+	/**
+	 * Searches for this cluster which is the closest to p
+	 */
+	int findBestMatch( double[] p ) {
+		int bestCluster = -1;
+		double bestDistance = Double.MAX_VALUE;
+
+		for (int j = 0; j < clusters.size; j++) {
+			double d = StandardKMeans_F64.distanceSq(p,clusters.get(j));
+			if( d < bestDistance ) {
+				bestDistance = d;
+				bestCluster = j;
+			}
+		}
+		return bestCluster;
+	}
+
+	/**
+	 * Creates a copy of the current state, which can be saved and passed to {@link #resume} later on.
+	 */
+	public State checkpoint() {
+		State state = new State();
+		state.clusters = new double[clusters.size][];
+		for (int i = 0; i < clusters.size; i++) {
+			state.clusters[i] = clusters.get(i).clone();
+		}
+		state.counts = counts.clone();
+		state.totalPoints = totalPoints;
+		return state;
+	}
+
+	/**
+	 * Restores the state from a checkpoint. {@link #init} must be called first.
+	 */
+	public void resume( State state ) {
+		if( state.clusters.length > 0 && state.clusters[0].length != N )
+			throw new IllegalArgumentException("Point dimension doesn't match. "+state.clusters[0].length+" vs "+N);
+		clusters.resize(state.clusters.length);
+		for (int i = 0; i < clusters.size; i++) {
+			System.arraycopy(state.clusters[i],0,clusters.get(i),0,N);
+		}
+		counts = state.counts.clone();
+		totalPoints = state.totalPoints;
+	}
+
+	/**
+	 * Returns the mean of each cluster
+	 */
+	public FastQueue<double[]> getClusterMeans() {
+		return clusters;
+	}
+
+	/**
+	 * Number of points assigned to each cluster so far
+	 */
+	public long[] getCounts() {
+		return counts;
+	}
+
+	/**
+	 * Total number of points which have been processed
+	 */
+	public long getTotalPoints() {
+		return totalPoints;
+	}
+
+	@Override
+	public AssignCluster<double[]> getAssignment() {
+		List<double[]> list = new ArrayList<double[]>();
+		list.addAll( clusters.toList() );
+
+		return new AssignKMeans_F64(list);
+	}
+
+	/**
+	 * Sum of the distance of each point from its cluster. After {@link #process(List, int)} this is computed
+	 * using the final clusters. When streaming, each point's distance is computed when it's assigned, with
+	 * the sum covering the most recent call.
+	 */
+	@Override
+	public double getDistanceMeasure() {
+		return sumDistance;
+	}
+
+	@Override
+	public void setVerbose( boolean verbose ) {
+		this.verbose = verbose;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize( int batchSize ) {
+		if( batchSize <= 0 )
+			throw new IllegalArgumentException("Batch size must be more than zero");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Everything needed to resume clustering
+	 */
+	public static class State implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		/** Location of each cluster center */
+		public double[][] clusters;
+		/** Number of points assigned to each cluster */
+		public long[] counts;
+		/** Total number of points processed */
+		public long totalPoints;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.ddogleg.struct.FastQueue;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Concurrent implementation of {@link StandardKMeans_F64}. Points are split into blocks which are assigned to
+ * clusters in parallel. Each block has its own partial sum of points, member count, and sum of distances for each
+ * cluster. Partial results are merged in the order of the blocks once all the blocks have been processed. Cluster
+ * centers are also updated in parallel.
+ * </p>
+ *
+ * <p>
+ * Results are deterministic for a fixed number of threads, see {@link ConcurrencyOps#setMaxThreads}. Since the
+ * order floating point numbers are added in depends on the number of blocks, results can differ slightly from the
+ * single threaded implementation and for a different number of threads.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class StandardKMeans_MT_F64 extends StandardKMeans_F64 {
+
+	/**
+	 * Minimum number of points in a block processed by a thread
+	 */
+	public int minimumBlock = 1000;
+
+	// Partial results for each block
+	FastQueue<Partial> partials = new FastQueue<>(Partial::new);
+
+	/**
+	 * Configures k-means parameters
+	 *
+	 * @param maxIterations Maximum number of iterations
+	 * @param maxConverge Maximum iterations before it converges.  It is reseeded if it doesn't converge.
+	 * @param convergeTol Clusters have converged if the change in score is &le; to this amount.
+	 * @param seedSelector Used to select initial seeds for the clusters
+	 */
+	public StandardKMeans_MT_F64( int maxIterations, int maxConverge, double convergeTol,
+								  InitializeKMeans_F64 seedSelector ) {
+		super(maxIterations, maxConverge, convergeTol, seedSelector);
+	}
+
+	@Override
+	protected void matchPointsToClusters( List<double[]> points ) {
+		final int K = clusters.size;
+
+		ConcurrencyOps.loopBlocks(0, points.size(), minimumBlock, partials, (partial, idx0, idx1) -> {
+			partial.reset(K, N);
+
+			for (int i = idx0; i < idx1; i++) {
+				double[] p = points.get(i);
+
+				// find the cluster which is closest to the point
+				int bestCluster = -1;
+				double bestDistance = Double.MAX_VALUE;
+				for (int j = 0; j < K; j++) {
+					double d = distanceSq(p, clusters.data[j]);
+					if( d < bestDistance ) {
+						bestDistance = d;
+						bestCluster = j;
+					}
+				}
+
+				// sum up all the points which are members of this cluster
+				double[] c = partial.sums[bestCluster];
+				for (int j = 0; j < c.length; j++) {
+					c[j] += p[j];
+				}
+				partial.counts[bestCluster]++;
+				labels.data[i] = bestCluster;
+				partial.sumDistance += bestDistance;
+			}
+		});
+
+		// merge the results from each block in the same order every time
+		sumDistance = 0;
+		for (int block = 0; block < partials.size; block++) {
+			Partial partial = partials.get(block);
+			for (int j = 0; j < K; j++) {
+				double[] src = partial.sums[j];
+				double[] dst = workClusters.data[j];
+				for (int k = 0; k < N; k++) {
+					dst[k] += src[k];
+				}
+				memberCount.data[j] += partial.counts[j];
+			}
+			sumDistance += partial.sumDistance;
+		}
+	}
+
+	@Override
+	protected void updateClusterCenters() {
+		ConcurrencyOps.loopBlocks(0, clusters.size, 1, (idx0, idx1) -> {
+			for (int i = idx0; i < idx1; i++) {
+				double mc = memberCount.get(i);
+				double[] w = workClusters.get(i);
+				double[] c = clusters.get(i);
+
+				for (int j = 0; j < w.length; j++) {
+					c[j] = w[j] / mc;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Sum of points, number of members, and sum of distances for each cluster inside a block
+	 */
+	static class Partial {
+		double[][] sums = new double[0][];
+		int[] counts = new int[0];
+		double sumDistance;
+
+		void reset( int K, int N ) {
+			if( sums.length != K || (K > 0 && sums[0].length != N) ) {
+				sums = new double[K][N];
+				counts = new int[K];
+			} else {
+				for (int i = 0; i < K; i++) {
+					Arrays.fill(sums[i], 0);
+				}
+				Arrays.fill(counts, 0);
+			}
+			sumDistance = 0;
+		}
+	}
+}
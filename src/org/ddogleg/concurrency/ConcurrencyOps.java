@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.concurrency;
+
+import org.ddogleg.struct.FastQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Location of the thread pool used by concurrent algorithms inside of DDogleg and functions for configuring it.
+ * By default the number of threads is the same as the number of available processors. Functions for
+ * running loops concurrently are also provided.
+ *
+ * @author Peter Abeles
+ */
+public class ConcurrencyOps {
+	// Thread pool used by all concurrent algorithms. volatile since it can be replaced while other threads use it
+	private static volatile ForkJoinPool pool = new ForkJoinPool();
+
+	/**
+	 * Changes the maximum number of threads available in the thread pool. If the number of threads changes
+	 * then the previous pool is shut down after it finishes its current tasks.
+	 *
+	 * @param maxThreads Maximum number of threads. If less than 1 it will be set to 1
+	 */
+	public static synchronized void setMaxThreads( int maxThreads ) {
+		maxThreads = Math.max(1,maxThreads);
+		if( pool.getParallelism() == maxThreads )
+			return;
+		ForkJoinPool previous = pool;
+		pool = new ForkJoinPool(maxThreads);
+		previous.shutdown();
+	}
+
+	/**
+	 * Returns the maximum number of threads which can be run at once in this pool
+	 */
+	public static int getMaxThreads() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Returns the thread pool which concurrent algorithms should use
+	 */
+	public static ForkJoinPool getThreadPool() {
+		return pool;
+	}
+
+	/**
+	 * Splits the range into blocks and processes each block concurrently. The number of blocks is
+	 * determined by the range, minimum block size, and maximum number of threads. For a fixed number of threads
+	 * the blocks will always be the same.
+	 *
+	 * @param start First element in the range
+	 * @param endExclusive Last element in the range, exclusive
+	 * @param minBlock Minimum number of elements in a block
+	 * @param consumer Processes a block
+	 */
+	public static void loopBlocks( int start , int endExclusive , int minBlock , IntRangeConsumer consumer ) {
+		final int numBlocks = computeNumberOfBlocks(start,endExclusive,minBlock);
+		if( numBlocks == 0 )
+			return;
+		if( numBlocks == 1 ) {
+			consumer.accept(start,endExclusive);
+			return;
+		}
+
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				List<ForkJoinTask<?>> tasks = new ArrayList<>();
+				for (int block = 0; block < numBlocks; block++) {
+					final int b0 = blockStart(start, endExclusive, numBlocks, block);
+					final int b1 = blockStart(start, endExclusive, numBlocks, block+1);
+					tasks.add(ForkJoinTask.adapt(()->consumer.accept(b0,b1)));
+				}
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	/**
+	 * Same as {@link #loopBlocks(int, int, int, IntRangeConsumer)} but each block is given its own workspace.
+	 * The workspace is resized to match the number of blocks and the i-th block is always given the
+	 * i-th element. Useful when partial results need to be merged in a deterministic order afterwards.
+	 *
+	 * @param start First element in the range
+	 * @param endExclusive Last element in the range, exclusive
+	 * @param minBlock Minimum number of elements in a block
+	 * @param workspace (Output) Storage for workspace. Resized to the number of blocks.
+	 * @param consumer Processes a block
+	 */
+	public static <T> void loopBlocks( int start , int endExclusive , int minBlock ,
+									   FastQueue<T> workspace , IntRangeObjectConsumer<T> consumer ) {
+		final int numBlocks = computeNumberOfBlocks(start,endExclusive,minBlock);
+		workspace.resize(numBlocks);
+		if( numBlocks == 0 )
+			return;
+		if( numBlocks == 1 ) {
+			consumer.accept(workspace.get(0),start,endExclusive);
+			return;
+		}
+
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				List<ForkJoinTask<?>> tasks = new ArrayList<>();
+				for (int block = 0; block < numBlocks; block++) {
+					final T w = workspace.get(block);
+					final int b0 = blockStart(start, endExclusive, numBlocks, block);
+					final int b1 = blockStart(start, endExclusive, numBlocks, block+1);
+					tasks.add(ForkJoinTask.adapt(()->consumer.accept(w,b0,b1)));
+				}
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	/**
+	 * Number of blocks a range will be split into. At most one block per thread.
+	 */
+	public static int computeNumberOfBlocks( int start , int endExclusive , int minBlock ) {
+		int length = endExclusive-start;
+		if( length <= 0 )
+			return 0;
+		int numBlocks = Math.min(getMaxThreads(), length/Math.max(1,minBlock));
+		return Math.max(1,numBlocks);
+	}
+
+	private static int blockStart( int start , int endExclusive , int numBlocks , int block ) {
+		return start + (int)((endExclusive-start)*(long)block/numBlocks);
+	}
+}
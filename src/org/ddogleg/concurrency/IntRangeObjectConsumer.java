@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.concurrency;
+
+/**
+ * Processes a range of integers using the provided workspace. Used to process a block of elements inside of a
+ * concurrent loop where each block has its own workspace.
+ *
+ * @author Peter Abeles
+ */
+@FunctionalInterface
+public interface IntRangeObjectConsumer<T> {
+	/**
+	 * @param workspace Workspace which is only used by this block
+	 * @param minInclusive first element in the range
+	 * @param maxExclusive last element in the range, exclusive
+	 */
+	void accept( T workspace , int minInclusive , int maxExclusive );
+}
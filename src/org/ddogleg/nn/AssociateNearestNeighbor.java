@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.ddogleg.struct.Factory;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Associates two sets of points, e.g. image feature descriptors, using nearest neighbor search. Each source point is
+ * matched to its closest destination point. Matches can be filtered using Lowe's ratio test, which rejects matches
+ * where the best and second best destination are similar, and a mutual consistency check, which requires the source
+ * point to also be the closest source to its destination.
+ * </p>
+ *
+ * <p>
+ * The forward search is done first and the reverse search second. Each is a {@link NearestNeighborBatch} search which
+ * processes its points concurrently. The ratio test is computed directly from the 2 nearest neighbors of each source.
+ * The reverse search is only done for destinations which are the best match of at least one source. Matches are
+ * returned in primitive arrays and are sorted by source index. Any {@link NearestNeighbor} can be used, e.g. one from
+ * {@link FactoryNearestNeighbor}.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class AssociateNearestNeighbor<P> {
+	/**
+	 * A match is only accepted if best &lt; ratioTest*secondBest. Applied to the distance returned by the nearest
+	 * neighbor search. If it's Euclidean squared then the ratio needs to be squared too. Disabled if &ge; 1.
+	 */
+	public double ratioTest = 1.0;
+
+	/**
+	 * If true then the source must also be the closest source to its destination
+	 */
+	public boolean checkMutual = true;
+
+	/**
+	 * Maximum distance between a source and destination. If negative then there is no limit.
+	 */
+	public double maxDistance = -1;
+
+	// Searches the source and destination points
+	NearestNeighborBatch<P> searchSrc;
+	NearestNeighborBatch<P> searchDst;
+
+	List<P> listSrc = new ArrayList<>();
+	List<P> listDst = new ArrayList<>();
+	// true if the source's search needs to be updated before it can be used
+	boolean dirtySrc = true;
+
+	// Two nearest destinations for each source
+	int[] forwardIndexes = new int[0];
+	double[] forwardDistances = new double[0];
+
+	// Destinations which are the best match of at least one source
+	List<P> reverseQueries = new ArrayList<>();
+	// Index of each destination in reverseQueries. -1 if it's not in it
+	int[] dstToQuery = new int[0];
+	// Closest source of each destination in reverseQueries
+	int[] reverseIndexes = new int[0];
+
+	// Output
+	GrowQueue_I32 matchSrc = new GrowQueue_I32();
+	GrowQueue_I32 matchDst = new GrowQueue_I32();
+	GrowQueue_F64 matchDistance = new GrowQueue_F64();
+
+	/**
+	 * @param factory Creates the nearest neighbor search used for the source and destination points
+	 */
+	public AssociateNearestNeighbor( Factory<NearestNeighbor<P>> factory ) {
+		this.searchSrc = new NearestNeighborBatch<>(factory.newInstance());
+		this.searchDst = new NearestNeighborBatch<>(factory.newInstance());
+	}
+
+	/**
+	 * Specifies the source points. A reference is saved.
+	 */
+	public void setSource( List<P> points ) {
+		this.listSrc = points;
+		this.dirtySrc = true;
+	}
+
+	/**
+	 * Specifies the destination points and builds the data structure used to search them. A reference is saved.
+	 */
+	public void setDestination( List<P> points ) {
+		this.listDst = points;
+		searchDst.getNearestNeighbor().setPoints(points, true);
+	}
+
+	/**
+	 * Associates the source points to the destination points. Results can be accessed using
+	 * {@link #getMatchSrc()}, {@link #getMatchDst()}, and {@link #getMatchDistance()}.
+	 */
+	public void associate() {
+		matchSrc.reset();
+		matchDst.reset();
+		matchDistance.reset();
+
+		final int numSrc = listSrc.size();
+		final int numDst = listDst.size();
+		if( numSrc == 0 || numDst == 0 )
+			return;
+
+		// find the two best destinations for each source
+		if( forwardIndexes.length < numSrc*2 ) {
+			forwardIndexes = new int[numSrc*2];
+			forwardDistances = new double[numSrc*2];
+		}
+		searchDst.findNearest(listSrc, maxDistance, 2, forwardIndexes, forwardDistances);
+
+		if( checkMutual )
+			searchReverse(numDst);
+
+		for (int src = 0; src < numSrc; src++) {
+			final int dst = forwardIndexes[src*2];
+			if( dst == -1 )
+				continue;
+
+			final double best = forwardDistances[src*2];
+			if( ratioTest < 1.0 && forwardIndexes[src*2+1] != -1 && !(best < ratioTest*forwardDistances[src*2+1]) )
+				continue;
+
+			if( checkMutual && reverseIndexes[dstToQuery[dst]] != src )
+				continue;
+
+			matchSrc.add(src);
+			matchDst.add(dst);
+			matchDistance.add(best);
+		}
+	}
+
+	/**
+	 * Finds the closest source for each destination which is the best match of a source
+	 */
+	private void searchReverse( int numDst ) {
+		if( dirtySrc ) {
+			searchSrc.getNearestNeighbor().setPoints(listSrc, true);
+			dirtySrc = false;
+		}
+
+		if( dstToQuery.length < numDst )
+			dstToQuery = new int[numDst];
+		for (int i = 0; i < numDst; i++) {
+			dstToQuery[i] = -1;
+		}
+		reverseQueries.clear();
+		for (int src = 0; src < listSrc.size(); src++) {
+			final int dst = forwardIndexes[src*2];
+			if( dst == -1 || dstToQuery[dst] != -1 )
+				continue;
+			dstToQuery[dst] = reverseQueries.size();
+			reverseQueries.add(listDst.get(dst));
+		}
+
+		if( reverseIndexes.length < reverseQueries.size() )
+			reverseIndexes = new int[reverseQueries.size()];
+		searchSrc.findNearest(reverseQueries, maxDistance, reverseIndexes, null);
+	}
+
+	/**
+	 * Index of the source point in each match
+	 */
+	public GrowQueue_I32 getMatchSrc() {
+		return matchSrc;
+	}
+
+	/**
+	 * Index of the destination point in each match
+	 */
+	public GrowQueue_I32 getMatchDst() {
+		return matchDst;
+	}
+
+	/**
+	 * Distance between the source and destination in each match
+	 */
+	public GrowQueue_F64 getMatchDistance() {
+		return matchDistance;
+	}
+
+	/**
+	 * Minimum number of points searched by a single thread
+	 */
+	public void setMinimumBlock( int minimumBlock ) {
+		searchSrc.minimumBlock = minimumBlock;
+		searchDst.minimumBlock = minimumBlock;
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,16 +18,37 @@
 
 package org.ddogleg.nn;
 
+import org.ddogleg.clustering.kmeans.InitializePlusPlus;
+import org.ddogleg.clustering.kmeans.StandardKMeans_F64;
 import org.ddogleg.nn.alg.AxisSplitRuleRandomK;
 import org.ddogleg.nn.alg.AxisSplitterMedian;
+import org.ddogleg.nn.alg.ConfigHnsw;
+import org.ddogleg.nn.alg.ConfigIvfPq;
+import org.ddogleg.nn.alg.ExhaustiveHamming_I64;
+import org.ddogleg.nn.alg.KMeansTreeConstructor;
+import org.ddogleg.nn.alg.KdTreeConstructor_MT;
 import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.nn.alg.MetricDistance;
+import org.ddogleg.nn.alg.MultiIndexHashing;
 import org.ddogleg.nn.alg.VpTree;
+import org.ddogleg.nn.alg.VpTreeFlat;
+import org.ddogleg.nn.alg.VpTree_F32;
+import org.ddogleg.nn.alg.searches.KMeansTreeSearch;
 import org.ddogleg.nn.alg.searches.KdTreeSearch1Bbf;
+import org.ddogleg.nn.alg.searches.KdTreeSearch1Standard;
 import org.ddogleg.nn.alg.searches.KdTreeSearchNBbf;
+import org.ddogleg.nn.alg.searches.KdTreeSearchNStandard;
+import org.ddogleg.nn.wrap.HnswNearestNeighbor;
+import org.ddogleg.nn.wrap.IvfPqNearestNeighbor;
+import org.ddogleg.nn.wrap.KMeansTreeNearestNeighbor;
 import org.ddogleg.nn.wrap.KdForestBbfNearestNeighbor;
+import org.ddogleg.nn.wrap.KdForestBbfNearestNeighbor_MT;
+import org.ddogleg.nn.wrap.KdTreeFlatNearestNeighbor;
+import org.ddogleg.nn.wrap.KdTreeMutableNearestNeighbor;
 import org.ddogleg.nn.wrap.KdTreeNearestNeighbor;
 import org.ddogleg.nn.wrap.WrapExhaustiveNeighbor;
 
+import javax.annotation.Nullable;
 import java.util.Random;
 
 /**
@@ -51,6 +72,114 @@ public class FactoryNearestNeighbor {
 		return new KdTreeNearestNeighbor<>(distance);
 	}
 
+	/**
+	 * Same as {@link #kdtree(KdTreeDistance)} but the K-D tree is constructed using multiple threads. The
+	 * constructed tree is identical.
+	 *
+	 * @see KdTreeConstructor_MT
+	 *
+	 * @param <P> Point type.
+	 * @param distance Specifies how distance is computed between two points.
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static <P> NearestNeighbor<P> kdtree_MT( KdTreeDistance<P> distance ) {
+		return new KdTreeNearestNeighbor<>(new KdTreeConstructor_MT<>(distance),
+				new KdTreeSearch1Standard<>(distance), new KdTreeSearchNStandard<>(distance));
+	}
+
+	/**
+	 * Performs an optimal {@link NearestNeighbor} search using K-D tree which is stored in flat arrays instead of
+	 * a graph of nodes. Uses less memory and has better cache locality than {@link #kdtree(KdTreeDistance)}.
+	 *
+	 * @see KdTreeFlatNearestNeighbor
+	 * @see org.ddogleg.nn.alg.KdTreeFlat
+	 *
+	 * @param <P> Point type.
+	 * @param distance Specifies how distance is computed between two points.
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static <P> NearestNeighbor<P> kdtreeFlat( KdTreeDistance<P> distance ) {
+		return new KdTreeFlatNearestNeighbor<>(distance);
+	}
+
+	/**
+	 * Exact {@link NearestNeighbor} search using a K-D tree which points can be added to and removed from without
+	 * rebuilding the entire tree. The tree is automatically rebuilt after it has been modified enough.
+	 *
+	 * @see KdTreeMutableNearestNeighbor
+	 * @see org.ddogleg.nn.alg.KdTreeEditor
+	 *
+	 * @param distance Specifies how distance is computed between two points.
+	 * @param <P> Point type.
+	 * @return {@link NearestNeighborMutable} implementation
+	 */
+	public static <P> KdTreeMutableNearestNeighbor<P> kdtreeMutable( KdTreeDistance<P> distance ) {
+		return new KdTreeMutableNearestNeighbor<>(distance);
+	}
+
+	/**
+	 * Approximate {@link NearestNeighbor} search using a hierarchical k-means tree, a.k.a. vocabulary tree.
+	 * Better suited than a K-D tree for high dimensional data. Children are searched in order of how close their
+	 * cluster center is to the target. Distance measure is Euclidean squared.
+	 *
+	 * @see KMeansTreeNearestNeighbor
+	 * @see org.ddogleg.nn.alg.KMeansTree
+	 *
+	 * @param distance Specifies how distance is computed between two points.
+	 * @param branchFactor Number of children each branch in the tree has. Try 32.
+	 * @param maxLeavesChecked Maximum number of leaves it will check. Controls speed and accuracy. If &le; 0 then
+	 *                         there is no limit and the search is exact.
+	 * @param randSeed Seed used by k-means
+	 * @param <P> Point type.
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static <P> NearestNeighbor<P> kmeansTree( KdTreeDistance<P> distance , int branchFactor ,
+													 int maxLeavesChecked , long randSeed ) {
+		StandardKMeans_F64 kmeans = new StandardKMeans_F64(20,20,1e-4,new InitializePlusPlus());
+		KMeansTreeConstructor<P> constructor =
+				new KMeansTreeConstructor<>(distance,branchFactor,branchFactor,kmeans,randSeed);
+		KMeansTreeSearch<P> search = new KMeansTreeSearch<>(maxLeavesChecked);
+
+		return new KMeansTreeNearestNeighbor<>(distance,constructor,search);
+	}
+
+	/**
+	 * Approximate {@link NearestNeighbor} search using a Hierarchical Navigable Small World (HNSW) graph. Works
+	 * well with high dimensional data and points can be added after construction without rebuilding it.
+	 *
+	 * @see HnswNearestNeighbor
+	 * @see org.ddogleg.nn.alg.HnswGraph
+	 *
+	 * @param distance Specifies how distance is computed between two points.
+	 * @param config Configuration for the graph and search. If null then the default is used.
+	 * @param <P> Point type.
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static <P> HnswNearestNeighbor<P> hnsw( KdTreeDistance<P> distance , @Nullable ConfigHnsw config ) {
+		if( config == null )
+			config = new ConfigHnsw();
+		return new HnswNearestNeighbor<>(distance,config);
+	}
+
+	/**
+	 * Approximate {@link NearestNeighbor} search using an inverted file index with product quantization. Only a
+	 * compressed code is saved for each point, making it suitable for very large data sets which won't fit into
+	 * memory. Distance is an approximation of Euclidean squared.
+	 *
+	 * @see IvfPqNearestNeighbor
+	 * @see org.ddogleg.nn.alg.ProductQuantizer
+	 *
+	 * @param distance Used to access elements in a point. Must be Euclidean squared.
+	 * @param config Configuration for the quantizers and search. If null then the default is used.
+	 * @param <P> Point type.
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static <P> IvfPqNearestNeighbor<P> ivfpq( KdTreeDistance<P> distance , @Nullable ConfigIvfPq config ) {
+		if( config == null )
+			config = new ConfigIvfPq();
+		return new IvfPqNearestNeighbor<>(distance,config);
+	}
+
 	/**
 	 * Performs an approximate {@link NearestNeighbor} search using K-D tree.  Node are searched in Best-Bin-First
 	 * order.  Distance measure is Euclidean squared.
@@ -73,6 +202,11 @@ public class FactoryNearestNeighbor {
 	 * Approximate {@link NearestNeighbor} search which uses a set of randomly generated K-D trees and a Best-Bin-First
 	 * search.  Designed to work in high dimensional space. Distance measure is Euclidean squared.
 	 *
+	 * <p>
+	 * Each tree now has its own splitter seeded from randomSeed, instead of all the trees sharing one random number
+	 * generator. A seed used with an earlier version will produce a different forest.
+	 * </p>
+	 *
 	 * @see KdForestBbfNearestNeighbor
 	 * @see AxisSplitterMedian
 	 *
@@ -81,18 +215,65 @@ public class FactoryNearestNeighbor {
 	 * @param numTrees Number of trees that are considered.  Try 10 and tune.
 	 * @param numConsiderSplit Number of nodes that are considered when generating a tree.  Must be less than the
 	 *                         point's dimension.  Try 5
-	 * @param randomSeed Seed used by random number generator
+	 * @param randomSeed Seed used by random number generator. Each tree is given its own seed derived from it.
 	 * @param <P> Point type.
 	 * @return {@link NearestNeighbor} implementation
 	 */
 	public static <P> NearestNeighbor<P> kdRandomForest(  KdTreeDistance<P> distance ,
 														  int maxNodesSearched , int numTrees , int numConsiderSplit ,
 														  long randomSeed ) {
+		return new KdForestBbfNearestNeighbor<>(numTrees,maxNodesSearched,distance,
+				seed->new AxisSplitterMedian<>(distance,new AxisSplitRuleRandomK(new Random(seed),numConsiderSplit)),
+				randomSeed);
+	}
 
-		Random rand = new Random(randomSeed);
+	/**
+	 * Same as {@link #kdRandomForest} but the trees are constructed concurrently. The constructed forest is
+	 * identical for any number of threads and to the one created by {@link #kdRandomForest} with the same seed.
+	 * As with {@link #kdRandomForest}, a seed used with an earlier version will produce a different forest.
+	 *
+	 * @see KdForestBbfNearestNeighbor_MT
+	 *
+	 * @param distance Specifies how distance is computed between two points.
+	 * @param maxNodesSearched  Maximum number of nodes it will search.  Controls speed and accuracy.
+	 * @param numTrees Number of trees that are considered.  Try 10 and tune.
+	 * @param numConsiderSplit Number of nodes that are considered when generating a tree.  Must be less than the
+	 *                         point's dimension.  Try 5
+	 * @param randomSeed Seed used by random number generator. Each tree is given its own seed derived from it.
+	 * @param <P> Point type.
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static <P> NearestNeighbor<P> kdRandomForest_MT(  KdTreeDistance<P> distance ,
+															 int maxNodesSearched , int numTrees , int numConsiderSplit ,
+															 long randomSeed ) {
+		return new KdForestBbfNearestNeighbor_MT<>(numTrees,maxNodesSearched,distance,
+				seed->new AxisSplitterMedian<>(distance,new AxisSplitRuleRandomK(new Random(seed),numConsiderSplit)),
+				randomSeed);
+	}
 
-		return new KdForestBbfNearestNeighbor<>(numTrees,maxNodesSearched,distance,
-				new AxisSplitterMedian<>(distance,new AxisSplitRuleRandomK(rand,numConsiderSplit)));
+	/**
+	 * Exact {@link NearestNeighbor} search for binary descriptors packed into long arrays using Hamming distance.
+	 * Compares the query against every descriptor. Also provides a batch search for processing many queries at once.
+	 *
+	 * @see ExhaustiveHamming_I64
+	 *
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static ExhaustiveHamming_I64 exhaustiveHamming() {
+		return new ExhaustiveHamming_I64();
+	}
+
+	/**
+	 * Exact {@link NearestNeighbor} search for binary descriptors packed into long arrays using Hamming distance.
+	 * Multi-index hashing is used to only check a small fraction of the descriptors when there are close neighbors.
+	 *
+	 * @see MultiIndexHashing
+	 *
+	 * @param substringBits Number of bits in each substring. Try log2 of the number of descriptors. 1 to 20.
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static NearestNeighbor<long[]> multiIndexHashing( int substringBits ) {
+		return new MultiIndexHashing(substringBits);
 	}
 
 	/**
@@ -120,4 +301,32 @@ public class FactoryNearestNeighbor {
 	public static NearestNeighbor<double[]> vptree( long randSeed ) {
 		return new VpTree(randSeed);
 	}
+
+	/**
+	 * Vantage point tree which works with any {@link MetricDistance metric}. Nodes are stored in flat arrays and
+	 * points are stored in leaf buckets, which reduces memory and the number of distance calculations.
+	 *
+	 * @see VpTreeFlat
+	 *
+	 * @param metric Distance between points. Must satisfy the triangle inequality.
+	 * @param bucketSize Maximum number of points in a leaf. Try 20
+	 * @param randSeed Random seed
+	 * @param <P> Point type.
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static <P> NearestNeighbor<P> vptree( MetricDistance<P> metric , int bucketSize , long randSeed ) {
+		return new VpTreeFlat<>(metric, bucketSize, randSeed);
+	}
+
+	/**
+	 * Same as {@link #vptree(long)} but for points of type float[]. Uses half the memory to store points.
+	 *
+	 * @see VpTree_F32
+	 *
+	 * @param randSeed Random seed
+	 * @return {@link NearestNeighbor} implementation
+	 */
+	public static NearestNeighbor<float[]> vptree_F32( long randSeed ) {
+		return new VpTree_F32(randSeed);
+	}
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.ddogleg.nn.alg.AxisSplitRuleRandomK;
+import org.ddogleg.nn.alg.AxisSplitter;
+import org.ddogleg.nn.alg.AxisSplitterMedian;
+import org.ddogleg.nn.alg.ExhaustiveNeighbor;
+import org.ddogleg.nn.alg.KdTree;
+import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.nn.alg.searches.KdTreeSearch1Bbf;
+import org.ddogleg.nn.wrap.KdForestBbfNearestNeighbor;
+import org.ddogleg.nn.wrap.KdForestBbfNearestNeighbor_MT;
+import org.ddogleg.struct.VerbosePrint;
+
+import javax.annotation.Nullable;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * <p>
+ * Selects the parameters of an approximate K-D forest search, see {@link KdForestBbfNearestNeighbor}, so that it
+ * reaches a target recall in the least amount of time. The number of trees, the number of axes considered when
+ * splitting ({@link AxisSplitRuleRandomK}), and the maximum number of nodes searched are all tuned. Recall is the
+ * fraction of sample queries where the true nearest neighbor, found using {@link ExhaustiveNeighbor}, is
+ * returned.
+ * </p>
+ *
+ * <p>
+ * For each split rule a forest with the largest number of trees is constructed once. Since each tree's seed only
+ * depends on its position in the forest, a forest with fewer trees is the same as the first trees in the larger
+ * forest and does not need to be constructed. For each number of trees the node budget is doubled until the target
+ * recall is reached and is then refined with a bisection search. The query time for that budget is then measured
+ * and the fastest configuration is selected. If no configuration reaches the target then the one with the best
+ * recall is selected.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KdForestAutoTuner<P> implements VerbosePrint {
+	/**
+	 * Fraction of queries where the true nearest neighbor needs to be found. 0 to 1.
+	 */
+	public double targetRecall = 0.9;
+
+	/**
+	 * Number of trees in the forest which are considered
+	 */
+	public int[] candidateTrees = new int[]{1,2,4,8};
+
+	/**
+	 * Number of axes with the largest variance randomly selected from when splitting, which are considered.
+	 * Values larger than the point's dimension are skipped.
+	 */
+	public int[] candidateSplitK = new int[]{1,3,5};
+
+	/**
+	 * Smallest maximum number of nodes searched which is considered
+	 */
+	public int minNodes = 8;
+
+	/**
+	 * Largest maximum number of nodes searched which is considered
+	 */
+	public int maxNodes = 16384;
+
+	/**
+	 * The node budget is refined until it is within this fraction of the smallest budget which is known to
+	 * reach the target recall
+	 */
+	public double nodeTolerance = 0.1;
+
+	/**
+	 * Number of times the queries are timed. The fastest time is used to reduce noise.
+	 */
+	public int timingTrials = 3;
+
+	/**
+	 * If true then the trees are constructed concurrently
+	 */
+	public boolean concurrent = false;
+
+	/**
+	 * Seed used to create the trees
+	 */
+	public long randSeed = 0xBEEF;
+
+	KdTreeDistance<P> distance;
+
+	// index of the true nearest neighbor and its distance for each query
+	int[] truthIndex = new int[0];
+	double[] truthDistance = new double[0];
+
+	// Search used to evaluate a configuration
+	KdTreeSearch1Bbf<P> search;
+
+	// Selected configuration
+	int bestTrees;
+	int bestSplitK;
+	int bestNodes;
+	double bestRecall;
+	double bestQueryNano;
+
+	@Nullable PrintStream verbose;
+
+	public KdForestAutoTuner( KdTreeDistance<P> distance ) {
+		this.distance = distance;
+		this.search = new KdTreeSearch1Bbf<>(distance,1);
+	}
+
+	/**
+	 * Selects the configuration and returns a search that has been configured with it and already contains the
+	 * points.
+	 *
+	 * @param points (Input) Points which are to be searched. Not modified.
+	 * @param queries (Input) Sample of queries. Should come from the same distribution as the queries the search
+	 *                will be used with. Not modified.
+	 * @return Search using the selected configuration with points set
+	 */
+	public KdForestBbfNearestNeighbor<P> tune( List<P> points , List<P> queries ) {
+		if( points.isEmpty() || queries.isEmpty() )
+			throw new IllegalArgumentException("There must be at least one point and one query");
+		if( candidateTrees.length == 0 )
+			throw new IllegalArgumentException("No candidate number of trees");
+
+		computeTruth(points, queries);
+
+		int maxTrees = 0;
+		for (int i = 0; i < candidateTrees.length; i++) {
+			if( candidateTrees[i] <= 0 )
+				throw new IllegalArgumentException("Number of trees must be positive");
+			maxTrees = Math.max(maxTrees, candidateTrees[i]);
+		}
+
+		int N = distance.length();
+		bestTrees = -1;
+		bestRecall = -1;
+		bestQueryNano = Double.MAX_VALUE;
+		for (int splitK : candidateSplitK) {
+			if( splitK <= 0 || splitK > N )
+				continue;
+
+			KdForestBbfNearestNeighbor<P> forest = createForest(maxTrees, 1, splitK);
+			forest.setPoints(points, true);
+
+			for (int numTrees : candidateTrees) {
+				search.setTrees(Arrays.copyOf(forest.getForest(), numTrees));
+				evaluate(queries, numTrees, splitK);
+			}
+		}
+		if( bestTrees < 0 )
+			throw new IllegalArgumentException("None of the candidate split K are valid for dimension "+N);
+
+		if( verbose != null )
+			verbose.printf("selected: trees=%d splitK=%d nodes=%d recall=%.3f query=%.1f us\n",
+					bestTrees,bestSplitK,bestNodes,bestRecall,bestQueryNano/1e3);
+
+		KdForestBbfNearestNeighbor<P> selected = createForest(bestTrees, bestNodes, bestSplitK);
+		selected.setPoints(points, true);
+		return selected;
+	}
+
+	/**
+	 * Finds the true nearest neighbor of each query
+	 */
+	void computeTruth( List<P> points , List<P> queries ) {
+		ExhaustiveNeighbor<P> exhaustive = new ExhaustiveNeighbor<>(distance);
+		exhaustive.setPoints(points);
+
+		truthIndex = new int[queries.size()];
+		truthDistance = new double[queries.size()];
+		for (int i = 0; i < queries.size(); i++) {
+			truthIndex[i] = exhaustive.findClosest(queries.get(i), Double.MAX_VALUE);
+			truthDistance[i] = exhaustive.getBestDistance();
+		}
+	}
+
+	/**
+	 * Finds the smallest node budget which reaches the target recall for the trees being searched and sees if it's
+	 * faster than the best configuration so far.
+	 */
+	void evaluate( List<P> queries , int numTrees , int splitK ) {
+		// increase the budget until the target is reached
+		int lower = 0;
+		int upper = Math.max(1,minNodes);
+		double recallUpper = computeRecall(queries, upper);
+		while( recallUpper < targetRecall && upper < maxNodes ) {
+			lower = upper;
+			upper = (int)Math.min(maxNodes, 2L*upper);
+			recallUpper = computeRecall(queries, upper);
+		}
+
+		// refine the budget. Recall can only increase with more nodes
+		if( recallUpper >= targetRecall ) {
+			while( upper-lower > Math.max(1, nodeTolerance*upper) ) {
+				int middle = lower + (upper-lower)/2;
+				double recall = computeRecall(queries, middle);
+				if( recall >= targetRecall ) {
+					upper = middle;
+					recallUpper = recall;
+				} else {
+					lower = middle;
+				}
+			}
+		}
+
+		double queryNano = timeQueries(queries, upper);
+
+		if( verbose != null )
+			verbose.printf("trees=%2d splitK=%2d nodes=%6d recall=%.3f query=%.1f us\n",
+					numTrees,splitK,upper,recallUpper,queryNano/1e3);
+
+		// configurations which reach the target are always better than ones which don't
+		boolean reached = recallUpper >= targetRecall;
+		boolean bestReached = bestRecall >= targetRecall;
+		boolean better;
+		if( reached != bestReached )
+			better = reached;
+		else if( reached )
+			better = queryNano < bestQueryNano;
+		else
+			better = recallUpper > bestRecall || (recallUpper == bestRecall && queryNano < bestQueryNano);
+
+		if( better ) {
+			bestTrees = numTrees;
+			bestSplitK = splitK;
+			bestNodes = upper;
+			bestRecall = recallUpper;
+			bestQueryNano = queryNano;
+		}
+	}
+
+	/**
+	 * Computes the fraction of queries where the true nearest neighbor was found. Ties count as found.
+	 */
+	double computeRecall( List<P> queries , int budget ) {
+		search.setMaxNodesSearched(budget);
+		search.setMaxDistance(Double.MAX_VALUE);
+		int correct = 0;
+		for (int i = 0; i < queries.size(); i++) {
+			KdTree.Node found = search.findNeighbor(queries.get(i));
+			if( found == null )
+				continue;
+			if( found.index == truthIndex[i] || search.getDistance() <= truthDistance[i] )
+				correct++;
+		}
+		return correct/(double)queries.size();
+	}
+
+	/**
+	 * Average time it takes to process a query in nanoseconds
+	 */
+	double timeQueries( List<P> queries , int budget ) {
+		search.setMaxNodesSearched(budget);
+		search.setMaxDistance(Double.MAX_VALUE);
+		long best = Long.MAX_VALUE;
+		for (int trial = 0; trial < Math.max(1,timingTrials); trial++) {
+			long time0 = System.nanoTime();
+			for (int i = 0; i < queries.size(); i++) {
+				search.findNeighbor(queries.get(i));
+			}
+			best = Math.min(best, System.nanoTime()-time0);
+		}
+		return best/(double)queries.size();
+	}
+
+	KdForestBbfNearestNeighbor<P> createForest( int numTrees , int budget , int splitK ) {
+		LongFunction<AxisSplitter<P>> factory =
+				seed->new AxisSplitterMedian<>(distance,new AxisSplitRuleRandomK(new Random(seed),splitK));
+		if( concurrent )
+			return new KdForestBbfNearestNeighbor_MT<>(numTrees,budget,distance,factory,randSeed);
+		else
+			return new KdForestBbfNearestNeighbor<>(numTrees,budget,distance,factory,randSeed);
+	}
+
+	@Override
+	public void setVerbose( @Nullable PrintStream out, @Nullable Set<String> configuration ) {
+		this.verbose = out;
+	}
+
+	/**
+	 * Number of trees in the selected configuration
+	 */
+	public int getNumTrees() {
+		return bestTrees;
+	}
+
+	/**
+	 * Number of axes considered when splitting in the selected configuration
+	 */
+	public int getSplitK() {
+		return bestSplitK;
+	}
+
+	/**
+	 * Maximum number of nodes searched in the selected configuration
+	 */
+	public int getMaxNodesSearched() {
+		return bestNodes;
+	}
+
+	/**
+	 * Recall of the selected configuration on the sample queries
+	 */
+	public double getRecall() {
+		return bestRecall;
+	}
+
+	/**
+	 * Average time per query, in nanoseconds, of the selected configuration on the sample queries
+	 */
+	public double getQueryTimeNano() {
+		return bestQueryNano;
+	}
+
+	/**
+	 * True if the selected configuration reached the target recall
+	 */
+	public boolean isTargetReached() {
+		return bestRecall >= targetRecall;
+	}
+}
@@ -20,6 +20,7 @@ package org.ddogleg.nn;
 
 import org.ddogleg.struct.FastQueue;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 /**
@@ -91,5 +92,46 @@ public interface NearestNeighbor<P> {
 		 * @param results (Output) Storage for the result. Reset() is called.
 		 */
 		void findNearest( P point , double maxDistance , int numNeighbors , FastQueue<NnData<P>> results );
+
+		/**
+		 * Searches for all the points which are within maxDistance of the specified point. Unlike
+		 * {@link #findNearest(Object, double, int, FastQueue)} there is no limit on the number of points found.
+		 * The order of the results is not specified.
+		 *
+		 * <p>
+		 * The default implementation repeatedly calls findNearest() with a larger number of neighbors until fewer
+		 * neighbors are found than requested. Implementations should override this with a native search.
+		 * </p>
+		 *
+		 * @param point (Input) A point being searched for.
+		 * @param maxDistance (Input) Maximum distance (inclusive, e.g. d &le; maxDistance) a neighbor can be from point.
+		 *                    Values {@code <} 0 will be set to the maximum distance.
+		 * @param results (Output) Storage for the result. Reset() is called.
+		 */
+		default void findWithinDistance( P point , double maxDistance , FastQueue<NnData<P>> results ) {
+			int numNeighbors = 16;
+			while( true ) {
+				findNearest(point,maxDistance,numNeighbors,results);
+				if( results.size < numNeighbors || numNeighbors == Integer.MAX_VALUE )
+					break;
+				numNeighbors = numNeighbors > Integer.MAX_VALUE/2 ? Integer.MAX_VALUE : numNeighbors*2;
+			}
+		}
+
+		/**
+		 * Specifies where statistics about each query are recorded. If null, which is the default, then no
+		 * statistics are collected and there is no overhead. Implementations which do not support statistics
+		 * ignore this function.
+		 *
+		 * @param stats (Output) Storage for statistics or null to turn off.
+		 */
+		default void setStats( @Nullable NearestNeighborStats stats ) {}
+
+		/**
+		 * Returns where statistics are being recorded or null if they are not being recorded.
+		 */
+		default @Nullable NearestNeighborStats getStats() {
+			return null;
+		}
 	}
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.ddogleg.struct.FastQueue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>
+ * Searches for the nearest neighbors of every point in a list. The list is split into blocks which are processed
+ * concurrently using the thread pool in {@link ConcurrencyOps}. Each block has its own
+ * {@link NearestNeighbor.Search}, which is created once and reused between calls. Results are written into
+ * arrays which are provided by the user and the results do not depend on the number of threads.
+ * </p>
+ *
+ * <p>
+ * Results are returned as indexes into the list passed into {@link NearestNeighbor#setPoints}. For the index
+ * to be valid setPoints must be called with trackIndices set to true. The nearest neighbor data structure
+ * must not be modified while a batch search is being performed.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class NearestNeighborBatch<P> {
+	/** Minimum number of points searched by a single thread */
+	public int minimumBlock = 50;
+
+	// The data structure being searched
+	NearestNeighbor<P> nn;
+
+	// Storage for each block
+	FastQueue<Workspace> workspace;
+
+	/**
+	 * Specifies the data structure which is to be searched. Points must be set separately.
+	 */
+	public NearestNeighborBatch( NearestNeighbor<P> nn ) {
+		this.nn = nn;
+		this.workspace = new FastQueue<>(0,Workspace::new);
+	}
+
+	/**
+	 * Finds the nearest neighbor to each point in the list.
+	 *
+	 * @param points (Input) Points which are being searched for
+	 * @param maxDistance (Input) Maximum distance a neighbor can be. See {@link NearestNeighbor.Search}.
+	 * @param indexes (Output) Index of the nearest neighbor for each point. -1 if no neighbor was found.
+	 *                Must be at least points.size() long.
+	 * @param distances (Output) Distance of the nearest neighbor for each point. NaN if no neighbor was found.
+	 *                  If null it is ignored.
+	 */
+	public void findNearest( List<P> points , double maxDistance , int[] indexes , double[] distances ) {
+		checkLength(indexes.length, points.size());
+		if( distances != null )
+			checkLength(distances.length, points.size());
+
+		ConcurrencyOps.loopBlocks(0, points.size(), minimumBlock, workspace, ( w, idx0, idx1 ) -> {
+			for (int i = idx0; i < idx1; i++) {
+				if( w.search.findNearest(points.get(i), maxDistance, w.result) ) {
+					indexes[i] = w.result.index;
+					if( distances != null )
+						distances[i] = w.result.distance;
+				} else {
+					indexes[i] = -1;
+					if( distances != null )
+						distances[i] = Double.NaN;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Finds the k-nearest neighbors to each point in the list. Results are stored in row-major order, i.e.
+	 * the j-th neighbor of the i-th point is at element i*numNeighbors + j, and are sorted from closest to farthest.
+	 * If less than numNeighbors neighbors are found then the unused elements will have an index of -1 and a
+	 * distance of NaN.
+	 *
+	 * @param points (Input) Points which are being searched for
+	 * @param maxDistance (Input) Maximum distance a neighbor can be. See {@link NearestNeighbor.Search}.
+	 * @param numNeighbors (Input) The number of neighbors it will search for.
+	 * @param indexes (Output) Index of the neighbors. Must be at least points.size()*numNeighbors long.
+	 * @param distances (Output) Distance of the neighbors. If null it is ignored.
+	 */
+	public void findNearest( List<P> points , double maxDistance , int numNeighbors ,
+							 int[] indexes , double[] distances ) {
+		checkLength(indexes.length, points.size()*numNeighbors);
+		if( distances != null )
+			checkLength(distances.length, points.size()*numNeighbors);
+
+		ConcurrencyOps.loopBlocks(0, points.size(), minimumBlock, workspace, ( w, idx0, idx1 ) -> {
+			for (int i = idx0; i < idx1; i++) {
+				w.search.findNearest(points.get(i), maxDistance, numNeighbors, w.resultsN);
+				Arrays.sort(w.resultsN.data,0,w.resultsN.size,w.sorter);
+
+				int offset = i*numNeighbors;
+				int found = Math.min(numNeighbors,w.resultsN.size);
+				for (int j = 0; j < found; j++) {
+					NnData<P> r = w.resultsN.get(j);
+					indexes[offset+j] = r.index;
+					if( distances != null )
+						distances[offset+j] = r.distance;
+				}
+				Arrays.fill(indexes,offset+found,offset+numNeighbors,-1);
+				if( distances != null )
+					Arrays.fill(distances,offset+found,offset+numNeighbors,Double.NaN);
+			}
+		});
+	}
+
+	private static void checkLength( int actual , int expected ) {
+		if( actual < expected )
+			throw new IllegalArgumentException("Output array is too small. "+actual+" < "+expected);
+	}
+
+	public NearestNeighbor<P> getNearestNeighbor() {
+		return nn;
+	}
+
+	/**
+	 * Storage used by a single block
+	 */
+	class Workspace {
+		NearestNeighbor.Search<P> search = nn.createSearch();
+		NnData<P> result = new NnData<>();
+		FastQueue<NnData<P>> resultsN = new FastQueue<>(NnData::new);
+		Comparator<NnData<P>> sorter = Comparator.comparingDouble(a -> a.distance);
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+/**
+ * <p>
+ * {@link NearestNeighbor} which can have points added and removed after {@link #setPoints} has been called without
+ * rebuilding the entire data structure. The index of a point is assigned when it's added and doesn't change when
+ * other points are removed. Points passed into {@link #setPoints} have the same index as their location in the list
+ * and points added after that are assigned the next unused index.
+ * </p>
+ *
+ * <p>
+ * Modifying the point set while a search is being performed is not allowed.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public interface NearestNeighborMutable<P> extends NearestNeighbor<P> {
+
+	/**
+	 * Adds a new point to the set. A reference to the point is saved.
+	 *
+	 * @param point The point being added
+	 * @return Index assigned to the point
+	 */
+	int addPoint( P point );
+
+	/**
+	 * Removes the point with the specified index.
+	 *
+	 * @param index Index of the point which is to be removed
+	 * @return true if the point was removed or false if there is no point with that index
+	 */
+	boolean removePoint( int index );
+
+	/**
+	 * Rebuilds the internal data structure from the current set of points. Search performance can degrade as the
+	 * point set is modified. This is intended to restore it.
+	 */
+	void rebalance();
+
+	/**
+	 * Number of points currently in the set
+	 */
+	int size();
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+/**
+ * <p>
+ * Statistics collected while performing nearest neighbor searches. Used to understand why some queries are slow.
+ * Statistics are only collected when an instance has been passed to
+ * {@link NearestNeighbor.Search#setStats(NearestNeighborStats)}, otherwise nothing is recorded. Not all
+ * counters are meaningful for all implementations, e.g. an exhaustive search has no nodes or heap.
+ * </p>
+ *
+ * <p>
+ * Counters are cumulative and are only cleared by {@link #reset()}. Each thread should record into its own
+ * instance since nothing is synchronized. The results from each thread can then be combined with {@link #add}.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class NearestNeighborStats {
+	/**
+	 * Number of bins in the latency histogram
+	 */
+	public static final int LATENCY_BINS = 64;
+
+	/**
+	 * Number of queries which have been performed
+	 */
+	public long queries;
+	/**
+	 * Number of nodes in a tree which have been visited
+	 */
+	public long nodesVisited;
+	/**
+	 * Number of times the distance between the query and a point has been computed
+	 */
+	public long distanceEvaluations;
+	/**
+	 * Number of times a leaf or bucket has been reached
+	 */
+	public long leafHits;
+	/**
+	 * Number of items added to a priority queue, e.g. nodes in best-bin-first or neighbors in a k-NN search
+	 */
+	public long heapPushes;
+	/**
+	 * Number of queries which stopped before all candidates had been considered, e.g. the maximum number of
+	 * nodes had been searched
+	 */
+	public long earlyTerminations;
+
+	/**
+	 * Histogram of how long each query took. Bin i contains queries which took from 2<sup>i</sup> up to
+	 * 2<sup>i+1</sup> nanoseconds. Bin 0 also contains queries which took 0 nanoseconds.
+	 */
+	public final long[] latencyHistogram = new long[LATENCY_BINS];
+	/**
+	 * Sum of the time taken by all the queries in nanoseconds
+	 */
+	public long latencyTotalNano;
+
+	/**
+	 * Records a query which has finished
+	 *
+	 * @param elapsedNano How long the query took in nanoseconds
+	 */
+	public void recordQuery( long elapsedNano ) {
+		queries++;
+		latencyTotalNano += elapsedNano;
+		latencyHistogram[latencyBin(elapsedNano)]++;
+	}
+
+	/**
+	 * Returns the histogram bin for the specified latency
+	 */
+	public static int latencyBin( long elapsedNano ) {
+		if( elapsedNano <= 1 )
+			return 0;
+		return 63-Long.numberOfLeadingZeros(elapsedNano);
+	}
+
+	/**
+	 * Mean time taken by a query in nanoseconds. Zero if no queries have been recorded.
+	 */
+	public double getMeanLatencyNano() {
+		return queries == 0 ? 0 : latencyTotalNano/(double)queries;
+	}
+
+	/**
+	 * Estimates the latency below which the specified fraction of queries fall. Since the histogram's bins are
+	 * powers of two the upper bound of the bin is returned.
+	 *
+	 * @param fraction Fraction of queries, 0 to 1. E.g. 0.99 for the 99th percentile
+	 * @return Upper bound of the latency in nanoseconds. Zero if no queries have been recorded.
+	 */
+	public long getLatencyPercentileNano( double fraction ) {
+		if( fraction < 0 || fraction > 1 )
+			throw new IllegalArgumentException("Fraction must be from 0 to 1");
+
+		long total = 0;
+		for (int i = 0; i < LATENCY_BINS; i++) {
+			total += latencyHistogram[i];
+		}
+		if( total == 0 )
+			return 0;
+
+		long target = Math.max(1,(long)Math.ceil(fraction*total));
+		long sum = 0;
+		for (int i = 0; i < LATENCY_BINS; i++) {
+			sum += latencyHistogram[i];
+			if( sum >= target )
+				return i >= 62 ? Long.MAX_VALUE : (1L << (i+1))-1;
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Adds the statistics in 'src' to this instance.
+	 */
+	public void add( NearestNeighborStats src ) {
+		queries += src.queries;
+		nodesVisited += src.nodesVisited;
+		distanceEvaluations += src.distanceEvaluations;
+		leafHits += src.leafHits;
+		heapPushes += src.heapPushes;
+		earlyTerminations += src.earlyTerminations;
+		latencyTotalNano += src.latencyTotalNano;
+		for (int i = 0; i < LATENCY_BINS; i++) {
+			latencyHistogram[i] += src.latencyHistogram[i];
+		}
+	}
+
+	public void setTo( NearestNeighborStats src ) {
+		reset();
+		add(src);
+	}
+
+	public void reset() {
+		queries = 0;
+		nodesVisited = 0;
+		distanceEvaluations = 0;
+		leafHits = 0;
+		heapPushes = 0;
+		earlyTerminations = 0;
+		latencyTotalNano = 0;
+		for (int i = 0; i < LATENCY_BINS; i++) {
+			latencyHistogram[i] = 0;
+		}
+	}
+
+	public NearestNeighborStats copy() {
+		NearestNeighborStats ret = new NearestNeighborStats();
+		ret.setTo(this);
+		return ret;
+	}
+
+	/**
+	 * Prints a summary of the statistics to standard out
+	 */
+	public void print() {
+		double q = Math.max(1,queries);
+		System.out.println("queries               = "+queries);
+		System.out.printf ("nodes visited         = %d  (%.1f per query)\n",nodesVisited,nodesVisited/q);
+		System.out.printf ("distance evaluations  = %d  (%.1f per query)\n",distanceEvaluations,distanceEvaluations/q);
+		System.out.printf ("leaf hits             = %d  (%.1f per query)\n",leafHits,leafHits/q);
+		System.out.printf ("heap pushes           = %d  (%.1f per query)\n",heapPushes,heapPushes/q);
+		System.out.println("early terminations    = "+earlyTerminations);
+		System.out.printf ("latency mean          = %.1f us\n",getMeanLatencyNano()/1e3);
+		System.out.printf ("latency 50%% / 99%%     = %.1f / %.1f us\n",
+				getLatencyPercentileNano(0.5)/1e3,getLatencyPercentileNano(0.99)/1e3);
+	}
+}
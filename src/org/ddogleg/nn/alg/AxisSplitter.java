@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -21,6 +21,7 @@ package org.ddogleg.nn.alg;
 import org.ddogleg.struct.GrowQueue_I32;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -48,6 +49,54 @@ public interface AxisSplitter<P> {
 					List<P> left , @Nullable GrowQueue_I32 leftIndexes ,
 					List<P> right , @Nullable GrowQueue_I32 righrIndexes );
 
+	/**
+	 * <p>
+	 * In-place version of {@link #splitData}. Only points inside the range [lower,upper) are considered. When
+	 * finished the points will be rearranged so that points in the left set come first, followed by the split
+	 * point, and then points in the right set. Order inside of each set is the same as what splitData() would
+	 * produce.
+	 * </p>
+	 *
+	 * <p>The default implementation calls splitData() and copies the results back into the input</p>
+	 *
+	 * @param points Input/Output: Set of points. Only elements inside the range are modified.
+	 * @param indexes Input/Output: (Optional) Index associated with each element in points.  Can be null.
+	 * @param lower Index of the first point in the range.
+	 * @param upper Index of the last point in the range, exclusive.
+	 * @return Number of points in the left set. The split point is at lower plus this value.
+	 */
+	default int splitDataInPlace( List<P> points , @Nullable GrowQueue_I32 indexes , int lower , int upper ) {
+		List<P> left = new ArrayList<>();
+		List<P> right = new ArrayList<>();
+		GrowQueue_I32 subIndexes = null, leftIndexes = null, rightIndexes = null;
+		if( indexes != null ) {
+			subIndexes = new GrowQueue_I32();
+			subIndexes.setTo(indexes.data,lower,upper-lower);
+			leftIndexes = new GrowQueue_I32();
+			rightIndexes = new GrowQueue_I32();
+		}
+
+		splitData(points.subList(lower,upper),subIndexes,left,leftIndexes,right,rightIndexes);
+
+		int idx = lower;
+		for (int i = 0; i < left.size(); i++, idx++) {
+			points.set(idx,left.get(i));
+			if( indexes != null )
+				indexes.data[idx] = leftIndexes.data[i];
+		}
+		points.set(idx,getSplitPoint());
+		if( indexes != null )
+			indexes.data[idx] = getSplitIndex();
+		idx++;
+		for (int i = 0; i < right.size(); i++, idx++) {
+			points.set(idx,right.get(i));
+			if( indexes != null )
+				indexes.data[idx] = rightIndexes.data[i];
+		}
+
+		return left.size();
+	}
+
 	/**
 	 * Returns the point used to split the data
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -21,6 +21,7 @@ package org.ddogleg.nn.alg;
 import org.ddogleg.sorting.QuickSelect;
 import org.ddogleg.struct.GrowQueue_I32;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -43,6 +44,10 @@ public class AxisSplitterMedian<P> implements AxisSplitter<P> {
 	private double tmp[] = new double[1];
 	private int indexes[] = new int[1];
 
+	// storage for rearranging points when splitting in place
+	private List<P> workPoints = new ArrayList<>();
+	private int[] workIndexes = new int[1];
+
 	// using each axis's variance, selects which axis to split along
 	// This abstraction was done so that random trees could use the same code
 	AxisSplitRule splitRule;
@@ -77,19 +82,12 @@ public class AxisSplitterMedian<P> implements AxisSplitter<P> {
 	public void splitData(List<P> points, GrowQueue_I32 indexes,
 						  List<P> left, GrowQueue_I32 leftIndexes,
 						  List<P> right, GrowQueue_I32 rightIndexes) {
-		computeAxisVariance(points);
-		for (int i = 0; i < N; i++) {
-			if( Double.isNaN(var[i])) {
-				throw new RuntimeException("Variance is NaN.  Bad input is the cause. mean[i]="+mean[i]+" i="+i+" points.size="+points.size());
-			}
-		}
-
-		splitAxis = splitRule.select(var);
+		selectSplitAxis(points, 0, points.size());
 
 		// where the median is
 		final int medianNum = points.size()/2;
 		// sort until the median is found
-		quickSelect(points, splitAxis,medianNum);
+		quickSelect(points, 0, points.size(), splitAxis,medianNum);
 
 		splitPoint = points.get( this.indexes[medianNum] );
 
@@ -119,6 +117,42 @@ public class AxisSplitterMedian<P> implements AxisSplitter<P> {
 		}
 	}
 
+	@Override
+	public int splitDataInPlace( List<P> points, GrowQueue_I32 indexes, int lower, int upper ) {
+		final int numPoints = upper-lower;
+		selectSplitAxis(points, lower, upper);
+
+		// where the median is
+		final int medianNum = numPoints/2;
+		// sort until the median is found
+		quickSelect(points, lower, upper, splitAxis, medianNum);
+
+		if( workIndexes.length < numPoints ) {
+			workIndexes = new int[numPoints];
+		}
+
+		// rearrange the points into the same order the lists would have been in splitData()
+		workPoints.clear();
+		for (int i = 0; i < numPoints; i++) {
+			workPoints.add(points.get(lower+this.indexes[i]));
+		}
+		for (int i = 0; i < numPoints; i++) {
+			points.set(lower+i, workPoints.get(i));
+		}
+		workPoints.clear();
+		if( indexes != null ) {
+			for (int i = 0; i < numPoints; i++) {
+				workIndexes[i] = indexes.data[lower+this.indexes[i]];
+			}
+			System.arraycopy(workIndexes,0,indexes.data,lower,numPoints);
+			splitIndex = indexes.data[lower+medianNum];
+		}
+
+		splitPoint = points.get(lower+medianNum);
+
+		return medianNum;
+	}
+
 	@Override
 	public P getSplitPoint() {
 		return splitPoint;
@@ -140,10 +174,24 @@ public class AxisSplitterMedian<P> implements AxisSplitter<P> {
 	}
 
 	/**
-	 * Select the maximum variance as the split
+	 * Computes the variance of points inside the range and uses the split rule to select the split axis
 	 */
-	private void computeAxisVariance(List<P> points) {
-		int numPoints = points.size();
+	private void selectSplitAxis(List<P> points, int lower, int upper) {
+		computeAxisVariance(points, lower, upper);
+		for (int i = 0; i < N; i++) {
+			if( Double.isNaN(var[i])) {
+				throw new RuntimeException("Variance is NaN.  Bad input is the cause. mean[i]="+mean[i]+" i="+i+" points.size="+(upper-lower));
+			}
+		}
+
+		splitAxis = splitRule.select(var);
+	}
+
+	/**
+	 * Computes the mean and variance along each axis for points inside the range
+	 */
+	private void computeAxisVariance(List<P> points, int lower, int upper) {
+		int numPoints = upper-lower;
 
 		for( int i = 0; i < N; i++ ) {
 			mean[i] = 0;
@@ -151,7 +199,7 @@ public class AxisSplitterMedian<P> implements AxisSplitter<P> {
 		}
 
 		// compute the mean
-		for( int i = 0; i < numPoints; i++ ) {
+		for( int i = lower; i < upper; i++ ) {
 			P p = points.get(i);
 
 			for( int j = 0; j < N; j++ ) {
@@ -164,7 +212,7 @@ public class AxisSplitterMedian<P> implements AxisSplitter<P> {
 		}
 
 		// compute the variance * N
-		for( int i = 0; i < numPoints; i++ ) {
+		for( int i = lower; i < upper; i++ ) {
 			P p = points.get(i);
 
 			for( int j = 0; j < N; j++ ) {
@@ -175,17 +223,17 @@ public class AxisSplitterMedian<P> implements AxisSplitter<P> {
 	}
 
 	/**
-	 * Uses quick-select to find the median value
+	 * Uses quick-select to find the median value. Indexes are relative to 'lower'
 	 */
-	private void quickSelect(List<P> points, int splitAxis, int medianNum) {
-		int numPoints = points.size();
+	private void quickSelect(List<P> points, int lower, int upper, int splitAxis, int medianNum) {
+		int numPoints = upper-lower;
 
 		if( tmp.length < numPoints ) {
 			tmp = new double[numPoints];
 			indexes = new int[ numPoints ];
 		}
 		for( int i = 0; i < numPoints; i++ ) {
-			tmp[i] = distance.valueAt(points.get(i),splitAxis);
+			tmp[i] = distance.valueAt(points.get(lower+i),splitAxis);
 		}
 
 		QuickSelect.selectIndex(tmp, medianNum, numPoints, indexes);
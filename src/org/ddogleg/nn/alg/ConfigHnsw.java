@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+/**
+ * Configuration for {@link HnswGraph}
+ *
+ * @author Peter Abeles
+ */
+public class ConfigHnsw {
+	/**
+	 * Number of connections a new node makes at each level. Level 0 allows up to 2*M connections.
+	 * Larger values improve recall for high dimensional data at the cost of memory and speed.
+	 */
+	public int M = 16;
+
+	/**
+	 * Size of the candidate list when inserting a new node. Larger values create a better graph but take longer.
+	 */
+	public int efConstruction = 200;
+
+	/**
+	 * Size of the candidate list when searching. Larger values are more accurate but slower. If less than the
+	 * number of neighbors being searched for then the number of neighbors is used.
+	 */
+	public int efSearch = 50;
+
+	/**
+	 * Seed for the random number generator used to select the level of a new node
+	 */
+	public long randSeed = 0xDEADBEEF;
+
+	public ConfigHnsw copy() {
+		ConfigHnsw c = new ConfigHnsw();
+		c.M = M;
+		c.efConstruction = efConstruction;
+		c.efSearch = efSearch;
+		c.randSeed = randSeed;
+		return c;
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+/**
+ * Configuration for an inverted file index with product quantization. See
+ * {@link org.ddogleg.nn.wrap.IvfPqNearestNeighbor}.
+ *
+ * @author Peter Abeles
+ */
+public class ConfigIvfPq {
+	/**
+	 * Number of inverted lists, i.e. clusters found by the coarse quantizer. Try sqrt(N) where N is the number of
+	 * points.
+	 */
+	public int numLists = 256;
+
+	/**
+	 * Number of inverted lists which are searched. Larger values are more accurate but slower.
+	 */
+	public int numProbe = 8;
+
+	/**
+	 * Number of sub-spaces each vector is split into. This is the number of bytes used to encode a vector.
+	 */
+	public int numSubspaces = 8;
+
+	/**
+	 * Number of centroids in each sub-space's codebook. Must be 256 or less.
+	 */
+	public int numCentroids = 256;
+
+	/**
+	 * Maximum number of points which are used to learn the quantizers. If there are more points then a random
+	 * subset is used.
+	 */
+	public int maxTrainingPoints = 20000;
+
+	/**
+	 * Maximum number of k-means iterations when learning the quantizers
+	 */
+	public int kmeansIterations = 20;
+
+	/**
+	 * Seed for random number generators
+	 */
+	public long randSeed = 0xDEADBEEF;
+
+	public ConfigIvfPq copy() {
+		ConfigIvfPq c = new ConfigIvfPq();
+		c.numLists = numLists;
+		c.numProbe = numProbe;
+		c.numSubspaces = numSubspaces;
+		c.numCentroids = numCentroids;
+		c.maxTrainingPoints = maxTrainingPoints;
+		c.kmeansIterations = kmeansIterations;
+		c.randSeed = randSeed;
+		return c;
+	}
+}
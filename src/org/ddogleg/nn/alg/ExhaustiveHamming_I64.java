@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.distance.MetricHamming_I64;
+import org.ddogleg.struct.FastQueue;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * <p>
+ * Brute force nearest neighbor search for binary descriptors using Hamming distance. Descriptors are packed into a
+ * single array of longs and the distance is computed using {@link Long#bitCount}. The reported distance is the
+ * number of bits which are different. All descriptors must have the same number of elements.
+ * </p>
+ *
+ * <p>
+ * A batch of queries can be processed at once with {@link #findNearest(List, double, int, int[], double[])}.
+ * Descriptors are processed in tiles which are small enough to stay inside the CPU's cache while every query is
+ * compared against them.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ExhaustiveHamming_I64 implements NearestNeighbor<long[]> {
+
+	/** Approximate number of elements in a tile of descriptors. Should fit inside of the CPU's cache. */
+	public int tileElements = 4096;
+
+	// The original list of descriptors
+	List<long[]> points;
+	// Descriptors packed into a single array
+	long[] packed = new long[0];
+	// Number of elements in each descriptor
+	int words;
+
+	// Closest neighbors found for each query in the batch. Sorted from closest to farthest
+	int[] batchDistances = new int[0];
+	int[] batchIndexes = new int[0];
+	int[] batchSizes = new int[0];
+
+	@Override
+	public void setPoints( List<long[]> points , boolean trackIndicies ) {
+		this.points = points;
+		this.words = points.isEmpty() ? 0 : points.get(0).length;
+
+		// computed as a long since the number of elements can exceed the range of an int
+		long length = (long)points.size()*words;
+		if( length > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException("Too many descriptors. "+points.size()+" descriptors with "+words+
+					" words each requires more elements than can be stored in an array");
+		if( packed.length < length )
+			packed = new long[(int)length];
+		for (int i = 0; i < points.size(); i++) {
+			long[] p = points.get(i);
+			if( p.length != words )
+				throw new IllegalArgumentException("All descriptors must have the same length");
+			System.arraycopy(p, 0, packed, i*words, words);
+		}
+	}
+
+	/**
+	 * Finds the k-nearest neighbors to each query. Results are stored in row-major order, i.e.
+	 * the j-th neighbor of the i-th query is at element i*numNeighbors + j, and are sorted from closest to farthest.
+	 * If less than numNeighbors neighbors are found then the unused elements will have an index of -1 and a
+	 * distance of NaN.
+	 *
+	 * @param queries (Input) Descriptors which are being searched for
+	 * @param maxDistance (Input) Maximum Hamming distance a neighbor can be. Values {@code <} 0 are
+	 *                    set to the maximum distance.
+	 * @param numNeighbors (Input) The number of neighbors it will search for.
+	 * @param indexes (Output) Index of the neighbors. Must be at least queries.size()*numNeighbors long.
+	 * @param distances (Output) Distance of the neighbors. If null it is ignored.
+	 */
+	public void findNearest( List<long[]> queries , double maxDistance , int numNeighbors ,
+							 int[] indexes , @Nullable double[] distances ) {
+		if( numNeighbors <= 0 )
+			throw new IllegalArgumentException("I'm sorry, but I refuse to search for less than or equal to 0 neighbors.");
+		final int numQueries = queries.size();
+		if( indexes.length < numQueries*numNeighbors )
+			throw new IllegalArgumentException("indexes is too small");
+		if( distances != null && distances.length < numQueries*numNeighbors )
+			throw new IllegalArgumentException("distances is too small");
+
+		final int length = numQueries*numNeighbors;
+		if( batchDistances.length < length ) {
+			batchDistances = new int[length];
+			batchIndexes = new int[length];
+		}
+		if( batchSizes.length < numQueries )
+			batchSizes = new int[numQueries];
+		for (int i = 0; i < numQueries; i++) {
+			batchSizes[i] = 0;
+		}
+
+		final int numPoints = points.size();
+		final int tileSize = Math.max(1,tileElements/Math.max(1,words));
+		final int threshold = maxThreshold(maxDistance);
+
+		for (int tile0 = 0; tile0 < numPoints; tile0 += tileSize) {
+			final int tile1 = Math.min(tile0+tileSize, numPoints);
+			for (int query = 0; query < numQueries; query++) {
+				searchRange(queries.get(query), tile0, tile1, threshold, numNeighbors,
+						batchDistances, batchIndexes, batchSizes, query);
+			}
+		}
+
+		for (int query = 0; query < numQueries; query++) {
+			final int size = batchSizes[query];
+			for (int i = 0; i < numNeighbors; i++) {
+				int idx = query*numNeighbors+i;
+				if( i < size ) {
+					indexes[idx] = batchIndexes[idx];
+					if( distances != null )
+						distances[idx] = batchDistances[idx];
+				} else {
+					indexes[idx] = -1;
+					if( distances != null )
+						distances[idx] = Double.NaN;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares the query against all the descriptors in the range [point0, point1) and updates the sorted list of
+	 * best neighbors for the query.
+	 *
+	 * @param threshold A descriptor must have a distance less than this to be a neighbor
+	 * @param which Which query's list of neighbors is updated
+	 */
+	void searchRange( long[] query , int point0 , int point1 , int threshold , int numNeighbors ,
+					  int[] bestDistances , int[] bestIndexes , int[] sizes , int which ) {
+		final int offset = which*numNeighbors;
+		int size = sizes[which];
+		// neighbors must be closer than this distance
+		int worst = size == numNeighbors ? bestDistances[offset+size-1] : threshold;
+
+		for (int point = point0; point < point1; point++) {
+			final int d = MetricHamming_I64.hamming(query, packed, point*words);
+			if( d >= worst )
+				continue;
+
+			// insert it into the sorted list
+			int location = size < numNeighbors ? size++ : numNeighbors-1;
+			while( location > 0 && bestDistances[offset+location-1] > d ) {
+				bestDistances[offset+location] = bestDistances[offset+location-1];
+				bestIndexes[offset+location] = bestIndexes[offset+location-1];
+				location--;
+			}
+			bestDistances[offset+location] = d;
+			bestIndexes[offset+location] = point;
+
+			if( size == numNeighbors )
+				worst = bestDistances[offset+size-1];
+		}
+		sizes[which] = size;
+	}
+
+	/**
+	 * Converts the maximum distance into a threshold which neighbors must be less than
+	 */
+	static int maxThreshold( double maxDistance ) {
+		if( maxDistance < 0 || maxDistance >= Integer.MAX_VALUE-1 )
+			return Integer.MAX_VALUE;
+		return (int)Math.floor(maxDistance)+1;
+	}
+
+	@Override
+	public Search<long[]> createSearch() {
+		return new InternalSearch();
+	}
+
+	private class InternalSearch implements Search<long[]> {
+		int[] bestDistances = new int[0];
+		int[] bestIndexes = new int[0];
+		int[] sizes = new int[1];
+
+		@Override
+		public boolean findNearest( long[] point , double maxDistance , NnData<long[]> result ) {
+			search(point, maxDistance, 1);
+			if( sizes[0] == 0 )
+				return false;
+			result.index = bestIndexes[0];
+			result.point = points.get(result.index);
+			result.distance = bestDistances[0];
+			return true;
+		}
+
+		@Override
+		public void findNearest( long[] point , double maxDistance , int numNeighbors ,
+								 FastQueue<NnData<long[]>> results ) {
+			results.reset();
+			search(point, maxDistance, numNeighbors);
+			for (int i = 0; i < sizes[0]; i++) {
+				NnData<long[]> r = results.grow();
+				r.index = bestIndexes[i];
+				r.point = points.get(r.index);
+				r.distance = bestDistances[i];
+			}
+		}
+
+		@Override
+		public void findWithinDistance( long[] point , double maxDistance , FastQueue<NnData<long[]>> results ) {
+			results.reset();
+			final int threshold = maxThreshold(maxDistance);
+			final int numPoints = points.size();
+			for (int i = 0; i < numPoints; i++) {
+				int d = MetricHamming_I64.hamming(point, packed, i*words);
+				if( d >= threshold )
+					continue;
+				NnData<long[]> r = results.grow();
+				r.index = i;
+				r.point = points.get(i);
+				r.distance = d;
+			}
+		}
+
+		void search( long[] point , double maxDistance , int numNeighbors ) {
+			if( bestDistances.length < numNeighbors ) {
+				bestDistances = new int[numNeighbors];
+				bestIndexes = new int[numNeighbors];
+			}
+			sizes[0] = 0;
+			searchRange(point, 0, points.size(), maxThreshold(maxDistance), numNeighbors,
+					bestDistances, bestIndexes, sizes, 0);
+		}
+	}
+}
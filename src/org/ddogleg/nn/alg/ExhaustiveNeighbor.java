@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,6 +18,7 @@
 
 package org.ddogleg.nn.alg;
 
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
 import org.ddogleg.sorting.QuickSelect;
 import org.ddogleg.struct.GrowQueue_F64;
 import org.ddogleg.struct.GrowQueue_I32;
@@ -25,14 +26,17 @@ import org.ddogleg.struct.GrowQueue_I32;
 import java.util.List;
 
 /**
- * Exhaustively finds the nearest-neighbor to a n-dimensional point by considering every possibility.
+ * Exhaustively finds the nearest-neighbor to a n-dimensional point by considering every possibility. Points can
+ * be specified using a list or with a {@link PointSetDistance}, e.g. points packed into a single array.
  *
  * @author Peter Abeles
  */
 public class ExhaustiveNeighbor<P> {
 
-	// List of points
-	List<P> points;
+	// Set of points being searched
+	PointSetDistance<P> points;
+	// Used to search a list of points
+	PointSetDistanceList<P> listPoints;
 
 	// the distance to the closest node found so far
 	double bestDistance;
@@ -56,6 +60,19 @@ public class ExhaustiveNeighbor<P> {
 	 * @param points List od points
 	 */
 	public void setPoints( List<P> points ) {
+		if( listPoints == null || listPoints.getDistance() != distance )
+			listPoints = new PointSetDistanceList<>(distance);
+		listPoints.setPoints(points);
+		this.points = listPoints;
+	}
+
+	/**
+	 * Specifies the set of points which the nearest-neighbor is to be found inside of. The set's distance
+	 * function is used instead of the one passed into the constructor.
+	 *
+	 * @param points Set of points
+	 */
+	public void setPoints( PointSetDistance<P> points ) {
 		this.points = points;
 	}
 
@@ -71,10 +88,9 @@ public class ExhaustiveNeighbor<P> {
 		int best = -1;
 		bestDistance = maxDistance;
 
-		for( int i = 0; i < points.size(); i++ ) {
-			P c = points.get(i);
-
-			double distanceC = distance.distance(p,c);
+		final int size = points.size();
+		for( int i = 0; i < size; i++ ) {
+			double distanceC = points.distance(i,p);
 
 			if( distanceC <= bestDistance ) {
 				bestDistance = distanceC;
@@ -103,10 +119,9 @@ public class ExhaustiveNeighbor<P> {
 		distances.reset();
 		indexes.reset();
 
-		for( int i = 0; i < points.size(); i++ ) {
-			P c = points.get(i);
-
-			double distanceC = distance.distance(p,c);
+		final int size = points.size();
+		for( int i = 0; i < size; i++ ) {
+			double distanceC = points.distance(i,p);
 
 			if( distanceC <= maxDistance ) {
 				distances.add(distanceC);
@@ -129,6 +144,28 @@ public class ExhaustiveNeighbor<P> {
 		}
 	}
 
+	/**
+	 * Finds all the points which are within maxDistance of 'p'.
+	 *
+	 * @param p A point.
+	 * @param maxDistance The maximum distance (Euclidean squared) a neighbor can be.
+	 * @param outputIndex Storage for the index of the found points
+	 * @param outputDistance Storage for the distance of the found points
+	 */
+	public void findWithinDistance( P p , double maxDistance ,
+									GrowQueue_I32 outputIndex ,
+									GrowQueue_F64 outputDistance ) {
+		final int size = points.size();
+		for( int i = 0; i < size; i++ ) {
+			double distanceC = points.distance(i,p);
+
+			if( distanceC <= maxDistance ) {
+				outputIndex.add(i);
+				outputDistance.add(distanceC);
+			}
+		}
+	}
+
 	public double getBestDistance() {
 		return bestDistance;
 	}
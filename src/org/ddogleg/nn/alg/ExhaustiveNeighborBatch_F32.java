@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.struct.PackedTupleArray_F32;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Brute force k-nearest-neighbor search for a batch of float queries against float points which are packed into a
+ * single array. Arithmetic is done using floats. Instead of computing the distance of each query/point pair
+ * independently the squared Euclidean distance is expanded into ||a||<sup>2</sup> + ||b||<sup>2</sup> - 2
+ * a&middot;b. The norms are computed once and the dot products are computed for blocks of 4 queries and 4 points at
+ * a time. The 16 sums are kept in local variables so that every value loaded from memory is used 4 times. Points are
+ * processed in tiles which are small enough to stay inside the CPU's cache while every query is compared against
+ * them. The closest neighbors of each query are found using a bounded max-heap, without sorting all the distances.
+ * </p>
+ *
+ * <p>
+ * Distances in the output are recomputed directly from the points, so they are exact. Selection is done with the
+ * expanded form which can have a small rounding error, so points that are almost the same distance away or are
+ * almost exactly maxDistance away can be handled differently than {@link ExhaustiveNeighbor}.
+ * </p>
+ *
+ * @author Peter Abeles
+ * @see ExhaustiveNeighborBatch_F64
+ */
+public class ExhaustiveNeighborBatch_F32 {
+
+	/** Approximate number of elements in a tile of points. Should fit inside of the CPU's cache. */
+	public int tileElements = 8192;
+
+	// Points being searched
+	PackedTupleArray_F32 points;
+	// Squared norm of each point
+	float[] pointNorms = new float[0];
+	// Squared norm of each query
+	float[] queryNorms = new float[0];
+
+	// dot products for a block of queries and points
+	float[] block = new float[16];
+
+	// Bounded max-heap for each query. The farthest neighbor is at the start of each heap.
+	double[] heapDistances = new double[0];
+	int[] heapIndexes = new int[0];
+	int[] heapSizes = new int[0];
+
+	// the maximum distance of the current search
+	double maxDistance;
+
+	/**
+	 * Specifies the points which are to be searched. A reference is saved.
+	 */
+	public void setPoints( PackedTupleArray_F32 points ) {
+		this.points = points;
+		final int dof = points.dof;
+
+		if( pointNorms.length < points.size )
+			pointNorms = new float[points.size];
+		for (int i = 0; i < points.size; i++) {
+			pointNorms[i] = squaredNorm(points.data,i*dof,dof);
+		}
+	}
+
+	/**
+	 * Finds the k-nearest neighbors to each query. Results are stored in row-major order, i.e.
+	 * the j-th neighbor of the i-th query is at element i*numNeighbors + j, and are sorted from closest to farthest.
+	 * If less than numNeighbors neighbors are found then the unused elements will have an index of -1 and a
+	 * distance of NaN.
+	 *
+	 * @param queries (Input) Points which are being searched for
+	 * @param maxDistance (Input) Maximum distance (Euclidean squared) a neighbor can be. Values {@code <} 0 are
+	 *                    set to the maximum distance.
+	 * @param numNeighbors (Input) The number of neighbors it will search for.
+	 * @param indexes (Output) Index of the neighbors. Must be at least queries.size()*numNeighbors long.
+	 * @param distances (Output) Distance of the neighbors. If null it is ignored.
+	 */
+	public void findNearest( PackedTupleArray_F32 queries , double maxDistance , int numNeighbors ,
+							 int[] indexes , @Nullable double[] distances ) {
+		if( numNeighbors <= 0 )
+			throw new IllegalArgumentException("I'm sorry, but I refuse to search for less than or equal to 0 neighbors.");
+		if( queries.dof != points.dof )
+			throw new IllegalArgumentException("Queries and points have a different DOF");
+		checkLength(indexes.length, queries.size*numNeighbors);
+		if( distances != null )
+			checkLength(distances.length, queries.size*numNeighbors);
+		this.maxDistance = maxDistance < 0 ? Double.MAX_VALUE : maxDistance;
+
+		final int dof = points.dof;
+		final int tileSize = Math.max(4,tileElements/Math.max(1,dof));
+
+		declareWorkspace(queries.size, numNeighbors);
+		Arrays.fill(heapSizes,0,queries.size,0);
+		for (int i = 0; i < queries.size; i++) {
+			queryNorms[i] = squaredNorm(queries.data,i*dof,dof);
+		}
+
+		for (int tile0 = 0; tile0 < points.size; tile0 += tileSize) {
+			final int tile1 = Math.min(tile0+tileSize,points.size);
+
+			int query0 = 0;
+			for (; query0+4 <= queries.size; query0 += 4) {
+				int point0 = tile0;
+				for (; point0+4 <= tile1; point0 += 4) {
+					computeBlock(queries.data,query0*dof,point0*dof,dof);
+					for (int i = 0; i < 4; i++) {
+						for (int j = 0; j < 4; j++) {
+							checkNeighbor(query0+i,point0+j,block[i*4+j],numNeighbors);
+						}
+					}
+				}
+				// points which don't fill a block
+				for (; point0 < tile1; point0++) {
+					for (int i = 0; i < 4; i++) {
+						float dot = dot(queries.data,(query0+i)*dof,points.data,point0*dof,dof);
+						checkNeighbor(query0+i,point0,dot,numNeighbors);
+					}
+				}
+			}
+			// queries which don't fill a block
+			for (; query0 < queries.size; query0++) {
+				for (int point = tile0; point < tile1; point++) {
+					float dot = dot(queries.data,query0*dof,points.data,point*dof,dof);
+					checkNeighbor(query0,point,dot,numNeighbors);
+				}
+			}
+		}
+
+		for (int queryIdx = 0; queryIdx < queries.size; queryIdx++) {
+			saveResults(queries,queryIdx,numNeighbors,indexes,distances);
+		}
+	}
+
+	/**
+	 * Computes the dot product between 4 queries and 4 points
+	 */
+	void computeBlock( float[] queries , int queryOffset , int pointOffset , int dof ) {
+		final float[] points = this.points.data;
+		final int q0 = queryOffset, q1 = q0+dof, q2 = q1+dof, q3 = q2+dof;
+		final int p0 = pointOffset, p1 = p0+dof, p2 = p1+dof, p3 = p2+dof;
+
+		float a00=0,a01=0,a02=0,a03=0;
+		float a10=0,a11=0,a12=0,a13=0;
+		float a20=0,a21=0,a22=0,a23=0;
+		float a30=0,a31=0,a32=0,a33=0;
+
+		for (int k = 0; k < dof; k++) {
+			float x0 = queries[q0+k], x1 = queries[q1+k], x2 = queries[q2+k], x3 = queries[q3+k];
+			float y0 = points[p0+k], y1 = points[p1+k], y2 = points[p2+k], y3 = points[p3+k];
+
+			a00 += x0*y0; a01 += x0*y1; a02 += x0*y2; a03 += x0*y3;
+			a10 += x1*y0; a11 += x1*y1; a12 += x1*y2; a13 += x1*y3;
+			a20 += x2*y0; a21 += x2*y1; a22 += x2*y2; a23 += x2*y3;
+			a30 += x3*y0; a31 += x3*y1; a32 += x3*y2; a33 += x3*y3;
+		}
+
+		block[ 0]=a00; block[ 1]=a01; block[ 2]=a02; block[ 3]=a03;
+		block[ 4]=a10; block[ 5]=a11; block[ 6]=a12; block[ 7]=a13;
+		block[ 8]=a20; block[ 9]=a21; block[10]=a22; block[11]=a23;
+		block[12]=a30; block[13]=a31; block[14]=a32; block[15]=a33;
+	}
+
+	/**
+	 * Computes the distance from the dot product and adds the point to the query's heap if it's within range
+	 */
+	void checkNeighbor( int queryIdx , int pointIdx , float dot , int numNeighbors ) {
+		float d = queryNorms[queryIdx] + pointNorms[pointIdx] - 2.0f*dot;
+		// rounding error can cause it to be slightly negative
+		if( d < 0 )
+			d = 0;
+		if( d <= maxDistance )
+			pushHeap(queryIdx,numNeighbors,d,pointIdx);
+	}
+
+	/**
+	 * Adds the point to the query's heap if it's closer than the farthest neighbor or the heap isn't full
+	 */
+	void pushHeap( int queryIdx , int numNeighbors , double distance , int index ) {
+		final int offset = queryIdx*numNeighbors;
+		int size = heapSizes[queryIdx];
+
+		if( size < numNeighbors ) {
+			// sift up
+			int i = size;
+			while( i > 0 ) {
+				int parent = (i-1)/2;
+				if( heapDistances[offset+parent] >= distance )
+					break;
+				heapDistances[offset+i] = heapDistances[offset+parent];
+				heapIndexes[offset+i] = heapIndexes[offset+parent];
+				i = parent;
+			}
+			heapDistances[offset+i] = distance;
+			heapIndexes[offset+i] = index;
+			heapSizes[queryIdx] = size+1;
+		} else if( distance < heapDistances[offset] ) {
+			siftDown(offset,size,distance,index);
+		}
+	}
+
+	/**
+	 * Replaces the root of the heap and restores the heap property
+	 */
+	void siftDown( int offset , int size , double distance , int index ) {
+		int i = 0;
+		while( true ) {
+			int child = 2*i+1;
+			if( child >= size )
+				break;
+			if( child+1 < size && heapDistances[offset+child+1] > heapDistances[offset+child] )
+				child++;
+			if( heapDistances[offset+child] <= distance )
+				break;
+			heapDistances[offset+i] = heapDistances[offset+child];
+			heapIndexes[offset+i] = heapIndexes[offset+child];
+			i = child;
+		}
+		heapDistances[offset+i] = distance;
+		heapIndexes[offset+i] = index;
+	}
+
+	/**
+	 * Computes the exact distance of each neighbor, sorts them, and writes them into the output arrays
+	 */
+	void saveResults( PackedTupleArray_F32 queries , int queryIdx , int numNeighbors ,
+					  int[] indexes , @Nullable double[] distances ) {
+		final int dof = points.dof;
+		final int offset = queryIdx*numNeighbors;
+		final int size = heapSizes[queryIdx];
+
+		for (int i = 0; i < size; i++) {
+			heapDistances[offset+i] = distanceSq(queries.data,queryIdx*dof,points.data,heapIndexes[offset+i]*dof,dof);
+		}
+
+		// insertion sort since the number of neighbors is typically small
+		for (int i = 1; i < size; i++) {
+			double d = heapDistances[offset+i];
+			int index = heapIndexes[offset+i];
+			int j = i-1;
+			while( j >= 0 && heapDistances[offset+j] > d ) {
+				heapDistances[offset+j+1] = heapDistances[offset+j];
+				heapIndexes[offset+j+1] = heapIndexes[offset+j];
+				j--;
+			}
+			heapDistances[offset+j+1] = d;
+			heapIndexes[offset+j+1] = index;
+		}
+
+		System.arraycopy(heapIndexes,offset,indexes,offset,size);
+		Arrays.fill(indexes,offset+size,offset+numNeighbors,-1);
+		if( distances != null ) {
+			System.arraycopy(heapDistances,offset,distances,offset,size);
+			Arrays.fill(distances,offset+size,offset+numNeighbors,Double.NaN);
+		}
+	}
+
+	private void declareWorkspace( int numQueries , int numNeighbors ) {
+		if( queryNorms.length < numQueries )
+			queryNorms = new float[numQueries];
+		if( heapDistances.length < numQueries*numNeighbors ) {
+			heapDistances = new double[numQueries*numNeighbors];
+			heapIndexes = new int[numQueries*numNeighbors];
+		}
+		if( heapSizes.length < numQueries )
+			heapSizes = new int[numQueries];
+	}
+
+	private static float squaredNorm( float[] data , int offset , int length ) {
+		float sum = 0;
+		for (int i = 0; i < length; i++) {
+			float v = data[offset+i];
+			sum += v*v;
+		}
+		return sum;
+	}
+
+	private static float dot( float[] a , int offsetA , float[] b , int offsetB , int length ) {
+		float sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += a[offsetA+i]*b[offsetB+i];
+		}
+		return sum;
+	}
+
+	private static float distanceSq( float[] a , int offsetA , float[] b , int offsetB , int length ) {
+		float sum = 0;
+		for (int i = 0; i < length; i++) {
+			float d = a[offsetA+i]-b[offsetB+i];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	private static void checkLength( int actual , int expected ) {
+		if( actual < expected )
+			throw new IllegalArgumentException("Output array is too small. "+actual+" < "+expected);
+	}
+
+	public PackedTupleArray_F32 getPoints() {
+		return points;
+	}
+}
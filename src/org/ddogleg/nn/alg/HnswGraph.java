@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.alg.searches.HnswSearch;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.Random;
+
+/**
+ * <p>
+ * Hierarchical Navigable Small World (HNSW) graph [1] for approximate nearest-neighbor search. Each point is a node
+ * in the graph and is assigned a random level, with the number of nodes decreasing exponentially as the level
+ * increases. At each level a node is connected to its approximate nearest-neighbors. Searches start at the top
+ * level and greedily descend towards the target. Unlike tree based approaches it works well with high dimensional
+ * data and points can be added without rebuilding the graph.
+ * </p>
+ *
+ * <p>
+ * Neighbors of a new node are selected using the heuristic in [1], which favors neighbors in diverse directions,
+ * with pruned connections used to fill any remaining slots. Points are referenced by their index in a
+ * {@link PointSetDistance}. Adding points is not thread safe and must not be done while searching.
+ * </p>
+ *
+ * <p>
+ * [1] Malkov, Yu A., and Dmitry A. Yashunin. "Efficient and robust approximate nearest neighbor search using
+ * hierarchical navigable small world graphs." IEEE PAMI (2018)
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class HnswGraph<P> {
+	/** Configuration. Don't modify after points have been added. */
+	public final ConfigHnsw config;
+
+	/** Nodes in the graph. The index of a node is the same as its point. */
+	public final FastQueue<Node> nodes = new FastQueue<>(Node::new);
+
+	/** Node which all searches start from. -1 if the graph is empty */
+	public int entryPoint = -1;
+	/** Level of the entry point. The highest level in the graph */
+	public int maxLevel = -1;
+
+	// Points in the graph
+	PointSetDistance<P> points;
+
+	// maximum number of connections at level 0 and at all other levels
+	final int maxM0, maxM;
+	// normalization factor for the random level
+	final double levelMult;
+	Random rand;
+
+	// used to search the graph when inserting a new node
+	HnswSearch<P> search = new HnswSearch<>();
+
+	// workspace for inserting a node
+	GrowQueue_I32 candidates = new GrowQueue_I32();
+	GrowQueue_F64 candidateDist = new GrowQueue_F64();
+	GrowQueue_I32 selected = new GrowQueue_I32();
+	// workspace for pruning a neighbor's connections
+	GrowQueue_I32 pruneCandidates = new GrowQueue_I32();
+	GrowQueue_F64 pruneDist = new GrowQueue_F64();
+	GrowQueue_I32 pruneSelected = new GrowQueue_I32();
+
+	public HnswGraph( ConfigHnsw config ) {
+		if( config.M < 2 )
+			throw new IllegalArgumentException("M must be at least 2");
+		if( config.efConstruction < 1 )
+			throw new IllegalArgumentException("efConstruction must be at least 1");
+		this.config = config.copy();
+		this.maxM = config.M;
+		this.maxM0 = 2*config.M;
+		this.levelMult = 1.0/Math.log(config.M);
+		this.rand = new Random(config.randSeed);
+	}
+
+	/**
+	 * Discards all the nodes and specifies the set of points which will be added to the graph
+	 *
+	 * @param points Points which will be added to the graph. Distance is used to connect nodes.
+	 */
+	public void reset( PointSetDistance<P> points ) {
+		this.points = points;
+		this.nodes.reset();
+		this.entryPoint = -1;
+		this.maxLevel = -1;
+		this.rand = new Random(config.randSeed);
+	}
+
+	/**
+	 * Adds all the points in the set which have not already been added to the graph. Points must only be added to
+	 * the end of the set.
+	 */
+	public void addNewPoints() {
+		while( nodes.size < points.size() ) {
+			insert(nodes.size);
+		}
+	}
+
+	/**
+	 * Inserts the point with the specified index into the graph
+	 */
+	private void insert( int index ) {
+		final int level = selectLevel();
+
+		Node node = nodes.grow();
+		node.setLevel(level);
+
+		if( entryPoint == -1 ) {
+			entryPoint = index;
+			maxLevel = level;
+			return;
+		}
+
+		search.setGraph(this);
+		search.setTarget(index);
+
+		// greedily move towards the point in levels above the node
+		int ep = entryPoint;
+		for (int lc = maxLevel; lc > level; lc--) {
+			ep = search.greedyClosest(ep,lc);
+		}
+
+		// connect the node to its neighbors in every level it belongs to
+		for (int lc = Math.min(level,maxLevel); lc >= 0; lc--) {
+			search.searchLayer(ep,config.efConstruction,lc);
+			search.extractResults(candidates,candidateDist);
+			ep = candidates.get(0);
+
+			selectNeighbors(candidates,candidateDist,maxM,selected);
+
+			final int maxConnections = lc == 0 ? maxM0 : maxM;
+			GrowQueue_I32 connections = node.connections[lc];
+			for (int i = 0; i < selected.size; i++) {
+				int neighbor = selected.get(i);
+				connections.add(neighbor);
+
+				GrowQueue_I32 neighborConn = nodes.data[neighbor].connections[lc];
+				neighborConn.add(index);
+				if( neighborConn.size > maxConnections )
+					pruneConnections(neighbor,neighborConn,maxConnections);
+			}
+		}
+
+		if( level > maxLevel ) {
+			entryPoint = index;
+			maxLevel = level;
+		}
+	}
+
+	/**
+	 * Reduces the number of connections a node has to the maximum allowed
+	 */
+	private void pruneConnections( int node , GrowQueue_I32 connections , int maxConnections ) {
+		pruneCandidates.reset();
+		pruneDist.reset();
+		for (int i = 0; i < connections.size; i++) {
+			int c = connections.get(i);
+			pruneCandidates.add(c);
+			pruneDist.add(points.distance(node,c));
+		}
+		sortByDistance(pruneCandidates,pruneDist);
+		selectNeighbors(pruneCandidates,pruneDist,maxConnections,pruneSelected);
+		connections.setTo(pruneSelected);
+	}
+
+	/**
+	 * Selects neighbors using the heuristic from the paper. A candidate is selected if it's closer to the node than
+	 * it is to all the neighbors which have already been selected. If there is space left the closest rejected
+	 * candidates are added.
+	 *
+	 * @param candidates (Input) candidates sorted by distance, closest first
+	 * @param candidateDist (Input) distance of each candidate from the node
+	 * @param M (Input) Maximum number of neighbors
+	 * @param selected (Output) the selected neighbors
+	 */
+	void selectNeighbors( GrowQueue_I32 candidates , GrowQueue_F64 candidateDist , int M , GrowQueue_I32 selected ) {
+		selected.reset();
+		for (int i = 0; i < candidates.size && selected.size < M; i++) {
+			int c = candidates.get(i);
+			double d = candidateDist.get(i);
+			boolean good = true;
+			for (int j = 0; j < selected.size; j++) {
+				if( points.distance(c,selected.get(j)) < d ) {
+					good = false;
+					break;
+				}
+			}
+			if( good )
+				selected.add(c);
+		}
+
+		// keep pruned connections to fill up the remaining slots
+		for (int i = 0; i < candidates.size && selected.size < M; i++) {
+			int c = candidates.get(i);
+			if( !selected.contains(c) )
+				selected.add(c);
+		}
+	}
+
+	/**
+	 * Sorts the list from closest to farthest. Lists are small so insertion sort is used
+	 */
+	static void sortByDistance( GrowQueue_I32 indexes , GrowQueue_F64 distances ) {
+		for (int i = 1; i < distances.size; i++) {
+			double d = distances.data[i];
+			int index = indexes.data[i];
+			int j = i-1;
+			while( j >= 0 && distances.data[j] > d ) {
+				distances.data[j+1] = distances.data[j];
+				indexes.data[j+1] = indexes.data[j];
+				j--;
+			}
+			distances.data[j+1] = d;
+			indexes.data[j+1] = index;
+		}
+	}
+
+	/**
+	 * Randomly selects the level of a new node. Probability decreases exponentially with the level
+	 */
+	private int selectLevel() {
+		return (int)(-Math.log(1.0-rand.nextDouble())*levelMult);
+	}
+
+	public PointSetDistance<P> getPoints() {
+		return points;
+	}
+
+	/**
+	 * A node in the graph
+	 */
+	public static class Node {
+		/** Connections to other nodes at each level the node belongs to */
+		public GrowQueue_I32[] connections = new GrowQueue_I32[0];
+
+		public void setLevel( int level ) {
+			if( connections.length != level+1 ) {
+				connections = new GrowQueue_I32[level+1];
+				for (int i = 0; i <= level; i++) {
+					connections[i] = new GrowQueue_I32(0);
+				}
+			} else {
+				for (int i = 0; i <= level; i++) {
+					connections[i].reset();
+				}
+			}
+		}
+
+		public int getLevel() {
+			return connections.length-1;
+		}
+	}
+}
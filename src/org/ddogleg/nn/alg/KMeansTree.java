@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.struct.FastQueue;
+
+/**
+ * <p>
+ * Hierarchical k-means tree, also known as a vocabulary tree [1]. Each branch splits its points into clusters
+ * using k-means and has a child for each cluster. Each child stores the cluster's mean. Leaves contain the
+ * index of the points assigned to them. Points are referenced by index and are not stored in the tree.
+ * </p>
+ *
+ * <p>
+ * The children of a node are stored next to each other in {@link #nodes}, starting at {@link Node#childStart}.
+ * The points in a leaf are stored next to each other in {@link #indexes}, from {@link Node#pointStart}
+ * to {@link Node#pointEnd}.
+ * </p>
+ *
+ * <p>
+ * [1] Nister, David, and Henrik Stewenius. "Scalable recognition with a vocabulary tree." CVPR 2006
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KMeansTree {
+	/** Number of elements in each point */
+	public int N;
+
+	/** All the nodes in the tree. The first node is the root. */
+	public FastQueue<Node> nodes = new FastQueue<>(Node::new);
+
+	/** Index of points in the input set. Arranged so that points in a leaf are next to each other. */
+	public int[] indexes = new int[0];
+
+	/** Number of points in the tree */
+	public int numPoints;
+
+	public KMeansTree( int N ) {
+		this.N = N;
+	}
+
+	public KMeansTree() {
+	}
+
+	/**
+	 * Discards all nodes
+	 */
+	public void reset() {
+		nodes.reset();
+		numPoints = 0;
+	}
+
+	/**
+	 * Returns the root of the tree or null if it's empty
+	 */
+	public Node getRoot() {
+		return nodes.size == 0 ? null : nodes.get(0);
+	}
+
+	public static class Node {
+		/** Mean of points in this node. Empty for the root. */
+		public double[] center = new double[0];
+		/** Euclidean distance from the center to the farthest point in this node. Infinite for the root. */
+		public double radius = Double.POSITIVE_INFINITY;
+		/** Index of the first child in the list of nodes */
+		public int childStart;
+		/** Number of children. Zero for leafs */
+		public int childCount;
+		/** Index of the first point in the list of indexes */
+		public int pointStart;
+		/** Index of the last point in the list of indexes, exclusive */
+		public int pointEnd;
+
+		public boolean isLeaf() {
+			return childCount == 0;
+		}
+
+		public void reset() {
+			childStart = childCount = 0;
+			pointStart = pointEnd = 0;
+			radius = Double.POSITIVE_INFINITY;
+		}
+	}
+}
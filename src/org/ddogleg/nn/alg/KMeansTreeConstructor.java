@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.clustering.kmeans.StandardKMeans_F64;
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Constructs a {@link KMeansTree}. Starting at the root, the points in a node are split into clusters using
+ * {@link StandardKMeans_F64} and a child is created for each cluster. This is repeated until a node contains
+ * too few points to be split. Points of any type can be processed since they are converted into double[]
+ * using {@link KdTreeDistance#valueAt} for clustering. Clustering is done using Euclidean distance.
+ *
+ * @author Peter Abeles
+ */
+public class KMeansTreeConstructor<P> {
+
+	// Used to split the points in a node
+	StandardKMeans_F64 kmeans;
+
+	// Number of children a branch has
+	int branchFactor;
+	// A node with this many points or less is a leaf
+	int maxLeafSize;
+	// Seed used by k-means
+	long randSeed;
+
+	// Number of elements in each point
+	int N;
+
+	// Used to access points when constructing from a list
+	PointSetDistanceList<P> listPoints;
+
+	// Copy of all the points as double[] for use in k-means. Only exists while a tree is being constructed
+	FastQueue<double[]> workPoints;
+	// Points in the node being split
+	List<double[]> subset = new ArrayList<>();
+	// The cluster each point in the node belongs to and the number of points in each cluster
+	GrowQueue_I32 labels = new GrowQueue_I32();
+	GrowQueue_I32 counts = new GrowQueue_I32();
+	// Distance squared of the farthest point from the center of each cluster
+	GrowQueue_F64 farthest = new GrowQueue_F64();
+	// Storage when partitioning indexes
+	int[] tmpIndexes = new int[0];
+
+	/**
+	 * Configures the tree
+	 *
+	 * @param distance Distance function and used to access elements in a point
+	 * @param branchFactor Number of children each branch has. Must be 2 or more.
+	 * @param maxLeafSize Nodes with this number of points or less are not split. Must be &ge; branchFactor.
+	 * @param kmeans Used to split points into clusters
+	 * @param randSeed Seed for k-means
+	 */
+	public KMeansTreeConstructor( KdTreeDistance<P> distance , int branchFactor , int maxLeafSize ,
+								  StandardKMeans_F64 kmeans , long randSeed ) {
+		if( branchFactor < 2 )
+			throw new IllegalArgumentException("branchFactor must be at least 2");
+		if( maxLeafSize < branchFactor )
+			throw new IllegalArgumentException("maxLeafSize must be >= branchFactor");
+		this.listPoints = new PointSetDistanceList<>(distance);
+		this.branchFactor = branchFactor;
+		this.maxLeafSize = maxLeafSize;
+		this.kmeans = kmeans;
+		this.randSeed = randSeed;
+		this.N = distance.length();
+	}
+
+	/**
+	 * Creates a new tree from the list of points
+	 */
+	public KMeansTree construct( List<P> points ) {
+		KMeansTree tree = new KMeansTree(N);
+		construct(points,tree);
+		return tree;
+	}
+
+	/**
+	 * Constructs a tree from the list of points and writes it into the provided tree, recycling its memory.
+	 */
+	public void construct( List<P> points , KMeansTree tree ) {
+		listPoints.setPoints(points);
+		construct(listPoints,tree);
+		listPoints.setPoints(null);
+	}
+
+	/**
+	 * Constructs a tree from the set of points and writes it into the provided tree, recycling its memory.
+	 *
+	 * @param points (Input) Data points
+	 * @param tree (Output) Storage for the tree
+	 */
+	public void construct( PointSetDistance<P> points , KMeansTree tree ) {
+		if( points.length() != N )
+			throw new IllegalArgumentException("Points have an unexpected number of elements. "+points.length()+" vs "+N);
+
+		final int size = points.size();
+		tree.reset();
+		tree.N = N;
+		tree.numPoints = size;
+		if( tree.indexes.length < size )
+			tree.indexes = new int[size];
+		if( tmpIndexes.length < size )
+			tmpIndexes = new int[size];
+		for (int i = 0; i < size; i++) {
+			tree.indexes[i] = i;
+		}
+
+		if( size == 0 )
+			return;
+
+		// convert points into a format k-means can process
+		final int N = this.N;
+		workPoints = new FastQueue<>(() -> new double[N]);
+		workPoints.resize(size);
+		for (int i = 0; i < size; i++) {
+			double[] p = workPoints.get(i);
+			for (int j = 0; j < N; j++) {
+				p[j] = points.valueAt(i,j);
+			}
+		}
+
+		kmeans.init(N,randSeed);
+
+		KMeansTree.Node root = tree.nodes.grow();
+		root.reset();
+		root.pointStart = 0;
+		root.pointEnd = size;
+
+		// nodes are split in breadth first order. This ensures all the children of a node are next to each other
+		for (int i = 0; i < tree.nodes.size; i++) {
+			KMeansTree.Node node = tree.nodes.get(i);
+			if( node.pointEnd-node.pointStart > maxLeafSize )
+				splitNode(tree,i);
+		}
+
+		// the copy of the points is no longer needed. Don't keep it around for the life of the tree
+		workPoints = null;
+		subset.clear();
+	}
+
+	/**
+	 * Clusters the points inside the node and creates a child for each cluster. If all the points are
+	 * assigned to the same cluster the node is left as a leaf.
+	 */
+	private void splitNode( KMeansTree tree , int nodeIndex ) {
+		KMeansTree.Node node = tree.nodes.get(nodeIndex);
+		final int pointStart = node.pointStart;
+		final int pointEnd = node.pointEnd;
+		final int[] indexes = tree.indexes;
+
+		subset.clear();
+		for (int i = pointStart; i < pointEnd; i++) {
+			subset.add(workPoints.get(indexes[i]));
+		}
+
+		kmeans.process(subset,branchFactor);
+		FastQueue<double[]> means = kmeans.getClusterMeans();
+
+		// assign points to the best clusters found
+		labels.resize(subset.size());
+		counts.resize(means.size);
+		counts.fill(0);
+		farthest.resize(means.size);
+		farthest.fill(0);
+		for (int i = 0; i < subset.size(); i++) {
+			double[] p = subset.get(i);
+			int best = findClosest(p,means);
+			labels.data[i] = best;
+			counts.data[best]++;
+			farthest.data[best] = Math.max(farthest.data[best],distanceSq(p,means.get(best)));
+		}
+
+		int nonEmpty = 0;
+		for (int i = 0; i < counts.size; i++) {
+			if( counts.data[i] > 0 )
+				nonEmpty++;
+		}
+		// Can't split the points. Probably all duplicates
+		if( nonEmpty < 2 )
+			return;
+
+		// create the children and partition the points so that each child's points are next to each other
+		node.childStart = tree.nodes.size;
+		node.childCount = nonEmpty;
+		int location = pointStart;
+		for (int cluster = 0; cluster < means.size; cluster++) {
+			if( counts.data[cluster] == 0 )
+				continue;
+			KMeansTree.Node child = tree.nodes.grow();
+			child.reset();
+			if( child.center.length != N )
+				child.center = new double[N];
+			System.arraycopy(means.get(cluster),0,child.center,0,N);
+			child.radius = Math.sqrt(farthest.data[cluster]);
+			child.pointStart = location;
+			for (int i = 0; i < labels.size; i++) {
+				if( labels.data[i] == cluster )
+					tmpIndexes[location++] = indexes[pointStart+i];
+			}
+			child.pointEnd = location;
+		}
+		System.arraycopy(tmpIndexes,pointStart,indexes,pointStart,pointEnd-pointStart);
+	}
+
+	private int findClosest( double[] p , FastQueue<double[]> means ) {
+		int best = -1;
+		double bestDistance = Double.MAX_VALUE;
+		for (int i = 0; i < means.size; i++) {
+			double d = distanceSq(p,means.get(i));
+			// NaN means are never selected. They can happen if a cluster had no members
+			if( d < bestDistance ) {
+				bestDistance = d;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Euclidean distance squared between two points
+	 */
+	public static double distanceSq( double[] a , double[] b ) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			double d = a[i]-b[i];
+			sum += d*d;
+		}
+		return sum;
+	}
+}
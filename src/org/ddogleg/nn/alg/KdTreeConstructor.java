@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -90,6 +90,13 @@ public class KdTreeConstructor<P> {
 		return tree;
 	}
 
+	/**
+	 * Memory used to recycle trees and nodes
+	 */
+	public KdTreeMemory<P> getMemory() {
+		return memory;
+	}
+
 	/**
 	 * Given the data inside this particular node, select a point for the node and
 	 * compute the node's children
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.ddogleg.struct.Factory;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <p>
+ * Concurrent implementation of {@link KdTreeConstructor}. Sub-trees with more than {@link #minimumConcurrent} points
+ * are built in separate tasks on the {@link ConcurrencyOps#getThreadPool() thread pool}. Instead of copying the points
+ * into new lists at each level, a single copy of the input list is partitioned in place using
+ * {@link AxisSplitter#splitDataInPlace}.
+ * </p>
+ *
+ * <p>
+ * The constructed tree is identical to the one produced by {@link KdTreeConstructor} when given the same splitter,
+ * provided that the splitter is deterministic. Splitters which use a random number generator, e.g.
+ * {@link AxisSplitRuleRandomK}, will produce a valid tree but the order random numbers are drawn in will change.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KdTreeConstructor_MT<P> extends KdTreeConstructor<P> {
+
+	/** Sub-trees with fewer points than this are constructed in the same thread as their parent */
+	public int minimumConcurrent = 5000;
+
+	// Creates a new splitter when all the existing ones are in use
+	final Factory<AxisSplitter<P>> factorySplitter;
+	// Splitters which are not being used. A task takes one while it splits its points since the splitter has
+	// internal state. Owned by this class so the splitters are discarded along with it.
+	final List<AxisSplitter<P>> availableSplitters = new ArrayList<>();
+
+	// Working copy of the input points which is rearranged in place
+	List<P> work;
+	GrowQueue_I32 indexes;
+	// Storage for nodes. Each point is assigned the node at its final location in 'work'
+	KdTree.Node[] nodes = new KdTree.Node[0];
+
+	/**
+	 * Constructor which allows for maximum configurable.
+	 *
+	 * @param memory Used to recycle data
+	 * @param factorySplitter Creates a new splitter for each thread
+	 */
+	public KdTreeConstructor_MT( KdTreeMemory<P> memory , Factory<AxisSplitter<P>> factorySplitter ) {
+		super(memory, factorySplitter.newInstance());
+		this.factorySplitter = factorySplitter;
+	}
+
+	/**
+	 * Creates canonical K-D Tree by selecting the maximum variance axis and splitting the points at the median.
+	 */
+	public KdTreeConstructor_MT( KdTreeDistance<P> distance ) {
+		this(new KdTreeMemory<>(), ()->new AxisSplitterMedian<>(distance, new AxisSplitRuleMax()));
+	}
+
+	@Override
+	public KdTree construct( List<P> points , boolean trackIndexes ) {
+		final int numPoints = points.size();
+
+		indexes = null;
+		if( trackIndexes ) {
+			indexes = new GrowQueue_I32();
+			indexes.resize(numPoints);
+			for (int i = 0; i < indexes.size; i++) {
+				indexes.data[i] = i;
+			}
+		}
+
+		KdTree tree = memory.requestTree(splitter.getPointLength());
+		if( numPoints == 0 )
+			return tree;
+
+		// request all the nodes now since memory isn't thread safe
+		if( nodes.length < numPoints )
+			nodes = new KdTree.Node[numPoints];
+		for (int i = 0; i < numPoints; i++) {
+			nodes[i] = memory.requestNode();
+		}
+
+		work = new ArrayList<>(points);
+		tree.root = ConcurrencyOps.getThreadPool().invoke(new BranchTask(0,numPoints));
+
+		// free memory
+		work = null;
+		indexes = null;
+		for (int i = 0; i < numPoints; i++) {
+			nodes[i] = null;
+		}
+
+		return tree;
+	}
+
+	/**
+	 * Constructs the sub-tree for points inside the range [lower,upper) of 'work'
+	 *
+	 * @return The node associated with this region or null if it's empty
+	 */
+	protected KdTree.Node computeRange( int lower , int upper ) {
+		final int numPoints = upper-lower;
+		if( numPoints == 0 )
+			return null;
+
+		if( numPoints == 1 ) {
+			KdTree.Node node = nodes[lower];
+			node.point = work.get(lower);
+			node.index = indexes == null ? -1 : indexes.data[lower];
+			node.split = -1;
+			node.left = null;
+			node.right = null;
+			return node;
+		}
+
+		// All information is extracted from the splitter before it's returned for use by other tasks
+		AxisSplitter<P> splitter = requestSplitter();
+		final int middle = lower + splitter.splitDataInPlace(work,indexes,lower,upper);
+
+		KdTree.Node node = nodes[middle];
+		node.split = splitter.getSplitAxis();
+		node.point = splitter.getSplitPoint();
+		node.index = splitter.getSplitIndex();
+		releaseSplitter(splitter);
+
+		if( numPoints >= minimumConcurrent ) {
+			BranchTask left = new BranchTask(lower,middle);
+			left.fork();
+			node.right = computeRange(middle+1,upper);
+			node.left = left.join();
+		} else {
+			node.left = computeRange(lower,middle);
+			node.right = computeRange(middle+1,upper);
+		}
+
+		return node;
+	}
+
+	/**
+	 * Returns a splitter which isn't being used by any other task, creating a new one if needed
+	 */
+	private AxisSplitter<P> requestSplitter() {
+		synchronized( availableSplitters ) {
+			if( availableSplitters.isEmpty() )
+				return factorySplitter.newInstance();
+			return availableSplitters.remove(availableSplitters.size()-1);
+		}
+	}
+
+	/**
+	 * Makes the splitter available to other tasks
+	 */
+	private void releaseSplitter( AxisSplitter<P> splitter ) {
+		synchronized( availableSplitters ) {
+			availableSplitters.add(splitter);
+		}
+	}
+
+	/**
+	 * Task for computing a branch in a separate thread
+	 */
+	private class BranchTask extends RecursiveTask<KdTree.Node> {
+		private static final long serialVersionUID = 1L;
+
+		final int lower, upper;
+
+		BranchTask( int lower, int upper ) {
+			this.lower = lower;
+			this.upper = upper;
+		}
+
+		@Override
+		protected KdTree.Node compute() {
+			return computeRange(lower,upper);
+		}
+	}
+}
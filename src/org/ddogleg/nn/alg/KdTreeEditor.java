@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Adds and removes points from an existing {@link KdTree} without rebuilding it. Nodes are recycled using
+ * {@link KdTreeMemory}. A new point is added as a leaf below the node it would have been compared against in a
+ * search, turning that leaf into a branch if needed. When a branch is removed it's replaced by the point in its
+ * right sub-tree with the smallest value along the split axis or, if there is no right sub-tree, the point in its
+ * left sub-tree with the largest value. That point is then recursively removed from the sub-tree.
+ * </p>
+ *
+ * <p>
+ * Modifications don't keep the tree balanced and search performance will degrade over time. How often the tree
+ * should be rebuilt depends on the application.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KdTreeEditor<P> {
+
+	// used to access values of a point
+	KdTreeDistance<P> distance;
+	// Used to recycles memory and avoid GC calls
+	KdTreeMemory<P> memory;
+
+	// the tree being edited
+	KdTree tree;
+
+	// Node which contains the point with the specified index. null if it has been removed.
+	List<KdTree.Node> lookup = new ArrayList<>();
+	// number of points in the tree
+	int size;
+
+	// true if the node being removed has been found
+	boolean found;
+
+	// work space for traversing the tree
+	List<KdTree.Node> open = new ArrayList<>();
+
+	public KdTreeEditor( KdTreeDistance<P> distance , KdTreeMemory<P> memory ) {
+		this.distance = distance;
+		this.memory = memory;
+	}
+
+	/**
+	 * Specifies the tree which is to be edited. The tree must have been constructed with indexes tracked.
+	 *
+	 * @param tree The tree
+	 * @param numIndexes Number of point indexes which have been assigned. Must be larger than any index in the tree.
+	 *                   The next point added will be assigned this index.
+	 */
+	public void setTree( KdTree tree , int numIndexes ) {
+		this.tree = tree;
+		this.size = 0;
+		lookup.clear();
+		lookup.addAll(Collections.nCopies(numIndexes,null));
+
+		if( tree.root != null )
+			open.add(tree.root);
+		while( !open.isEmpty() ) {
+			KdTree.Node n = open.remove(open.size()-1);
+			if( n.index < 0 || n.index >= numIndexes )
+				throw new IllegalArgumentException("Node has an invalid index. Were indexes tracked? index="+n.index);
+			lookup.set(n.index,n);
+			size++;
+			if( n.left != null )
+				open.add(n.left);
+			if( n.right != null )
+				open.add(n.right);
+		}
+	}
+
+	/**
+	 * Adds a point to the tree
+	 *
+	 * @param point The point. A reference is saved.
+	 * @return The index assigned to the point
+	 */
+	public int add( P point ) {
+		int index = lookup.size();
+		KdTree.Node leaf = memory.requestNode(point,index);
+		lookup.add(leaf);
+		size++;
+
+		if( tree.root == null ) {
+			tree.root = leaf;
+			return index;
+		}
+
+		KdTree.Node node = tree.root;
+		while( true ) {
+			if( node.isLeaf() ) {
+				node.split = selectSplit(node.getPoint(),point);
+			}
+
+			double splitValue = distance.valueAt(node.getPoint(),node.split);
+			if( distance.valueAt(point,node.split) <= splitValue ) {
+				if( node.left == null ) {
+					node.left = leaf;
+					break;
+				}
+				node = node.left;
+			} else {
+				if( node.right == null ) {
+					node.right = leaf;
+					break;
+				}
+				node = node.right;
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 * Removes the point with the specified index from the tree
+	 *
+	 * @param index Index of the point
+	 * @return true if it was removed or false if there is no point with that index
+	 */
+	public boolean remove( int index ) {
+		if( index < 0 || index >= lookup.size() )
+			return false;
+		KdTree.Node target = lookup.get(index);
+		if( target == null )
+			return false;
+
+		lookup.set(index,null);
+		found = false;
+		tree.root = removeFrom(tree.root,target);
+		if( !found )
+			throw new RuntimeException("BUG! Node wasn't found in the tree");
+		size--;
+		return true;
+	}
+
+	/**
+	 * Searches the sub-tree for the target and removes it
+	 *
+	 * @return The root of the sub-tree after the target has been removed
+	 */
+	private @Nullable KdTree.Node removeFrom( @Nullable KdTree.Node node , KdTree.Node target ) {
+		if( node == null )
+			return null;
+		if( node == target ) {
+			found = true;
+			return removeNode(node);
+		}
+		if( node.isLeaf() )
+			return node;
+
+		// points equal to the split value can be on either side
+		double splitValue = distance.valueAt(node.getPoint(),node.split);
+		double targetValue = distance.valueAt(target.getPoint(),node.split);
+		if( targetValue <= splitValue )
+			node.left = removeFrom(node.left,target);
+		if( !found && targetValue >= splitValue )
+			node.right = removeFrom(node.right,target);
+
+		if( found && node.left == null && node.right == null )
+			node.split = -1;
+		return node;
+	}
+
+	/**
+	 * Removes the node's point from the sub-tree which it is the root of
+	 *
+	 * @return The root of the sub-tree after the point has been removed
+	 */
+	private @Nullable KdTree.Node removeNode( KdTree.Node node ) {
+		if( node.isLeaf() ) {
+			memory.recycle(node);
+			return null;
+		}
+
+		// Find a point which can replace this one without violating the split
+		KdTree.Node replacement;
+		if( node.right != null ) {
+			replacement = findExtreme(node.right,node.split,true);
+		} else {
+			replacement = findExtreme(node.left,node.split,false);
+		}
+
+		// Move the point into this node then remove it from the sub-tree
+		node.point = replacement.point;
+		node.index = replacement.index;
+		lookup.set(node.index,node);
+
+		boolean foundBefore = found;
+		found = false;
+		if( node.right != null ) {
+			node.right = removeFrom(node.right,replacement);
+		} else {
+			node.left = removeFrom(node.left,replacement);
+		}
+		if( !found )
+			throw new RuntimeException("BUG! Replacement wasn't found in the tree");
+		found = foundBefore;
+
+		if( node.left == null && node.right == null )
+			node.split = -1;
+		return node;
+	}
+
+	/**
+	 * Finds the node in the sub-tree with the smallest or largest value along the axis
+	 */
+	KdTree.Node findExtreme( KdTree.Node node , int axis , boolean smallest ) {
+		KdTree.Node best = node;
+		double bestValue = distance.valueAt(node.getPoint(),axis);
+
+		if( node.isLeaf() )
+			return best;
+
+		// only one side can have a better value when split along the same axis
+		boolean checkLeft = node.split != axis || smallest;
+		boolean checkRight = node.split != axis || !smallest;
+
+		if( checkLeft && node.left != null ) {
+			KdTree.Node n = findExtreme(node.left,axis,smallest);
+			double v = distance.valueAt(n.getPoint(),axis);
+			if( smallest ? v < bestValue : v > bestValue ) {
+				best = n;
+				bestValue = v;
+			}
+		}
+		if( checkRight && node.right != null ) {
+			KdTree.Node n = findExtreme(node.right,axis,smallest);
+			double v = distance.valueAt(n.getPoint(),axis);
+			if( smallest ? v < bestValue : v > bestValue ) {
+				best = n;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Selects the axis with the largest difference between the two points
+	 */
+	int selectSplit( P a , P b ) {
+		int best = 0;
+		double bestDiff = -1;
+		for (int i = 0; i < distance.length(); i++) {
+			double diff = Math.abs(distance.valueAt(a,i)-distance.valueAt(b,i));
+			if( diff > bestDiff ) {
+				bestDiff = diff;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the node which contains the point with the specified index or null if there is none
+	 */
+	public @Nullable KdTree.Node getNode( int index ) {
+		if( index < 0 || index >= lookup.size() )
+			return null;
+		return lookup.get(index);
+	}
+
+	/**
+	 * Number of indexes which have been assigned
+	 */
+	public int getNumIndexes() {
+		return lookup.size();
+	}
+
+	/**
+	 * Number of points in the tree
+	 */
+	public int size() {
+		return size;
+	}
+
+	public KdTree getTree() {
+		return tree;
+	}
+}
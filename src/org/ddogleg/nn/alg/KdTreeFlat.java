@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+/**
+ * <p>
+ * Alternative memory layout for a {@link KdTree K-D Tree} where the tree is stored inside of parallel primitive arrays
+ * instead of a graph of {@link KdTree.Node} objects. This reduces the memory footprint and improves cache locality
+ * for large trees. The same splitting rules as {@link KdTree} are used, a node is created for each point.
+ * Points are not stored inside the tree, only their index, so a tree can be built from any {@link PointSetDistance}.
+ * </p>
+ *
+ * <p>
+ * Nodes are stored in depth first (pre-order) order. A branch will always have a left child and it's located
+ * immediately after the branch, e.g. left = node+1. The location of the right child is stored in {@link #right}
+ * and is -1 if there is no right child. A leaf is marked by a split axis of -1 in {@link #split}.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KdTreeFlat {
+
+	// Number of elements/dimension in each point
+	public int N;
+
+	/** Number of nodes in the tree. Nodes are the first 'size' elements in each array. */
+	public int size;
+
+	/** axis used to split the data. -1 for leafs */
+	public int[] split = new int[0];
+	/** Value of the node's point along the split axis. Cached to avoid looking up the point. */
+	public double[] splitValue = new double[0];
+	/** Index of the right child or -1 if there is no right child. The left child is always node+1 */
+	public int[] right = new int[0];
+	/** Index of the node's point in the original input list */
+	public int[] indexes = new int[0];
+
+	/**
+	 * Specifies the type of points it can process.
+	 *
+	 * @param N Number of elements in a point
+	 */
+	public KdTreeFlat( int N ) {
+		this.N = N;
+	}
+
+	public KdTreeFlat() {
+	}
+
+	/**
+	 * Ensures that the internal arrays can store the specified number of nodes and sets the size. Previous
+	 * values are not saved.
+	 *
+	 * @param size Number of nodes in the tree
+	 */
+	public void resize( int size ) {
+		if( split.length < size ) {
+			split = new int[size];
+			splitValue = new double[size];
+			right = new int[size];
+			indexes = new int[size];
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Discards all the nodes
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * Returns the root of the tree or -1 if the tree is empty
+	 */
+	public int getRoot() {
+		return size == 0 ? -1 : 0;
+	}
+
+	public boolean isLeaf( int node ) {
+		return split[node] == -1;
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
+import org.ddogleg.sorting.QuickSelect;
+
+import java.util.List;
+
+/**
+ * Creates a new {@link KdTreeFlat} from a list of points or a {@link PointSetDistance}. The axis is selected using
+ * the provided {@link AxisSplitRule} and the point with the median value along that axis is used to split the data,
+ * like {@link AxisSplitterMedian}.
+ * Instead of copying points into new lists at each level, the index of each point is partitioned in place
+ * inside of a single array.
+ *
+ * The tree only stores the index of each point. When searching the same points must be provided.
+ *
+ * @author Peter Abeles
+ */
+public class KdTreeFlatConstructor<P> {
+
+	// using each axis's variance, selects which axis to split along
+	AxisSplitRule splitRule;
+
+	// Used to access points when constructing from a list
+	PointSetDistanceList<P> listPoints;
+
+	// Number of elements/axes in each data point
+	private int N;
+
+	// storage for variance calculation
+	private double[] mean;
+	private double[] var;
+
+	// index of each point in the input list. Rearranged as the tree is constructed
+	private int[] order = new int[0];
+	// storage for median calculation
+	private double[] tmp = new double[0];
+	private int[] tmpIndexes = new int[0];
+	private int[] tmpOrder = new int[0];
+
+	// Reference to the input points and the tree being constructed
+	private PointSetDistance<P> points;
+	private KdTreeFlat tree;
+
+	public KdTreeFlatConstructor( KdTreeDistance<P> distance , AxisSplitRule splitRule ) {
+		this.listPoints = new PointSetDistanceList<>(distance);
+		this.splitRule = splitRule;
+		this.N = distance.length();
+
+		this.mean = new double[N];
+		this.var = new double[N];
+
+		splitRule.setDimension(N);
+	}
+
+	/**
+	 * Creates canonical K-D Tree by selecting the maximum variance axis and splitting the points at the median.
+	 */
+	public KdTreeFlatConstructor( KdTreeDistance<P> distance ) {
+		this(distance, new AxisSplitRuleMax());
+	}
+
+	/**
+	 * Creates a new {@link KdTreeFlat} from the provided points.
+	 *
+	 * @param points Data points.
+	 * @return A new tree
+	 */
+	public KdTreeFlat construct( List<P> points ) {
+		KdTreeFlat tree = new KdTreeFlat(N);
+		construct(points,tree);
+		return tree;
+	}
+
+	/**
+	 * Constructs a {@link KdTreeFlat} from the provided points and writes it into the provided tree, recycling its
+	 * memory.
+	 *
+	 * @param points (Input) Data points.
+	 * @param tree (Output) Storage for the tree
+	 */
+	public void construct( List<P> points , KdTreeFlat tree ) {
+		listPoints.setPoints(points);
+		construct(listPoints,tree);
+		listPoints.setPoints(null);
+	}
+
+	/**
+	 * Constructs a {@link KdTreeFlat} from the provided set of points and writes it into the provided tree,
+	 * recycling its memory. The points can be stored in any format, e.g. packed into a single array.
+	 *
+	 * @param points (Input) Data points. Must have the same number of elements as specified in the constructor.
+	 * @param tree (Output) Storage for the tree
+	 */
+	public void construct( PointSetDistance<P> points , KdTreeFlat tree ) {
+		if( points.length() != N )
+			throw new IllegalArgumentException("Points have an unexpected number of elements. "+points.length()+" vs "+N);
+		final int size = points.size();
+		tree.reset();
+		tree.N = N;
+		tree.resize(size);
+
+		if( order.length < size ) {
+			order = new int[size];
+			tmp = new double[size];
+			tmpIndexes = new int[size];
+			tmpOrder = new int[size];
+		}
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+
+		this.points = points;
+		this.tree = tree;
+
+		if( size > 0 )
+			computeNode(0,0,size);
+
+		this.points = null;
+		this.tree = null;
+	}
+
+	/**
+	 * Creates the node which contains the points in 'order' from lower to upper, exclusive. Then creates the
+	 * node's children.
+	 *
+	 * @param node Index of the node being created
+	 * @param lower First point in the order list
+	 * @param upper Last point in the order list, exclusive.
+	 */
+	protected void computeNode( int node , int lower , int upper ) {
+		final int numPoints = upper-lower;
+
+		if( numPoints == 1 ) {
+			setNodePoint(node, order[lower]);
+			tree.split[node] = -1;
+			tree.splitValue[node] = 0;
+			tree.right[node] = -1;
+			return;
+		}
+
+		computeAxisVariance(lower,upper);
+		for (int i = 0; i < N; i++) {
+			if( Double.isNaN(var[i])) {
+				throw new RuntimeException("Variance is NaN.  Bad input is the cause. mean[i]="+mean[i]+" i="+i+" points.size="+numPoints);
+			}
+		}
+		final int splitAxis = splitRule.select(var);
+
+		// where the median is. Since there are at least two points the left list will never be empty
+		final int medianNum = numPoints/2;
+		for (int i = 0; i < numPoints; i++) {
+			tmp[i] = points.valueAt(order[lower+i],splitAxis);
+		}
+		QuickSelect.selectIndex(tmp, medianNum, numPoints, tmpIndexes);
+
+		// partition the points. Left is below the median and right is above
+		for (int i = 0; i < numPoints; i++) {
+			tmpOrder[i] = order[lower+tmpIndexes[i]];
+		}
+		System.arraycopy(tmpOrder,0,order,lower,numPoints);
+
+		setNodePoint(node, order[lower+medianNum]);
+		tree.split[node] = splitAxis;
+		tree.splitValue[node] = tmp[tmpIndexes[medianNum]];
+
+		// The left child is stored immediately after this node followed by the right child
+		int numRight = numPoints-medianNum-1;
+		if( numRight > 0 ) {
+			tree.right[node] = node + 1 + medianNum;
+		} else {
+			tree.right[node] = -1;
+		}
+		computeNode(node+1,lower,lower+medianNum);
+		if( numRight > 0 )
+			computeNode(tree.right[node],lower+medianNum+1,upper);
+	}
+
+	private void setNodePoint( int node , int index ) {
+		tree.indexes[node] = index;
+	}
+
+	/**
+	 * Computes the variance along each axis for points inside the range
+	 */
+	private void computeAxisVariance( int lower , int upper ) {
+		int numPoints = upper-lower;
+
+		for( int i = 0; i < N; i++ ) {
+			mean[i] = 0;
+			var[i] = 0;
+		}
+
+		// compute the mean
+		for( int i = lower; i < upper; i++ ) {
+			int p = order[i];
+
+			for( int j = 0; j < N; j++ ) {
+				mean[j] += points.valueAt(p,j);
+			}
+		}
+
+		for( int i = 0; i < N; i++ ) {
+			mean[i] /= numPoints;
+		}
+
+		// compute the variance * N
+		for( int i = lower; i < upper; i++ ) {
+			int p = order[i];
+
+			for( int j = 0; j < N; j++ ) {
+				double d = mean[j] - points.valueAt(p,j);
+				var[j] += d*d;
+			}
+		}
+	}
+}
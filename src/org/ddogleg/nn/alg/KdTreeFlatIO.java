@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.alg.distance.BufferEuclideanSq_F64;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ * Saves a {@link KdTreeFlat} and the points it was built from into a compact binary file, which can then be loaded
+ * using memory mapping. Loading doesn't rebuild the tree or create an object for each node. The tree's arrays are
+ * copied directly from the file and the points are accessed from the mapped file using
+ * {@link BufferEuclideanSq_F64}, so they are never copied onto the heap and the operating system's page cache is
+ * shared by every process which has loaded the same file.
+ * </p>
+ *
+ * <p>
+ * File format. All values are little endian.
+ * </p>
+ * <pre>
+ * int32 magic number, int32 version, int32 N (elements in a point), int32 number of nodes, int32 number of points,
+ * int32 padding
+ * int32[nodes] split, int32[nodes] right, int32[nodes] indexes, padding to 8-bytes
+ * float64[nodes] splitValue
+ * float64[points*N] points
+ * </pre>
+ *
+ * <p>
+ * The tree and the points are each mapped into a single buffer so neither can be more than 2<sup>31</sup>-1 bytes.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KdTreeFlatIO {
+	/** Identifies the file type. "KDTF" */
+	public static final int MAGIC = 0x4B445446;
+	public static final int VERSION = 1;
+
+	// size of the header in bytes
+	static final int HEADER_BYTES = 6*4;
+
+	/**
+	 * Writes the tree and points to a file
+	 *
+	 * @param tree (Input) The tree
+	 * @param points (Input) Points the tree was constructed from. Values are read with {@link PointSetDistance#valueAt}
+	 * @param file (Output) File it's written to. Overwritten if it exists.
+	 */
+	public static void save( KdTreeFlat tree , PointSetDistance<?> points , File file ) throws IOException {
+		final int N = tree.N;
+		final int nodes = tree.size;
+		final int numPoints = points.size();
+		if( numPoints > 0 && points.length() != N )
+			throw new IllegalArgumentException("Points and tree have a different number of elements");
+		if( numPoints*(long)N*8 > Integer.MAX_VALUE || nodes*20L > Integer.MAX_VALUE )
+			throw new IllegalArgumentException("Too many points to be memory mapped");
+
+		try( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING) ) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(N).putInt(nodes).putInt(numPoints).putInt(0);
+			for (int i = 0; i < nodes; i++) {
+				buffer = flushIfFull(channel, buffer, 4).putInt(tree.split[i]);
+			}
+			for (int i = 0; i < nodes; i++) {
+				buffer = flushIfFull(channel, buffer, 4).putInt(tree.right[i]);
+			}
+			for (int i = 0; i < nodes; i++) {
+				buffer = flushIfFull(channel, buffer, 4).putInt(tree.indexes[i]);
+			}
+			if( padding(nodes) != 0 )
+				buffer = flushIfFull(channel, buffer, 4).putInt(0);
+			for (int i = 0; i < nodes; i++) {
+				buffer = flushIfFull(channel, buffer, 8).putDouble(tree.splitValue[i]);
+			}
+			for (int i = 0; i < numPoints; i++) {
+				for (int j = 0; j < N; j++) {
+					buffer = flushIfFull(channel, buffer, 8).putDouble(points.valueAt(i,j));
+				}
+			}
+			flush(channel, buffer);
+		}
+	}
+
+	/**
+	 * Loads a file which was saved using {@link #save}. The file is memory mapped and the points are read
+	 * directly from it. The file can be closed, but must not be modified, while the points are in use.
+	 *
+	 * @param file (Input) File containing the tree
+	 * @param tree (Output) Storage for the loaded tree. Its arrays are reused if they are large enough.
+	 * @return Points which are read from the memory mapped file.
+	 */
+	public static BufferEuclideanSq_F64 load( File file , KdTreeFlat tree ) throws IOException {
+		try( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) ) {
+			if( channel.size() < HEADER_BYTES )
+				throw new IOException("Not a KdTreeFlat file");
+			ByteBuffer header = map(channel, 0, HEADER_BYTES);
+			if( header.getInt(0) != MAGIC )
+				throw new IOException("Not a KdTreeFlat file");
+			if( header.getInt(4) != VERSION )
+				throw new IOException("Unsupported version "+header.getInt(4));
+			final int N = header.getInt(8);
+			final int nodes = header.getInt(12);
+			final int numPoints = header.getInt(16);
+
+			final long offsetSplitValue = HEADER_BYTES + 12L*nodes + padding(nodes);
+			final long offsetPoints = offsetSplitValue + 8L*nodes;
+			if( channel.size() != offsetPoints + 8L*numPoints*N )
+				throw new IOException("Unexpected file size");
+
+			// copy the tree onto the heap
+			tree.N = N;
+			tree.resize(nodes);
+			IntBuffer ints = map(channel, HEADER_BYTES, 12L*nodes).asIntBuffer();
+			ints.get(tree.split, 0, nodes);
+			ints.get(tree.right, 0, nodes);
+			ints.get(tree.indexes, 0, nodes);
+			map(channel, offsetSplitValue, 8L*nodes).asDoubleBuffer().get(tree.splitValue, 0, nodes);
+
+			// points are read from the mapped file
+			return new BufferEuclideanSq_F64(map(channel, offsetPoints, 8L*numPoints*N).asDoubleBuffer(), N);
+		}
+	}
+
+	/**
+	 * Number of bytes needed after the int arrays to align the double arrays to 8-bytes
+	 */
+	static int padding( int nodes ) {
+		return (nodes*3)%2 == 0 ? 0 : 4;
+	}
+
+	private static ByteBuffer map( FileChannel channel , long offset , long length ) throws IOException {
+		MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		mapped.order(ByteOrder.LITTLE_ENDIAN);
+		return mapped;
+	}
+
+	private static ByteBuffer flushIfFull( FileChannel channel , ByteBuffer buffer , int bytes ) throws IOException {
+		if( buffer.remaining() < bytes )
+			flush(channel, buffer);
+		return buffer;
+	}
+
+	private static void flush( FileChannel channel , ByteBuffer buffer ) throws IOException {
+		buffer.flip();
+		while( buffer.hasRemaining() )
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,6 +18,10 @@
 
 package org.ddogleg.nn.alg;
 
+import org.ddogleg.nn.NearestNeighborStats;
+
+import javax.annotation.Nullable;
+
 /**
  * Interface for searching a single tree for the nearest-neighbor
  *
@@ -55,6 +59,12 @@ public interface KdTreeSearch1<P> {
 	 */
 	double getDistance();
 
+	/**
+	 * Specifies where search statistics are recorded. If null then nothing is recorded.
+	 * Implementations which do not support statistics ignore this.
+	 */
+	default void setStats( @Nullable NearestNeighborStats stats ) {}
+
 	/**
 	 * Creates a copy of this search with the same configuration. workspace isn't copied
 	 */
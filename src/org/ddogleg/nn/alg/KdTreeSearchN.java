@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,8 +18,11 @@
 
 package org.ddogleg.nn.alg;
 
+import org.ddogleg.nn.NearestNeighborStats;
 import org.ddogleg.struct.FastQueue;
 
+import javax.annotation.Nullable;
+
 /**
  * Interface for searching a single tree for the N nearest-neighbors.
  *
@@ -50,6 +53,36 @@ public interface KdTreeSearchN<P> {
 	 */
 	void findNeighbor(P target, int searchN, FastQueue<KdTreeResult> results);
 
+	/**
+	 * Searches for all the points which are within the maximum distance of the target, see
+	 * {@link #setMaxDistance}. The results are added to the 'results' list.
+	 *
+	 * <p>
+	 * The default implementation calls findNeighbor() with an increasing number of neighbors until fewer are
+	 * found than requested.
+	 * </p>
+	 *
+	 * @param target Point whose neighbors are being searched for
+	 * @param results Storage for the found neighbors.
+	 */
+	default void findWithinDistance(P target, FastQueue<KdTreeResult> results) {
+		int offset = results.size;
+		int searchN = 16;
+		while( true ) {
+			findNeighbor(target, searchN, results);
+			if( results.size-offset < searchN || searchN == Integer.MAX_VALUE )
+				break;
+			results.size = offset;
+			searchN = searchN > Integer.MAX_VALUE/2 ? Integer.MAX_VALUE : searchN*2;
+		}
+	}
+
+	/**
+	 * Specifies where search statistics are recorded. If null then nothing is recorded.
+	 * Implementations which do not support statistics ignore this.
+	 */
+	default void setStats( @Nullable NearestNeighborStats stats ) {}
+
 	/**
 	 * Creates a copy of this search with the same configuration. workspace isn't copied
 	 */
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+/**
+ * <p>
+ * Distance between two points which is a metric, i.e. it's non-negative, symmetric, and satisfies the triangle
+ * inequality. Data structures like the vantage point tree rely on the triangle inequality to prune the search.
+ * </p>
+ *
+ * <p>
+ * The distance reported by {@link org.ddogleg.nn.NearestNeighbor} can be different from the metric, as long as it's a
+ * monotonically increasing function of it. For example, Euclidean distance is the metric but Euclidean squared is
+ * what's reported by the Euclidean nearest neighbor searches.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public interface MetricDistance<P> {
+	/**
+	 * Computes the metric distance between the two points
+	 */
+	double distance( P a , P b );
+
+	/**
+	 * Converts the metric distance into the distance reported in search results
+	 */
+	default double metricToReported( double metric ) {
+		return metric;
+	}
+
+	/**
+	 * Converts a distance in the reported units, e.g. maximum search distance, into a metric distance
+	 */
+	default double reportedToMetric( double reported ) {
+		return reported;
+	}
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.distance.MetricHamming_I64;
+import org.ddogleg.struct.FastQueue;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Multi-index hashing (MIH) [1] for exact nearest neighbor search of binary descriptors using Hamming distance.
+ * Each descriptor is split into m disjoint substrings and a hash table is created for each substring. If two
+ * descriptors have a Hamming distance less than m*(r+1) then at least one of their substrings must be within a
+ * distance of r. A search looks up the buckets within a radius r = 0, 1, 2, ... of each of the query's
+ * substrings and checks the full distance to every descriptor it finds. The search stops once the pigeonhole
+ * principle guarantees that nothing closer can be found. For descriptors which have close neighbors only a small
+ * fraction of the set is checked.
+ * </p>
+ *
+ * <p>
+ * Substrings should have about log<sub>2</sub>(N) bits, where N is the number of descriptors. Each hash table
+ * directly indexes every possible substring value, so memory grows with 2<sup>bits</sup>. The reported distance is
+ * the number of bits which are different.
+ * </p>
+ *
+ * <p>
+ * [1] Norouzi, Mohammad, Ali Punjani, and David J. Fleet. "Fast exact search in hamming space with multi-index
+ * hashing." IEEE transactions on pattern analysis and machine intelligence 36.6 (2013): 1107-1119.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class MultiIndexHashing implements NearestNeighbor<long[]> {
+
+	// Maximum number of bits in a substring
+	int substringBits;
+
+	// The original list of descriptors
+	List<long[]> points;
+	// Descriptors packed into a single array
+	long[] packed = new long[0];
+	// Number of elements in each descriptor
+	int words;
+
+	// First bit and the number of bits in each substring
+	int[] subStart = new int[0];
+	int[] subLength = new int[0];
+	// Length of the shortest substring
+	int minSubLength;
+
+	// Hash table for each substring. The descriptors with substring value 'v' are bucketIds[bucketStart[v]] to
+	// bucketIds[bucketStart[v+1]-1]
+	int[][] bucketStart = new int[0][];
+	int[][] bucketIds = new int[0][];
+
+	/**
+	 * Configures the tables
+	 *
+	 * @param substringBits Number of bits in each substring. Try log2 of the number of descriptors. 1 to 20.
+	 */
+	public MultiIndexHashing( int substringBits ) {
+		if( substringBits < 1 || substringBits > 20 )
+			throw new IllegalArgumentException("substringBits must be from 1 to 20");
+		this.substringBits = substringBits;
+	}
+
+	@Override
+	public void setPoints( List<long[]> points , boolean trackIndicies ) {
+		this.points = points;
+		this.words = points.isEmpty() ? 0 : points.get(0).length;
+		final int size = points.size();
+
+		// computed as a long since the number of elements can exceed the range of an int
+		long length = (long)size*words;
+		if( length > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException("Too many descriptors. "+size+" descriptors with "+words+
+					" words each requires more elements than can be stored in an array");
+		if( packed.length < length )
+			packed = new long[(int)length];
+		for (int i = 0; i < size; i++) {
+			long[] p = points.get(i);
+			if( p.length != words )
+				throw new IllegalArgumentException("All descriptors must have the same length");
+			System.arraycopy(p, 0, packed, i*words, words);
+		}
+
+		// split the bits into substrings with at most substringBits each
+		final int numBits = words*64;
+		final int numSubstrings = (numBits+substringBits-1)/substringBits;
+		subStart = new int[numSubstrings];
+		subLength = new int[numSubstrings];
+		minSubLength = numSubstrings == 0 ? 0 : substringBits;
+		for (int i = 0; i < numSubstrings; i++) {
+			subStart[i] = i*substringBits;
+			subLength[i] = Math.min(substringBits, numBits-subStart[i]);
+			minSubLength = Math.min(minSubLength, subLength[i]);
+		}
+
+		// construct the hash tables using a counting sort
+		bucketStart = new int[numSubstrings][];
+		bucketIds = new int[numSubstrings][];
+		for (int sub = 0; sub < numSubstrings; sub++) {
+			int[] start = bucketStart[sub] = new int[(1 << subLength[sub])+1];
+			int[] ids = bucketIds[sub] = new int[size];
+
+			for (int i = 0; i < size; i++) {
+				start[extract(packed, i*words, sub)+1]++;
+			}
+			for (int i = 1; i < start.length; i++) {
+				start[i] += start[i-1];
+			}
+			for (int i = 0; i < size; i++) {
+				int value = extract(packed, i*words, sub);
+				ids[start[value]++] = i;
+			}
+			// the start of each bucket was shifted while filling it
+			for (int i = start.length-1; i > 0; i--) {
+				start[i] = start[i-1];
+			}
+			start[0] = 0;
+		}
+	}
+
+	/**
+	 * Extracts the value of a substring from the descriptor
+	 *
+	 * @param descriptor Array containing the descriptor
+	 * @param offset Index of the descriptor's first element
+	 * @param sub Which substring
+	 */
+	int extract( long[] descriptor , int offset , int sub ) {
+		final int start = subStart[sub];
+		final int length = subLength[sub];
+		final int word = start >>> 6;
+		final int shift = start & 63;
+
+		long value = descriptor[offset+word] >>> shift;
+		if( shift+length > 64 )
+			value |= descriptor[offset+word+1] << (64-shift);
+		return (int)(value & ((1L << length)-1));
+	}
+
+	/**
+	 * Returns the number of substrings, i.e. the number of hash tables
+	 */
+	public int getNumSubstrings() {
+		return subStart.length;
+	}
+
+	@Override
+	public Search<long[]> createSearch() {
+		return new InternalSearch();
+	}
+
+	private class InternalSearch implements Search<long[]> {
+		// Closest neighbors found so far. Sorted from closest to farthest
+		int[] bestDistances = new int[0];
+		int[] bestIndexes = new int[0];
+		int size;
+
+		// Value of each of the query's substrings
+		int[] querySub = new int[0];
+
+		// Marks descriptors which have already been checked during the current search
+		int[] visited = new int[0];
+		int stamp = 0;
+
+		// The search being performed
+		long[] query;
+		int numNeighbors;
+		int threshold;
+		// if not null then every neighbor within the threshold is added to it
+		FastQueue<NnData<long[]>> results;
+
+		@Override
+		public boolean findNearest( long[] point , double maxDistance , NnData<long[]> result ) {
+			search(point, maxDistance, 1);
+			if( size == 0 )
+				return false;
+			result.index = bestIndexes[0];
+			result.point = points.get(result.index);
+			result.distance = bestDistances[0];
+			return true;
+		}
+
+		@Override
+		public void findNearest( long[] point , double maxDistance , int numNeighbors ,
+								 FastQueue<NnData<long[]>> results ) {
+			results.reset();
+			search(point, maxDistance, numNeighbors);
+			for (int i = 0; i < size; i++) {
+				NnData<long[]> r = results.grow();
+				r.index = bestIndexes[i];
+				r.point = points.get(r.index);
+				r.distance = bestDistances[i];
+			}
+		}
+
+		@Override
+		public void findWithinDistance( long[] point , double maxDistance , FastQueue<NnData<long[]>> results ) {
+			results.reset();
+			this.results = results;
+			search(point, maxDistance, 0);
+			this.results = null;
+		}
+
+		/**
+		 * Searches buckets with an increasing radius until the closest neighbors are known
+		 *
+		 * @param numNeighbors Maximum number of neighbors. If zero then all neighbors are added to 'results'
+		 */
+		void search( long[] point , double maxDistance , int numNeighbors ) {
+			this.query = point;
+			this.numNeighbors = numNeighbors;
+			this.threshold = ExhaustiveHamming_I64.maxThreshold(maxDistance);
+			this.size = 0;
+			if( points.isEmpty() )
+				return;
+
+			if( bestDistances.length < numNeighbors ) {
+				bestDistances = new int[numNeighbors];
+				bestIndexes = new int[numNeighbors];
+			}
+			if( visited.length < points.size() ) {
+				visited = new int[points.size()];
+				stamp = 0;
+			}
+			if( ++stamp == Integer.MAX_VALUE ) {
+				Arrays.fill(visited, 0);
+				stamp = 1;
+			}
+
+			final int numSubstrings = subStart.length;
+			if( querySub.length < numSubstrings )
+				querySub = new int[numSubstrings];
+			for (int sub = 0; sub < numSubstrings; sub++) {
+				querySub[sub] = extract(point, 0, sub);
+			}
+
+			for (int radius = 0; ; radius++) {
+				for (int sub = 0; sub < numSubstrings; sub++) {
+					if( radius <= subLength[sub] )
+						searchRadius(sub, radius);
+				}
+
+				// every descriptor closer than this has been checked
+				long bound = (long)numSubstrings*(radius+1);
+				if( threshold <= bound )
+					break;
+				if( numNeighbors > 0 && size == numNeighbors && bestDistances[size-1] < bound )
+					break;
+				// every descriptor has been checked after the shortest substring has been exhaustively searched
+				if( radius >= minSubLength )
+					break;
+			}
+		}
+
+		/**
+		 * Checks all the descriptors in buckets which are exactly 'radius' bits from the query's substring
+		 */
+		void searchRadius( int sub , int radius ) {
+			final int length = subLength[sub];
+			final int value = querySub[sub];
+
+			if( radius == 0 ) {
+				searchBucket(sub, value);
+				return;
+			}
+
+			// go through all values with 'radius' bits set using Gosper's hack
+			final long limit = 1L << length;
+			long mask = (1L << radius)-1;
+			while( mask < limit ) {
+				searchBucket(sub, value ^ (int)mask);
+				long c = mask & -mask;
+				long r = mask + c;
+				mask = (((r ^ mask) >>> 2) / c) | r;
+			}
+		}
+
+		void searchBucket( int sub , int value ) {
+			final int[] ids = bucketIds[sub];
+			final int end = bucketStart[sub][value+1];
+			for (int i = bucketStart[sub][value]; i < end; i++) {
+				final int id = ids[i];
+				if( visited[id] == stamp )
+					continue;
+				visited[id] = stamp;
+				consider(id, MetricHamming_I64.hamming(query, packed, id*words));
+			}
+		}
+
+		/**
+		 * Adds the descriptor to the results if it's close enough
+		 */
+		void consider( int id , int d ) {
+			if( d >= threshold )
+				return;
+
+			if( numNeighbors == 0 ) {
+				NnData<long[]> r = results.grow();
+				r.index = id;
+				r.point = points.get(id);
+				r.distance = d;
+				return;
+			}
+
+			if( size == numNeighbors && d >= bestDistances[size-1] )
+				return;
+
+			// insert it into the sorted list
+			int location = size < numNeighbors ? size++ : numNeighbors-1;
+			while( location > 0 && bestDistances[location-1] > d ) {
+				bestDistances[location] = bestDistances[location-1];
+				bestIndexes[location] = bestIndexes[location-1];
+				location--;
+			}
+			bestDistances[location] = d;
+			bestIndexes[location] = id;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+/**
+ * Distance functions for a set of points where each point in the set is referenced by its index. This abstracts
+ * away how the points are stored, allowing them to be in a list of objects or packed into a single array, and
+ * lets implementations specialize the distance calculation for their storage format. Functions from
+ * {@link KdTreeDistance} are used to access points which are not in the set, e.g. the point being searched for.
+ *
+ * All functions must be thread safe so that the same instance can be used by multiple searches at once.
+ *
+ * @author Peter Abeles
+ */
+public interface PointSetDistance<P> extends KdTreeDistance<P> {
+	/**
+	 * Number of points in the set
+	 */
+	int size();
+
+	/**
+	 * Returns the value of an element in a point inside the set
+	 *
+	 * @param index Index of the point in the set
+	 * @param axis Which element in the point is to be read
+	 * @return The value of the element in the point.
+	 */
+	double valueAt( int index , int axis );
+
+	/**
+	 * Computes the distance between a point in the set and a point which is not in the set
+	 *
+	 * @param index Index of the point in the set
+	 * @param point The other point
+	 * @return distance
+	 */
+	double distance( int index , P point );
+
+	/**
+	 * Computes the distance between two points inside the set
+	 *
+	 * @param indexA Index of a point in the set
+	 * @param indexB Index of a point in the set
+	 * @return distance
+	 */
+	double distance( int indexA , int indexB );
+}
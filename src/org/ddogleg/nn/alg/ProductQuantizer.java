@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.clustering.kmeans.StandardKMeans_F64;
+import org.ddogleg.struct.FastQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Product quantization (PQ) encodes a vector into a few bytes by splitting it into sub-vectors and replacing each
+ * sub-vector with the index of the closest centroid in a codebook for that sub-space [1]. Codebooks are learned using
+ * k-means and have at most 256 centroids so that each sub-vector is encoded by one byte.
+ * </p>
+ *
+ * <p>
+ * The Euclidean squared distance between a query and an encoded vector is approximated using a look up table, which
+ * contains the distance from each of the query's sub-vectors to every centroid in the matching codebook. The
+ * distance is then the sum of one table element for each sub-space. This is known as asymmetric distance computation
+ * since the query isn't encoded.
+ * </p>
+ *
+ * <p>
+ * [1] Jegou, Herve, Matthijs Douze, and Cordelia Schmid. "Product quantization for nearest neighbor search."
+ * IEEE transactions on pattern analysis and machine intelligence 33.1 (2010): 117-128.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ProductQuantizer {
+	// Number of elements in a vector
+	final int dof;
+	// First element in each sub-space. The last element is dof.
+	final int[] subStart;
+	// Number of centroids in each codebook
+	int numCentroids;
+	// Codebook for each sub-space. Centroids are stored in a row major flat array
+	double[][] codebooks;
+
+	// Used to learn codebooks
+	StandardKMeans_F64 kmeans;
+
+	/**
+	 * Specifies the shape of vectors and how they are split up
+	 *
+	 * @param dof Number of elements in a vector
+	 * @param numSubspaces Number of sub-spaces and the number of bytes in a code. Must be &le; dof
+	 * @param kmeans Used to learn the codebooks
+	 */
+	public ProductQuantizer( int dof , int numSubspaces , StandardKMeans_F64 kmeans ) {
+		if( numSubspaces < 1 || numSubspaces > dof )
+			throw new IllegalArgumentException("numSubspaces must be from 1 to dof. numSubspaces="+numSubspaces);
+		this.dof = dof;
+		this.kmeans = kmeans;
+
+		// if the dof isn't evenly divisible then the sub-spaces are within one element of each other in size
+		subStart = new int[numSubspaces+1];
+		for (int i = 0; i <= numSubspaces; i++) {
+			subStart[i] = i*dof/numSubspaces;
+		}
+		codebooks = new double[numSubspaces][];
+	}
+
+	/**
+	 * Learns the codebook for each sub-space
+	 *
+	 * @param vectors (Input) Training vectors
+	 * @param numCentroids Number of centroids in each codebook. Must be from 1 to 256. If there are fewer training
+	 *                     vectors then the number of vectors is used.
+	 * @param randSeed Seed used by k-means
+	 */
+	public void train( List<double[]> vectors , int numCentroids , long randSeed ) {
+		if( numCentroids < 1 || numCentroids > 256 )
+			throw new IllegalArgumentException("numCentroids must be from 1 to 256");
+		if( vectors.isEmpty() )
+			throw new IllegalArgumentException("At least one training vector is required");
+
+		this.numCentroids = Math.min(numCentroids, vectors.size());
+		List<double[]> subVectors = new ArrayList<>();
+
+		for (int sub = 0; sub < codebooks.length; sub++) {
+			final int start = subStart[sub];
+			final int length = subStart[sub+1]-start;
+
+			FastQueue<double[]> work = new FastQueue<>(()->new double[length]);
+			work.resize(vectors.size());
+			subVectors.clear();
+			for (int i = 0; i < vectors.size(); i++) {
+				double[] s = work.get(i);
+				System.arraycopy(vectors.get(i), start, s, 0, length);
+				subVectors.add(s);
+			}
+
+			kmeans.init(length, randSeed+sub);
+			kmeans.process(subVectors, this.numCentroids);
+			FastQueue<double[]> means = kmeans.getClusterMeans();
+
+			double[] codebook = codebooks[sub] = new double[this.numCentroids*length];
+			for (int i = 0; i < this.numCentroids; i++) {
+				double[] mean = means.get(i);
+				for (int j = 0; j < length; j++) {
+					// clusters with no members can have NaN means. Push them far away so they are never selected
+					codebook[i*length+j] = Double.isNaN(mean[j]) ? Double.MAX_VALUE : mean[j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Encodes the vector by finding the closest centroid in each sub-space
+	 *
+	 * @param vector (Input) Vector which is to be encoded
+	 * @param codes (Output) Array the code is written into
+	 * @param offset Index of the first byte in 'codes' which is written to
+	 */
+	public void encode( double[] vector , byte[] codes , int offset ) {
+		for (int sub = 0; sub < codebooks.length; sub++) {
+			final double[] codebook = codebooks[sub];
+			final int start = subStart[sub];
+			final int length = subStart[sub+1]-start;
+
+			int best = 0;
+			double bestDistance = Double.MAX_VALUE;
+			for (int i = 0, idx = 0; i < numCentroids; i++) {
+				double d = 0;
+				for (int j = 0; j < length; j++, idx++) {
+					double e = vector[start+j]-codebook[idx];
+					d += e*e;
+				}
+				if( d < bestDistance ) {
+					bestDistance = d;
+					best = i;
+				}
+			}
+			codes[offset+sub] = (byte)best;
+		}
+	}
+
+	/**
+	 * Reconstructs the vector from its code using the centroids
+	 *
+	 * @param codes (Input) Array containing the code
+	 * @param offset Index of the first byte of the code
+	 * @param vector (Output) The reconstructed vector
+	 */
+	public void decode( byte[] codes , int offset , double[] vector ) {
+		for (int sub = 0; sub < codebooks.length; sub++) {
+			final int start = subStart[sub];
+			final int length = subStart[sub+1]-start;
+			final int centroid = codes[offset+sub] & 0xFF;
+			System.arraycopy(codebooks[sub], centroid*length, vector, start, length);
+		}
+	}
+
+	/**
+	 * Computes the Euclidean squared distance from each of the query's sub-vectors to every centroid in
+	 * the sub-vector's codebook.
+	 *
+	 * @param query (Input) The vector being searched for
+	 * @param table (Output) Distance table. Must have {@link #getTableLength()} elements
+	 */
+	public void computeTable( double[] query , double[] table ) {
+		for (int sub = 0, idxTable = 0; sub < codebooks.length; sub++) {
+			final double[] codebook = codebooks[sub];
+			final int start = subStart[sub];
+			final int length = subStart[sub+1]-start;
+
+			for (int i = 0, idx = 0; i < numCentroids; i++) {
+				double d = 0;
+				for (int j = 0; j < length; j++, idx++) {
+					double e = query[start+j]-codebook[idx];
+					d += e*e;
+				}
+				table[idxTable++] = d;
+			}
+		}
+	}
+
+	/**
+	 * Approximate Euclidean squared distance between the query used to compute the table and an encoded vector
+	 *
+	 * @param table (Input) Table computed by {@link #computeTable}
+	 * @param codes (Input) Array containing the code
+	 * @param offset Index of the first byte of the code
+	 * @return approximate distance
+	 */
+	public double distance( double[] table , byte[] codes , int offset ) {
+		final int numCentroids = this.numCentroids;
+		final int numSubspaces = codebooks.length;
+		double sum = 0;
+		for (int sub = 0; sub < numSubspaces; sub++) {
+			sum += table[sub*numCentroids + (codes[offset+sub] & 0xFF)];
+		}
+		return sum;
+	}
+
+	/**
+	 * Number of elements in a vector
+	 */
+	public int getDof() {
+		return dof;
+	}
+
+	/**
+	 * Number of bytes in an encoded vector
+	 */
+	public int getCodeLength() {
+		return codebooks.length;
+	}
+
+	/**
+	 * Number of centroids in each codebook
+	 */
+	public int getNumCentroids() {
+		return numCentroids;
+	}
+
+	/**
+	 * Number of elements in the table computed by {@link #computeTable}
+	 */
+	public int getTableLength() {
+		return codebooks.length*numCentroids;
+	}
+}
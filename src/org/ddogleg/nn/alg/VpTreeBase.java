@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NearestNeighborStats;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
+import org.ddogleg.struct.FastArray;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * <p>
+ * Vantage point tree implementation which is independent of the point's data type. Points are accessed through
+ * a {@link PointSetDistance}, which must compute the Euclidean squared distance, so the same tree construction and
+ * search code is shared by all point types. See {@link VpTree} for a description of the algorithm.
+ * </p>
+ *
+ * @author Karel Petránek
+ */
+public abstract class VpTreeBase<P> implements NearestNeighbor<P> {
+	// Index of the point in the set. Rearranged when building the tree
+	GrowQueue_I32 indexes = new GrowQueue_I32();
+	// The input list. null if a point set was specified
+	private @Nullable List<P> points;
+	// Set of points the tree is constructed from. Distance is Euclidean squared
+	private PointSetDistance<P> pointSet;
+	// Used when the points are a list
+	private @Nullable PointSetDistanceList<P> listPoints;
+	private Node root;
+	private Random random;
+
+	/**
+	 * Constructor
+	 *
+	 * @param randSeed Random seed
+	 */
+	protected VpTreeBase( long randSeed ) {
+		random = new Random(randSeed);
+	}
+
+	/**
+	 * Creates the Euclidean squared distance used when points are provided as a list
+	 *
+	 * @param dof Number of elements in each point
+	 */
+	protected abstract KdTreeDistance<P> createDistance( int dof );
+
+	/**
+	 * Returns the number of elements in the point
+	 */
+	protected abstract int lengthOf( P point );
+
+	@Override
+	public void setPoints(List<P> points, boolean trackIndicies) {
+		int dof = points.isEmpty() ? 0 : lengthOf(points.get(0));
+		if( listPoints == null || listPoints.length() != dof )
+			listPoints = new PointSetDistanceList<>(createDistance(dof));
+		listPoints.setPoints(points);
+		this.points = points;
+		this.pointSet = listPoints;
+		buildTree();
+	}
+
+	/**
+	 * Specifies the set of points directly, e.g. points packed into a single array. The set's distance
+	 * must be Euclidean squared. Since there might not be an object for each point {@link NnData#point}
+	 * will be null in results and only the index is returned.
+	 *
+	 * @param points Set of points
+	 */
+	public void setPoints( PointSetDistance<P> points ) {
+		this.points = null;
+		this.pointSet = points;
+		buildTree();
+	}
+
+	private void buildTree() {
+		final int size = pointSet.size();
+		indexes.resize(size);
+		for (int i = 0; i < size; i++) {
+			indexes.data[i] = i;
+		}
+
+		this.root = buildFromPoints(0, size);
+	}
+
+	/**
+	 * Builds the tree from a set of points by recursively partitioning
+	 * them according to a random pivot.
+	 * @param lower start of range
+	 * @param upper end of range (exclusive)
+	 * @return root of the tree or null if lower == upper
+	 */
+	private Node buildFromPoints(int lower, int upper) {
+		if (upper == lower) {
+			return null;
+		}
+
+		final Node node = new Node();
+		node.index = lower;
+
+		if (upper - lower > 1) {
+
+			// choose an arbitrary vantage point and move it to the start
+			int i = random.nextInt(upper - lower - 1) + lower;
+			listSwap(indexes, lower, i);
+
+			int median = (upper + lower + 1) / 2;
+
+			// partition around the median distance
+			nthElement(lower + 1, upper, median, indexes.data[lower]);
+
+			// what was the median?
+			node.threshold = distance(indexes.data[lower], indexes.data[median]);
+
+			node.index = lower;
+			node.left = buildFromPoints(lower + 1, median);
+			node.right = buildFromPoints(median, upper);
+		}
+
+		return node;
+	}
+
+	/**
+	 * Ensures that the n-th element is in a correct position in the list based on
+	 * the distance from origin.
+	 * @param left start of range
+	 * @param right end of range (exclusive)
+	 * @param n element to put in the right position
+	 * @param origin index of the origin to compute the distance to
+	 */
+	private void nthElement(int left, int right, int n, int origin) {
+		int npos = partitionItems(left, right, n, origin);
+		if (npos < n)
+			nthElement(npos + 1, right, n, origin);
+		if (npos > n)
+			nthElement(left, npos, n, origin);
+	}
+
+	/**
+	 * Partition the points based on their distance to origin around the selected pivot.
+	 * @param left range start
+	 * @param right range end (exclusive)
+	 * @param pivot pivot for the partition
+	 * @param origin index of the origin to compute the distance to
+	 * @return index of the pivot
+	 */
+	private int partitionItems(int left, int right, int pivot, int origin) {
+		double pivotDistance = distance(origin, indexes.data[pivot]);
+		listSwap(indexes, pivot, right - 1);
+		int storeIndex = left;
+		for (int i = left; i < right - 1; i++) {
+			if (distance(origin, indexes.data[i]) <= pivotDistance) {
+				listSwap(indexes, i, storeIndex);
+				storeIndex++;
+			}
+		}
+		listSwap(indexes, storeIndex, right - 1);
+		return storeIndex;
+	}
+
+	private void listSwap(GrowQueue_I32 list, int a, int b) {
+		int tmp = list.get(a);
+		list.data[a] = list.data[b];
+		list.data[b] = tmp;
+	}
+
+
+	@Override
+	public Search<P> createSearch() {
+		return new InternalSearch();
+	}
+
+	private class InternalSearch implements Search<P> {
+		// storage for search statistics. null if not recorded
+		@Nullable NearestNeighborStats stats;
+
+		// stack of nodes which still need to be traversed. Recycled between queries
+		final FastArray<Node> nodes = new FastArray<>(Node.class, 20);
+
+		@Override
+		public void setStats( @Nullable NearestNeighborStats stats ) {
+			this.stats = stats;
+		}
+
+		@Override
+		public @Nullable NearestNeighborStats getStats() {
+			return stats;
+		}
+
+		@Override
+		public boolean findNearest(P point, double maxDistance, NnData<P> result) {
+			long time0 = stats != null ? System.nanoTime() : 0;
+			boolean r = searchNearest(point, maxDistance < 0 ? Double.POSITIVE_INFINITY : Math.sqrt(maxDistance), result);
+			result.distance *= result.distance; // Callee expects squared distance
+			if (stats != null)
+				stats.recordQuery(System.nanoTime()-time0);
+			return r;
+		}
+
+		@Override
+		public void findNearest(P target, double maxDistance,
+								int numNeighbors, FastQueue<NnData<P>> results)
+		{
+			long time0 = stats != null ? System.nanoTime() : 0;
+			results.reset();
+			PriorityQueue<HeapItem> heap = search(target, maxDistance < 0 ? Double.POSITIVE_INFINITY : Math.sqrt(maxDistance), numNeighbors);
+
+			while (!heap.isEmpty()) {
+				final HeapItem heapItem = heap.poll();
+				NnData<P> objects = results.grow();
+				objects.index = indexes.get(heapItem.index);
+				objects.point = points == null ? null : points.get(objects.index);
+				objects.distance = heapItem.dist * heapItem.dist; // squared distance is expected
+			}
+
+			results.reverse();
+			if (stats != null)
+				stats.recordQuery(System.nanoTime()-time0);
+		}
+
+		@Override
+		public void findWithinDistance(P target, double maxDistance, FastQueue<NnData<P>> results) {
+			long time0 = stats != null ? System.nanoTime() : 0;
+			results.reset();
+			if (root != null) {
+				searchWithin(target, maxDistance, results);
+			}
+			if (stats != null)
+				stats.recordQuery(System.nanoTime()-time0);
+		}
+
+		/**
+		 * Finds all the points within maxDistance of the target
+		 */
+		private void searchWithin(P target, double maxDistance, FastQueue<NnData<P>> results) {
+
+			// the search radius is fixed since there is no limit on the number of neighbors
+			final double tau = maxDistance < 0 ? Double.POSITIVE_INFINITY : Math.sqrt(maxDistance);
+			nodes.reset();
+			nodes.add(root);
+
+			while (nodes.size() > 0) {
+				final Node node = nodes.removeTail();
+				if (stats != null)
+					recordVisit(node);
+				final double dist = distance(indexes.data[node.index], target);
+
+				if (dist <= tau) {
+					NnData<P> objects = results.grow();
+					objects.index = indexes.get(node.index);
+					objects.point = points == null ? null : points.get(objects.index);
+					objects.distance = dist * dist; // squared distance is expected
+				}
+
+				if (node.left != null && dist - tau <= node.threshold) {
+					nodes.add(node.left);
+				}
+
+				if (node.right != null && dist + tau >= node.threshold) {
+					nodes.add(node.right);
+				}
+			}
+		}
+
+		/**
+		 * Recursively search for the k nearest neighbors to target.
+		 * @param target target point
+		 * @param maxDistance maximum distance
+		 * @param k number of neighbors to find
+		 */
+		private PriorityQueue<HeapItem> search(final P target, double maxDistance, final int k) {
+			PriorityQueue<HeapItem> heap = new PriorityQueue<>();
+			if (root == null) {
+				return heap;
+			}
+
+			double tau = maxDistance;
+			nodes.reset();
+			nodes.add(root);
+
+			while (nodes.size() > 0) {
+				final Node node = nodes.removeTail();
+				if (stats != null)
+					recordVisit(node);
+				final double dist = distance(indexes.data[node.index], target);
+
+				if (dist <= tau) {
+					if (heap.size() == k) {
+						heap.poll();
+					}
+					heap.add(new HeapItem(node.index, dist));
+					if (stats != null)
+						stats.heapPushes++;
+					if (heap.size() == k) {
+						tau = heap.element().dist;
+					}
+				}
+
+				if (node.left != null && dist - tau <= node.threshold) {
+					nodes.add(node.left);
+				}
+
+				if (node.right != null && dist + tau >= node.threshold) {
+					nodes.add(node.right);
+				}
+			}
+
+			return heap;
+		}
+
+		/**
+		 * Equivalent to the above search method to find one nearest neighbor.
+		 * It is faster as it does not need to allocate and use the heap data structure.
+		 * @param target target point
+		 * @param maxDistance maximum distance
+		 * @param result information about the nearest point (output parameter)
+		 * @return true if a nearest point was found within maxDistance
+		 */
+		private boolean searchNearest(final P target, double maxDistance, NnData<P> result) {
+			if (root == null) {
+				return false;
+			}
+
+			double tau = maxDistance;
+			nodes.reset();
+			nodes.add(root);
+			result.distance = Double.POSITIVE_INFINITY;
+			boolean found = false;
+
+			while (nodes.size() > 0) {
+				final Node node = nodes.getTail();
+				nodes.removeTail();
+				if (stats != null)
+					recordVisit(node);
+				final double dist = distance(indexes.data[node.index], target);
+
+				if (dist <= tau && dist < result.distance) {
+					result.distance = dist;
+					result.index = indexes.data[node.index];
+					result.point = points == null ? null : points.get(result.index);
+					tau = dist;
+					found = true;
+				}
+
+				if (node.left != null && dist - tau <= node.threshold) {
+					nodes.add(node.left);
+				}
+
+				if (node.right != null && dist + tau >= node.threshold) {
+					nodes.add(node.right);
+				}
+			}
+
+			return found;
+		}
+
+		private void recordVisit(Node node) {
+			stats.nodesVisited++;
+			stats.distanceEvaluations++;
+			if (node.left == null && node.right == null)
+				stats.leafHits++;
+		}
+	}
+
+	/**
+	 * Compute the Euclidean distance between two points in the set
+	 * @param indexA index of the first point
+	 * @param indexB index of the second point
+	 * @return Euclidean distance
+	 */
+	private double distance(int indexA, int indexB) {
+		return Math.sqrt(pointSet.distance(indexA, indexB));
+	}
+
+	/**
+	 * Compute the Euclidean distance between a point in the set and the target
+	 * @param index index of the point in the set
+	 * @param target the target point
+	 * @return Euclidean distance
+	 */
+	private double distance(int index, P target) {
+		return Math.sqrt(pointSet.distance(index, target));
+	}
+
+
+	/**
+	 * Separates the points to "closer than the threshold" (left) and "farther than the threshold" (right).
+	 */
+	private static class Node {
+		int index;
+		double threshold;
+		Node left;
+		Node right;
+	}
+
+	/**
+	 * Holds possible candidates for nearest neighbors during the search.
+	 */
+	private static class HeapItem implements Comparable<HeapItem> {
+		int index;
+		double dist;
+
+		HeapItem(int index, double dist) {
+			this.index = index;
+			this.dist = dist;
+		}
+
+		@Override
+		public int compareTo(HeapItem o) {
+			return (int) Math.signum(o.dist - dist);
+		}
+	}
+}
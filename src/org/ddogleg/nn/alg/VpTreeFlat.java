@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NearestNeighborStats;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.sorting.QuickSelect;
+import org.ddogleg.struct.BinaryHeap_F64I32;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Vantage point tree for nearest neighbor search in any metric space. Compared to {@link VpTree} it's designed to
+ * reduce memory and the number of distance calculations:
+ * </p>
+ * <ul>
+ *     <li>Nodes are stored in flat arrays instead of a graph of objects</li>
+ *     <li>Small sets of points are stored in leaf buckets instead of a node for each point</li>
+ *     <li>The distance of each point to the vantage point is computed once per level and then partitioned using
+ *     {@link QuickSelect}</li>
+ *     <li>The distance from a bucket's points to their parent's vantage point is saved and used to skip points using
+ *     the triangle inequality</li>
+ *     <li>Searches use primitive heaps and stacks and don't create any objects</li>
+ * </ul>
+ *
+ * <p>
+ * Each branch has a vantage point and a threshold. Points in the inner child are at a distance &le; threshold from
+ * the vantage point and points in the outer child are at a distance &ge; threshold. The distance is specified by a
+ * {@link MetricDistance} and must satisfy the triangle inequality.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class VpTreeFlat<P> implements NearestNeighbor<P> {
+	/** Maximum number of points in a leaf */
+	public int bucketSize;
+
+	// Distance between points
+	MetricDistance<P> metric;
+
+	// Original index of the point at each location in the tree
+	GrowQueue_I32 indexes = new GrowQueue_I32();
+	// Points in the order they are stored in the tree
+	List<P> ordered = new ArrayList<>();
+	// Distance from each point to the vantage point of the branch which last split it. Used to prune leaf points
+	GrowQueue_F64 parentDistance = new GrowQueue_F64();
+
+	// The original list of points
+	List<P> points;
+
+	// Nodes. The range of points [lower,upper) in 'ordered' which belong to a node
+	GrowQueue_I32 nodeLower = new GrowQueue_I32();
+	GrowQueue_I32 nodeUpper = new GrowQueue_I32();
+	// Index of the inner child node. -1 if it's a leaf. The vantage point of a branch is always at 'lower'
+	GrowQueue_I32 nodeInner = new GrowQueue_I32();
+	// Index of the outer child node. -1 if it's a leaf.
+	GrowQueue_I32 nodeOuter = new GrowQueue_I32();
+	// Distance which separates the inner and outer children
+	GrowQueue_F64 nodeThreshold = new GrowQueue_F64();
+
+	// Used to select vantage points
+	Random rand;
+
+	// workspace for construction
+	double[] workDistance = new double[0];
+	double[] workSorted = new double[0];
+	int[] workOrder = new int[0];
+	int[] workIndexes = new int[0];
+
+	/**
+	 * Constructor
+	 *
+	 * @param metric Distance between points. Must be a metric.
+	 * @param bucketSize Maximum number of points in a leaf. Try 20
+	 * @param randSeed Seed used to select vantage points
+	 */
+	public VpTreeFlat( MetricDistance<P> metric , int bucketSize , long randSeed ) {
+		if( bucketSize < 1 )
+			throw new IllegalArgumentException("bucketSize must be at least 1");
+		this.metric = metric;
+		this.bucketSize = bucketSize;
+		this.rand = new Random(randSeed);
+	}
+
+	@Override
+	public void setPoints( List<P> points , boolean trackIndicies ) {
+		this.points = points;
+		final int size = points.size();
+
+		indexes.resize(size);
+		for (int i = 0; i < size; i++) {
+			indexes.data[i] = i;
+		}
+		parentDistance.resize(size);
+		parentDistance.fill(Double.NaN);
+
+		nodeLower.reset();
+		nodeUpper.reset();
+		nodeInner.reset();
+		nodeOuter.reset();
+		nodeThreshold.reset();
+
+		if( workDistance.length < size ) {
+			workDistance = new double[size];
+			workSorted = new double[size];
+			workOrder = new int[size];
+			workIndexes = new int[size];
+		}
+
+		if( size > 0 )
+			buildNode(0, size);
+
+		ordered.clear();
+		for (int i = 0; i < size; i++) {
+			ordered.add(points.get(indexes.data[i]));
+		}
+	}
+
+	/**
+	 * Creates a node for the points in the range [lower,upper) and recursively creates its children
+	 *
+	 * @return index of the node
+	 */
+	int buildNode( int lower , int upper ) {
+		int node = nodeLower.size;
+		nodeLower.add(lower);
+		nodeUpper.add(upper);
+		nodeInner.add(-1);
+		nodeOuter.add(-1);
+		nodeThreshold.add(0);
+
+		if( upper-lower <= bucketSize )
+			return node;
+
+		// select a random vantage point and move it to the start
+		int selected = lower + rand.nextInt(upper-lower);
+		int vantage = indexes.data[selected];
+		indexes.data[selected] = indexes.data[lower];
+		indexes.data[lower] = vantage;
+
+		// compute the distance to every other point only once
+		final P vantagePoint = points.get(vantage);
+		final int length = upper-lower-1;
+		for (int i = 0; i < length; i++) {
+			workDistance[i] = metric.distance(vantagePoint, points.get(indexes.data[lower+1+i]));
+		}
+
+		// partition around the median distance
+		final int median = length/2;
+		QuickSelect.selectIndex(workDistance, median, length, workOrder);
+		for (int i = 0; i < length; i++) {
+			workIndexes[i] = indexes.data[lower+1+workOrder[i]];
+			workSorted[i] = workDistance[workOrder[i]];
+		}
+		System.arraycopy(workIndexes, 0, indexes.data, lower+1, length);
+		System.arraycopy(workSorted, 0, parentDistance.data, lower+1, length);
+
+		nodeThreshold.data[node] = parentDistance.data[lower+1+median];
+
+		// children are assigned after construction since the node arrays will grow
+		int inner = buildNode(lower+1, lower+1+median);
+		int outer = buildNode(lower+1+median, upper);
+		nodeInner.data[node] = inner;
+		nodeOuter.data[node] = outer;
+
+		return node;
+	}
+
+	@Override
+	public Search<P> createSearch() {
+		return new InternalSearch();
+	}
+
+	private class InternalSearch implements Search<P> {
+		// the best points found so far. Max-heap so the keys are negative distances
+		BinaryHeap_F64I32 heap = new BinaryHeap_F64I32();
+
+		// Nodes which still need to be searched, the minimum possible distance to a point inside of them, and the
+		// distance from the target to the vantage point of their parent
+		GrowQueue_I32 stackNodes = new GrowQueue_I32();
+		GrowQueue_F64 stackBound = new GrowQueue_F64();
+		GrowQueue_F64 stackParent = new GrowQueue_F64();
+
+		// the target point
+		P target;
+		// the search radius. Shrinks as neighbors are found
+		double tau;
+		// maximum number of neighbors. If zero then there is no limit and 'results' is used
+		int maxNeighbors;
+		FastQueue<NnData<P>> results;
+
+		// storage for search statistics. null if not recorded
+		@Nullable NearestNeighborStats stats;
+
+		@Override
+		public void setStats( @Nullable NearestNeighborStats stats ) {
+			this.stats = stats;
+		}
+
+		@Override
+		public @Nullable NearestNeighborStats getStats() {
+			return stats;
+		}
+
+		@Override
+		public boolean findNearest( P point , double maxDistance , NnData<P> result ) {
+			search(point, maxDistance, 1);
+			if( heap.isEmpty() )
+				return false;
+
+			double distance = -heap.peekKey();
+			int location = heap.pop();
+			result.index = indexes.data[location];
+			result.point = ordered.get(location);
+			result.distance = metric.metricToReported(distance);
+			return true;
+		}
+
+		@Override
+		public void findNearest( P point , double maxDistance , int numNeighbors , FastQueue<NnData<P>> results ) {
+			results.reset();
+			search(point, maxDistance, numNeighbors);
+
+			// the heap returns the farthest first
+			results.resize(heap.size());
+			for (int i = results.size-1; i >= 0; i--) {
+				NnData<P> r = results.get(i);
+				double distance = -heap.peekKey();
+				int location = heap.pop();
+				r.index = indexes.data[location];
+				r.point = ordered.get(location);
+				r.distance = metric.metricToReported(distance);
+			}
+		}
+
+		@Override
+		public void findWithinDistance( P point , double maxDistance , FastQueue<NnData<P>> results ) {
+			results.reset();
+			this.results = results;
+			search(point, maxDistance, 0);
+			this.results = null;
+		}
+
+		/**
+		 * Searches the tree for the closest neighbors within the maximum distance
+		 *
+		 * @param maxNeighbors Maximum number of neighbors. If zero then all neighbors are added to 'results'
+		 */
+		void search( P point , double maxDistance , int maxNeighbors ) {
+			if( stats == null ) {
+				searchTree(point, maxDistance, maxNeighbors);
+			} else {
+				long time0 = System.nanoTime();
+				searchTree(point, maxDistance, maxNeighbors);
+				stats.recordQuery(System.nanoTime()-time0);
+			}
+		}
+
+		void searchTree( P point , double maxDistance , int maxNeighbors ) {
+			this.target = point;
+			this.maxNeighbors = maxNeighbors;
+			this.tau = maxDistance < 0 ? Double.POSITIVE_INFINITY : metric.reportedToMetric(maxDistance);
+			heap.reset();
+			if( nodeLower.size == 0 )
+				return;
+
+			stackNodes.reset();
+			stackBound.reset();
+			stackParent.reset();
+			push(0, 0, Double.NaN);
+
+			while( stackNodes.size > 0 ) {
+				final int last = stackNodes.size-1;
+				final int node = stackNodes.data[last];
+				final double bound = stackBound.data[last];
+				final double parent = stackParent.data[last];
+				stackNodes.size = stackBound.size = stackParent.size = last;
+
+				// the radius might have shrunk since the node was added
+				if( bound > tau )
+					continue;
+
+				final int lower = nodeLower.data[node];
+				final int inner = nodeInner.data[node];
+
+				if( stats != null )
+					stats.nodesVisited++;
+
+				if( inner == -1 ) {
+					searchBucket(lower, nodeUpper.data[node], parent);
+					continue;
+				}
+
+				if( stats != null )
+					stats.distanceEvaluations++;
+				final double d = metric.distance(target, ordered.get(lower));
+				consider(lower, d);
+
+				// search the child the target is inside of first by adding it last
+				final double threshold = nodeThreshold.data[node];
+				final int outer = nodeOuter.data[node];
+				if( d < threshold ) {
+					push(outer, threshold-d, d);
+					push(inner, 0, d);
+				} else {
+					push(inner, d-threshold, d);
+					push(outer, 0, d);
+				}
+			}
+		}
+
+		/**
+		 * Considers every point in the bucket. Points which can't be within the search radius because of their
+		 * distance to the parent vantage point are skipped.
+		 *
+		 * @param parent distance from the target to the parent's vantage point. NaN if there's no parent
+		 */
+		void searchBucket( int lower , int upper , double parent ) {
+			if( stats != null )
+				stats.leafHits++;
+			for (int i = lower; i < upper; i++) {
+				if( Math.abs(parent-parentDistance.data[i]) > tau )
+					continue;
+				if( stats != null )
+					stats.distanceEvaluations++;
+				consider(i, metric.distance(target, ordered.get(i)));
+			}
+		}
+
+		/**
+		 * Adds the point to the results if it's within the search radius
+		 */
+		void consider( int location , double distance ) {
+			if( distance > tau )
+				return;
+
+			if( maxNeighbors == 0 ) {
+				NnData<P> r = results.grow();
+				r.index = indexes.data[location];
+				r.point = ordered.get(location);
+				r.distance = metric.metricToReported(distance);
+			} else if( heap.size() < maxNeighbors ) {
+				heap.push(-distance, location);
+				if( heap.size() == maxNeighbors )
+					tau = -heap.peekKey();
+				if( stats != null )
+					stats.heapPushes++;
+			} else if( distance < tau ) {
+				heap.pop();
+				heap.push(-distance, location);
+				tau = -heap.peekKey();
+				if( stats != null )
+					stats.heapPushes++;
+			}
+		}
+
+		void push( int node , double bound , double parent ) {
+			if( bound > tau )
+				return;
+			stackNodes.add(node);
+			stackBound.add(bound);
+			stackParent.add(parent);
+		}
+	}
+}
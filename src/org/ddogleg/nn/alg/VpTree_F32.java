@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F32;
+
+/**
+ * <p>
+ * Implementation of {@link VpTree} for points of type float[]. Storing points as floats instead of doubles
+ * halves the memory used by the points, which is useful for feature descriptors. Distances are still returned
+ * as Euclidean squared.
+ * </p>
+ *
+ * <p>
+ * Points can be provided as a list or with a {@link PointSetDistance}, e.g. packed into a single array, see
+ * {@link #setPoints(PointSetDistance)}. Only the index of each point is rearranged when the tree is built.
+ * </p>
+ *
+ * @author Karel Petránek
+ */
+public class VpTree_F32 extends VpTreeBase<float[]> {
+
+	/**
+	 * Constructor
+	 *
+	 * @param randSeed Random seed
+	 */
+	public VpTree_F32( long randSeed ) {
+		super(randSeed);
+	}
+
+	@Override
+	protected KdTreeDistance<float[]> createDistance( int dof ) {
+		return new KdTreeEuclideanSq_F32(dof);
+	}
+
+	@Override
+	protected int lengthOf( float[] point ) {
+		return point.length;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.distance;
+
+import org.ddogleg.nn.alg.PointSetDistance;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Euclidean squared distance for points packed inside a {@link DoubleBuffer}. The buffer can be a view of a memory
+ * mapped file, which allows the points to be searched without loading them onto the heap and lets multiple processes
+ * share the same memory. Only absolute reads are used so the buffer's position is never modified.
+ *
+ * @author Peter Abeles
+ */
+public class BufferEuclideanSq_F64 implements PointSetDistance<double[]> {
+	// Points in the set
+	DoubleBuffer buffer;
+	// Number of elements in each point
+	int dof;
+	// Number of points
+	int size;
+
+	/**
+	 * @param buffer Points packed one after another. A reference is saved.
+	 * @param dof Number of elements in each point
+	 */
+	public BufferEuclideanSq_F64( DoubleBuffer buffer , int dof ) {
+		setPoints(buffer, dof);
+	}
+
+	/**
+	 * Specifies the points in the set. The number of points is the buffer's capacity divided by dof.
+	 */
+	public void setPoints( DoubleBuffer buffer , int dof ) {
+		this.buffer = buffer;
+		this.dof = dof;
+		this.size = dof == 0 ? 0 : buffer.capacity()/dof;
+	}
+
+	public DoubleBuffer getBuffer() {
+		return buffer;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double valueAt( int index, int axis ) {
+		return buffer.get(index*dof+axis);
+	}
+
+	@Override
+	public double distance( int index, double[] point ) {
+		final DoubleBuffer buffer = this.buffer;
+		final int N = dof;
+		final int offset = index*N;
+		double sum = 0;
+		for (int i = 0; i < N; i++) {
+			double d = buffer.get(offset+i)-point[i];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public double distance( int indexA, int indexB ) {
+		final DoubleBuffer buffer = this.buffer;
+		final int N = dof;
+		final int offsetA = indexA*N;
+		final int offsetB = indexB*N;
+		double sum = 0;
+		for (int i = 0; i < N; i++) {
+			double d = buffer.get(offsetA+i)-buffer.get(offsetB+i);
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public double distance( double[] a, double[] b ) {
+		final int N = dof;
+		double sum = 0;
+		for (int i = 0; i < N; i++) {
+			double d = a[i]-b[i];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public double valueAt( double[] point, int index ) {
+		return point[index];
+	}
+
+	@Override
+	public int length() {
+		return dof;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.distance;
+
+import org.ddogleg.nn.alg.MetricDistance;
+
+/**
+ * Euclidean distance metric. Distances are reported as Euclidean squared to be consistent with the other
+ * Euclidean nearest neighbor searches.
+ *
+ * @author Peter Abeles
+ */
+public class MetricEuclidean_F64 implements MetricDistance<double[]> {
+	@Override
+	public double distance( double[] a, double[] b ) {
+		double sum = 0;
+
+		final int N = a.length;
+		for (int i = 0; i < N; i++) {
+			double d = a[i]-b[i];
+			sum += d*d;
+		}
+
+		return Math.sqrt(sum);
+	}
+
+	@Override
+	public double metricToReported( double metric ) {
+		return metric*metric;
+	}
+
+	@Override
+	public double reportedToMetric( double reported ) {
+		return Math.sqrt(reported);
+	}
+}
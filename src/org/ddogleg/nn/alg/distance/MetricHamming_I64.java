@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.distance;
+
+import org.ddogleg.nn.alg.MetricDistance;
+
+/**
+ * Hamming distance between binary descriptors packed into long arrays, i.e. the number of bits which are
+ * different. Both descriptors must have the same number of elements.
+ *
+ * @author Peter Abeles
+ */
+public class MetricHamming_I64 implements MetricDistance<long[]> {
+	@Override
+	public double distance( long[] a , long[] b ) {
+		return hamming(a, b);
+	}
+
+	/**
+	 * Computes the Hamming distance between two descriptors
+	 */
+	public static int hamming( long[] a , long[] b ) {
+		int total = 0;
+		for (int i = 0; i < a.length; i++) {
+			total += Long.bitCount(a[i] ^ b[i]);
+		}
+		return total;
+	}
+
+	/**
+	 * Computes the Hamming distance between a descriptor and one packed inside an array
+	 *
+	 * @param a Descriptor
+	 * @param packed Array with descriptors packed next to each other
+	 * @param offset Index of the first element of the packed descriptor
+	 */
+	public static int hamming( long[] a , long[] packed , int offset ) {
+		int total = 0;
+		for (int i = 0; i < a.length; i++) {
+			total += Long.bitCount(a[i] ^ packed[offset+i]);
+		}
+		return total;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.distance;
+
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.struct.PackedTupleArray_F64;
+
+/**
+ * Euclidean squared distance for points stored in {@link PackedTupleArray_F64}. Distance is computed directly
+ * from the packed array without creating an object for each point.
+ *
+ * @author Peter Abeles
+ */
+public class PackedEuclideanSq_F64 implements PointSetDistance<double[]> {
+	// Points in the set
+	PackedTupleArray_F64 points;
+
+	public PackedEuclideanSq_F64( PackedTupleArray_F64 points ) {
+		this.points = points;
+	}
+
+	/**
+	 * Specifies the points in the set. A reference is saved.
+	 */
+	public void setPoints( PackedTupleArray_F64 points ) {
+		this.points = points;
+	}
+
+	public PackedTupleArray_F64 getPoints() {
+		return points;
+	}
+
+	@Override
+	public int size() {
+		return points.size;
+	}
+
+	@Override
+	public double valueAt( int index, int axis ) {
+		return points.data[index*points.dof+axis];
+	}
+
+	@Override
+	public double distance( int index, double[] point ) {
+		final double[] data = points.data;
+		final int N = points.dof;
+		final int offset = index*N;
+		double sum = 0;
+		for (int i = 0; i < N; i++) {
+			double d = data[offset+i]-point[i];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public double distance( int indexA, int indexB ) {
+		final double[] data = points.data;
+		final int N = points.dof;
+		final int offsetA = indexA*N;
+		final int offsetB = indexB*N;
+		double sum = 0;
+		for (int i = 0; i < N; i++) {
+			double d = data[offsetA+i]-data[offsetB+i];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public double distance( double[] a, double[] b ) {
+		final int N = points.dof;
+		double sum = 0;
+		for (int i = 0; i < N; i++) {
+			double d = a[i]-b[i];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public double valueAt( double[] point, int index ) {
+		return point[index];
+	}
+
+	@Override
+	public int length() {
+		return points.dof;
+	}
+}
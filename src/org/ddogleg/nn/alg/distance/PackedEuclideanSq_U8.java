@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.distance;
+
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.struct.PackedTupleArray_U8;
+
+/**
+ * Euclidean squared distance for points stored in {@link PackedTupleArray_U8}. Distance is computed directly
+ * from the packed array without creating an object for each point.
+ *
+ * @author Peter Abeles
+ */
+public class PackedEuclideanSq_U8 implements PointSetDistance<byte[]> {
+	// Points in the set
+	PackedTupleArray_U8 points;
+
+	public PackedEuclideanSq_U8( PackedTupleArray_U8 points ) {
+		this.points = points;
+	}
+
+	/**
+	 * Specifies the points in the set. A reference is saved.
+	 */
+	public void setPoints( PackedTupleArray_U8 points ) {
+		this.points = points;
+	}
+
+	public PackedTupleArray_U8 getPoints() {
+		return points;
+	}
+
+	@Override
+	public int size() {
+		return points.size;
+	}
+
+	@Override
+	public double valueAt( int index, int axis ) {
+		return (points.data[index*points.dof+axis]&0xFF);
+	}
+
+	@Override
+	public double distance( int index, byte[] point ) {
+		final byte[] data = points.data;
+		final int N = points.dof;
+		final int offset = index*N;
+		int sum = 0;
+		for (int i = 0; i < N; i++) {
+			int d = (data[offset+i]&0xFF)-(point[i]&0xFF);
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public double distance( int indexA, int indexB ) {
+		final byte[] data = points.data;
+		final int N = points.dof;
+		final int offsetA = indexA*N;
+		final int offsetB = indexB*N;
+		int sum = 0;
+		for (int i = 0; i < N; i++) {
+			int d = (data[offsetA+i]&0xFF)-(data[offsetB+i]&0xFF);
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public double distance( byte[] a, byte[] b ) {
+		final int N = points.dof;
+		int sum = 0;
+		for (int i = 0; i < N; i++) {
+			int d = (a[i]&0xFF)-(b[i]&0xFF);
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public double valueAt( byte[] point, int index ) {
+		return (point[index]&0xFF);
+	}
+
+	@Override
+	public int length() {
+		return points.dof;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.distance;
+
+import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.nn.alg.PointSetDistance;
+
+import java.util.List;
+
+/**
+ * Implementation of {@link PointSetDistance} for points which are stored in a list. All distance calculations
+ * are passed on to the provided {@link KdTreeDistance}.
+ *
+ * @author Peter Abeles
+ */
+public class PointSetDistanceList<P> implements PointSetDistance<P> {
+	// Computes the distance between points
+	KdTreeDistance<P> distance;
+	// Points in the set
+	List<P> points;
+
+	public PointSetDistanceList( KdTreeDistance<P> distance ) {
+		this.distance = distance;
+	}
+
+	/**
+	 * Specifies the points in the set. A reference to the list is saved.
+	 */
+	public void setPoints( List<P> points ) {
+		this.points = points;
+	}
+
+	public List<P> getPoints() {
+		return points;
+	}
+
+	public KdTreeDistance<P> getDistance() {
+		return distance;
+	}
+
+	@Override
+	public int size() {
+		return points.size();
+	}
+
+	@Override
+	public double valueAt( int index, int axis ) {
+		return distance.valueAt(points.get(index),axis);
+	}
+
+	@Override
+	public double distance( int index, P point ) {
+		return distance.distance(point,points.get(index));
+	}
+
+	@Override
+	public double distance( int indexA, int indexB ) {
+		return distance.distance(points.get(indexA),points.get(indexB));
+	}
+
+	@Override
+	public double distance( P a, P b ) {
+		return distance.distance(a,b);
+	}
+
+	@Override
+	public double valueAt( P point, int index ) {
+		return distance.valueAt(point,index);
+	}
+
+	@Override
+	public int length() {
+		return distance.length();
+	}
+}
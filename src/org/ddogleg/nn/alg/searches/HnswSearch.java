@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.searches;
+
+import org.ddogleg.nn.alg.HnswGraph;
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.struct.BinaryHeap_F64I32;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Approximate nearest-neighbor search of a {@link HnswGraph}. Starting from the graph's entry point it greedily
+ * moves to the closest neighbor at each level until level zero is reached. At level zero a best-first search is
+ * done which keeps track of the 'ef' closest nodes found so far. The search stops when the closest unexplored
+ * node is farther away than all of the 'ef' nodes. A larger 'ef' is slower but more likely to find the true
+ * nearest-neighbors.
+ * </p>
+ *
+ * <p>
+ * Visited nodes are marked with an integer which is incremented every search, avoiding the need to clear an array.
+ * Candidates and results are stored in {@link BinaryHeap_F64I32} so that searches don't create new objects.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class HnswSearch<P> {
+
+	// the graph being searched and its points
+	private HnswGraph<P> graph;
+	private PointSetDistance<P> points;
+
+	// Size of the dynamic list of nearest-neighbors when searching
+	private int efSearch = 50;
+
+	// the maximum distance a neighbor is allowed to be
+	private double maxDistance = Double.MAX_VALUE;
+
+	// The search target. If targetIndex >= 0 then it's a point in the graph
+	private P target;
+	private int targetIndex = -1;
+
+	// marks nodes which have been visited. Node was visited if the value is equal to 'visitedMark'
+	private int[] visited = new int[0];
+	private int visitedMark = 0;
+
+	// Nodes which are to be explored. Key is distance from the target
+	private BinaryHeap_F64I32 candidates = new BinaryHeap_F64I32();
+	// The closest nodes found so far. Key is the negative distance so that the farthest is on top
+	private BinaryHeap_F64I32 results = new BinaryHeap_F64I32();
+
+	// workspace for sorting results
+	private GrowQueue_I32 workIndexes = new GrowQueue_I32();
+	private GrowQueue_F64 workDistances = new GrowQueue_F64();
+
+	/**
+	 * Specifies the graph which is to be searched
+	 */
+	public void setGraph( HnswGraph<P> graph ) {
+		this.graph = graph;
+		this.points = graph.getPoints();
+	}
+
+	/**
+	 * Specifies the greatest distance it will search
+	 *
+	 * @param maxDistance Maximum distance a closest point can be
+	 */
+	public void setMaxDistance( double maxDistance ) {
+		this.maxDistance = maxDistance;
+	}
+
+	/**
+	 * Sets the target to a point which is already in the graph
+	 */
+	public void setTarget( int index ) {
+		this.target = null;
+		this.targetIndex = index;
+	}
+
+	/**
+	 * Sets the target to an arbitrary point
+	 */
+	public void setTarget( P target ) {
+		this.target = target;
+		this.targetIndex = -1;
+	}
+
+	/**
+	 * Finds the points which are closest to 'target' and within range of the maximum distance. Results are
+	 * added to the output lists and are sorted from closest to farthest.
+	 *
+	 * @param target A point
+	 * @param searchN Number of nearest-neighbors it will search for
+	 * @param outputIndexes Storage for the index of the found points
+	 * @param outputDistances Storage for the distance of the found points
+	 */
+	public void findNeighbor( P target , int searchN , GrowQueue_I32 outputIndexes , GrowQueue_F64 outputDistances ) {
+		if( searchN <= 0 )
+			throw new IllegalArgumentException("I'm sorry, but I refuse to search for less than or equal to 0 neighbors.");
+
+		if( graph.entryPoint == -1 )
+			return;
+
+		setTarget(target);
+
+		int ep = graph.entryPoint;
+		for (int level = graph.maxLevel; level > 0; level--) {
+			ep = greedyClosest(ep,level);
+		}
+		searchLayer(ep,Math.max(efSearch,searchN),0);
+		extractResults(workIndexes,workDistances);
+
+		for (int i = 0; i < workIndexes.size && i < searchN; i++) {
+			double d = workDistances.get(i);
+			if( d > maxDistance )
+				break;
+			outputIndexes.add(workIndexes.get(i));
+			outputDistances.add(d);
+		}
+		this.target = null;
+	}
+
+	/**
+	 * Greedily moves from the start node to the neighbor which is closest to the target until no neighbor is closer
+	 *
+	 * @param start Initial node
+	 * @param level Level in the graph which is searched
+	 * @return The closest node which was found
+	 */
+	public int greedyClosest( int start , int level ) {
+		int best = start;
+		double bestDistance = distance(start);
+
+		boolean changed = true;
+		while( changed ) {
+			changed = false;
+			GrowQueue_I32 connections = graph.nodes.data[best].connections[level];
+			for (int i = 0; i < connections.size; i++) {
+				int c = connections.data[i];
+				double d = distance(c);
+				if( d < bestDistance ) {
+					bestDistance = d;
+					best = c;
+					changed = true;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Best-first search of a single level. The 'ef' closest nodes can be retrieved by calling
+	 * {@link #extractResults}.
+	 *
+	 * @param start Initial node
+	 * @param ef Maximum number of closest nodes it will keep track of
+	 * @param level Level in the graph which is searched
+	 */
+	public void searchLayer( int start , int ef , int level ) {
+		prepareVisited();
+		candidates.reset();
+		results.reset();
+
+		double d = distance(start);
+		visited[start] = visitedMark;
+		candidates.push(d,start);
+		results.push(-d,start);
+
+		while( !candidates.isEmpty() ) {
+			double candidateDistance = candidates.peekKey();
+			// the closest candidate is farther than everything in the results, so it's done
+			if( candidateDistance > -results.peekKey() )
+				break;
+			int c = candidates.pop();
+
+			GrowQueue_I32 connections = graph.nodes.data[c].connections[level];
+			for (int i = 0; i < connections.size; i++) {
+				int neighbor = connections.data[i];
+				if( visited[neighbor] == visitedMark )
+					continue;
+				visited[neighbor] = visitedMark;
+
+				double dn = distance(neighbor);
+				if( results.size < ef || dn < -results.peekKey() ) {
+					candidates.push(dn,neighbor);
+					results.push(-dn,neighbor);
+					if( results.size > ef )
+						results.pop();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the results from the most recent call to {@link #searchLayer} into the lists, sorted from closest
+	 * to farthest.
+	 */
+	public void extractResults( GrowQueue_I32 indexes , GrowQueue_F64 distances ) {
+		indexes.resize(results.size);
+		distances.resize(results.size);
+		// the heap pops the farthest first
+		for (int i = results.size-1; i >= 0; i--) {
+			distances.data[i] = -results.peekKey();
+			indexes.data[i] = results.pop();
+		}
+	}
+
+	/**
+	 * Ensures the visited array is large enough and changes the mark so that all nodes are unvisited
+	 */
+	private void prepareVisited() {
+		int N = graph.nodes.size;
+		if( visited.length < N ) {
+			visited = new int[Math.max(N,visited.length*2)];
+			visitedMark = 0;
+		}
+		visitedMark++;
+		if( visitedMark == Integer.MAX_VALUE ) {
+			Arrays.fill(visited,0);
+			visitedMark = 1;
+		}
+	}
+
+	private double distance( int node ) {
+		if( targetIndex >= 0 )
+			return points.distance(node,targetIndex);
+		else
+			return points.distance(node,target);
+	}
+
+	/**
+	 * Creates a copy of this search with the same configuration. workspace isn't copied
+	 */
+	public HnswSearch<P> copy() {
+		HnswSearch<P> out = new HnswSearch<>();
+		out.efSearch = efSearch;
+		return out;
+	}
+
+	public int getEfSearch() {
+		return efSearch;
+	}
+
+	public void setEfSearch( int efSearch ) {
+		this.efSearch = efSearch;
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.searches;
+
+import org.ddogleg.nn.alg.KMeansTree;
+import org.ddogleg.nn.alg.KMeansTreeConstructor;
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.struct.BinaryHeap_F64I32;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+/**
+ * <p>
+ * Approximate nearest-neighbor search of a {@link KMeansTree}. Starting at the root it descends into the child
+ * with the closest center until a leaf is reached. Every other child which is encountered is added to a priority
+ * queue, ordered by the distance of its center from the target. After a leaf's points have been checked, the
+ * search resumes from the best node in the queue. The search stops once the maximum number of leaves have been
+ * checked or there are no more nodes. If the number of leaves is unlimited then the search is exact.
+ * </p>
+ *
+ * <p>
+ * Nodes which can't contain a point closer than the current k-th best neighbor are skipped. This is determined
+ * from the distance to the node's center and its {@link KMeansTree.Node#radius}, which is why distance must be
+ * Euclidean squared. Without this an unlimited search would check every leaf.
+ * </p>
+ *
+ * <p>
+ * The priority queue is a {@link BinaryHeap_F64I32} so that searches don't create new objects.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KMeansTreeSearch<P> {
+
+	// the targeted tree and the points it was constructed from
+	private KMeansTree tree;
+	private PointSetDistance<P> points;
+
+	// Maximum number of leaves which will be checked. If &le; 0 then there is no limit
+	private int maxLeaves;
+
+	// the maximum distance a neighbor is allowed to be
+	private double maxDistanceSq = Double.MAX_VALUE;
+	// distance of the farthest neighbor
+	private double mostDistantNeighborSq;
+	// index of most distant neighbor
+	private int mostDistantNeighborIndex;
+	// then number of nearest-neighbors it's searching for
+	private int searchN;
+
+	// the target converted into a double array
+	private double[] target = new double[0];
+
+	// Nodes which are to be searched. Key is distance of the node's center to the target
+	private BinaryHeap_F64I32 heap = new BinaryHeap_F64I32();
+
+	// Output. The found points and their distances
+	private GrowQueue_I32 outputIndexes;
+	private GrowQueue_F64 outputDistances;
+	// Location of the first result from this search in the output lists
+	private int offset;
+
+	/**
+	 * @param maxLeaves Maximum number of leaves which will be checked. If &le; 0 then there is no limit
+	 */
+	public KMeansTreeSearch( int maxLeaves ) {
+		this.maxLeaves = maxLeaves;
+	}
+
+	/**
+	 * Specifies the tree which is to be searched and the points it was constructed from
+	 *
+	 * @param tree The tree
+	 * @param points Points used to construct the tree and computes the distance
+	 */
+	public void setTree( KMeansTree tree , PointSetDistance<P> points ) {
+		this.tree = tree;
+		this.points = points;
+	}
+
+	/**
+	 * Specifies the greatest distance it will search
+	 *
+	 * @param maxDistance Maximum distance (Euclidean squared) a closest point can be
+	 */
+	public void setMaxDistance( double maxDistance ) {
+		this.maxDistanceSq = maxDistance;
+	}
+
+	/**
+	 * Finds the points which are closest to 'target' and within range of the maximum distance. Results are
+	 * added to the output lists.
+	 *
+	 * @param target A point
+	 * @param searchN Number of nearest-neighbors it will search for
+	 * @param outputIndexes Storage for the index of the found points
+	 * @param outputDistances Storage for the distance of the found points
+	 */
+	public void findNeighbor( P target , int searchN , GrowQueue_I32 outputIndexes , GrowQueue_F64 outputDistances ) {
+		if( searchN <= 0 )
+			throw new IllegalArgumentException("I'm sorry, but I refuse to search for less than or equal to 0 neighbors.");
+
+		if( tree.numPoints == 0 )
+			return;
+
+		this.searchN = searchN;
+		this.mostDistantNeighborSq = maxDistanceSq;
+		this.outputIndexes = outputIndexes;
+		this.outputDistances = outputDistances;
+		this.offset = outputIndexes.size;
+
+		if( this.target.length != tree.N )
+			this.target = new double[tree.N];
+		for (int i = 0; i < tree.N; i++) {
+			this.target[i] = points.valueAt(target,i);
+		}
+
+		heap.reset();
+		heap.push(0,0);
+
+		int leavesChecked = 0;
+		while( heap.size > 0 && (maxLeaves <= 0 || leavesChecked < maxLeaves) ) {
+			double centerDistance = heap.peekKey();
+			int node = heap.pop();
+
+			// descend the tree by following the closest child
+			KMeansTree.Node n = tree.nodes.data[node];
+			if( !canImprove(centerDistance,n) )
+				continue;
+			while( !n.isLeaf() ) {
+				int best = -1;
+				double bestDistance = Double.MAX_VALUE;
+				for (int i = 0; i < n.childCount; i++) {
+					int child = n.childStart+i;
+					KMeansTree.Node c = tree.nodes.data[child];
+					double d = KMeansTreeConstructor.distanceSq(this.target,c.center);
+					if( !canImprove(d,c) )
+						continue;
+					if( d < bestDistance ) {
+						if( best != -1 )
+							heap.push(bestDistance,best);
+						bestDistance = d;
+						best = child;
+					} else {
+						heap.push(d,child);
+					}
+				}
+				if( best == -1 )
+					break;
+				n = tree.nodes.data[best];
+			}
+
+			if( !n.isLeaf() )
+				continue;
+			checkLeaf(n,target);
+			leavesChecked++;
+		}
+
+		this.outputIndexes = null;
+		this.outputDistances = null;
+	}
+
+	/**
+	 * Returns true if the node could contain a point which is closer than the current k-th best neighbor or
+	 * the maximum distance.
+	 *
+	 * @param centerDistanceSq Distance squared from the target to the node's center
+	 */
+	private boolean canImprove( double centerDistanceSq , KMeansTree.Node node ) {
+		double gap = Math.sqrt(centerDistanceSq) - node.radius;
+		return gap <= 0 || gap*gap <= mostDistantNeighborSq;
+	}
+
+	/**
+	 * Checks every point in the leaf to see if it's one of the nearest-neighbors
+	 */
+	private void checkLeaf( KMeansTree.Node leaf , P target ) {
+		for (int i = leaf.pointStart; i < leaf.pointEnd; i++) {
+			int index = tree.indexes[i];
+			double distSq = points.distance(index,target);
+			if( distSq > mostDistantNeighborSq )
+				continue;
+
+			if( outputIndexes.size-offset < searchN ) {
+				outputIndexes.add(index);
+				outputDistances.add(distSq);
+				if( outputIndexes.size-offset == searchN ) {
+					findMostDistant();
+				}
+			} else {
+				outputIndexes.data[mostDistantNeighborIndex] = index;
+				outputDistances.data[mostDistantNeighborIndex] = distSq;
+				findMostDistant();
+			}
+		}
+	}
+
+	/**
+	 * If there are multiple points then there can be more than one point with the value of
+	 * 'bestDistanceSq', which is why the most distant needs to be found again
+	 */
+	private void findMostDistant() {
+		mostDistantNeighborSq = -1;
+		for( int i = offset; i < outputDistances.size; i++ ) {
+			double d = outputDistances.data[i];
+			if( d > mostDistantNeighborSq ) {
+				mostDistantNeighborSq = d;
+				mostDistantNeighborIndex = i;
+			}
+		}
+	}
+
+	/**
+	 * Creates a copy of this search with the same configuration. workspace isn't copied
+	 */
+	public KMeansTreeSearch<P> copy() {
+		return new KMeansTreeSearch<>(maxLeaves);
+	}
+
+	public int getMaxLeaves() {
+		return maxLeaves;
+	}
+
+	public void setMaxLeaves( int maxLeaves ) {
+		this.maxLeaves = maxLeaves;
+	}
+}
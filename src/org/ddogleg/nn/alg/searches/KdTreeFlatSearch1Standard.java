@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.searches;
+
+import org.ddogleg.nn.alg.KdTreeFlat;
+import org.ddogleg.nn.alg.PointSetDistance;
+
+/**
+ * Standard algorithm for searching a {@link KdTreeFlat} for the nearest-neighbor. Identical to
+ * {@link KdTreeSearch1Standard} but adapted to the flat memory layout.
+ *
+ * @author Peter Abeles
+ */
+public class KdTreeFlatSearch1Standard<P> {
+
+	// the targeted tree
+	private KdTreeFlat tree;
+
+	// point being searched for
+	private P target;
+
+	// the maximum distance a neighbor is allowed to be
+	private double maxDistanceSq = Double.MAX_VALUE;
+	// the closest neighbor which has yet to be found
+	private double bestDistanceSq;
+
+	// the node which has been found to be the closest so far
+	private int closest;
+
+	// the points which the tree was constructed from
+	private PointSetDistance<P> distance;
+
+	/**
+	 * Specifies the tree which is to be searched and the points it was constructed from
+	 *
+	 * @param tree The tree
+	 * @param points Points used to construct the tree and computes the distance
+	 */
+	public void setTree( KdTreeFlat tree , PointSetDistance<P> points ) {
+		this.tree = tree;
+		this.distance = points;
+	}
+
+	/**
+	 * Specifies the greatest distance it will search
+	 *
+	 * @param maxDistance Maximum distance (Euclidean squared) a closest point can be
+	 */
+	public void setMaxDistance( double maxDistance ) {
+		this.maxDistanceSq = maxDistance;
+	}
+
+	/**
+	 * Finds the node which is closest to 'target'
+	 *
+	 * @param target A point
+	 * @return Index of the closest node or -1 if none is within the minimum distance.
+	 */
+	public int findNeighbor( P target ) {
+		this.closest = -1;
+		if( tree.size == 0 )
+			return -1;
+
+		this.target = target;
+		this.bestDistanceSq = maxDistanceSq;
+
+		stepClosest(0);
+
+		return closest;
+	}
+
+	/**
+	 * Returns the distance of the closest node.
+	 */
+	public double getDistance() {
+		return bestDistanceSq;
+	}
+
+	/**
+	 * Creates a copy of this search with the same configuration. workspace isn't copied
+	 */
+	public KdTreeFlatSearch1Standard<P> copy() {
+		return new KdTreeFlatSearch1Standard<>();
+	}
+
+	/**
+	 * Recursive step for finding the closest point
+	 */
+	private void stepClosest( int node ) {
+		double distSq = distance.distance(tree.indexes[node],target);
+		if( distSq <= bestDistanceSq ) {
+			if( closest == -1 || distSq < bestDistanceSq ) {
+				closest = node;
+				bestDistanceSq = distSq;
+			}
+		}
+
+		final int split = tree.split[node];
+		if( split == -1 )
+			return;
+
+		// select the most promising branch to investigate first
+		int nearer,further;
+
+		double splitValue = tree.splitValue[node];
+
+		double targetAtSplit = distance.valueAt(target,split);
+		if( targetAtSplit <= splitValue ) {
+			nearer = node+1;
+			further = tree.right[node];
+		} else {
+			nearer = tree.right[node];
+			further = node+1;
+		}
+
+		if( nearer != -1 )
+			stepClosest(nearer);
+
+		// See if it is possible for 'further' to contain a better node
+		double dx = splitValue - targetAtSplit;
+		double dx2 = dx*dx;
+		if( further != -1 && dx2 <= bestDistanceSq ) {
+			if( closest == -1 || dx2 < bestDistanceSq )
+				stepClosest(further);
+		}
+	}
+}
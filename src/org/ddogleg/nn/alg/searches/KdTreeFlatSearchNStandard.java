@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.searches;
+
+import org.ddogleg.nn.alg.KdTreeFlat;
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+/**
+ * Standard algorithm for searching a {@link KdTreeFlat} for the N nearest-neighbors. Identical to
+ * {@link KdTreeSearchNStandard} but adapted to the flat memory layout.
+ *
+ * @author Peter Abeles
+ */
+public class KdTreeFlatSearchNStandard<P> {
+
+	// the targeted tree
+	private KdTreeFlat tree;
+
+	// point being searched for
+	private P target;
+
+	// the maximum distance a neighbor is allowed to be
+	private double maxDistanceSq = Double.MAX_VALUE;
+	// distance of the farthest neighbor
+	private double mostDistantNeighborSq;
+	// index of most distant neighbor
+	private int mostDistantNeighborIndex;
+
+	// then number of nearest-neighbors it's searching for
+	private int searchN;
+
+	// Output. The found nodes and their distances
+	private GrowQueue_I32 nodes;
+	private GrowQueue_F64 distances;
+	// Location of the first result from this search in the output lists
+	private int offset;
+
+	// the points which the tree was constructed from
+	private PointSetDistance<P> distance;
+
+	/**
+	 * Specifies the tree which is to be searched and the points it was constructed from
+	 *
+	 * @param tree The tree
+	 * @param points Points used to construct the tree and computes the distance
+	 */
+	public void setTree( KdTreeFlat tree , PointSetDistance<P> points ) {
+		this.tree = tree;
+		this.distance = points;
+	}
+
+	/**
+	 * Specifies the greatest distance it will search
+	 *
+	 * @param maxDistance Maximum distance (Euclidean squared) a closest point can be
+	 */
+	public void setMaxDistance( double maxDistance ) {
+		this.maxDistanceSq = maxDistance;
+	}
+
+	/**
+	 * Finds the nodes which are closest to 'target' and within range of the maximum distance. Results are
+	 * added to the output lists.
+	 *
+	 * @param target A point
+	 * @param searchN Number of nearest-neighbors it will search for
+	 * @param outputNodes Storage for the index of the found nodes
+	 * @param outputDistance Storage for the distance of the found nodes
+	 */
+	public void findNeighbor( P target, int searchN, GrowQueue_I32 outputNodes , GrowQueue_F64 outputDistance ) {
+		if( searchN <= 0 )
+			throw new IllegalArgumentException("I'm sorry, but I refuse to search for less than or equal to 0 neighbors.");
+
+		if( tree.size == 0 )
+			return;
+
+		this.searchN = searchN;
+		this.target = target;
+		this.mostDistantNeighborSq = maxDistanceSq;
+		this.nodes = outputNodes;
+		this.distances = outputDistance;
+		this.offset = outputNodes.size;
+
+		stepClosest(0);
+
+		this.nodes = null;
+		this.distances = null;
+	}
+
+	/**
+	 * Creates a copy of this search with the same configuration. workspace isn't copied
+	 */
+	public KdTreeFlatSearchNStandard<P> copy() {
+		return new KdTreeFlatSearchNStandard<>();
+	}
+
+	/**
+	 * Recursive step for finding the closest point
+	 */
+	private void stepClosest( int node ) {
+		checkBestDistance(node);
+
+		final int split = tree.split[node];
+		if( split == -1 )
+			return;
+
+		// select the most promising branch to investigate first
+		int nearer,further;
+
+		double splitValue = tree.splitValue[node];
+
+		double targetAtSplit = distance.valueAt(target,split);
+		if( targetAtSplit <= splitValue ) {
+			nearer = node+1;
+			further = tree.right[node];
+		} else {
+			nearer = tree.right[node];
+			further = node+1;
+		}
+
+		if( nearer != -1 )
+			stepClosest(nearer);
+
+		// See if it is possible for 'further' to contain a better node
+		// Or if N matches have yet to be find, if it is possible to meet the maximum distance requirement
+		double dx = splitValue - targetAtSplit;
+		if( further != -1 && dx*dx <= mostDistantNeighborSq) {
+			if( nodes.size-offset < searchN || dx*dx < mostDistantNeighborSq) {
+				stepClosest(further);
+			}
+		}
+	}
+
+	/**
+	 * See if the node being considered is a new nearest-neighbor
+	 */
+	private void checkBestDistance( int node ) {
+		double distSq = distance.distance(tree.indexes[node],target);
+		// <= because multiple nodes could be at the bestDistanceSq
+		if( distSq > mostDistantNeighborSq)
+			return;
+
+		if( nodes.size-offset < searchN ) {
+			// the list of nearest neighbors isn't full yet so it doesn't know what the distance will be
+			// so just keep on adding them to the list until it is full
+			nodes.add(node);
+			distances.add(distSq);
+			if( nodes.size-offset == searchN ) {
+				findMostDistant();
+			}
+		} else {
+			// Write over the most distant neighbor since we known this node must be closer
+			// and update the maximum distance
+			nodes.data[mostDistantNeighborIndex] = node;
+			distances.data[mostDistantNeighborIndex] = distSq;
+			findMostDistant();
+		}
+	}
+
+	/**
+	 * If there are multiple points then there can be more than one point with the value of
+	 * 'bestDistanceSq', which is why the most distant needs to be found again
+	 */
+	private void findMostDistant() {
+		mostDistantNeighborSq = -1;
+		for( int i = offset; i < distances.size; i++ ) {
+			double d = distances.data[i];
+			if( d > mostDistantNeighborSq ) {
+				mostDistantNeighborSq = d;
+				mostDistantNeighborIndex = i;
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,10 +18,13 @@
 
 package org.ddogleg.nn.alg.searches;
 
+import org.ddogleg.nn.NearestNeighborStats;
 import org.ddogleg.nn.alg.KdTree;
 import org.ddogleg.nn.alg.KdTreeDistance;
 import org.ddogleg.nn.alg.KdTreeSearch1;
 
+import javax.annotation.Nullable;
+
 /**
  * Standard algorithm for searching a {@link KdTree} for the nearest-neighbor of a search.  This is the algorithm
  * which is typically described in books.  At each node it examines distance of the two children and investigates
@@ -49,6 +52,9 @@ public class KdTreeSearch1Standard<P> implements KdTreeSearch1<P> {
 
 	KdTreeDistance<P> distance;
 
+	// storage for search statistics. null if not recorded
+	@Nullable NearestNeighborStats stats;
+
 	public KdTreeSearch1Standard(KdTreeDistance<P> distance) {
 		this.distance = distance;
 	}
@@ -93,6 +99,11 @@ public class KdTreeSearch1Standard<P> implements KdTreeSearch1<P> {
 		return bestDistanceSq;
 	}
 
+	@Override
+	public void setStats( @Nullable NearestNeighborStats stats ) {
+		this.stats = stats;
+	}
+
 	@Override
 	public KdTreeSearch1<P> copy() {
 		return new KdTreeSearch1Standard<>(distance);
@@ -106,6 +117,14 @@ public class KdTreeSearch1Standard<P> implements KdTreeSearch1<P> {
 		if( node == null )
 			return;
 
+		if( stats != null ) {
+			stats.nodesVisited++;
+			if( node.isLeaf() )
+				stats.leafHits++;
+			if( node.point != null )
+				stats.distanceEvaluations++;
+		}
+
 		if( node.isLeaf() ) {
 			// a leaf can be empty.
 			if( node.point != null ) {
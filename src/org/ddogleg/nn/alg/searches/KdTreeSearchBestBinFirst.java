@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,12 +18,13 @@
 
 package org.ddogleg.nn.alg.searches;
 
+import org.ddogleg.nn.NearestNeighborStats;
 import org.ddogleg.nn.alg.KdTree;
 import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.struct.BinaryHeap_F64I32;
+import org.ddogleg.struct.FastArray;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.PriorityQueue;
+import javax.annotation.Nullable;
 
 /**
  * <p>
@@ -40,6 +41,11 @@ import java.util.PriorityQueue;
  * </p>
  *
  * <p>
+ * The priority queue is a {@link BinaryHeap_F64I32} which references nodes by their location in an array. After
+ * the first few searches have grown the internal arrays no new objects are created.
+ * </p>
+ *
+ * <p>
  * [1] Beis, Jeffrey S. and Lowe, David G, "Shape Indexing Using Approximate Nearest-Neighbour Search in
  * High-Dimensional Spaces" CVPR 1997<br>
  * [2] Silpa-Anan, C. and Hartley, R. "Optimised KD-trees for fast image descriptor matching" CVPR 2008
@@ -58,8 +64,10 @@ public abstract class KdTreeSearchBestBinFirst<P> {
 	// The maximum distance a point is allowed to be from the target
 	private double maxDistance = Double.MAX_VALUE;
 
-	// List of graph nodes that still need to be explored
-	private PriorityQueue<Helper> queue = new PriorityQueue<Helper>();
+	// Nodes that still need to be explored. Key is the closest possible distance and value is the index in queueNodes
+	private BinaryHeap_F64I32 queue = new BinaryHeap_F64I32();
+	// Nodes which have been added to the queue during the current search
+	private FastArray<KdTree.Node> queueNodes = new FastArray<>(KdTree.Node.class);
 
 	// Forest of trees to search
 	private KdTree trees[];
@@ -67,14 +75,14 @@ public abstract class KdTreeSearchBestBinFirst<P> {
 	// distance of the best node squared
 	protected double bestDistanceSq;
 
-	// used for recycling data structures
-	private List<Helper> unused = new ArrayList<Helper>();
-
 	// number of nodes which have been searched
 	protected int numNodesSearched = 0;
 
 	KdTreeDistance<P> distance;
 
+	// storage for search statistics. null if not recorded
+	protected @Nullable NearestNeighborStats stats;
+
 	/**
 	 * Configures the search
 	 *
@@ -107,6 +115,18 @@ public abstract class KdTreeSearchBestBinFirst<P> {
 		this.maxDistance = maxDistance;
 	}
 
+	public void setMaxNodesSearched( int maxNodesSearched ) {
+		this.maxNodesSearched = maxNodesSearched;
+	}
+
+	public int getMaxNodesSearched() {
+		return maxNodesSearched;
+	}
+
+	public void setStats( @Nullable NearestNeighborStats stats ) {
+		this.stats = stats;
+	}
+
 	public void _findClosest(P target) {
 
 		numNodesSearched = 0;
@@ -121,21 +141,24 @@ public abstract class KdTreeSearchBestBinFirst<P> {
 
 		// iterate until it exhausts all options or the maximum number of nodes has been exceeded
 		while( !queue.isEmpty() && numNodesSearched++ < maxNodesSearched) {
-			Helper h = queue.remove();
-			KdTree.Node n = h.node;
-			recycle(h);
+			double closestPossibleSq = queue.peekKey();
+			KdTree.Node n = queueNodes.data[queue.pop()];
 
 			// use new information to prune nodes
-			if( !canImprove(h.closestPossibleSq) )
+			if( !canImprove(closestPossibleSq) )
 				continue;
 
 			searchNode(target,n);
 		}
-//		System.out.println("numNodesSearched "+numNodesSearched+"  max = "+maxNodes+" "+"  queue "+queue.size());
 
-		// recycle data
-		unused.addAll(queue);
-		queue.clear();
+		// the node limit was hit while there were still nodes which could contain a better solution. The queue
+		// is sorted by the closest possible distance, so only the first node needs to be checked
+		if( stats != null && !queue.isEmpty() && canImprove(queue.peekKey()) )
+			stats.earlyTerminations++;
+
+		// remove references to nodes so that they can be garbage collected
+		queue.reset();
+		queueNodes.clear();
 	}
 
 	/**
@@ -143,6 +166,9 @@ public abstract class KdTreeSearchBestBinFirst<P> {
 	 */
 	protected void searchNode(P target, KdTree.Node n) {
 		while( n != null) {
+			if( stats != null )
+				recordVisit(n);
+
 			checkBestDistance(n, target);
 
 			if( n.isLeaf() )
@@ -179,22 +205,24 @@ public abstract class KdTreeSearchBestBinFirst<P> {
 	protected void addToQueue(double closestDistanceSq , KdTree.Node node , P target ) {
 
 		if( !node.isLeaf() ) {
-			Helper h;
-			if( unused.isEmpty() ) {
-				h = new Helper();
-			} else {
-				h = unused.remove( unused.size()-1 );
-			}
-
-			h.closestPossibleSq = closestDistanceSq;
-			h.node = node;
-
-			queue.add(h);
+			queue.push(closestDistanceSq,queueNodes.size);
+			queueNodes.add(node);
+			if( stats != null )
+				stats.heapPushes++;
 		} else {
+			if( stats != null )
+				recordVisit(node);
 			checkBestDistance(node, target);
 		}
 	}
 
+	private void recordVisit( KdTree.Node node ) {
+		stats.nodesVisited++;
+		stats.distanceEvaluations++;
+		if( node.isLeaf() )
+			stats.leafHits++;
+	}
+
 	/**
 	 * Checks to see if the current node's point is the closet point found so far
 	 */
@@ -206,32 +234,4 @@ public abstract class KdTreeSearchBestBinFirst<P> {
 	 * @return true if it can be better or false if not
 	 */
 	protected abstract boolean canImprove( double distanceSq );
-
-	/**
-	 * Recycles data for future use
-	 */
-	private void recycle( Helper h ) {
-		unused.add(h);
-	}
-
-	/**
-	 * Contains information on a node
-	 */
-	protected static class Helper implements Comparable<Helper> {
-
-		// the closest the region can be to the target
-		double closestPossibleSq;
-		// node in the graph
-		KdTree.Node node;
-
-		@Override
-		public int compareTo(Helper o) {
-			if( closestPossibleSq < o.closestPossibleSq)
-				return -1;
-			else if( closestPossibleSq > o.closestPossibleSq)
-				return 1;
-			else
-				return 0;
-		}
-	}
 }
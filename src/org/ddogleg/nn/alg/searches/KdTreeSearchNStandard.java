@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,12 +18,15 @@
 
 package org.ddogleg.nn.alg.searches;
 
+import org.ddogleg.nn.NearestNeighborStats;
 import org.ddogleg.nn.alg.KdTree;
 import org.ddogleg.nn.alg.KdTreeDistance;
 import org.ddogleg.nn.alg.KdTreeResult;
 import org.ddogleg.nn.alg.KdTreeSearchN;
 import org.ddogleg.struct.FastQueue;
 
+import javax.annotation.Nullable;
+
 /**
  * Standard algorithm for searching a {@link KdTree} for the nearest-neighbor of a search.
  * This is an adaptation of {@link KdTreeSearch1Standard} for N-nearest-neighbors.
@@ -50,6 +53,9 @@ public class KdTreeSearchNStandard<P> implements KdTreeSearchN<P> {
 
 	KdTreeDistance<P> distance;
 
+	// storage for search statistics. null if not recorded
+	@Nullable NearestNeighborStats stats;
+
 	public KdTreeSearchNStandard(KdTreeDistance<P> distance) {
 		this.distance = distance;
 	}
@@ -92,6 +98,27 @@ public class KdTreeSearchNStandard<P> implements KdTreeSearchN<P> {
 		stepClosest(tree.root,results);
 	}
 
+	/**
+	 * Finds all the nodes which are within range of the maximum distance. Since there is no limit on the number
+	 * of neighbors the search region never shrinks and only branches which are out of range are skipped.
+	 *
+	 * @param target A point
+	 * @param results Storage for the found neighbors
+	 */
+	@Override
+	public void findWithinDistance(P target, FastQueue<KdTreeResult> results) {
+		if( tree.root == null )
+			return;
+
+		this.target = target;
+		stepWithin(tree.root,results);
+	}
+
+	@Override
+	public void setStats( @Nullable NearestNeighborStats stats ) {
+		this.stats = stats;
+	}
+
 	@Override
 	public KdTreeSearchN<P> copy() {
 		return new KdTreeSearchNStandard<>(distance);
@@ -105,6 +132,9 @@ public class KdTreeSearchNStandard<P> implements KdTreeSearchN<P> {
 		if( node == null )
 			return;
 
+		if( stats != null )
+			recordVisit(node);
+
 		checkBestDistance(node, neighbors);
 
 		if( node.isLeaf() ) {
@@ -137,6 +167,49 @@ public class KdTreeSearchNStandard<P> implements KdTreeSearchN<P> {
 		}
 	}
 
+	/**
+	 * Recursive step for finding all points within the maximum distance
+	 */
+	private void stepWithin(KdTree.Node node , FastQueue<KdTreeResult> neighbors ) {
+		if( node == null )
+			return;
+
+		if( stats != null )
+			recordVisit(node);
+
+		double distSq = distance.distance(node.getPoint(),target);
+		if( distSq <= maxDistanceSq ) {
+			KdTreeResult r = neighbors.grow();
+			r.distance = distSq;
+			r.node = node;
+		}
+
+		if( node.isLeaf() )
+			return;
+
+		double splitValue = distance.valueAt(node.getPoint(), node.split );
+		double dx = splitValue - distance.valueAt(target,node.split);
+
+		// the side of the split which the target is on always needs to be checked. the other side only if it's
+		// possible for it to contain a point within range
+		if( dx >= 0 ) {
+			stepWithin(node.left,neighbors);
+			if( dx*dx <= maxDistanceSq )
+				stepWithin(node.right,neighbors);
+		} else {
+			stepWithin(node.right,neighbors);
+			if( dx*dx <= maxDistanceSq )
+				stepWithin(node.left,neighbors);
+		}
+	}
+
+	private void recordVisit( KdTree.Node node ) {
+		stats.nodesVisited++;
+		stats.distanceEvaluations++;
+		if( node.isLeaf() )
+			stats.leafHits++;
+	}
+
 	/**
 	 * See if the node being considered is a new nearest-neighbor
 	 */
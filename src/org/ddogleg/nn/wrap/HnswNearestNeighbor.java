@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.ConfigHnsw;
+import org.ddogleg.nn.alg.HnswGraph;
+import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
+import org.ddogleg.nn.alg.searches.HnswSearch;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wrapper around {@link HnswGraph} for {@link NearestNeighbor}. Indexes are always saved. Points can be added
+ * after the graph has been constructed with {@link #addPoint} without rebuilding it. Adding points is not thread
+ * safe and must not be done while a search is running. Points can also be specified using a
+ * {@link PointSetDistance}, see {@link #setPoints(PointSetDistance)}.
+ *
+ * @author Peter Abeles
+ */
+public class HnswNearestNeighbor<P> implements NearestNeighbor<P> {
+
+	// graph being searched
+	HnswGraph<P> graph;
+	// Used to create new searches
+	HnswSearch<P> searchPrototype = new HnswSearch<>();
+
+	// Copy of the input list. null if a point set was specified
+	@Nullable List<P> points;
+	// Set of points the graph was constructed from
+	PointSetDistance<P> pointSet;
+	// Used when the points are a list
+	PointSetDistanceList<P> listPoints;
+
+	public HnswNearestNeighbor( KdTreeDistance<P> distance , ConfigHnsw config ) {
+		this.graph = new HnswGraph<>(config);
+		this.searchPrototype.setEfSearch(config.efSearch);
+		this.listPoints = new PointSetDistanceList<>(distance);
+		this.pointSet = listPoints;
+	}
+
+	@Override
+	public void setPoints( List<P> points, boolean trackIndicies ) {
+		// a copy is made so that points can be added later on without modifying the input list
+		this.points = new ArrayList<>(points);
+		listPoints.setPoints(this.points);
+		this.pointSet = listPoints;
+		graph.reset(pointSet);
+		graph.addNewPoints();
+	}
+
+	/**
+	 * Specifies the set of points directly, e.g. points packed into a single array. Since there might not be
+	 * an object for each point {@link NnData#point} will be null in results and only the index is returned.
+	 *
+	 * @param points Set of points
+	 */
+	public void setPoints( PointSetDistance<P> points ) {
+		this.points = null;
+		this.pointSet = points;
+		graph.reset(pointSet);
+		graph.addNewPoints();
+	}
+
+	/**
+	 * Adds a single point to the graph. Its index will be the number of points previously added.
+	 * Only valid if points were specified using a list.
+	 *
+	 * @param point The point being added. A reference is saved.
+	 */
+	public void addPoint( P point ) {
+		if( points == null ) {
+			if( pointSet != listPoints )
+				throw new IllegalArgumentException("Points were specified using a PointSetDistance. Call addNewPoints() instead");
+			points = new ArrayList<>();
+			listPoints.setPoints(points);
+			graph.reset(pointSet);
+		}
+		points.add(point);
+		graph.addNewPoints();
+	}
+
+	/**
+	 * Adds points which were appended to the {@link PointSetDistance} after the graph was constructed.
+	 */
+	public void addNewPoints() {
+		graph.addNewPoints();
+	}
+
+	public HnswGraph<P> getGraph() {
+		return graph;
+	}
+
+	@Override
+	public Search<P> createSearch() {
+		return new InternalSearch();
+	}
+
+	private class InternalSearch implements Search<P> {
+		HnswSearch<P> search = searchPrototype.copy();
+
+		// storage for results
+		GrowQueue_I32 foundIndexes = new GrowQueue_I32();
+		GrowQueue_F64 foundDistance = new GrowQueue_F64();
+
+		@Override
+		public boolean findNearest( P point, double maxDistance, NnData<P> result ) {
+			search(point, maxDistance, 1);
+			if( foundIndexes.size == 0 )
+				return false;
+
+			result.index = foundIndexes.data[0];
+			result.point = points == null ? null : points.get(result.index);
+			result.distance = foundDistance.data[0];
+			return true;
+		}
+
+		@Override
+		public void findNearest( P point, double maxDistance, int numNeighbors, FastQueue<NnData<P>> results ) {
+			results.reset();
+			search(point, maxDistance, numNeighbors);
+
+			for( int i = 0; i < foundIndexes.size; i++ ) {
+				NnData<P> r = results.grow();
+				r.index = foundIndexes.data[i];
+				r.point = points == null ? null : points.get(r.index);
+				r.distance = foundDistance.data[i];
+			}
+		}
+
+		private void search( P point, double maxDistance, int numNeighbors ) {
+			search.setGraph(graph);
+			search.setMaxDistance(maxDistance < 0 ? Double.MAX_VALUE : maxDistance);
+
+			foundIndexes.reset();
+			foundDistance.reset();
+			search.findNeighbor(point, numNeighbors, foundIndexes, foundDistance);
+		}
+	}
+}
@@ -0,0 +1,478 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.clustering.kmeans.InitializePlusPlus;
+import org.ddogleg.clustering.kmeans.StandardKMeans_F64;
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.ConfigIvfPq;
+import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.nn.alg.ProductQuantizer;
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
+import org.ddogleg.sorting.QuickSelect;
+import org.ddogleg.struct.BinaryHeap_F64I32;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.ddogleg.struct.GrowQueue_I8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Approximate nearest neighbor search using an inverted file index with product quantization (IVF-PQ) [1]. A coarse
+ * quantizer splits the points into clusters, a.k.a. inverted lists. The residual between each point and its
+ * cluster's center is encoded using a {@link ProductQuantizer} and only the resulting codes are saved. A search
+ * finds the {@link ConfigIvfPq#numProbe} closest clusters and computes the approximate distance to each point in
+ * them using a distance table. Distance is Euclidean squared.
+ * </p>
+ *
+ * <p>
+ * Since the points are not saved {@link NnData#point} is always null and only the index is returned. Memory used by
+ * each point is {@link ConfigIvfPq#numSubspaces} bytes for the code plus 4 bytes for its index. The quantizers
+ * can be learned from a subset of the points with {@link #train(PointSetDistance)} and then points can be added
+ * in batches with {@link #addPoints(PointSetDistance)}.
+ * </p>
+ *
+ * <p>
+ * [1] Jegou, Herve, Matthijs Douze, and Cordelia Schmid. "Product quantization for nearest neighbor search."
+ * IEEE transactions on pattern analysis and machine intelligence 33.1 (2010): 117-128.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class IvfPqNearestNeighbor<P> implements NearestNeighbor<P> {
+
+	ConfigIvfPq config;
+
+	// Number of elements in a point
+	int dof;
+
+	// Center of each inverted list. Row major
+	double[] coarse = new double[0];
+	// Number of inverted lists which have been learned
+	int numLists;
+	// Encodes the residual of each point
+	ProductQuantizer pq;
+
+	// Points in each inverted list
+	FastQueue<InvertedList> lists = new FastQueue<>(InvertedList::new);
+	// Total number of points which have been added
+	int numPoints;
+
+	// Used when the points are a list
+	PointSetDistanceList<P> listPoints;
+
+	// Learns the quantizers
+	StandardKMeans_F64 kmeans;
+
+	// workspace
+	double[] work = new double[0];
+	GrowQueue_I32 workLabels = new GrowQueue_I32();
+	GrowQueue_I32 workCounts = new GrowQueue_I32();
+	GrowQueue_I8 workCodes = new GrowQueue_I8();
+
+	public IvfPqNearestNeighbor( KdTreeDistance<P> distance , ConfigIvfPq config ) {
+		if( config.numLists < 1 )
+			throw new IllegalArgumentException("numLists must be at least 1");
+		if( config.numProbe < 1 )
+			throw new IllegalArgumentException("numProbe must be at least 1");
+		if( config.numCentroids < 1 || config.numCentroids > 256 )
+			throw new IllegalArgumentException("numCentroids must be from 1 to 256");
+
+		this.config = config.copy();
+		this.dof = distance.length();
+		this.listPoints = new PointSetDistanceList<>(distance);
+		this.kmeans = new StandardKMeans_F64(config.kmeansIterations,config.kmeansIterations,1e-4,
+				new InitializePlusPlus());
+		this.pq = new ProductQuantizer(dof, config.numSubspaces, kmeans);
+		this.work = new double[dof];
+	}
+
+	/**
+	 * Learns the quantizers from the points then encodes and adds all the points
+	 */
+	@Override
+	public void setPoints( List<P> points , boolean trackIndicies ) {
+		listPoints.setPoints(points);
+		setPoints(listPoints);
+		listPoints.setPoints(null);
+	}
+
+	/**
+	 * Learns the quantizers from the points then encodes and adds all the points
+	 */
+	public void setPoints( PointSetDistance<P> points ) {
+		train(points);
+		addPoints(points);
+	}
+
+	/**
+	 * Learns the coarse quantizer and product quantizer. All previously added points are removed.
+	 *
+	 * @param points Training points. If there are more than {@link ConfigIvfPq#maxTrainingPoints} then a random
+	 *               subset is used.
+	 */
+	public void train( PointSetDistance<P> points ) {
+		if( points.length() != dof )
+			throw new IllegalArgumentException("Points have an unexpected number of elements. "+points.length()+" vs "+dof);
+		numLists = 0;
+		if( points.size() > 0 )
+			learnQuantizers(points);
+
+		// create the inverted lists. This also discards any previously added points
+		removeAllPoints();
+	}
+
+	private void learnQuantizers( PointSetDistance<P> points ) {
+		final int size = points.size();
+
+		// randomly select the training points using reservoir sampling, so that memory is only needed for the
+		// selected points
+		Random rand = new Random(config.randSeed);
+		final int numTraining = Math.min(size, config.maxTrainingPoints);
+		GrowQueue_I32 selected = new GrowQueue_I32(numTraining);
+		for (int i = 0; i < numTraining; i++) {
+			selected.add(i);
+		}
+		for (int i = numTraining; i < size; i++) {
+			int j = rand.nextInt(i+1);
+			if( j < numTraining )
+				selected.data[j] = i;
+		}
+		List<double[]> training = new ArrayList<>();
+		for (int i = 0; i < numTraining; i++) {
+			double[] p = new double[dof];
+			copy(points, selected.data[i], p);
+			training.add(p);
+		}
+
+		// learn the coarse quantizer
+		numLists = Math.min(config.numLists, numTraining);
+		kmeans.init(dof, config.randSeed);
+		kmeans.process(training, numLists);
+		FastQueue<double[]> means = kmeans.getClusterMeans();
+		coarse = new double[numLists*dof];
+		for (int i = 0; i < numLists; i++) {
+			double[] mean = means.get(i);
+			for (int j = 0; j < dof; j++) {
+				// clusters with no members can have NaN means. Push them far away so they are never selected
+				coarse[i*dof+j] = Double.isNaN(mean[j]) ? Double.MAX_VALUE : mean[j];
+			}
+		}
+
+		// learn the product quantizer from the residuals
+		for (int i = 0; i < numTraining; i++) {
+			double[] p = training.get(i);
+			int list = findClosestList(p);
+			for (int j = 0; j < dof; j++) {
+				p[j] -= coarse[list*dof+j];
+			}
+		}
+		pq.train(training, config.numCentroids, config.randSeed+1);
+	}
+
+	/**
+	 * Encodes and adds the points. The index of each point is the number of points previously added plus its index
+	 * in the set. {@link #train} must be called first.
+	 */
+	public void addPoints( PointSetDistance<P> points ) {
+		final int size = points.size();
+		if( size == 0 )
+			return;
+		if( numLists == 0 )
+			throw new IllegalArgumentException("Must call train() first");
+
+		final int codeLength = pq.getCodeLength();
+
+		// computed as a long since the number of elements can exceed the range of an int
+		long codesLength = (long)size*codeLength;
+		if( codesLength > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException("Too many points in a single batch. "+size+" points with a code length of "+
+					codeLength+" requires more elements than can be stored in an array");
+
+		// encode all the points first so that each list only needs to grow once
+		workLabels.resize(size);
+		workCodes.resize((int)codesLength);
+		for (int i = 0; i < size; i++) {
+			copy(points, i, work);
+			int list = findClosestList(work);
+			for (int j = 0; j < dof; j++) {
+				work[j] -= coarse[list*dof+j];
+			}
+			workLabels.data[i] = list;
+			pq.encode(work, workCodes.data, i*codeLength);
+		}
+
+		// counting sort. Find the number of points in each list
+		workCounts.resize(numLists);
+		workCounts.fill(0);
+		for (int i = 0; i < size; i++) {
+			workCounts.data[workLabels.data[i]]++;
+		}
+
+		// grow each list once. Afterwards workCounts contains where the next point in each list goes
+		for (int listIdx = 0; listIdx < numLists; listIdx++) {
+			InvertedList list = lists.get(listIdx);
+			int location = list.indexes.size;
+			int count = workCounts.data[listIdx];
+			if( count > 0 ) {
+				list.indexes.extend(location+count);
+				list.codes.extend((location+count)*codeLength);
+			}
+			workCounts.data[listIdx] = location;
+		}
+
+		// copy each point into its list
+		for (int i = 0; i < size; i++) {
+			int listIdx = workLabels.data[i];
+			InvertedList list = lists.get(listIdx);
+			int location = workCounts.data[listIdx]++;
+			list.indexes.data[location] = numPoints+i;
+			System.arraycopy(workCodes.data, i*codeLength, list.codes.data, location*codeLength, codeLength);
+		}
+		numPoints += size;
+	}
+
+	/**
+	 * Same as {@link #addPoints(PointSetDistance)} but for a list
+	 */
+	public void addPoints( List<P> points ) {
+		listPoints.setPoints(points);
+		addPoints(listPoints);
+		listPoints.setPoints(null);
+	}
+
+	/**
+	 * Removes all the points but keeps the learned quantizers
+	 */
+	public void removeAllPoints() {
+		lists.resize(numLists);
+		for (int i = 0; i < lists.size; i++) {
+			lists.get(i).reset();
+		}
+		numPoints = 0;
+	}
+
+	/**
+	 * Returns the number of points which have been added
+	 */
+	public int size() {
+		return numPoints;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used to store the points, not including the quantizers
+	 */
+	public long getStorageBytes() {
+		return numPoints*(long)(pq.getCodeLength()+4);
+	}
+
+	/**
+	 * Changes the number of inverted lists which are searched. Can be changed at any time.
+	 */
+	public void setNumProbe( int numProbe ) {
+		if( numProbe < 1 )
+			throw new IllegalArgumentException("numProbe must be at least 1");
+		config.numProbe = numProbe;
+	}
+
+	public int getNumProbe() {
+		return config.numProbe;
+	}
+
+	public ProductQuantizer getQuantizer() {
+		return pq;
+	}
+
+	private void copy( PointSetDistance<P> points , int index , double[] dst ) {
+		for (int j = 0; j < dof; j++) {
+			dst[j] = points.valueAt(index, j);
+		}
+	}
+
+	private int findClosestList( double[] p ) {
+		int best = 0;
+		double bestDistance = Double.MAX_VALUE;
+		for (int i = 0; i < numLists; i++) {
+			double d = distanceSq(p, i);
+			if( d < bestDistance ) {
+				bestDistance = d;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	private double distanceSq( double[] p , int list ) {
+		double sum = 0;
+		for (int j = 0, idx = list*dof; j < dof; j++, idx++) {
+			double d = p[j]-coarse[idx];
+			sum += d*d;
+		}
+		return sum;
+	}
+
+	@Override
+	public Search<P> createSearch() {
+		return new InternalSearch();
+	}
+
+	/**
+	 * Indexes and codes of the points inside an inverted list
+	 */
+	static class InvertedList {
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		GrowQueue_I8 codes = new GrowQueue_I8();
+
+		void reset() {
+			indexes.reset();
+			codes.reset();
+		}
+	}
+
+	private class InternalSearch implements Search<P> {
+		double[] query = new double[0];
+		double[] residual = new double[0];
+		double[] table = new double[0];
+		double[] listDistance = new double[0];
+		int[] listOrder = new int[0];
+
+		// the best points found so far. Max-heap so the keys are negative distances
+		BinaryHeap_F64I32 heap = new BinaryHeap_F64I32();
+		// if not null then all points within the maximum distance are added to it
+		FastQueue<NnData<P>> results;
+
+		@Override
+		public boolean findNearest( P point , double maxDistance , NnData<P> result ) {
+			search(point, maxDistance, 1);
+			if( heap.isEmpty() )
+				return false;
+
+			result.distance = -heap.peekKey();
+			result.index = heap.pop();
+			result.point = null;
+			return true;
+		}
+
+		@Override
+		public void findNearest( P point , double maxDistance , int numNeighbors , FastQueue<NnData<P>> results ) {
+			results.reset();
+			search(point, maxDistance, numNeighbors);
+
+			// the heap returns the farthest first
+			results.resize(heap.size());
+			for (int i = results.size-1; i >= 0; i--) {
+				NnData<P> r = results.get(i);
+				r.distance = -heap.peekKey();
+				r.index = heap.pop();
+				r.point = null;
+			}
+		}
+
+		@Override
+		public void findWithinDistance( P point , double maxDistance , FastQueue<NnData<P>> results ) {
+			results.reset();
+			this.results = results;
+			search(point, maxDistance, 0);
+			this.results = null;
+		}
+
+		/**
+		 * Searches the closest inverted lists
+		 *
+		 * @param maxNeighbors Maximum number of neighbors. If zero then all neighbors are added to 'results'
+		 */
+		void search( P point , double maxDistance , int maxNeighbors ) {
+			heap.reset();
+			if( numPoints == 0 )
+				return;
+
+			if( query.length != dof ) {
+				query = new double[dof];
+				residual = new double[dof];
+			}
+			if( table.length < pq.getTableLength() )
+				table = new double[pq.getTableLength()];
+			if( listDistance.length < numLists ) {
+				listDistance = new double[numLists];
+				listOrder = new int[numLists];
+			}
+
+			KdTreeDistance<P> distance = listPoints.getDistance();
+			for (int j = 0; j < dof; j++) {
+				query[j] = distance.valueAt(point, j);
+			}
+
+			// find the closest lists
+			for (int i = 0; i < numLists; i++) {
+				listDistance[i] = distanceSq(query, i);
+			}
+			final int numProbe = Math.min(config.numProbe, numLists);
+			if( numProbe < numLists ) {
+				QuickSelect.selectIndex(listDistance, numProbe-1, numLists, listOrder);
+			} else {
+				for (int i = 0; i < numLists; i++) {
+					listOrder[i] = i;
+				}
+			}
+
+			double tau = maxDistance < 0 ? Double.MAX_VALUE : maxDistance;
+			final int codeLength = pq.getCodeLength();
+
+			for (int probe = 0; probe < numProbe; probe++) {
+				final int listIdx = listOrder[probe];
+				final InvertedList list = lists.get(listIdx);
+				if( list.indexes.size == 0 )
+					continue;
+
+				for (int j = 0, idx = listIdx*dof; j < dof; j++, idx++) {
+					residual[j] = query[j]-coarse[idx];
+				}
+				pq.computeTable(residual, table);
+
+				final byte[] codes = list.codes.data;
+				for (int i = 0; i < list.indexes.size; i++) {
+					double d = pq.distance(table, codes, i*codeLength);
+					if( d > tau )
+						continue;
+
+					int index = list.indexes.data[i];
+					if( maxNeighbors == 0 ) {
+						NnData<P> r = results.grow();
+						r.index = index;
+						r.point = null;
+						r.distance = d;
+					} else if( heap.size() < maxNeighbors ) {
+						heap.push(-d, index);
+						if( heap.size() == maxNeighbors )
+							tau = -heap.peekKey();
+					} else if( d < tau ) {
+						heap.pop();
+						heap.push(-d, index);
+						tau = -heap.peekKey();
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.KMeansTree;
+import org.ddogleg.nn.alg.KMeansTreeConstructor;
+import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
+import org.ddogleg.nn.alg.searches.KMeansTreeSearch;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Wrapper around {@link KMeansTree} for {@link NearestNeighbor}. Indexes are always saved. Points can also be
+ * specified using a {@link PointSetDistance}, see {@link #setPoints(PointSetDistance)}.
+ *
+ * @author Peter Abeles
+ */
+public class KMeansTreeNearestNeighbor<P> implements NearestNeighbor<P> {
+
+	// tree being searched
+	KMeansTree tree = new KMeansTree();
+	// creates a tree from data
+	KMeansTreeConstructor<P> constructor;
+	// Used to create new searches
+	KMeansTreeSearch<P> searchPrototype;
+
+	// The input list. null if a point set was specified
+	@Nullable List<P> points;
+	// Set of points the tree was constructed from
+	PointSetDistance<P> pointSet;
+	// Used when the points are a list
+	PointSetDistanceList<P> listPoints;
+
+	public KMeansTreeNearestNeighbor( KdTreeDistance<P> distance ,
+									  KMeansTreeConstructor<P> constructor ,
+									  KMeansTreeSearch<P> searchPrototype ) {
+		this.listPoints = new PointSetDistanceList<>(distance);
+		this.pointSet = listPoints;
+		this.constructor = constructor;
+		this.searchPrototype = searchPrototype;
+	}
+
+	@Override
+	public void setPoints( List<P> points, boolean trackIndicies ) {
+		listPoints.setPoints(points);
+		this.points = points;
+		this.pointSet = listPoints;
+		constructor.construct(pointSet,tree);
+	}
+
+	/**
+	 * Specifies the set of points directly, e.g. points packed into a single array. Since there might not be
+	 * an object for each point {@link NnData#point} will be null in results and only the index is returned.
+	 *
+	 * @param points Set of points
+	 */
+	public void setPoints( PointSetDistance<P> points ) {
+		this.points = null;
+		this.pointSet = points;
+		constructor.construct(pointSet,tree);
+	}
+
+	@Override
+	public Search<P> createSearch() {
+		return new InternalSearch();
+	}
+
+	private class InternalSearch implements Search<P> {
+		KMeansTreeSearch<P> search = searchPrototype.copy();
+
+		// storage for results
+		GrowQueue_I32 foundIndexes = new GrowQueue_I32();
+		GrowQueue_F64 foundDistance = new GrowQueue_F64();
+
+		@Override
+		public boolean findNearest( P point, double maxDistance, NnData<P> result ) {
+			search(point, maxDistance, 1);
+			if( foundIndexes.size == 0 )
+				return false;
+
+			result.index = foundIndexes.data[0];
+			result.point = points == null ? null : points.get(result.index);
+			result.distance = foundDistance.data[0];
+			return true;
+		}
+
+		@Override
+		public void findNearest( P point, double maxDistance, int numNeighbors, FastQueue<NnData<P>> results ) {
+			results.reset();
+			search(point, maxDistance, numNeighbors);
+
+			for( int i = 0; i < foundIndexes.size; i++ ) {
+				NnData<P> r = results.grow();
+				r.index = foundIndexes.data[i];
+				r.point = points == null ? null : points.get(r.index);
+				r.distance = foundDistance.data[i];
+			}
+		}
+
+		private void search( P point, double maxDistance, int numNeighbors ) {
+			search.setTree(tree,pointSet);
+			search.setMaxDistance(maxDistance < 0 ? Double.MAX_VALUE : maxDistance);
+
+			foundIndexes.reset();
+			foundDistance.reset();
+			search.findNeighbor(point, numNeighbors, foundIndexes, foundDistance);
+		}
+	}
+}
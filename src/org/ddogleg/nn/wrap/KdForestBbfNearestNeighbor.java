@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -23,10 +23,23 @@ import org.ddogleg.nn.alg.*;
 import org.ddogleg.nn.alg.searches.KdTreeSearch1Bbf;
 import org.ddogleg.nn.alg.searches.KdTreeSearchNBbf;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.function.LongFunction;
 
 /**
+ * <p>
  * K-D tree search which searches through multiple trees.  The search is performed using a Best-Bin-First approach
+ * </p>
+ *
+ * <p>
+ * If created with a splitter factory then each tree is constructed with its own splitter and memory, and the splitter
+ * is seeded with a value drawn from a random number generator before any tree is constructed. The resulting forest
+ * only depends on the initial seed and not the order the trees are constructed in. See
+ * {@link KdForestBbfNearestNeighbor_MT}.
+ * </p>
  *
  * @author Peter Abeles
  */
@@ -35,13 +48,23 @@ public class KdForestBbfNearestNeighbor<P> implements NearestNeighbor<P> {
 	// set of K-D trees which are to be searched
 	KdTree[]forest;
 
-	// creates the set of K-D trees given the same input
-	KdTreeConstructor<P> constructor;
+	// creates the set of K-D trees given the same input. null if there is a splitter factory
+	@Nullable KdTreeConstructor<P> constructor;
 
-	AxisSplitter<P> splitter;
+	// splitter shared by all the trees. null if there is a splitter factory
+	@Nullable AxisSplitter<P> splitter;
 
 	KdTreeMemory<P> memory = new KdTreeMemory<>();
 
+	// Creates a splitter for a tree given its seed. If null then the same splitter is used for all trees
+	@Nullable LongFunction<AxisSplitter<P>> factorySplitter;
+	// Generates the seed for each tree
+	Random rand;
+	// Seed for each tree in the forest
+	long[] seeds;
+	// Memory for each tree so that trees can be constructed independently
+	List<KdTreeMemory<P>> memories = new ArrayList<>();
+
 	// saved for searches
 	int maxNodesSearched;
 	KdTreeDistance<P> distance;
@@ -50,22 +73,86 @@ public class KdForestBbfNearestNeighbor<P> implements NearestNeighbor<P> {
 									  int maxNodesSearched,
 									  KdTreeDistance<P> distance ,
 									  AxisSplitter<P> splitter) {
-		this.forest = new KdTree[ numberOfTrees ];
+		this(numberOfTrees,maxNodesSearched,distance);
 		this.splitter = splitter;
+		this.constructor = new KdTreeConstructor<P>(memory,splitter);
+	}
+
+	/**
+	 * Creates a forest where each tree has its own splitter with a deterministic seed.
+	 *
+	 * @param numberOfTrees Number of trees in the forest
+	 * @param maxNodesSearched Maximum number of nodes it will search
+	 * @param distance Distance between points
+	 * @param factorySplitter Creates a splitter given the seed for its random number generator
+	 * @param randomSeed Seed used to generate the seed of each tree
+	 */
+	public KdForestBbfNearestNeighbor(int numberOfTrees,
+									  int maxNodesSearched,
+									  KdTreeDistance<P> distance ,
+									  LongFunction<AxisSplitter<P>> factorySplitter ,
+									  long randomSeed ) {
+		this(numberOfTrees,maxNodesSearched,distance);
+		this.factorySplitter = factorySplitter;
+		this.rand = new Random(randomSeed);
+		this.seeds = new long[numberOfTrees];
+		for (int i = 0; i < numberOfTrees; i++) {
+			memories.add(new KdTreeMemory<>());
+		}
+	}
+
+	private KdForestBbfNearestNeighbor(int numberOfTrees,
+									   int maxNodesSearched,
+									   KdTreeDistance<P> distance ) {
+		this.forest = new KdTree[ numberOfTrees ];
 		this.maxNodesSearched = maxNodesSearched;
 		this.distance = distance;
-
-		this.constructor = new KdTreeConstructor<P>(memory,splitter);
 	}
 
 	@Override
 	public void setPoints(List<P> points , boolean trackIndicies ) {
-		if( forest[0] != null ) {
+		if( factorySplitter == null ) {
+			if( forest[0] != null ) {
+				for( int i = 0; i < forest.length; i++ )
+					memory.recycleGraph(forest[i]);
+			}
 			for( int i = 0; i < forest.length; i++ )
-				memory.recycleGraph(forest[i]);
+				forest[i] = constructor.construct(points,trackIndicies);
+		} else {
+			// seeds are selected up front so that the forest doesn't depend on the order trees are constructed in
+			for (int i = 0; i < forest.length; i++) {
+				seeds[i] = rand.nextLong();
+			}
+			constructTrees(points, trackIndicies);
 		}
-		for( int i = 0; i < forest.length; i++ )
-			forest[i] = constructor.construct(points,trackIndicies);
+	}
+
+	/**
+	 * Constructs all the trees in the forest. Only called when there's a splitter factory.
+	 */
+	protected void constructTrees( List<P> points , boolean trackIndicies ) {
+		for (int i = 0; i < forest.length; i++) {
+			constructTree(i, points, trackIndicies);
+		}
+	}
+
+	/**
+	 * Constructs the specified tree using its own memory and a splitter created from its seed. Trees can be
+	 * constructed concurrently since no data is shared between them.
+	 */
+	protected void constructTree( int which , List<P> points , boolean trackIndicies ) {
+		KdTreeMemory<P> memory = memories.get(which);
+		if( forest[which] != null )
+			memory.recycleGraph(forest[which]);
+		AxisSplitter<P> splitter = factorySplitter.apply(seeds[which]);
+		forest[which] = new KdTreeConstructor<>(memory,splitter).construct(points,trackIndicies);
+	}
+
+	/**
+	 * Returns the trees in the forest
+	 */
+	public KdTree[] getForest() {
+		return forest;
 	}
 
 	@Override
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.ddogleg.nn.alg.AxisSplitter;
+import org.ddogleg.nn.alg.KdTreeDistance;
+
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Concurrent implementation of {@link KdForestBbfNearestNeighbor}. Each tree in the forest is constructed in its
+ * own thread. Since every tree has its own splitter, seed, and memory the constructed forest is identical to the
+ * one produced by the single threaded version for any number of threads.
+ *
+ * @author Peter Abeles
+ */
+public class KdForestBbfNearestNeighbor_MT<P> extends KdForestBbfNearestNeighbor<P> {
+	/**
+	 * @see KdForestBbfNearestNeighbor#KdForestBbfNearestNeighbor(int, int, KdTreeDistance, LongFunction, long)
+	 */
+	public KdForestBbfNearestNeighbor_MT(int numberOfTrees,
+										 int maxNodesSearched,
+										 KdTreeDistance<P> distance,
+										 LongFunction<AxisSplitter<P>> factorySplitter,
+										 long randomSeed) {
+		super(numberOfTrees, maxNodesSearched, distance, factorySplitter, randomSeed);
+	}
+
+	@Override
+	protected void constructTrees( List<P> points , boolean trackIndicies ) {
+		ConcurrencyOps.loopBlocks(0, forest.length, 1, (i0, i1) -> {
+			for (int i = i0; i < i1; i++) {
+				constructTree(i, points, trackIndicies);
+			}
+		});
+	}
+}
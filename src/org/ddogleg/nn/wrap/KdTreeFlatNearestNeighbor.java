@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.AxisSplitRule;
+import org.ddogleg.nn.alg.AxisSplitRuleMax;
+import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.nn.alg.KdTreeFlat;
+import org.ddogleg.nn.alg.KdTreeFlatConstructor;
+import org.ddogleg.nn.alg.KdTreeFlatIO;
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
+import org.ddogleg.nn.alg.searches.KdTreeFlatSearch1Standard;
+import org.ddogleg.nn.alg.searches.KdTreeFlatSearchNStandard;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Wrapper around {@link KdTreeFlat} for {@link NearestNeighbor}. The index of each point is always saved, even
+ * if tracking indexes isn't requested, since it's needed to construct the tree. Points can also be specified using a
+ * {@link PointSetDistance}, see {@link #setPoints(PointSetDistance)}. A constructed tree can be saved with
+ * {@link #save} and loaded later on by memory mapping the file, see {@link KdTreeFlatIO}.
+ *
+ * @author Peter Abeles
+ */
+public class KdTreeFlatNearestNeighbor<P> implements NearestNeighbor<P> {
+
+	// tree being searched
+	KdTreeFlat tree = new KdTreeFlat();
+	// creates a tree from data
+	KdTreeFlatConstructor<P> constructor;
+	// The input list. null if a point set was specified
+	@Nullable List<P> points;
+	// Set of points the tree was constructed from
+	PointSetDistance<P> pointSet;
+	// Used when the points are a list
+	PointSetDistanceList<P> listPoints;
+
+	public KdTreeFlatNearestNeighbor( KdTreeDistance<P> distance , AxisSplitRule splitRule ) {
+		this.listPoints = new PointSetDistanceList<>(distance);
+		this.pointSet = listPoints;
+		this.constructor = new KdTreeFlatConstructor<>(distance,splitRule);
+	}
+
+	public KdTreeFlatNearestNeighbor( KdTreeDistance<P> distance ) {
+		this(distance, new AxisSplitRuleMax());
+	}
+
+	@Override
+	public void setPoints( List<P> points, boolean trackIndicies ) {
+		listPoints.setPoints(points);
+		this.points = points;
+		this.pointSet = listPoints;
+		constructor.construct(pointSet,tree);
+	}
+
+	/**
+	 * Specifies the set of points directly, e.g. points packed into a single array. Since there might not be
+	 * an object for each point {@link NnData#point} will be null in results and only the index is returned.
+	 *
+	 * @param points Set of points
+	 */
+	public void setPoints( PointSetDistance<P> points ) {
+		this.points = null;
+		this.pointSet = points;
+		constructor.construct(pointSet,tree);
+	}
+
+	/**
+	 * Specifies a tree which has already been constructed, e.g. one loaded with {@link KdTreeFlatIO#load}.
+	 * Since there might not be an object for each point {@link NnData#point} will be null in results.
+	 *
+	 * @param tree The tree. A reference is saved.
+	 * @param points Set of points the tree was constructed from
+	 */
+	public void setTree( KdTreeFlat tree , PointSetDistance<P> points ) {
+		this.tree = tree;
+		this.points = null;
+		this.pointSet = points;
+	}
+
+	/**
+	 * Saves the tree and points to a file so that they can be loaded later on without constructing the tree.
+	 *
+	 * @see KdTreeFlatIO
+	 */
+	public void save( File file ) throws IOException {
+		KdTreeFlatIO.save(tree,pointSet,file);
+	}
+
+	public KdTreeFlat getTree() {
+		return tree;
+	}
+
+	@Override
+	public Search<P> createSearch() {
+		return new InternalSearch();
+	}
+
+	private class InternalSearch implements Search<P> {
+		KdTreeFlatSearch1Standard<P> search1 = new KdTreeFlatSearch1Standard<>();
+		KdTreeFlatSearchNStandard<P> searchN = new KdTreeFlatSearchNStandard<>();
+
+		// storage for multiple results
+		GrowQueue_I32 foundNodes = new GrowQueue_I32();
+		GrowQueue_F64 foundDistance = new GrowQueue_F64();
+
+
+		@Override
+		public boolean findNearest( P point, double maxDistance, NnData<P> result ) {
+			search1.setTree(tree,pointSet);
+			if( maxDistance < 0 )
+				search1.setMaxDistance(Double.MAX_VALUE);
+			else
+				search1.setMaxDistance(maxDistance);
+
+			int node = search1.findNeighbor(point);
+			if( node == -1 )
+				return false;
+
+			result.index = tree.indexes[node];
+			result.point = points == null ? null : points.get(result.index);
+			result.distance = search1.getDistance();
+
+			return true;
+		}
+
+		@Override
+		public void findNearest( P point, double maxDistance, int numNeighbors, FastQueue<NnData<P>> results ) {
+			results.reset();
+			searchN.setTree(tree,pointSet);
+			if( maxDistance < 0 )
+				searchN.setMaxDistance(Double.MAX_VALUE);
+			else
+				searchN.setMaxDistance(maxDistance);
+
+			foundNodes.reset();
+			foundDistance.reset();
+			searchN.findNeighbor(point, numNeighbors, foundNodes, foundDistance);
+
+			for( int i = 0; i < foundNodes.size; i++ ) {
+				int node = foundNodes.data[i];
+				NnData<P> r = results.grow();
+
+				r.index = tree.indexes[node];
+				r.point = points == null ? null : points.get(r.index);
+				r.distance = foundDistance.data[i];
+			}
+		}
+	}
+}
@@ -19,6 +19,7 @@
 package org.ddogleg.nn.wrap;
 
 import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NearestNeighborStats;
 import org.ddogleg.nn.NnData;
 import org.ddogleg.nn.alg.KdTree;
 import org.ddogleg.nn.alg.KdTreeResult;
@@ -26,6 +27,8 @@ import org.ddogleg.nn.alg.KdTreeSearch1;
 import org.ddogleg.nn.alg.KdTreeSearchN;
 import org.ddogleg.struct.FastQueue;
 
+import javax.annotation.Nullable;
+
 /**
  * @author Peter Abeles
  */
@@ -36,6 +39,9 @@ public abstract class KdTreeInternalSearch<P> implements NearestNeighbor.Search<
 	// storage for multiple results
 	FastQueue<KdTreeResult> found = new FastQueue<>(KdTreeResult::new);
 
+	// storage for search statistics. null if not recorded
+	@Nullable NearestNeighborStats stats;
+
 	KdTreeInternalSearch( KdTreeSearch1<P> search1, KdTreeSearchN<P> searchN )
 	{
 		this.search1 = search1;
@@ -47,14 +53,29 @@ public abstract class KdTreeInternalSearch<P> implements NearestNeighbor.Search<
 	 */
 	abstract void setTree();
 
+	@Override
+	public void setStats( @Nullable NearestNeighborStats stats ) {
+		this.stats = stats;
+		search1.setStats(stats);
+		searchN.setStats(stats);
+	}
+
+	@Override
+	public @Nullable NearestNeighborStats getStats() {
+		return stats;
+	}
+
 	@Override
 	public boolean findNearest(P point, double maxDistance, NnData<P> result) {
+		long time0 = stats != null ? System.nanoTime() : 0;
 		setTree();
 		if( maxDistance < 0 )
 			search1.setMaxDistance(Double.MAX_VALUE);
 		else
 			search1.setMaxDistance(maxDistance);
 		KdTree.Node found = search1.findNeighbor(point);
+		if( stats != null )
+			stats.recordQuery(System.nanoTime()-time0);
 		if( found == null )
 			return false;
 
@@ -67,15 +88,18 @@ public abstract class KdTreeInternalSearch<P> implements NearestNeighbor.Search<
 
 	@Override
 	public void findNearest(P point, double maxDistance, int numNeighbors, FastQueue<NnData<P>> results) {
+		long time0 = stats != null ? System.nanoTime() : 0;
 		setTree();
 		results.reset();
-		if( maxDistance <= 0 )
+		if( maxDistance < 0 )
 			searchN.setMaxDistance(Double.MAX_VALUE);
 		else
 			searchN.setMaxDistance(maxDistance);
 
 		found.reset();
 		searchN.findNeighbor(point, numNeighbors, found);
+		if( stats != null )
+			stats.recordQuery(System.nanoTime()-time0);
 
 		for( int i = 0; i < found.size; i++ ) {
 			KdTreeResult k = found.get(i);
@@ -86,4 +110,29 @@ public abstract class KdTreeInternalSearch<P> implements NearestNeighbor.Search<
 			r.distance = k.distance;
 		}
 	}
+
+	@Override
+	public void findWithinDistance(P point, double maxDistance, FastQueue<NnData<P>> results) {
+		long time0 = stats != null ? System.nanoTime() : 0;
+		setTree();
+		results.reset();
+		if( maxDistance < 0 )
+			searchN.setMaxDistance(Double.MAX_VALUE);
+		else
+			searchN.setMaxDistance(maxDistance);
+
+		found.reset();
+		searchN.findWithinDistance(point, found);
+		if( stats != null )
+			stats.recordQuery(System.nanoTime()-time0);
+
+		for( int i = 0; i < found.size; i++ ) {
+			KdTreeResult k = found.get(i);
+			NnData<P> r = results.grow();
+
+			r.point = k.node.getPoint();
+			r.index = k.node.index;
+			r.distance = k.distance;
+		}
+	}
 }
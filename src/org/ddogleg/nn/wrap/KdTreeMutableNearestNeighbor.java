@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.NearestNeighborMutable;
+import org.ddogleg.nn.alg.KdTree;
+import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.nn.alg.KdTreeEditor;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Wrapper around {@link KdTree} for {@link NearestNeighborMutable}. Points are added and removed using
+ * {@link KdTreeEditor}. The tree will become unbalanced as it's modified so it's automatically rebuilt once the
+ * number of modifications exceeds a fraction of its size when it was last built, see {@link #rebuildFraction}.
+ * Indexes are always tracked.
+ * </p>
+ *
+ * <p>
+ * WARNING: Indexes of removed points are not reused. Memory will grow by one reference for every point
+ * added.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class KdTreeMutableNearestNeighbor<P> extends KdTreeNearestNeighbor<P> implements NearestNeighborMutable<P> {
+
+	/**
+	 * The tree is rebuilt when the number of points added or removed since it was last built exceeds this
+	 * fraction of its size when it was built. If &le; 0 then it's only rebuilt when {@link #rebalance} is called.
+	 */
+	public double rebuildFraction = 0.5;
+
+	// adds and removes points from the tree
+	KdTreeEditor<P> editor;
+
+	// number of modifications since the tree was last built
+	int modifications;
+	// number of points in the tree when it was last built
+	int builtSize;
+
+	// work space for rebuilding the tree
+	List<P> livePoints = new ArrayList<>();
+	GrowQueue_I32 liveIndexes = new GrowQueue_I32();
+	List<KdTree.Node> open = new ArrayList<>();
+
+	public KdTreeMutableNearestNeighbor( KdTreeDistance<P> distance ) {
+		super(distance);
+		this.editor = new KdTreeEditor<>(distance,memory);
+		this.tree = memory.requestTree(distance.length());
+		this.editor.setTree(tree,0);
+	}
+
+	@Override
+	public void setPoints( List<P> points, boolean trackIndicies ) {
+		// indexes are needed to look up points
+		super.setPoints(points,true);
+		editor.setTree(tree,points.size());
+		modifications = 0;
+		builtSize = points.size();
+	}
+
+	@Override
+	public int addPoint( P point ) {
+		int index = editor.add(point);
+		modifications++;
+		checkRebuild();
+		return index;
+	}
+
+	@Override
+	public boolean removePoint( int index ) {
+		if( !editor.remove(index) )
+			return false;
+		modifications++;
+		checkRebuild();
+		return true;
+	}
+
+	/**
+	 * Rebuilds the tree if enough modifications have been made since it was last built
+	 */
+	private void checkRebuild() {
+		if( rebuildFraction <= 0 )
+			return;
+		if( modifications > rebuildFraction*Math.max(1,builtSize) )
+			rebalance();
+	}
+
+	@Override
+	public void rebalance() {
+		int numIndexes = editor.getNumIndexes();
+
+		// copy the points which are still in the tree
+		livePoints.clear();
+		liveIndexes.reset();
+		for (int i = 0; i < numIndexes; i++) {
+			KdTree.Node n = editor.getNode(i);
+			if( n == null )
+				continue;
+			livePoints.add(n.getPoint());
+			liveIndexes.add(i);
+		}
+
+		memory.recycleGraph(tree);
+		tree = constructor.construct(livePoints,true);
+
+		// convert indexes in the list back into the original indexes
+		if( tree.root != null )
+			open.add(tree.root);
+		while( !open.isEmpty() ) {
+			KdTree.Node n = open.remove(open.size()-1);
+			n.index = liveIndexes.get(n.index);
+			if( n.left != null )
+				open.add(n.left);
+			if( n.right != null )
+				open.add(n.right);
+		}
+		livePoints.clear();
+
+		editor.setTree(tree,numIndexes);
+		modifications = 0;
+		builtSize = editor.size();
+	}
+
+	@Override
+	public int size() {
+		return editor.size();
+	}
+}
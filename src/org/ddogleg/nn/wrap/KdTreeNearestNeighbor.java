@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -44,13 +44,24 @@ public class KdTreeNearestNeighbor<P> implements NearestNeighbor<P> {
 	AxisSplitter<P> splitter;
 
 	// used to recycle memory
-	KdTreeMemory<P> memory = new KdTreeMemory<>();
+	KdTreeMemory<P> memory;
 
 	public KdTreeNearestNeighbor(KdTreeSearch1<P> search1, KdTreeSearchN<P> searchN, AxisSplitter<P> splitter) {
 		this.search1 = search1;
 		this.searchN = searchN;
 		this.splitter = splitter;
-		constructor = new KdTreeConstructor<>(memory,splitter);
+		this.memory = new KdTreeMemory<>();
+		this.constructor = new KdTreeConstructor<>(memory,splitter);
+	}
+
+	/**
+	 * Constructor which allows the tree constructor to be specified, e.g. {@link KdTreeConstructor_MT}.
+	 */
+	public KdTreeNearestNeighbor(KdTreeConstructor<P> constructor, KdTreeSearch1<P> search1, KdTreeSearchN<P> searchN) {
+		this.search1 = search1;
+		this.searchN = searchN;
+		this.constructor = constructor;
+		this.memory = constructor.getMemory();
 	}
 
 	public KdTreeNearestNeighbor( KdTreeDistance<P> distance ) {
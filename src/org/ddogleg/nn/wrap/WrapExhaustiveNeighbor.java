@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -19,32 +19,56 @@
 package org.ddogleg.nn.wrap;
 
 import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NearestNeighborStats;
 import org.ddogleg.nn.NnData;
 import org.ddogleg.nn.alg.ExhaustiveNeighbor;
 import org.ddogleg.nn.alg.KdTreeDistance;
+import org.ddogleg.nn.alg.PointSetDistance;
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
 import org.ddogleg.struct.FastQueue;
 import org.ddogleg.struct.GrowQueue_F64;
 import org.ddogleg.struct.GrowQueue_I32;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 /**
- * Wrapper around {@link org.ddogleg.nn.alg.ExhaustiveNeighbor} for {@link NearestNeighbor}
+ * Wrapper around {@link org.ddogleg.nn.alg.ExhaustiveNeighbor} for {@link NearestNeighbor}. Points can also be
+ * specified using a {@link PointSetDistance}, see {@link #setPoints(PointSetDistance)}.
  *
  * @author Peter Abeles
  */
 public class WrapExhaustiveNeighbor<P> implements NearestNeighbor<P> {
 
 	KdTreeDistance<P> distance;
-	List<P> points;
+	// The input list. null if a point set was specified
+	@Nullable List<P> points;
+	// Set of points which is searched
+	PointSetDistance<P> pointSet;
+	// Used when the points are a list
+	PointSetDistanceList<P> listPoints;
 
 	public WrapExhaustiveNeighbor(KdTreeDistance<P> distance ) {
 		this.distance = distance;
+		this.listPoints = new PointSetDistanceList<>(distance);
 	}
 
 	@Override
 	public void setPoints(List<P> points, boolean trackIndicies) {
+		listPoints.setPoints(points);
 		this.points = points;
+		this.pointSet = listPoints;
+	}
+
+	/**
+	 * Specifies the set of points directly, e.g. points packed into a single array. Since there might not be
+	 * an object for each point {@link NnData#point} will be null in results and only the index is returned.
+	 *
+	 * @param points Set of points
+	 */
+	public void setPoints( PointSetDistance<P> points ) {
+		this.points = null;
+		this.pointSet = points;
 	}
 
 	@Override
@@ -56,10 +80,29 @@ public class WrapExhaustiveNeighbor<P> implements NearestNeighbor<P> {
 		ExhaustiveNeighbor<P> alg;
 		GrowQueue_I32 outputIndex = new GrowQueue_I32();
 		GrowQueue_F64 outputDistance = new GrowQueue_F64();
+		// storage for search statistics. null if not recorded
+		@Nullable NearestNeighborStats stats;
 
 		InternalSearch(KdTreeDistance<P> distance) {
 			alg = new ExhaustiveNeighbor<>(distance);
-			alg.setPoints(points);
+		}
+
+		@Override
+		public void setStats( @Nullable NearestNeighborStats stats ) {
+			this.stats = stats;
+		}
+
+		@Override
+		public @Nullable NearestNeighborStats getStats() {
+			return stats;
+		}
+
+		/**
+		 * Every point is considered once by each query
+		 */
+		private void recordQuery( long time0 ) {
+			stats.distanceEvaluations += pointSet.size();
+			stats.recordQuery(System.nanoTime()-time0);
 		}
 
 		@Override
@@ -67,11 +110,14 @@ public class WrapExhaustiveNeighbor<P> implements NearestNeighbor<P> {
 			if (maxDistance < 0)
 				maxDistance = Double.MAX_VALUE;
 
-			alg.setPoints(points);
+			long time0 = stats != null ? System.nanoTime() : 0;
+			alg.setPoints(pointSet);
 
 			int index = alg.findClosest(point, maxDistance);
+			if (stats != null)
+				recordQuery(time0);
 			if (index >= 0) {
-				result.point = points.get(index);
+				result.point = points == null ? null : points.get(index);
 				result.distance = alg.getBestDistance();
 				result.index = index;
 				return true;
@@ -87,17 +133,45 @@ public class WrapExhaustiveNeighbor<P> implements NearestNeighbor<P> {
 			if (maxDistance < 0)
 				maxDistance = Double.MAX_VALUE;
 
-			alg.setPoints(points);
+			long time0 = stats != null ? System.nanoTime() : 0;
+			alg.setPoints(pointSet);
 
 			outputIndex.reset();
 			outputDistance.reset();
 			alg.findClosestN(point, maxDistance, numNeighbors, outputIndex, outputDistance);
+			if (stats != null)
+				recordQuery(time0);
+
+			for (int i = 0; i < outputIndex.size; i++) {
+				int index = outputIndex.get(i);
+				NnData<P> r = results.grow();
+				r.distance = outputDistance.get(i);
+				r.point = points == null ? null : points.get(index);
+				r.index = index;
+			}
+		}
+
+		@Override
+		public void findWithinDistance(P point, double maxDistance, FastQueue<NnData<P>> results) {
+			results.reset();
+
+			if (maxDistance < 0)
+				maxDistance = Double.MAX_VALUE;
+
+			long time0 = stats != null ? System.nanoTime() : 0;
+			alg.setPoints(pointSet);
+
+			outputIndex.reset();
+			outputDistance.reset();
+			alg.findWithinDistance(point, maxDistance, outputIndex, outputDistance);
+			if (stats != null)
+				recordQuery(time0);
 
 			for (int i = 0; i < outputIndex.size; i++) {
 				int index = outputIndex.get(i);
 				NnData<P> r = results.grow();
 				r.distance = outputDistance.get(i);
-				r.point = points.get(index);
+				r.point = points == null ? null : points.get(index);
 				r.index = index;
 			}
 		}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.struct;
+
+/**
+ * Binary min-heap where each element is a double key and an int value. The element with the smallest key is
+ * at the top. Elements are stored in primitive arrays so that no objects are created when adding or removing.
+ * For a max-heap negate the keys.
+ *
+ * @author Peter Abeles
+ */
+public class BinaryHeap_F64I32 {
+	/** Keys of elements in the heap */
+	public double[] keys;
+	/** Values of elements in the heap */
+	public int[] values;
+	/** Number of elements in the heap */
+	public int size;
+
+	public BinaryHeap_F64I32( int initialMaxSize ) {
+		keys = new double[initialMaxSize];
+		values = new int[initialMaxSize];
+	}
+
+	public BinaryHeap_F64I32() {
+		this(10);
+	}
+
+	/**
+	 * Removes all elements
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * Adds a new element to the heap
+	 *
+	 * @param key Key used to order the element
+	 * @param value Value associated with the key
+	 */
+	public void push( double key , int value ) {
+		if( size == keys.length ) {
+			int length = Math.max(10,size*2);
+			double[] tmpKeys = new double[length];
+			int[] tmpValues = new int[length];
+			System.arraycopy(keys,0,tmpKeys,0,size);
+			System.arraycopy(values,0,tmpValues,0,size);
+			keys = tmpKeys;
+			values = tmpValues;
+		}
+
+		// sift up
+		int i = size++;
+		while( i > 0 ) {
+			int parent = (i-1)/2;
+			if( keys[parent] <= key )
+				break;
+			keys[i] = keys[parent];
+			values[i] = values[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+
+	/**
+	 * Removes the element at the top of the heap and returns its value
+	 */
+	public int pop() {
+		if( size == 0 )
+			throw new IllegalArgumentException("The heap is empty");
+		int top = values[0];
+		size--;
+		if( size == 0 )
+			return top;
+
+		double key = keys[size];
+		int value = values[size];
+
+		// sift down
+		int i = 0;
+		while( true ) {
+			int child = 2*i+1;
+			if( child >= size )
+				break;
+			if( child+1 < size && keys[child+1] < keys[child] )
+				child++;
+			if( key <= keys[child] )
+				break;
+			keys[i] = keys[child];
+			values[i] = values[child];
+			i = child;
+		}
+		keys[i] = key;
+		values[i] = value;
+		return top;
+	}
+
+	/**
+	 * Key of the element at the top of the heap
+	 */
+	public double peekKey() {
+		return keys[0];
+	}
+
+	/**
+	 * Value of the element at the top of the heap
+	 */
+	public int peekValue() {
+		return values[0];
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.struct;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Stores a set of fixed length unsigned byte tuples in a single contiguous array. Tuple 'i' starts at element i*dof in
+ * {@link #data}. Compared to a list of arrays this avoids creating an object for every tuple and keeps
+ * the tuples next to each other in memory. The total number of elements, size*dof, is limited to
+ * {@link #MAX_ELEMENTS}.
+ *
+ * @author Peter Abeles
+ */
+public class PackedTupleArray_U8 {
+	/** Number of elements in each tuple */
+	public final int dof;
+	/** Storage for all the tuples. Only the first size*dof elements are used. */
+	public byte[] data = new byte[0];
+	/** Number of tuples */
+	public int size;
+
+	/** Largest number of elements which can be safely allocated in a single array */
+	public static final int MAX_ELEMENTS = Integer.MAX_VALUE - 8;
+
+	/**
+	 * @param dof Number of elements in each tuple
+	 */
+	public PackedTupleArray_U8( int dof ) {
+		if( dof <= 0 )
+			throw new IllegalArgumentException("dof must be positive");
+		this.dof = dof;
+	}
+
+	/**
+	 * Discards all tuples. The internal array is not changed.
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * Ensures there is enough storage for the specified number of tuples without needing to declare
+	 * more memory. Existing tuples are saved.
+	 *
+	 * @param numTuples Number of tuples
+	 */
+	public void reserve( int numTuples ) {
+		// computed as a long since the number of elements can exceed the range of an int
+		long length = (long)numTuples*dof;
+		if( length > MAX_ELEMENTS )
+			throw new IllegalArgumentException("Too many tuples. "+numTuples+" tuples with dof="+dof+
+					" requires more elements than can be stored in an array");
+		if( data.length >= length )
+			return;
+		byte[] tmp = new byte[(int)length];
+		System.arraycopy(data,0,tmp,0,size*dof);
+		data = tmp;
+	}
+
+	/**
+	 * Adds a copy of the tuple to the end of the array
+	 *
+	 * @param tuple (Input) Tuple. Only the first dof elements are read.
+	 */
+	public void append( byte[] tuple ) {
+		if( data.length < (long)(size+1)*dof ) {
+			// grow by a factor of two without exceeding the maximum array size. If full, reserve will throw
+			long desired = Math.max(10L,2L*size);
+			reserve((int)Math.min(desired,Math.max(size+1L,MAX_ELEMENTS/dof)));
+		}
+		System.arraycopy(tuple,0,data,size*dof,dof);
+		size++;
+	}
+
+	/**
+	 * Copies the tuple into the specified index, overwriting the previous value
+	 */
+	public void set( int index , byte[] tuple ) {
+		System.arraycopy(tuple,0,data,index*dof,dof);
+	}
+
+	/**
+	 * Copies the specified tuple into an array
+	 *
+	 * @param index Which tuple
+	 * @param storage (Output) Optional storage. If null a new array is declared.
+	 * @return The tuple
+	 */
+	public byte[] getCopy( int index , @Nullable byte[] storage ) {
+		if( storage == null )
+			storage = new byte[dof];
+		System.arraycopy(data,index*dof,storage,0,dof);
+		return storage;
+	}
+
+	/**
+	 * Returns the value of an element in a tuple
+	 *
+	 * @param index Which tuple
+	 * @param element Which element in the tuple
+	 */
+	public int get( int index , int element ) {
+		return data[index*dof+element] & 0xFF;
+	}
+
+	/**
+	 * Discards the existing tuples and copies the list into this array
+	 */
+	public void setTo( List<byte[]> list ) {
+		reset();
+		reserve(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			System.arraycopy(list.get(i),0,data,i*dof,dof);
+		}
+		size = list.size();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getDOF() {
+		return dof;
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,13 +18,16 @@
 
 package org.ddogleg.clustering.gmm;
 
+import org.ejml.dense.row.CommonOps_DDRM;
 import org.ejml.dense.row.MatrixFeatures_DDRM;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -62,6 +65,45 @@ public class TestAssignGmm_F64 {
 		assertTrue(fit[0] < fit[1]);
 	}
 
+	/**
+	 * Likelihoods underflow in high dimensions. Assignment should still work
+	 */
+	@Test
+	public void assign_highDimension() {
+		int DOF = 128;
+		List<GaussianGmm_F64> clusters = new ArrayList<GaussianGmm_F64>();
+		for (int i = 0; i < 2; i++) {
+			GaussianGmm_F64 g = new GaussianGmm_F64(DOF,CovarianceType.DIAGONAL);
+			CommonOps_DDRM.fill(g.mean,i);
+			CommonOps_DDRM.fill(g.covariance,0.01);
+			g.weight = 0.5;
+			clusters.add(g);
+		}
+
+		AssignGmm_F64 alg = new AssignGmm_F64(clusters);
+
+		double[] point = new double[DOF];
+		Arrays.fill(point,0.7);
+		assertEquals(1, alg.assign(point));
+
+		double[] fit = new double[2];
+		alg.assign(point, fit);
+		assertEquals(1.0, fit[0]+fit[1], 1e-8);
+		assertTrue(fit[0] < fit[1]);
+	}
+
+	@Test
+	public void copy_diagonal() {
+		List<GaussianGmm_F64> clusters = new ArrayList<GaussianGmm_F64>();
+		GaussianGmm_F64 g = new GaussianGmm_F64(3,CovarianceType.DIAGONAL);
+		CommonOps_DDRM.fill(g.covariance,2);
+		clusters.add(g);
+
+		AssignGmm_F64 copy = (AssignGmm_F64)new AssignGmm_F64(clusters).copy();
+		assertSame(CovarianceType.DIAGONAL, copy.mixture.get(0).covarianceType);
+		assertTrue(MatrixFeatures_DDRM.isIdentical(g.covariance,copy.mixture.get(0).covariance,0));
+	}
+
 	@Test
 	public void copy() {
 		List<GaussianGmm_F64> clusters = new ArrayList<GaussianGmm_F64>();
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -30,6 +30,8 @@ import org.ejml.dense.row.MatrixFeatures_DDRM;
 import org.ejml.equation.Equation;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -106,6 +108,60 @@ public class TestExpectationMaximizationGmm_F64 extends GenericClusterChecks_F64
 		}
 	}
 
+	/**
+	 * In high dimensions the raw likelihood underflows to zero. Responsibilities should still sum to one and
+	 * favor the closest Gaussian
+	 */
+	@Test
+	public void expectation_underflow() {
+		int DOF = 200;
+
+		ExpectationMaximizationGmm_F64 alg = new ExpectationMaximizationGmm_F64(100,1e-8,seeds);
+		alg.init(DOF,34535);
+
+		for (int i = 0; i < 2; i++) {
+			GaussianGmm_F64 g = alg.mixture.grow();
+			for (int j = 0; j < DOF; j++) {
+				g.mean.data[j] = i;
+				g.covariance.set(j,j,0.01);
+			}
+			g.weight = 0.5;
+		}
+		alg.likelihoodManager.precomputeAll();
+
+		PointInfo p = alg.info.grow();
+		p.point = new double[DOF];
+		Arrays.fill(p.point,0.4);
+		p.weights.resize(2);
+
+		// sanity check to make sure the test is meaningful
+		assertEquals(0.0, alg.likelihoodManager.getLikelihood(0).likelihood(p.point));
+
+		alg.expectation();
+
+		assertEquals(1.0, p.weights.get(0)+p.weights.get(1), 1e-8);
+		assertTrue(p.weights.get(0) > p.weights.get(1));
+	}
+
+	@Test
+	public void normalizeLogLikelihoods() {
+		double[] weights = new double[]{-1000,-1001,Double.NEGATIVE_INFINITY,5};
+
+		ExpectationMaximizationGmm_F64.normalizeLogLikelihoods(weights, 3, -1000);
+
+		double e = Math.exp(-1);
+		assertEquals(1.0/(1+e), weights[0], 1e-8);
+		assertEquals(e/(1+e), weights[1], 1e-8);
+		assertEquals(0, weights[2]);
+		assertEquals(5, weights[3]);
+
+		// nothing is valid
+		weights = new double[]{Double.NEGATIVE_INFINITY,Double.NEGATIVE_INFINITY};
+		ExpectationMaximizationGmm_F64.normalizeLogLikelihoods(weights, 2, Double.NEGATIVE_INFINITY);
+		assertEquals(0, weights[0]);
+		assertEquals(0, weights[1]);
+	}
+
 	@Test
 	public void maximization() {
 		int DOF = 2;
@@ -149,6 +205,54 @@ public class TestExpectationMaximizationGmm_F64 extends GenericClusterChecks_F64
 
 	}
 
+	/**
+	 * Diagonal and spherical covariances should be the diagonal and average diagonal of the full covariance
+	 */
+	@Test
+	public void maximization_diagonal() {
+		List<PointInfo> points = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			PointInfo p = new PointInfo();
+			p.point = new double[]{rand.nextGaussian(), 2*rand.nextGaussian(), 3+rand.nextGaussian()};
+			p.weights.resize(2);
+			p.weights.data[0] = rand.nextDouble();
+			p.weights.data[1] = 1.0 - p.weights.data[0];
+			points.add(p);
+		}
+
+		ExpectationMaximizationGmm_F64 full = maximize(points, CovarianceType.FULL);
+		ExpectationMaximizationGmm_F64 diag = maximize(points, CovarianceType.DIAGONAL);
+		ExpectationMaximizationGmm_F64 sphere = maximize(points, CovarianceType.SPHERICAL);
+
+		for (int i = 0; i < 2; i++) {
+			GaussianGmm_F64 f = full.mixture.get(i);
+			GaussianGmm_F64 d = diag.mixture.get(i);
+			GaussianGmm_F64 s = sphere.mixture.get(i);
+
+			assertTrue(MatrixFeatures_DDRM.isIdentical(f.mean, d.mean, 1e-8));
+			assertEquals(f.weight, d.weight, 1e-8);
+			double trace = 0;
+			for (int j = 0; j < 3; j++) {
+				assertEquals(f.covariance.get(j,j), d.covariance.data[j], 1e-8);
+				trace += f.covariance.get(j,j);
+			}
+			assertEquals(trace/3, s.covariance.data[0], 1e-8);
+		}
+	}
+
+	private ExpectationMaximizationGmm_F64 maximize( List<PointInfo> points, CovarianceType type ) {
+		ExpectationMaximizationGmm_F64 alg = new ExpectationMaximizationGmm_F64(100,1e-8,type,seeds);
+		alg.init(3,34535);
+		alg.mixture.resize(2);
+		for( PointInfo p : points ) {
+			PointInfo c = alg.info.grow();
+			c.point = p.point;
+			c.weights.setTo(p.weights);
+		}
+		alg.maximization();
+		return alg;
+	}
+
 	private void createPointsAround( double cx , double cy , ExpectationMaximizationGmm_F64 alg ) {
 		for (int i = 0; i < 50; i++) {
 			for (int j = 0; j < 50; j++) {
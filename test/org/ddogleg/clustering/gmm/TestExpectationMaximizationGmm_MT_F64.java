@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.gmm;
+
+import org.ddogleg.clustering.ComputeClusters;
+import org.ddogleg.clustering.GenericClusterChecks_F64;
+import org.ddogleg.clustering.kmeans.InitializeStandard_F64;
+import org.ddogleg.clustering.kmeans.StandardKMeans_F64;
+import org.ddogleg.clustering.kmeans.TestStandardKMeans_F64;
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestExpectationMaximizationGmm_MT_F64 extends GenericClusterChecks_F64 {
+
+	Random rand = new Random(234);
+
+	int originalThreads = ConcurrencyOps.getMaxThreads();
+
+	@AfterEach
+	void restoreThreads() {
+		ConcurrencyOps.setMaxThreads(originalThreads);
+	}
+
+	/**
+	 * With a single thread the results should be identical to the single threaded implementation
+	 */
+	@Test
+	void singleThreadIdentical() {
+		ConcurrencyOps.setMaxThreads(1);
+		List<double[]> points = createPoints(600);
+
+		ExpectationMaximizationGmm_F64 expected = new ExpectationMaximizationGmm_F64(20, 1e-8, createSeeds());
+		ExpectationMaximizationGmm_MT_F64 found = new ExpectationMaximizationGmm_MT_F64(20, 1e-8, createSeeds());
+		found.minimumBlock = 10;
+		expected.init(3, 234);
+		found.init(3, 234);
+		expected.process(points, 3);
+		found.process(points, 3);
+
+		assertEquals(expected.getDistanceMeasure(), found.getDistanceMeasure());
+		for (int i = 0; i < 3; i++) {
+			GaussianGmm_F64 a = expected.mixture.get(i);
+			GaussianGmm_F64 b = found.mixture.get(i);
+			assertEquals(a.weight, b.weight);
+			assertArrayEquals(a.mean.data, b.mean.data);
+			assertArrayEquals(a.covariance.data, b.covariance.data);
+		}
+	}
+
+	/**
+	 * Diagonal and spherical covariances should also be identical to the single threaded implementation
+	 */
+	@Test
+	void singleThreadIdentical_diagonal() {
+		ConcurrencyOps.setMaxThreads(1);
+		List<double[]> points = createPoints(600);
+
+		for( CovarianceType type : new CovarianceType[]{CovarianceType.DIAGONAL, CovarianceType.SPHERICAL} ) {
+			ExpectationMaximizationGmm_F64 expected = new ExpectationMaximizationGmm_F64(20, 1e-8, type, createSeeds());
+			ExpectationMaximizationGmm_MT_F64 found = new ExpectationMaximizationGmm_MT_F64(20, 1e-8, type, createSeeds());
+			found.minimumBlock = 10;
+			expected.init(3, 234);
+			found.init(3, 234);
+			expected.process(points, 3);
+			found.process(points, 3);
+
+			assertEquals(expected.getDistanceMeasure(), found.getDistanceMeasure());
+			for (int i = 0; i < 3; i++) {
+				GaussianGmm_F64 a = expected.mixture.get(i);
+				GaussianGmm_F64 b = found.mixture.get(i);
+				assertSame(type, b.covarianceType);
+				assertEquals(a.weight, b.weight);
+				assertArrayEquals(a.mean.data, b.mean.data);
+				assertArrayEquals(a.covariance.data, b.covariance.data);
+			}
+		}
+	}
+
+	/**
+	 * Results should be the same every time for a fixed number of threads and close to the single threaded results
+	 */
+	@Test
+	void multipleThreads() {
+		List<double[]> points = createPoints(600);
+
+		ConcurrencyOps.setMaxThreads(1);
+		ExpectationMaximizationGmm_MT_F64 single = process(points);
+		ConcurrencyOps.setMaxThreads(4);
+		ExpectationMaximizationGmm_MT_F64 foundA = process(points);
+		ExpectationMaximizationGmm_MT_F64 foundB = process(points);
+
+		assertEquals(foundA.getDistanceMeasure(), foundB.getDistanceMeasure());
+		for (int i = 0; i < 3; i++) {
+			GaussianGmm_F64 a = foundA.mixture.get(i);
+			GaussianGmm_F64 b = foundB.mixture.get(i);
+			GaussianGmm_F64 s = single.mixture.get(i);
+			assertArrayEquals(a.mean.data, b.mean.data);
+			assertArrayEquals(a.covariance.data, b.covariance.data);
+			assertArrayEquals(s.mean.data, a.mean.data, 1e-8);
+			assertArrayEquals(s.covariance.data, a.covariance.data, 1e-8);
+			assertEquals(s.weight, a.weight, 1e-8);
+		}
+	}
+
+	private ExpectationMaximizationGmm_MT_F64 process( List<double[]> points ) {
+		ExpectationMaximizationGmm_MT_F64 alg = new ExpectationMaximizationGmm_MT_F64(20, 1e-8, createSeeds());
+		alg.minimumBlock = 10;
+		alg.init(3, 234);
+		alg.process(points, 3);
+		return alg;
+	}
+
+	private SeedFromKMeans_F64 createSeeds() {
+		return new SeedFromKMeans_F64(new StandardKMeans_F64(1000,1000,1e-8,new TestStandardKMeans_F64.FixedSeeds()));
+	}
+
+	private List<double[]> createPoints( int count ) {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int cluster = i%3;
+			points.add(new double[]{10*cluster + rand.nextGaussian(), rand.nextGaussian()*(cluster+1), rand.nextGaussian()});
+		}
+		return points;
+	}
+
+	@Override
+	public ComputeClusters<double[]> createClustersAlg( boolean hint ) {
+		ExpectationMaximizationGmm_MT_F64 alg;
+		if( hint ) {
+			alg = new ExpectationMaximizationGmm_MT_F64(1000, 1e-8, createSeeds());
+		} else {
+			StandardKMeans_F64 kmeans = new StandardKMeans_F64(1000,1000,1e-8,new InitializeStandard_F64());
+			alg = new ExpectationMaximizationGmm_MT_F64(1000, 1e-8, new SeedFromKMeans_F64(kmeans));
+		}
+		alg.minimumBlock = 5;
+		return alg;
+	}
+}
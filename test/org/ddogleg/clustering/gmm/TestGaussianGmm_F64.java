@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -28,6 +28,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -85,6 +86,46 @@ public class TestGaussianGmm_F64 {
 		assertTrue(MatrixFeatures_DDRM.isIdentical(Q, g.covariance, 1e-8));
 	}
 
+	@Test
+	public void addCovariance_diagonal() {
+		GaussianGmm_F64 g = new GaussianGmm_F64(3,CovarianceType.DIAGONAL);
+		assertEquals(3, g.covariance.getNumElements());
+
+		g.addCovariance(new double[]{1,2,3},0.5);
+		g.addCovariance(new double[]{-1,0,2},2.0);
+
+		assertEquals(0.5*1 + 2*1, g.covariance.data[0], 1e-8);
+		assertEquals(0.5*4 + 2*0, g.covariance.data[1], 1e-8);
+		assertEquals(0.5*9 + 2*4, g.covariance.data[2], 1e-8);
+	}
+
+	@Test
+	public void addCovariance_spherical() {
+		GaussianGmm_F64 g = new GaussianGmm_F64(3,CovarianceType.SPHERICAL);
+		assertEquals(1, g.covariance.getNumElements());
+
+		g.addCovariance(new double[]{1,2,3},0.5);
+		g.addCovariance(new double[]{-1,0,2},2.0);
+
+		assertEquals((0.5*14 + 2*5)/3.0, g.covariance.data[0], 1e-8);
+	}
+
+	@Test
+	public void copy() {
+		for( CovarianceType type : CovarianceType.values() ) {
+			GaussianGmm_F64 g = new GaussianGmm_F64(3,type);
+			g.setMean(new double[]{1,2,3});
+			CommonOps_DDRM.fill(g.covariance,2);
+			g.weight = 0.3;
+
+			GaussianGmm_F64 found = g.copy();
+			assertSame(type, found.covarianceType);
+			assertTrue(MatrixFeatures_DDRM.isIdentical(g.mean, found.mean, 0));
+			assertTrue(MatrixFeatures_DDRM.isIdentical(g.covariance, found.covariance, 0));
+			assertEquals(g.weight, found.weight);
+		}
+	}
+
 	@Test
 	public void setMean() {
 		GaussianGmm_F64 g = new GaussianGmm_F64(3);
@@ -24,6 +24,7 @@ import org.ejml.equation.Equation;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 /**
  * @author Peter Abeles
@@ -85,6 +86,98 @@ public class TestGaussianLikelihoodManager {
 		assertEquals(found, expected, 1e-8);
 	}
 
+	@Test
+	public void logLikelihood() {
+		int DOF = 3;
+
+		GaussianGmm_F64 a = new GaussianGmm_F64(DOF);
+		a.mean.data = new double[]{5,3,5};
+		a.covariance.set(0,0,3);
+		a.covariance.set(1,1,6);
+		a.covariance.set(2,2,12);
+
+		FastArray<GaussianGmm_F64> mixtures = new FastArray<>(GaussianGmm_F64.class);
+		mixtures.add(a);
+		GaussianLikelihoodManager manager = new GaussianLikelihoodManager(DOF,mixtures.toList());
+		manager.precomputeAll();
+
+		double[] p = new double[]{4,3,-1};
+		GaussianLikelihoodManager.Likelihood g = manager.getLikelihood(0);
+
+		double expected = Math.log(g.likelihood(p));
+		assertEquals(expected, g.logLikelihood(p), 1e-8);
+		assertEquals(computeChiSq(a,p), g.getChisq(), 1e-8);
+		assertEquals(g.getChisq(), g.computeChiSq(p, new DMatrixRMaj(DOF,1)), 1e-8);
+	}
+
+	/**
+	 * In high dimensions the determinant underflows. The log likelihood should still be correct
+	 */
+	@Test
+	public void logLikelihood_highDimension() {
+		int DOF = 400;
+
+		GaussianGmm_F64 a = new GaussianGmm_F64(DOF);
+		for (int i = 0; i < DOF; i++) {
+			a.covariance.set(i,i,0.01);
+		}
+
+		FastArray<GaussianGmm_F64> mixtures = new FastArray<>(GaussianGmm_F64.class);
+		mixtures.add(a);
+		GaussianLikelihoodManager manager = new GaussianLikelihoodManager(DOF,mixtures.toList());
+		manager.precomputeAll();
+
+		double[] p = new double[DOF];
+		p[0] = 0.2;
+
+		// log(1/sqrt(det(S))) - 0.5*chisq
+		double expected = 0.5*DOF*Math.log(100) - 0.5*0.04*100;
+		assertEquals(expected, manager.getLikelihood(0).logLikelihood(p), 1e-6);
+	}
+
+	/**
+	 * Diagonal and spherical covariances should produce the same results as the equivalent full covariance
+	 */
+	@Test
+	public void diagonalAndSpherical() {
+		int DOF = 3;
+		double[] variances = new double[]{3,6,12};
+
+		GaussianGmm_F64 full = new GaussianGmm_F64(DOF);
+		GaussianGmm_F64 diag = new GaussianGmm_F64(DOF,CovarianceType.DIAGONAL);
+		GaussianGmm_F64 sphere = new GaussianGmm_F64(DOF,CovarianceType.SPHERICAL);
+		GaussianGmm_F64 fullSphere = new GaussianGmm_F64(DOF);
+		for( GaussianGmm_F64 g : new GaussianGmm_F64[]{full,diag,sphere,fullSphere}) {
+			g.setMean(new double[]{5,3,5});
+		}
+		for (int i = 0; i < DOF; i++) {
+			full.covariance.set(i,i,variances[i]);
+			diag.covariance.data[i] = variances[i];
+			fullSphere.covariance.set(i,i,4);
+		}
+		sphere.covariance.data[0] = 4;
+
+		FastArray<GaussianGmm_F64> mixtures = new FastArray<>(GaussianGmm_F64.class);
+		mixtures.add(full);
+		mixtures.add(diag);
+		mixtures.add(sphere);
+		mixtures.add(fullSphere);
+		GaussianLikelihoodManager manager = new GaussianLikelihoodManager(DOF,mixtures.toList());
+		manager.precomputeAll();
+
+		double[] p = new double[]{4,3,-1};
+		assertEquals(manager.getLikelihood(0).logLikelihood(p), manager.getLikelihood(1).logLikelihood(p), 1e-8);
+		assertEquals(manager.getLikelihood(0).getChisq(), manager.getLikelihood(1).getChisq(), 1e-8);
+		assertEquals(manager.getLikelihood(3).logLikelihood(p), manager.getLikelihood(2).logLikelihood(p), 1e-8);
+		assertEquals(manager.getLikelihood(3).getChisq(), manager.getLikelihood(2).getChisq(), 1e-8);
+
+		// a zero variance isn't valid
+		diag.covariance.data[1] = 0;
+		manager.precomputeAll();
+		assertFalse(manager.getLikelihood(1).valid);
+		assertEquals(Double.NEGATIVE_INFINITY, manager.getLikelihood(1).logLikelihood(p));
+	}
+
 	public static double computeLikelihood( GaussianGmm_F64 g , double[] p ) {
 		Equation eq = new Equation();
 
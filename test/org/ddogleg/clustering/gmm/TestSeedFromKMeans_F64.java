@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -89,6 +89,43 @@ public class TestSeedFromKMeans_F64 {
 		assertTrue(MatrixFeatures_DDRM.isIdentical(expectedB.covariance,b.covariance,1e-8));
 	}
 
+	/**
+	 * Diagonal and spherical seeds should be the diagonal and average diagonal of the full covariance
+	 */
+	@Test
+	public void selectSeeds_diagonal() {
+		List<double[]> points = new ArrayList<double[]>();
+		for (int i = 0; i < 1000; i++) {
+			points.add(new double[]{10 + rand.nextGaussian(), 50 + rand.nextGaussian()*0.5});
+			points.add(new double[]{-30 + rand.nextGaussian(), 20 + rand.nextGaussian()*0.5});
+		}
+
+		List<GaussianGmm_F64> full = select(points, CovarianceType.FULL);
+		List<GaussianGmm_F64> diag = select(points, CovarianceType.DIAGONAL);
+		List<GaussianGmm_F64> sphere = select(points, CovarianceType.SPHERICAL);
+
+		for (int i = 0; i < 2; i++) {
+			DMatrixRMaj Q = full.get(i).covariance;
+			assertTrue(MatrixFeatures_DDRM.isIdentical(full.get(i).mean, diag.get(i).mean, 1e-8));
+			assertEquals(full.get(i).weight, diag.get(i).weight, 1e-8);
+			assertEquals(Q.get(0,0), diag.get(i).covariance.data[0], 1e-8);
+			assertEquals(Q.get(1,1), diag.get(i).covariance.data[1], 1e-8);
+			assertEquals((Q.get(0,0)+Q.get(1,1))/2, sphere.get(i).covariance.data[0], 1e-8);
+		}
+	}
+
+	private List<GaussianGmm_F64> select( List<double[]> points, CovarianceType type ) {
+		SeedFromKMeans_F64 alg = new SeedFromKMeans_F64(createKMeans());
+		alg.init(2,234234);
+
+		List<GaussianGmm_F64> seeds = new ArrayList<GaussianGmm_F64>();
+		seeds.add( new GaussianGmm_F64(2,type));
+		seeds.add( new GaussianGmm_F64(2,type));
+
+		alg.selectSeeds(points,seeds);
+		return seeds;
+	}
+
 	private GaussianGmm_F64 computeGaussian( int offset , List<double[]> points ) {
 
 		GaussianGmm_F64 out = new GaussianGmm_F64(2);
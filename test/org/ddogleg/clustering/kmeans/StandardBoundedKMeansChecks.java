@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.clustering.ComputeClusters;
+import org.ddogleg.clustering.GenericClusterChecks_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks for implementations of {@link BoundedKMeans_F64}. Results must be identical to {@link StandardKMeans_F64}.
+ *
+ * @author Peter Abeles
+ */
+public abstract class StandardBoundedKMeansChecks extends GenericClusterChecks_F64 {
+
+	Random rand = new Random(234);
+
+	public abstract BoundedKMeans_F64 createAlg( int maxIterations, int maxConverge, double convergeTol,
+												 InitializeKMeans_F64 seedSelector );
+
+	@Override
+	public ComputeClusters<double[]> createClustersAlg( boolean hint ) {
+		if( hint ) {
+			return createAlg(1000,1000, 1e-8, new TestStandardKMeans_F64.FixedSeeds());
+		} else {
+			return createAlg(1000,1000, 1e-8, new InitializeStandard_F64());
+		}
+	}
+
+	/**
+	 * Compare against standard k-means on clustered data with different number of clusters
+	 */
+	@Test
+	void identicalToStandard_clustered() {
+		List<double[]> points = createClustered(4, 1500, 12);
+		for (int K : new int[]{1,2,5,12,30}) {
+			checkIdentical(points, 4, K, 50, 50);
+		}
+	}
+
+	/**
+	 * Compare against standard k-means on data with no structure
+	 */
+	@Test
+	void identicalToStandard_random() {
+		List<double[]> points = TestStandardKMeans_F64.createPoints(3, 1000, true);
+		checkIdentical(points, 3, 8, 40, 40);
+	}
+
+	/**
+	 * Reseeding changes all the clusters. Bounds need to remain valid.
+	 */
+	@Test
+	void identicalToStandard_reseed() {
+		List<double[]> points = createClustered(5, 800, 6);
+		checkIdentical(points, 5, 6, 60, 4);
+	}
+
+	/**
+	 * Many points are identical, creating lots of ties and clusters with no members
+	 */
+	@Test
+	void identicalToStandard_ties() {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			points.add(new double[]{rand.nextInt(3), rand.nextInt(3)});
+		}
+		checkIdentical(points, 2, 7, 30, 10);
+	}
+
+	/**
+	 * Should skip most distance computations on well separated clusters
+	 */
+	@Test
+	void skipsDistances() {
+		List<double[]> points = createClustered(4, 2000, 10);
+		int iterations = 30;
+		BoundedKMeans_F64 alg = createAlg(iterations, iterations, 1e-8, new InitializePlusPlus());
+		alg.init(4, 234);
+		alg.process(points, 10);
+
+		long exhaustive = (long)iterations*points.size()*10;
+		assertTrue(alg.getDistanceCount() < exhaustive/2, "count = "+alg.getDistanceCount());
+	}
+
+	void checkIdentical( List<double[]> points, int dof, int K, int maxIterations, int maxConverge ) {
+		StandardKMeans_F64 expected = new StandardKMeans_F64(maxIterations, maxConverge, 1e-6, new InitializePlusPlus());
+		BoundedKMeans_F64 found = createAlg(maxIterations, maxConverge, 1e-6, new InitializePlusPlus());
+
+		expected.init(dof, 0xBEEF);
+		found.init(dof, 0xBEEF);
+
+		// process twice to make sure it's reset correctly
+		for (int trial = 0; trial < 2; trial++) {
+			expected.process(points, K);
+			found.process(points, K);
+
+			assertEquals(expected.getDistanceMeasure(), found.getDistanceMeasure());
+			for (int i = 0; i < points.size(); i++) {
+				assertEquals(expected.getPointLabels().get(i), found.getPointLabels().get(i));
+			}
+			for (int i = 0; i < K; i++) {
+				assertArrayEquals(expected.getClusterMeans().get(i), found.getClusterMeans().get(i));
+			}
+		}
+	}
+
+	List<double[]> createClustered( int dof, int count, int numClusters ) {
+		List<double[]> centers = new ArrayList<>();
+		for (int i = 0; i < numClusters; i++) {
+			double[] c = new double[dof];
+			for (int j = 0; j < dof; j++) {
+				c[j] = rand.nextDouble()*100;
+			}
+			centers.add(c);
+		}
+
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			double[] c = centers.get(rand.nextInt(numClusters));
+			double[] p = new double[dof];
+			for (int j = 0; j < dof; j++) {
+				p[j] = c[j] + rand.nextGaussian();
+			}
+			points.add(p);
+		}
+		return points;
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -48,8 +48,11 @@ public class TestAssignKMeans_F64 {
 	}
 
 	public static byte[] save( Object o ) {
+		File file = null;
 		try {
-			FileOutputStream fileOut = new FileOutputStream("junk.txt");
+			// write to a temporary file so that nothing is left behind in the working directory
+			file = File.createTempFile("assignkmeans",".ser");
+			FileOutputStream fileOut = new FileOutputStream(file);
 			ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
 			ObjectOutputStream out = new ObjectOutputStream(fileOut);
 			out.writeObject(o);
@@ -57,6 +60,9 @@ public class TestAssignKMeans_F64 {
 			return byteStream.toByteArray();
 		} catch(IOException e) {
 			throw new RuntimeException(e);
+		} finally {
+			if( file != null && !file.delete() )
+				file.deleteOnExit();
 		}
 	}
 
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestInitializeParallel_MT_F64 extends StandardInitializeKMeansChecks {
+
+	Random rand = new Random(234);
+
+	/**
+	 * There are fewer unique points than seeds. Every unique point should be a seed.
+	 */
+	@Test
+	void notEnoughUniquePoints_strict() {
+		int DOF = 20;
+
+		List<double[]> points = TestStandardKMeans_F64.createPoints(DOF,30,true);
+		for (int i = 1; i < points.size(); i += 2) {
+			System.arraycopy(points.get(i-1),0,points.get(i),0,DOF);
+		}
+		List<double[]> seeds = TestStandardKMeans_F64.createPoints(DOF,20,false);
+
+		InitializeKMeans_F64 alg = createAlg();
+		alg.init(DOF,0xBEEF);
+
+		alg.selectSeeds(points, seeds);
+
+		int[] hits = new int[15];
+		for( double[] a : seeds ) {
+			int match = findMatch( a , points )/2;
+			hits[match]++;
+		}
+
+		for (int i = 0; i < hits.length; i++) {
+			assertTrue(hits[i] > 0);
+		}
+	}
+
+	/**
+	 * With well separated clusters each seed should be inside of a different cluster
+	 */
+	@Test
+	void separatedClusters() {
+		int numClusters = 20;
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			int cluster = i%numClusters;
+			points.add(new double[]{100*cluster + rand.nextGaussian(), rand.nextGaussian()});
+		}
+		List<double[]> seeds = TestStandardKMeans_F64.createPoints(2,numClusters,false);
+
+		InitializeParallel_MT_F64 alg = new InitializeParallel_MT_F64();
+		alg.minimumBlock = 100;
+		alg.init(2,0xBEEF);
+		alg.selectSeeds(points, seeds);
+
+		boolean[] found = new boolean[numClusters];
+		for( double[] s : seeds ) {
+			int cluster = (int)Math.round(s[0]/100);
+			assertFalse(found[cluster]);
+			found[cluster] = true;
+		}
+	}
+
+	/**
+	 * The selected seeds should not depend on the number of threads
+	 */
+	@Test
+	void independentOfThreads() {
+		int originalThreads = ConcurrencyOps.getMaxThreads();
+		try {
+			List<double[]> points = TestStandardKMeans_F64.createPoints(5,3000,true);
+
+			ConcurrencyOps.setMaxThreads(1);
+			List<double[]> expected = select(points);
+			ConcurrencyOps.setMaxThreads(4);
+			List<double[]> found = select(points);
+
+			for (int i = 0; i < expected.size(); i++) {
+				assertArrayEquals(expected.get(i), found.get(i));
+			}
+		} finally {
+			ConcurrencyOps.setMaxThreads(originalThreads);
+		}
+	}
+
+	private List<double[]> select( List<double[]> points ) {
+		List<double[]> seeds = TestStandardKMeans_F64.createPoints(5,50,false);
+		InitializeParallel_MT_F64 alg = new InitializeParallel_MT_F64();
+		alg.minimumBlock = 10;
+		alg.init(5,0xBEEF);
+		alg.selectSeeds(points, seeds);
+		return seeds;
+	}
+
+	@Test
+	void computeWeights() {
+		InitializeParallel_MT_F64 alg = new InitializeParallel_MT_F64();
+		alg.candidates.add(new double[1]);
+		alg.candidates.add(new double[1]);
+		alg.candidates.add(new double[1]);
+		alg.nearest.resize(5);
+		alg.nearest.data = new int[]{2,0,2,2,0};
+
+		alg.computeWeights();
+
+		assertEquals(2, alg.weights.get(0));
+		assertEquals(0, alg.weights.get(1));
+		assertEquals(3, alg.weights.get(2));
+	}
+
+	@Override
+	public InitializeKMeans_F64 createAlg() {
+		return new InitializeParallel_MT_F64();
+	}
+}
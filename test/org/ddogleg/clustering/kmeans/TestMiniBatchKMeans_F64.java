@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.clustering.AssignCluster;
+import org.ddogleg.clustering.ComputeClusters;
+import org.ddogleg.clustering.GenericClusterChecks_F64;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestMiniBatchKMeans_F64 extends GenericClusterChecks_F64 {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Points are streamed through a single array which is recycled
+	 */
+	@Test
+	void stream_recycled() {
+		List<double[]> points = createClustered(2000);
+		MiniBatchKMeans_F64 alg = createAlg();
+
+		alg.process(new RecycleIterator(points),4);
+
+		assertEquals(2000, alg.getTotalPoints());
+		checkFoundClusters(alg.getAssignment());
+	}
+
+	/**
+	 * Stopping half way, saving a checkpoint, and resuming should produce identical results
+	 */
+	@Test
+	void checkpoint_resume() throws IOException, ClassNotFoundException {
+		List<double[]> points = createClustered(2000);
+
+		MiniBatchKMeans_F64 expected = createAlg();
+		expected.initialize(points, 4);
+		expected.process(points.iterator());
+
+		MiniBatchKMeans_F64 first = createAlg();
+		first.initialize(points, 4);
+		first.process(points.subList(0, 1000).iterator());
+
+		// save and load the checkpoint
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(first.checkpoint());
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		MiniBatchKMeans_F64.State state = (MiniBatchKMeans_F64.State)in.readObject();
+
+		MiniBatchKMeans_F64 second = createAlg();
+		second.resume(state);
+		assertEquals(1000, second.getTotalPoints());
+		second.process(points.subList(1000, 2000).iterator());
+
+		assertEquals(expected.getTotalPoints(), second.getTotalPoints());
+		assertArrayEquals(expected.getCounts(), second.getCounts());
+		for (int i = 0; i < 4; i++) {
+			assertArrayEquals(expected.getClusterMeans().get(i), second.getClusterMeans().get(i));
+		}
+	}
+
+	/**
+	 * Each point should move its cluster using a learning rate of 1/count, making the cluster the mean of
+	 * its points when assignments don't change
+	 */
+	@Test
+	void update_learningRate() {
+		MiniBatchKMeans_F64 alg = new MiniBatchKMeans_F64(100, 5, 500, new TestStandardKMeans_F64.FixedSeeds());
+		alg.init(2, 234);
+		List<double[]> seeds = new ArrayList<>();
+		seeds.add(new double[]{0,0});
+		seeds.add(new double[]{10,10});
+		seeds.add(new double[]{100,100});
+		alg.initialize(seeds,3);
+
+		List<double[]> batch = new ArrayList<>();
+		batch.add(new double[]{1,2});
+		batch.add(new double[]{3,4});
+		batch.add(new double[]{9,9});
+		alg.update(batch);
+
+		assertArrayEquals(new double[]{2,3}, alg.getClusterMeans().get(0), 1e-12);
+		assertArrayEquals(new double[]{9,9}, alg.getClusterMeans().get(1), 1e-12);
+		assertArrayEquals(new long[]{2,1,0}, alg.getCounts());
+		assertEquals(5+25+2, alg.getDistanceMeasure(), 1e-12);
+	}
+
+	@Test
+	void resume_badDimension() {
+		MiniBatchKMeans_F64 alg = createAlg();
+		MiniBatchKMeans_F64.State state = new MiniBatchKMeans_F64.State();
+		state.clusters = new double[][]{{1,2,3}};
+		state.counts = new long[1];
+		assertThrows(IllegalArgumentException.class, () -> alg.resume(state));
+	}
+
+	@Test
+	void setBatchSize_invalid() {
+		MiniBatchKMeans_F64 alg = createAlg();
+		assertThrows(IllegalArgumentException.class, () -> alg.setBatchSize(0));
+		assertThrows(IllegalArgumentException.class, () -> new MiniBatchKMeans_F64(-1, 5, 500, new InitializePlusPlus()));
+		assertEquals(100, alg.getBatchSize());
+	}
+
+	private MiniBatchKMeans_F64 createAlg() {
+		MiniBatchKMeans_F64 alg = new MiniBatchKMeans_F64(100, 5, 500, new InitializePlusPlus());
+		alg.init(2, 234);
+		return alg;
+	}
+
+	private void checkFoundClusters( AssignCluster<double[]> assign ) {
+		// each true cluster center should be assigned to a different cluster
+		boolean[] used = new boolean[4];
+		for (int i = 0; i < 4; i++) {
+			int found = assign.assign(new double[]{20*(i&1), 20*(i>>1)});
+			assertFalse(used[found]);
+			used[found] = true;
+		}
+	}
+
+	private List<double[]> createClustered( int count ) {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int cluster = rand.nextInt(4);
+			points.add(new double[]{20*(cluster&1) + rand.nextGaussian(), 20*(cluster>>1) + rand.nextGaussian()});
+		}
+		return points;
+	}
+
+	private static class RecycleIterator implements Iterator<double[]> {
+		List<double[]> points;
+		int index = 0;
+		double[] work = new double[2];
+
+		RecycleIterator( List<double[]> points ) {
+			this.points = points;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < points.size();
+		}
+
+		@Override
+		public double[] next() {
+			System.arraycopy(points.get(index++),0,work,0,2);
+			return work;
+		}
+	}
+
+	@Override
+	public ComputeClusters<double[]> createClustersAlg( boolean hint ) {
+		if( hint ) {
+			return new MiniBatchKMeans_F64(10, 20, 100, new TestStandardKMeans_F64.FixedSeeds());
+		} else {
+			return new MiniBatchKMeans_F64(10, 20, 100, new InitializeStandard_F64());
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.clustering.kmeans;
+
+import org.ddogleg.clustering.ComputeClusters;
+import org.ddogleg.clustering.GenericClusterChecks_F64;
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestStandardKMeans_MT_F64 extends GenericClusterChecks_F64 {
+
+	int originalThreads = ConcurrencyOps.getMaxThreads();
+
+	@AfterEach
+	void restoreThreads() {
+		ConcurrencyOps.setMaxThreads(originalThreads);
+	}
+
+	/**
+	 * With a single thread there's only one block and the results should be identical
+	 */
+	@Test
+	void singleThreadIdentical() {
+		ConcurrencyOps.setMaxThreads(1);
+		List<double[]> points = createClustered(3, 2000, 8);
+
+		StandardKMeans_F64 expected = new StandardKMeans_F64(40, 40, 1e-6, new InitializePlusPlus());
+		StandardKMeans_MT_F64 found = new StandardKMeans_MT_F64(40, 40, 1e-6, new InitializePlusPlus());
+		found.minimumBlock = 10;
+		expected.init(3, 234);
+		found.init(3, 234);
+		expected.process(points, 8);
+		found.process(points, 8);
+
+		assertEquals(expected.getDistanceMeasure(), found.getDistanceMeasure());
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(expected.getPointLabels().get(i), found.getPointLabels().get(i));
+		}
+		for (int i = 0; i < 8; i++) {
+			assertArrayEquals(expected.getClusterMeans().get(i), found.getClusterMeans().get(i));
+		}
+	}
+
+	/**
+	 * Results should be the same every time for the same number of threads and close to the single thread results
+	 */
+	@Test
+	void multipleThreads() {
+		List<double[]> points = createClustered(3, 4000, 8);
+
+		ConcurrencyOps.setMaxThreads(1);
+		StandardKMeans_MT_F64 single = process(points);
+
+		ConcurrencyOps.setMaxThreads(4);
+		StandardKMeans_MT_F64 foundA = process(points);
+		StandardKMeans_MT_F64 foundB = process(points);
+
+		assertEquals(foundA.getDistanceMeasure(), foundB.getDistanceMeasure());
+		assertEquals(single.getDistanceMeasure(), foundA.getDistanceMeasure(), 1e-6*single.getDistanceMeasure());
+		for (int i = 0; i < 8; i++) {
+			assertArrayEquals(foundA.getClusterMeans().get(i), foundB.getClusterMeans().get(i));
+			assertArrayEquals(single.getClusterMeans().get(i), foundA.getClusterMeans().get(i), 1e-8);
+		}
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(foundA.getPointLabels().get(i), foundB.getPointLabels().get(i));
+		}
+	}
+
+	private StandardKMeans_MT_F64 process( List<double[]> points ) {
+		StandardKMeans_MT_F64 alg = new StandardKMeans_MT_F64(40, 40, 1e-6, new InitializePlusPlus());
+		alg.minimumBlock = 100;
+		alg.init(3, 234);
+		alg.process(points, 8);
+		return alg;
+	}
+
+	private List<double[]> createClustered( int dof, int count, int numClusters ) {
+		Random rand = new Random(234);
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int cluster = rand.nextInt(numClusters);
+			double[] p = new double[dof];
+			for (int j = 0; j < dof; j++) {
+				p[j] = 20*((cluster >> j) & 1) + rand.nextGaussian();
+			}
+			points.add(p);
+		}
+		return points;
+	}
+
+	@Override
+	public ComputeClusters<double[]> createClustersAlg( boolean hint ) {
+		StandardKMeans_MT_F64 alg;
+		if( hint ) {
+			alg = new StandardKMeans_MT_F64(1000,1000, 1e-8, new TestStandardKMeans_F64.FixedSeeds());
+		} else {
+			alg = new StandardKMeans_MT_F64(1000,1000, 1e-8, new InitializeStandard_F64());
+		}
+		alg.minimumBlock = 5;
+		return alg;
+	}
+}
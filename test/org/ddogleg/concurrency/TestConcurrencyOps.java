@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.concurrency;
+
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestConcurrencyOps {
+	/**
+	 * Changing the number of threads should shut down the previous pool
+	 */
+	@Test
+	void setMaxThreads() {
+		int original = ConcurrencyOps.getMaxThreads();
+		try {
+			ConcurrencyOps.setMaxThreads(2);
+			ForkJoinPool first = ConcurrencyOps.getThreadPool();
+
+			// same number of threads so nothing should change
+			ConcurrencyOps.setMaxThreads(2);
+			assertSame(first, ConcurrencyOps.getThreadPool());
+			assertFalse(first.isShutdown());
+
+			ConcurrencyOps.setMaxThreads(3);
+			assertNotSame(first, ConcurrencyOps.getThreadPool());
+			assertTrue(first.isShutdown());
+			assertEquals(3, ConcurrencyOps.getMaxThreads());
+		} finally {
+			ConcurrencyOps.setMaxThreads(original);
+		}
+	}
+
+	@Test
+	void loopBlocks() {
+		int[] counts = new int[1003];
+		ConcurrencyOps.loopBlocks(3,counts.length,10,(idx0,idx1)->{
+			for (int i = idx0; i < idx1; i++) {
+				counts[i]++;
+			}
+		});
+
+		for (int i = 0; i < counts.length; i++) {
+			assertEquals(i < 3 ? 0 : 1, counts[i]);
+		}
+
+		// empty range should do nothing
+		ConcurrencyOps.loopBlocks(5,5,10,(idx0,idx1)-> fail("Should not be called"));
+	}
+
+	@Test
+	void loopBlocks_workspace() {
+		int[] counts = new int[1000];
+		FastQueue<GrowQueue_I32> workspace = new FastQueue<>(GrowQueue_I32::new);
+		ConcurrencyOps.loopBlocks(0,counts.length,10,workspace,(w,idx0,idx1)->{
+			for (int i = idx0; i < idx1; i++) {
+				counts[i]++;
+				w.add(i);
+			}
+		});
+
+		assertEquals(ConcurrencyOps.computeNumberOfBlocks(0,counts.length,10), workspace.size);
+		for (int i = 0; i < counts.length; i++) {
+			assertEquals(1, counts[i]);
+		}
+
+		// blocks should be assigned to workspace in order
+		int expected = 0;
+		for (int block = 0; block < workspace.size; block++) {
+			GrowQueue_I32 w = workspace.get(block);
+			for (int i = 0; i < w.size; i++) {
+				assertEquals(expected++, w.get(i));
+			}
+		}
+		assertEquals(counts.length, expected);
+	}
+
+	@Test
+	void computeNumberOfBlocks() {
+		int threads = ConcurrencyOps.getMaxThreads();
+		assertEquals(0, ConcurrencyOps.computeNumberOfBlocks(4,4,10));
+		assertEquals(1, ConcurrencyOps.computeNumberOfBlocks(0,5,10));
+		assertEquals(Math.min(threads,3), ConcurrencyOps.computeNumberOfBlocks(0,30,10));
+		assertEquals(threads, ConcurrencyOps.computeNumberOfBlocks(0,10000*threads,10));
+	}
+}
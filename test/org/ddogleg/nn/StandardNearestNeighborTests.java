@@ -19,15 +19,19 @@
 package org.ddogleg.nn;
 
 import org.ddogleg.nn.alg.ExhaustiveNeighbor;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F32;
 import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.nn.alg.distance.PackedEuclideanSq_F64;
 import org.ddogleg.struct.FastQueue;
 import org.ddogleg.struct.GrowQueue_F64;
 import org.ddogleg.struct.GrowQueue_I32;
+import org.ddogleg.struct.PackedTupleArray_F64;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -341,6 +345,52 @@ public abstract class StandardNearestNeighborTests {
 		}
 	}
 
+	@Test
+	void findWithinDistance_compareToNaive() {
+		for( int i = 0; i < 200; i++ ) {
+			int numPoints = 8 + rand.nextInt(100);
+			double maxDistance = rand.nextDouble()*2.0;
+
+			List<double[]> points = new ArrayList<>();
+			for( int j = 0; j < numPoints; j++ )
+				points.add(randPoint(2));
+
+			alg.setPoints(points,true);
+			NearestNeighbor.Search<double[]> search = alg.createSearch();
+
+			double[] where = randPoint(2);
+
+			search.findWithinDistance(where, maxDistance, foundN);
+
+			// find the expected points using brute force
+			int expected = 0;
+			for( int j = 0; j < numPoints; j++ ) {
+				if( distance.distance(points.get(j),where) <= maxDistance )
+					expected++;
+			}
+			assertEquals(expected, foundN.size);
+
+			for( int j = 0; j < foundN.size; j++ ) {
+				NnData<double[]> r = foundN.get(j);
+				assertSame(points.get(r.index), r.point);
+				assertEquals(distance.distance(r.point,where), r.distance, 1e-8);
+				assertTrue(r.distance <= maxDistance);
+				// each point should only be found once
+				for( int k = j+1; k < foundN.size; k++ ) {
+					assertNotEquals(r.index, foundN.get(k).index);
+				}
+			}
+		}
+
+		// negative distance means all the points should be found
+		List<double[]> points = new ArrayList<>();
+		for( int j = 0; j < 40; j++ )
+			points.add(randPoint(2));
+		alg.setPoints(points,true);
+		alg.createSearch().findWithinDistance(randPoint(2), -1, foundN);
+		assertEquals(40, foundN.size);
+	}
+
 	/**
 	 * Input data has duplicate values.  Make sure they are handled correctly
 	 */
@@ -416,4 +466,248 @@ public abstract class StandardNearestNeighborTests {
 			assertSame(results[i], r.point);
 		}
 	}
+
+	/**
+	 * Recording statistics should not change the results. If the search supports statistics then queries
+	 * should be recorded.
+	 */
+	@Test
+	void stats() {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			points.add(randPoint(2));
+		}
+		alg.setPoints(points,true);
+
+		NearestNeighbor.Search<double[]> searchA = alg.createSearch();
+		NearestNeighbor.Search<double[]> searchB = alg.createSearch();
+		NearestNeighborStats stats = new NearestNeighborStats();
+		searchB.setStats(stats);
+
+		FastQueue<NnData<double[]>> foundB = new FastQueue<>(NnData::new);
+		NnData<double[]> resultB = new NnData<>();
+		for (int i = 0; i < 20; i++) {
+			double[] target = randPoint(2);
+			assertTrue(searchA.findNearest(target, -1, found));
+			assertTrue(searchB.findNearest(target, -1, resultB));
+			assertEquals(found.index, resultB.index);
+			assertEquals(found.distance, resultB.distance);
+
+			searchA.findNearest(target, -1, 5, foundN);
+			searchB.findNearest(target, -1, 5, foundB);
+			assertEquals(foundN.size, foundB.size);
+			for (int j = 0; j < foundN.size; j++) {
+				assertEquals(foundN.get(j).distance, foundB.get(j).distance);
+			}
+		}
+
+		// not all implementations support statistics
+		if( searchB.getStats() == null )
+			return;
+
+		assertSame(stats, searchB.getStats());
+		assertEquals(40, stats.queries);
+		assertTrue(stats.distanceEvaluations > 0);
+		long total = 0;
+		for (int i = 0; i < stats.latencyHistogram.length; i++) {
+			total += stats.latencyHistogram[i];
+		}
+		assertEquals(40, total);
+
+		// turning it off should stop recording
+		searchB.setStats(null);
+		searchB.findNearest(randPoint(2), -1, resultB);
+		assertEquals(40, stats.queries);
+	}
+
+	/**
+	 * Compare batch results to searching for each point individually
+	 */
+	@Test
+	void batch_findNearest() {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			points.add(randPoint(2));
+		}
+		List<double[]> targets = new ArrayList<>();
+		for (int i = 0; i < 250; i++) {
+			targets.add(randPoint(2));
+		}
+
+		alg.setPoints(points,true);
+		NearestNeighborBatch<double[]> batch = new NearestNeighborBatch<>(alg);
+		batch.minimumBlock = 10;
+
+		int[] indexes = new int[targets.size()];
+		double[] distances = new double[targets.size()];
+		batch.findNearest(targets,0.01,indexes,distances);
+
+		NearestNeighbor.Search<double[]> search = alg.createSearch();
+		int totalMissed = 0;
+		for (int i = 0; i < targets.size(); i++) {
+			if( search.findNearest(targets.get(i),0.01,found) ) {
+				assertSame(points.get(indexes[i]), found.point);
+				assertEquals(found.distance, distances[i]);
+			} else {
+				totalMissed++;
+				assertEquals(-1, indexes[i]);
+				assertTrue(Double.isNaN(distances[i]));
+			}
+		}
+		// sanity check to make sure both code paths are tested
+		assertTrue(totalMissed > 0 && totalMissed < targets.size());
+	}
+
+	/**
+	 * Compare batch results to searching for each point individually
+	 */
+	@Test
+	void batch_findNearestN() {
+		int numNeighbors = 4;
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			points.add(randPoint(2));
+		}
+		List<double[]> targets = new ArrayList<>();
+		for (int i = 0; i < 250; i++) {
+			targets.add(randPoint(2));
+		}
+
+		alg.setPoints(points,true);
+		NearestNeighborBatch<double[]> batch = new NearestNeighborBatch<>(alg);
+		batch.minimumBlock = 10;
+
+		int[] indexes = new int[targets.size()*numNeighbors];
+		double[] distances = new double[targets.size()*numNeighbors];
+		batch.findNearest(targets,0.02,numNeighbors,indexes,distances);
+
+		NearestNeighbor.Search<double[]> search = alg.createSearch();
+		for (int i = 0; i < targets.size(); i++) {
+			search.findNearest(targets.get(i),0.02,numNeighbors,foundN);
+			int offset = i*numNeighbors;
+			for (int j = 0; j < numNeighbors; j++) {
+				if( j >= foundN.size ) {
+					assertEquals(-1, indexes[offset+j]);
+					assertTrue(Double.isNaN(distances[offset+j]));
+					continue;
+				}
+				// results should be sorted
+				if( j > 0 )
+					assertTrue(distances[offset+j-1] <= distances[offset+j]);
+
+				boolean matched = false;
+				for (int k = 0; k < foundN.size; k++) {
+					if( foundN.get(k).point == points.get(indexes[offset+j])) {
+						assertEquals(foundN.get(k).distance, distances[offset+j]);
+						matched = true;
+						break;
+					}
+				}
+				assertTrue(matched);
+			}
+		}
+	}
+
+	/**
+	 * Compares results when the points are packed into a single array against results when the points are in a list.
+	 * Results should be identical, except that the point isn't returned.
+	 *
+	 * @param packedAlg Algorithm which will search the packed points
+	 * @param setPoints Passes the packed points into packedAlg
+	 */
+	protected void checkPackedPoints( NearestNeighbor<double[]> packedAlg , Consumer<PackedEuclideanSq_F64> setPoints ) {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			points.add(randPoint(2));
+		}
+		PackedTupleArray_F64 packed = new PackedTupleArray_F64(2);
+		packed.setTo(points);
+
+		alg.setPoints(points,true);
+		setPoints.accept(new PackedEuclideanSq_F64(packed));
+
+		NearestNeighbor.Search<double[]> searchList = alg.createSearch();
+		NearestNeighbor.Search<double[]> searchPacked = packedAlg.createSearch();
+
+		NnData<double[]> foundPacked = new NnData<>();
+		FastQueue<NnData<double[]>> foundPackedN = new FastQueue<>(NnData::new);
+
+		for (int trial = 0; trial < 50; trial++) {
+			double[] target = randPoint(2);
+
+			assertTrue(searchList.findNearest(target,-1,found));
+			assertTrue(searchPacked.findNearest(target,-1,foundPacked));
+			assertEquals(found.index, foundPacked.index);
+			assertEquals(found.distance, foundPacked.distance, 1e-8);
+			assertNull(foundPacked.point);
+
+			searchList.findNearest(target,-1,5,foundN);
+			searchPacked.findNearest(target,-1,5,foundPackedN);
+			assertEquals(foundN.size, foundPackedN.size);
+			for (int i = 0; i < foundN.size; i++) {
+				assertEquals(foundN.get(i).index, foundPackedN.get(i).index);
+				assertEquals(foundN.get(i).distance, foundPackedN.get(i).distance, 1e-8);
+			}
+		}
+	}
+
+	/**
+	 * Checks an algorithm which processes float[] points by comparing its results against an exhaustive search
+	 */
+	public static void checkFloatAgainstExhaustive( NearestNeighbor<float[]> alg , int dof ) {
+		Random rand = new Random(234);
+		List<float[]> points = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			points.add(randFloat(rand,dof));
+		}
+
+		NearestNeighbor<float[]> exhaustive = FactoryNearestNeighbor.exhaustive(new KdTreeEuclideanSq_F32(dof));
+		exhaustive.setPoints(points,true);
+		alg.setPoints(points,true);
+
+		NearestNeighbor.Search<float[]> searchE = exhaustive.createSearch();
+		NearestNeighbor.Search<float[]> searchA = alg.createSearch();
+
+		NnData<float[]> expected = new NnData<>();
+		NnData<float[]> found = new NnData<>();
+		FastQueue<NnData<float[]>> expectedN = new FastQueue<>(NnData::new);
+		FastQueue<NnData<float[]>> foundN = new FastQueue<>(NnData::new);
+
+		for (int trial = 0; trial < 50; trial++) {
+			float[] target = randFloat(rand,dof);
+
+			assertTrue(searchE.findNearest(target,-1,expected));
+			assertTrue(searchA.findNearest(target,-1,found));
+			assertSame(expected.point, found.point);
+			assertEquals(expected.index, found.index);
+			assertEquals(expected.distance, found.distance, 1e-4);
+
+			searchE.findNearest(target,-1,5,expectedN);
+			searchA.findNearest(target,-1,5,foundN);
+			assertEquals(expectedN.size, foundN.size);
+			for (int i = 0; i < expectedN.size; i++) {
+				boolean matched = false;
+				for (int j = 0; j < foundN.size; j++) {
+					if( expectedN.get(i).point == foundN.get(j).point ) {
+						matched = true;
+						break;
+					}
+				}
+				assertTrue(matched);
+			}
+
+			double radius = rand.nextDouble()*dof*0.5;
+			searchE.findWithinDistance(target,radius,expectedN);
+			searchA.findWithinDistance(target,radius,foundN);
+			assertEquals(expectedN.size, foundN.size);
+		}
+	}
+
+	private static float[] randFloat( Random rand , int dof ) {
+		float[] p = new float[dof];
+		for (int i = 0; i < dof; i++) {
+			p[i] = (float)rand.nextGaussian();
+		}
+		return p;
+	}
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestAssociateNearestNeighbor {
+	Random rand = new Random(234);
+	KdTreeEuclideanSq_F64 distance = new KdTreeEuclideanSq_F64(3);
+
+	/**
+	 * Destination is a shuffled and noisy copy of the source. Everything should be matched correctly.
+	 */
+	@Test
+	void perfectMatches() {
+		List<double[]> src = createPoints(300);
+		List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < src.size(); i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, rand);
+		List<double[]> dst = new ArrayList<>();
+		for (int i = 0; i < src.size(); i++) {
+			double[] p = src.get(order.get(i)).clone();
+			p[0] += rand.nextGaussian()*1e-4;
+			dst.add(p);
+		}
+
+		AssociateNearestNeighbor<double[]> alg = create();
+		alg.ratioTest = 0.8;
+		alg.setSource(src);
+		alg.setDestination(dst);
+		alg.associate();
+
+		assertEquals(src.size(), alg.getMatchSrc().size);
+		for (int i = 0; i < alg.getMatchSrc().size; i++) {
+			// sorted by source
+			assertEquals(i, alg.getMatchSrc().get(i));
+			int dstIdx = alg.getMatchDst().get(i);
+			assertEquals(i, (int)order.get(dstIdx));
+			assertEquals(distance.distance(src.get(i),dst.get(dstIdx)), alg.getMatchDistance().get(i), 1e-12);
+		}
+	}
+
+	/**
+	 * Two sources have the same best destination. Only the closest one passes the mutual check.
+	 */
+	@Test
+	void mutual() {
+		List<double[]> src = new ArrayList<>();
+		src.add(new double[]{0,0,0});
+		src.add(new double[]{0.2,0,0});
+		List<double[]> dst = new ArrayList<>();
+		dst.add(new double[]{0.15,0,0});
+		dst.add(new double[]{10,0,0});
+
+		AssociateNearestNeighbor<double[]> alg = create();
+		alg.setSource(src);
+		alg.setDestination(dst);
+		alg.associate();
+		assertEquals(1, alg.getMatchSrc().size);
+		assertEquals(1, alg.getMatchSrc().get(0));
+		assertEquals(0, alg.getMatchDst().get(0));
+
+		alg.checkMutual = false;
+		alg.associate();
+		assertEquals(2, alg.getMatchSrc().size);
+	}
+
+	/**
+	 * The two closest destinations are about the same distance away and should be rejected
+	 */
+	@Test
+	void ratio() {
+		List<double[]> src = new ArrayList<>();
+		src.add(new double[]{0,0,0});
+		src.add(new double[]{5,0,0});
+		List<double[]> dst = new ArrayList<>();
+		dst.add(new double[]{1,0,0});
+		dst.add(new double[]{-1.1,0,0});
+		dst.add(new double[]{5.1,0,0});
+
+		AssociateNearestNeighbor<double[]> alg = create();
+		alg.checkMutual = false;
+		alg.setSource(src);
+		alg.setDestination(dst);
+		alg.associate();
+		assertEquals(2, alg.getMatchSrc().size);
+
+		alg.ratioTest = 0.8;
+		alg.associate();
+		assertEquals(1, alg.getMatchSrc().size);
+		assertEquals(1, alg.getMatchSrc().get(0));
+		assertEquals(2, alg.getMatchDst().get(0));
+
+		// max distance should be enforced
+		alg.ratioTest = 1.0;
+		alg.maxDistance = 0.5;
+		alg.associate();
+		assertEquals(1, alg.getMatchSrc().size);
+		assertEquals(1, alg.getMatchSrc().get(0));
+	}
+
+	/**
+	 * Results should not depend on the number of threads
+	 */
+	@Test
+	void numberOfThreads() {
+		List<double[]> src = createPoints(500);
+		List<double[]> dst = createPoints(400);
+
+		AssociateNearestNeighbor<double[]> expected = create();
+		expected.ratioTest = 0.9;
+		expected.setSource(src);
+		expected.setDestination(dst);
+
+		int maxThreads = ConcurrencyOps.getMaxThreads();
+		try {
+			ConcurrencyOps.setMaxThreads(1);
+			expected.associate();
+
+			ConcurrencyOps.setMaxThreads(4);
+			AssociateNearestNeighbor<double[]> found = create();
+			found.ratioTest = 0.9;
+			found.setMinimumBlock(10);
+			found.setSource(src);
+			found.setDestination(dst);
+			found.associate();
+
+			assertTrue(expected.getMatchSrc().size > 0);
+			assertEquals(expected.getMatchSrc().size, found.getMatchSrc().size);
+			for (int i = 0; i < found.getMatchSrc().size; i++) {
+				assertEquals(expected.getMatchSrc().get(i), found.getMatchSrc().get(i));
+				assertEquals(expected.getMatchDst().get(i), found.getMatchDst().get(i));
+			}
+		} finally {
+			ConcurrencyOps.setMaxThreads(maxThreads);
+		}
+	}
+
+	@Test
+	void empty() {
+		AssociateNearestNeighbor<double[]> alg = create();
+		alg.setSource(createPoints(10));
+		alg.setDestination(new ArrayList<>());
+		alg.associate();
+		assertEquals(0, alg.getMatchSrc().size);
+	}
+
+	private AssociateNearestNeighbor<double[]> create() {
+		return new AssociateNearestNeighbor<>(() -> FactoryNearestNeighbor.kdtree(distance));
+	}
+
+	private List<double[]> createPoints( int count ) {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			points.add(new double[]{rand.nextDouble(),rand.nextDouble(),rand.nextDouble()});
+		}
+		return points;
+	}
+}
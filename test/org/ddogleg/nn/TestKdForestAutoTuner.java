@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.nn.wrap.KdForestBbfNearestNeighbor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestKdForestAutoTuner {
+	Random rand = new Random(234);
+	int N = 6;
+	KdTreeEuclideanSq_F64 distance = new KdTreeEuclideanSq_F64(N);
+
+	List<double[]> points = createPoints(2000);
+	List<double[]> queries = createPoints(100);
+
+	/**
+	 * The selected configuration should reach the target and the returned search should have the same recall
+	 */
+	@Test
+	void reachTarget() {
+		KdForestAutoTuner<double[]> alg = new KdForestAutoTuner<>(distance);
+		alg.targetRecall = 0.9;
+		alg.candidateTrees = new int[]{1,3};
+		alg.candidateSplitK = new int[]{1,4,20};
+		alg.timingTrials = 1;
+
+		KdForestBbfNearestNeighbor<double[]> found = alg.tune(points, queries);
+
+		assertTrue(alg.isTargetReached());
+		assertTrue(alg.getRecall() >= 0.9);
+		assertTrue(alg.getNumTrees() == 1 || alg.getNumTrees() == 3);
+		assertTrue(alg.getSplitK() == 1 || alg.getSplitK() == 4);
+		assertTrue(alg.getMaxNodesSearched() >= alg.minNodes);
+		assertTrue(alg.getQueryTimeNano() > 0);
+		assertEquals(alg.getNumTrees(), found.getForest().length);
+
+		// the returned search should produce the same recall on the queries
+		assertEquals(alg.getRecall(), computeRecall(found), 1e-8);
+	}
+
+	/**
+	 * If the target can't be reached then the configuration with the best recall should be returned
+	 */
+	@Test
+	void targetNotReached() {
+		KdForestAutoTuner<double[]> alg = new KdForestAutoTuner<>(distance);
+		alg.targetRecall = 1.0;
+		alg.candidateTrees = new int[]{1};
+		alg.candidateSplitK = new int[]{1};
+		alg.minNodes = 1;
+		alg.maxNodes = 2;
+		alg.timingTrials = 1;
+
+		KdForestBbfNearestNeighbor<double[]> found = alg.tune(points, queries);
+		assertFalse(alg.isTargetReached());
+		assertEquals(2, alg.getMaxNodesSearched());
+		assertEquals(alg.getRecall(), computeRecall(found), 1e-8);
+	}
+
+	@Test
+	void noValidSplitK() {
+		KdForestAutoTuner<double[]> alg = new KdForestAutoTuner<>(distance);
+		alg.candidateSplitK = new int[]{N+1};
+		assertThrows(IllegalArgumentException.class, () -> alg.tune(points, queries));
+	}
+
+	private double computeRecall( NearestNeighbor<double[]> nn ) {
+		NearestNeighbor<double[]> exhaustive = FactoryNearestNeighbor.exhaustive(distance);
+		exhaustive.setPoints(points, true);
+		NearestNeighbor.Search<double[]> searchE = exhaustive.createSearch();
+		NearestNeighbor.Search<double[]> search = nn.createSearch();
+
+		NnData<double[]> expected = new NnData<>();
+		NnData<double[]> found = new NnData<>();
+		int correct = 0;
+		for (int i = 0; i < queries.size(); i++) {
+			assertTrue(searchE.findNearest(queries.get(i), -1, expected));
+			if( search.findNearest(queries.get(i), -1, found) && found.distance <= expected.distance )
+				correct++;
+		}
+		return correct/(double)queries.size();
+	}
+
+	private List<double[]> createPoints( int count ) {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			double[] p = new double[N];
+			for (int j = 0; j < N; j++) {
+				p[j] = rand.nextGaussian();
+			}
+			points.add(p);
+		}
+		return points;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Peter Abeles
+ */
+class TestNearestNeighborStats {
+	@Test
+	void latencyBin() {
+		assertEquals(0, NearestNeighborStats.latencyBin(0));
+		assertEquals(0, NearestNeighborStats.latencyBin(1));
+		assertEquals(1, NearestNeighborStats.latencyBin(2));
+		assertEquals(1, NearestNeighborStats.latencyBin(3));
+		assertEquals(2, NearestNeighborStats.latencyBin(4));
+		assertEquals(10, NearestNeighborStats.latencyBin(1024));
+		assertEquals(62, NearestNeighborStats.latencyBin(Long.MAX_VALUE));
+	}
+
+	@Test
+	void recordQuery() {
+		NearestNeighborStats alg = new NearestNeighborStats();
+		alg.recordQuery(100);
+		alg.recordQuery(300);
+
+		assertEquals(2, alg.queries);
+		assertEquals(400, alg.latencyTotalNano);
+		assertEquals(200.0, alg.getMeanLatencyNano(), 1e-8);
+		assertEquals(1, alg.latencyHistogram[6]);
+		assertEquals(1, alg.latencyHistogram[8]);
+	}
+
+	@Test
+	void getLatencyPercentileNano() {
+		NearestNeighborStats alg = new NearestNeighborStats();
+		assertEquals(0, alg.getLatencyPercentileNano(0.5));
+
+		for (int i = 0; i < 90; i++) {
+			alg.recordQuery(5);
+		}
+		for (int i = 0; i < 10; i++) {
+			alg.recordQuery(1000);
+		}
+
+		assertEquals(7, alg.getLatencyPercentileNano(0.5));
+		assertEquals(7, alg.getLatencyPercentileNano(0.9));
+		assertEquals(1023, alg.getLatencyPercentileNano(0.91));
+		assertEquals(1023, alg.getLatencyPercentileNano(1.0));
+	}
+
+	@Test
+	void add_reset() {
+		NearestNeighborStats a = new NearestNeighborStats();
+		a.nodesVisited = 1;
+		a.distanceEvaluations = 2;
+		a.leafHits = 3;
+		a.heapPushes = 4;
+		a.earlyTerminations = 5;
+		a.recordQuery(10);
+
+		NearestNeighborStats b = a.copy();
+		b.add(a);
+		assertEquals(2, b.queries);
+		assertEquals(2, b.nodesVisited);
+		assertEquals(4, b.distanceEvaluations);
+		assertEquals(6, b.leafHits);
+		assertEquals(8, b.heapPushes);
+		assertEquals(10, b.earlyTerminations);
+		assertEquals(20, b.latencyTotalNano);
+		assertEquals(2, b.latencyHistogram[3]);
+
+		b.reset();
+		assertEquals(0, b.queries);
+		assertEquals(0, b.nodesVisited);
+		assertEquals(0, b.distanceEvaluations);
+		assertEquals(0, b.leafHits);
+		assertEquals(0, b.heapPushes);
+		assertEquals(0, b.earlyTerminations);
+		assertEquals(0, b.latencyTotalNano);
+		assertEquals(0, b.latencyHistogram[3]);
+	}
+}
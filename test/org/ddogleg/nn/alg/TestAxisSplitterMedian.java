@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -25,9 +25,11 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.ddogleg.nn.alg.TestKdTreeConstructor.createPoints;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -148,6 +150,60 @@ public class TestAxisSplitterMedian {
 		assertEquals(1.1,right.get(0)[0],1e-8);
 	}
 
+	/**
+	 * Compares the in-place split against the results from the list based split
+	 */
+	@Test
+	public void splitDataInPlace() {
+		Random rand = new Random(234);
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			points.add(new double[]{rand.nextGaussian(),rand.nextGaussian()});
+		}
+		int lower = 5, upper = 26;
+
+		GrowQueue_I32 indexes = new GrowQueue_I32();
+		for (int i = 0; i < points.size(); i++) {
+			indexes.add(i*2);
+		}
+		GrowQueue_I32 subIndexes = new GrowQueue_I32();
+		subIndexes.setTo(indexes.data,lower,upper-lower);
+
+		AxisSplitterMedian<double[]> expected = new AxisSplitterMedian<>(distance);
+		expected.splitData(points.subList(lower,upper),subIndexes,left,leftData,right,rightData);
+
+		List<double[]> original = new ArrayList<>(points);
+		AxisSplitterMedian<double[]> alg = new AxisSplitterMedian<>(distance);
+		int numLeft = alg.splitDataInPlace(points,indexes,lower,upper);
+
+		assertEquals(left.size(), numLeft);
+		assertEquals(expected.getSplitAxis(), alg.getSplitAxis());
+		assertSame(expected.getSplitPoint(), alg.getSplitPoint());
+		assertEquals(expected.getSplitIndex(), alg.getSplitIndex());
+
+		// points outside the range should not be modified
+		for (int i = 0; i < lower; i++) {
+			assertSame(original.get(i), points.get(i));
+			assertEquals(i*2, indexes.get(i));
+		}
+		for (int i = upper; i < points.size(); i++) {
+			assertSame(original.get(i), points.get(i));
+			assertEquals(i*2, indexes.get(i));
+		}
+
+		// should be left, split, then right in the same order
+		for (int i = 0; i < numLeft; i++) {
+			assertSame(left.get(i), points.get(lower+i));
+			assertEquals(leftData.get(i), indexes.get(lower+i));
+		}
+		assertSame(alg.getSplitPoint(), points.get(lower+numLeft));
+		assertEquals(alg.getSplitIndex(), indexes.get(lower+numLeft));
+		for (int i = 0; i < right.size(); i++) {
+			assertSame(right.get(i), points.get(lower+numLeft+1+i));
+			assertEquals(rightData.get(i), indexes.get(lower+numLeft+1+i));
+		}
+	}
+
 	@Test
 	public void checkRuleSetCalled() {
 		DummyRule rule = new DummyRule(2);
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.distance.MetricHamming_I64;
+import org.ddogleg.struct.FastQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestExhaustiveHamming_I64 {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Batch search should produce the same results as searching one query at a time
+	 */
+	@Test
+	void batchMatchesSingle() {
+		List<long[]> points = createDescriptors(rand,301,3);
+		List<long[]> queries = createDescriptors(rand,45,3);
+
+		FastQueue<NnData<long[]>> found = new FastQueue<>(NnData::new);
+
+		for( int tileElements : new int[]{1,50,4096} ) {
+			for( int numNeighbors : new int[]{1,5,20} ) {
+				for( double maxDistance : new double[]{-1,80} ) {
+					ExhaustiveHamming_I64 alg = new ExhaustiveHamming_I64();
+					alg.tileElements = tileElements;
+					alg.setPoints(points,true);
+					NearestNeighbor.Search<long[]> search = alg.createSearch();
+
+					int[] indexes = new int[queries.size()*numNeighbors];
+					double[] distances = new double[queries.size()*numNeighbors];
+					alg.findNearest(queries,maxDistance,numNeighbors,indexes,distances);
+
+					for (int i = 0; i < queries.size(); i++) {
+						search.findNearest(queries.get(i),maxDistance,numNeighbors,found);
+						int offset = i*numNeighbors;
+						for (int j = 0; j < numNeighbors; j++) {
+							if( j >= found.size ) {
+								assertEquals(-1, indexes[offset+j]);
+								assertTrue(Double.isNaN(distances[offset+j]));
+								continue;
+							}
+							assertEquals(found.get(j).index, indexes[offset+j]);
+							assertEquals(found.get(j).distance, distances[offset+j]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compare the single search against brute force
+	 */
+	/**
+	 * The number of elements in the packed array would overflow an int. This should be caught before anything
+	 * is allocated.
+	 */
+	@Test
+	void setPoints_tooLarge() {
+		long[] descriptor = new long[16];
+		List<long[]> points = new AbstractList<long[]>() {
+			@Override
+			public long[] get( int index ) {
+				return descriptor;
+			}
+
+			@Override
+			public int size() {
+				return 1 << 28;
+			}
+		};
+
+		ExhaustiveHamming_I64 alg = new ExhaustiveHamming_I64();
+		assertThrows(IllegalArgumentException.class, () -> alg.setPoints(points,true));
+	}
+
+	@Test
+	void findNearest() {
+		List<long[]> points = createDescriptors(rand,200,4);
+		ExhaustiveHamming_I64 alg = new ExhaustiveHamming_I64();
+		alg.setPoints(points,true);
+		NearestNeighbor.Search<long[]> search = alg.createSearch();
+
+		NnData<long[]> result = new NnData<>();
+		FastQueue<NnData<long[]>> found = new FastQueue<>(NnData::new);
+		for (int trial = 0; trial < 20; trial++) {
+			long[] query = createDescriptors(rand,1,4).get(0);
+
+			int[] sorted = sortedDistances(points,query);
+			assertTrue(search.findNearest(query,-1,result));
+			assertEquals(sorted[0], result.distance);
+			assertEquals(sorted[0], MetricHamming_I64.hamming(query,result.point));
+
+			search.findNearest(query,-1,6,found);
+			assertEquals(6, found.size);
+			for (int i = 0; i < found.size; i++) {
+				assertEquals(sorted[i], found.get(i).distance);
+			}
+
+			// neighbors must be less than or equal to the max distance
+			assertFalse(search.findNearest(query,sorted[0]-1,result));
+			assertTrue(search.findNearest(query,sorted[0],result));
+
+			search.findWithinDistance(query,sorted[10],found);
+			int expected = 0;
+			while( expected < sorted.length && sorted[expected] <= sorted[10] )
+				expected++;
+			assertEquals(expected, found.size);
+		}
+	}
+
+	public static int[] sortedDistances( List<long[]> points , long[] query ) {
+		int[] sorted = new int[points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			sorted[i] = MetricHamming_I64.hamming(query,points.get(i));
+		}
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	public static List<long[]> createDescriptors( Random rand , int count , int words ) {
+		List<long[]> list = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			long[] d = new long[words];
+			for (int j = 0; j < words; j++) {
+				d[j] = rand.nextLong();
+			}
+			list.add(d);
+		}
+		return list;
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -156,6 +156,30 @@ public class TestExhaustiveNeighbor {
 		checkContains(3,outputIndex);
 	}
 
+	@Test
+	public void findWithinDistance() {
+		List<double[]> list = TestKdTreeConstructor.createPoints(2,  1,2,  3,4 , 4,5, 6,7 , 8,9 );
+
+		ExhaustiveNeighbor<double[]> alg = new ExhaustiveNeighbor<>(distance);
+		alg.setPoints(list);
+
+		GrowQueue_I32 outputIndex = new GrowQueue_I32();
+		GrowQueue_F64 outputDistance = new GrowQueue_F64();
+
+		// (6,7) is exactly 8 away, which is inclusive
+		alg.findWithinDistance(new double[]{4, 5}, 8, outputIndex, outputDistance);
+
+		assertEquals(3,outputIndex.size);
+		assertEquals(3,outputDistance.size);
+
+		checkContains(1,outputIndex);
+		checkContains(2,outputIndex);
+		checkContains(3,outputIndex);
+		for (int i = 0; i < outputIndex.size; i++) {
+			assertEquals(distance.distance(list.get(outputIndex.get(i)),new double[]{4,5}),outputDistance.get(i),1e-8);
+		}
+	}
+
 	/**
 	 * Make sure it works after multiple calls
 	 */
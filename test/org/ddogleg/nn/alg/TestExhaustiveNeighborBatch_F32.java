@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.alg.distance.PackedEuclideanSq_F32;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+import org.ddogleg.struct.PackedTupleArray_F32;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestExhaustiveNeighborBatch_F32 {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Compare against the single query exhaustive search for different tile sizes and number of neighbors
+	 */
+	@Test
+	void compareToExhaustive() {
+		int dof = 7;
+		PackedTupleArray_F32 points = createPoints(301,dof);
+		PackedTupleArray_F32 queries = createPoints(45,dof);
+
+		ExhaustiveNeighbor<float[]> exhaustive = new ExhaustiveNeighbor<>();
+		exhaustive.setPoints(new PackedEuclideanSq_F32(points));
+
+		GrowQueue_I32 expectedIndexes = new GrowQueue_I32();
+		GrowQueue_F64 expectedDistances = new GrowQueue_F64();
+
+		for( int tileElements : new int[]{1,50,4096} ) {
+			for( int numNeighbors : new int[]{1,5,20} ) {
+				for( double maxDistance : new double[]{-1,5} ) {
+					ExhaustiveNeighborBatch_F32 alg = new ExhaustiveNeighborBatch_F32();
+					alg.tileElements = tileElements;
+					alg.setPoints(points);
+
+					int[] indexes = new int[queries.size*numNeighbors];
+					double[] distances = new double[queries.size*numNeighbors];
+					alg.findNearest(queries,maxDistance,numNeighbors,indexes,distances);
+
+					for (int i = 0; i < queries.size; i++) {
+						float[] q = queries.getCopy(i,null);
+						expectedIndexes.reset();
+						expectedDistances.reset();
+						exhaustive.findClosestN(q,maxDistance < 0 ? Double.MAX_VALUE : maxDistance,
+								numNeighbors,expectedIndexes,expectedDistances);
+
+						int offset = i*numNeighbors;
+						for (int j = 0; j < numNeighbors; j++) {
+							if( j >= expectedIndexes.size ) {
+								assertEquals(-1, indexes[offset+j]);
+								assertTrue(Double.isNaN(distances[offset+j]));
+								continue;
+							}
+							// should be sorted
+							if( j > 0 )
+								assertTrue(distances[offset+j-1] <= distances[offset+j]);
+							assertTrue(expectedIndexes.contains(indexes[offset+j]));
+							assertEquals(distance(q,points.getCopy(indexes[offset+j],null)), distances[offset+j], 1e-4);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Ask for more neighbors than there are points
+	 */
+	@Test
+	void tooManyNeighbors() {
+		PackedTupleArray_F32 points = createPoints(3,2);
+		PackedTupleArray_F32 queries = createPoints(2,2);
+
+		ExhaustiveNeighborBatch_F32 alg = new ExhaustiveNeighborBatch_F32();
+		alg.setPoints(points);
+
+		int[] indexes = new int[10];
+		alg.findNearest(queries,-1,5,indexes,null);
+
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < 5; j++) {
+				if( j < 3 )
+					assertTrue(indexes[i*5+j] >= 0);
+				else
+					assertEquals(-1, indexes[i*5+j]);
+			}
+		}
+	}
+
+	@Test
+	void badArguments() {
+		ExhaustiveNeighborBatch_F32 alg = new ExhaustiveNeighborBatch_F32();
+		alg.setPoints(createPoints(3,2));
+		PackedTupleArray_F32 queries = createPoints(2,2);
+
+		assertThrows(IllegalArgumentException.class,()->alg.findNearest(queries,-1,0,new int[4],null));
+		assertThrows(IllegalArgumentException.class,()->alg.findNearest(queries,-1,2,new int[3],null));
+		assertThrows(IllegalArgumentException.class,()->alg.findNearest(createPoints(2,3),-1,1,new int[2],null));
+	}
+
+	private static double distance( float[] a , float[] b ) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += (a[i]-b[i])*(a[i]-b[i]);
+		}
+		return sum;
+	}
+
+	private PackedTupleArray_F32 createPoints( int count , int dof ) {
+		PackedTupleArray_F32 points = new PackedTupleArray_F32(dof);
+		float[] p = new float[dof];
+		for (int i = 0; i < count; i++) {
+			for (int j = 0; j < dof; j++) {
+				p[j] = (float)rand.nextGaussian();
+			}
+			points.append(p);
+		}
+		return points;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.clustering.kmeans.InitializePlusPlus;
+import org.ddogleg.clustering.kmeans.StandardKMeans_F64;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestKMeansTreeConstructor {
+
+	Random rand = new Random(234);
+
+	KdTreeDistance<double[]> distance = new KdTreeEuclideanSq_F64(2);
+
+	@Test
+	public void construct_sizes() {
+		KMeansTreeConstructor<double[]> alg = createAlg(3,5);
+
+		List<double[]> points = new ArrayList<>();
+		KMeansTree tree = alg.construct(points);
+		assertEquals(0, tree.numPoints);
+		assertNull(tree.getRoot());
+
+		// too few points to be split
+		for (int i = 0; i < 5; i++) {
+			points.add(new double[]{rand.nextGaussian(),rand.nextGaussian()});
+		}
+		tree = alg.construct(points);
+		assertEquals(1, tree.nodes.size);
+		assertTrue(tree.getRoot().isLeaf());
+		assertEquals(5, tree.getRoot().pointEnd);
+
+		// now it must be split
+		points.add(new double[]{rand.nextGaussian(),rand.nextGaussian()});
+		tree = alg.construct(points);
+		assertFalse(tree.getRoot().isLeaf());
+		checkNode(tree,0,5);
+	}
+
+	@Test
+	public void construct_random() {
+		KMeansTreeConstructor<double[]> alg = createAlg(4,6);
+
+		for (int numPoints = 10; numPoints < 400; numPoints += 63) {
+			List<double[]> points = new ArrayList<>();
+			for (int i = 0; i < numPoints; i++) {
+				points.add(new double[]{rand.nextGaussian(), rand.nextGaussian()});
+			}
+
+			KMeansTree tree = alg.construct(points);
+			assertEquals(numPoints, tree.numPoints);
+
+			// every point should be in the tree once
+			boolean[] found = new boolean[numPoints];
+			for (int i = 0; i < numPoints; i++) {
+				assertFalse(found[tree.indexes[i]]);
+				found[tree.indexes[i]] = true;
+			}
+
+			checkNode(tree,0,6);
+			checkRadius(tree,points);
+		}
+
+		// the copy of the points should not be kept after the tree has been constructed
+		assertNull(alg.workPoints);
+	}
+
+	/**
+	 * If all the points are identical they can't be split and it should stop
+	 */
+	@Test
+	public void construct_duplicates() {
+		KMeansTreeConstructor<double[]> alg = createAlg(3,3);
+
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			points.add(new double[]{1,2});
+		}
+
+		KMeansTree tree = alg.construct(points);
+		assertEquals(1, tree.nodes.size);
+		assertEquals(20, tree.getRoot().pointEnd);
+	}
+
+	/**
+	 * Recursively checks that children are inside their parent and leaves are small enough
+	 */
+	private void checkNode( KMeansTree tree , int nodeIndex , int maxLeafSize ) {
+		KMeansTree.Node node = tree.nodes.get(nodeIndex);
+		if( node.isLeaf() ) {
+			assertTrue(node.pointEnd-node.pointStart <= maxLeafSize);
+			return;
+		}
+
+		int location = node.pointStart;
+		for (int i = 0; i < node.childCount; i++) {
+			KMeansTree.Node child = tree.nodes.get(node.childStart+i);
+			assertEquals(location, child.pointStart);
+			assertTrue(child.pointEnd > child.pointStart);
+			location = child.pointEnd;
+			checkNode(tree,node.childStart+i,maxLeafSize);
+		}
+		assertEquals(node.pointEnd, location);
+	}
+
+	/**
+	 * Every point inside a node must be within the node's radius of its center
+	 */
+	private void checkRadius( KMeansTree tree , List<double[]> points ) {
+		for (int i = 1; i < tree.nodes.size; i++) {
+			KMeansTree.Node node = tree.nodes.get(i);
+			double farthest = 0;
+			for (int j = node.pointStart; j < node.pointEnd; j++) {
+				double d = Math.sqrt(KMeansTreeConstructor.distanceSq(points.get(tree.indexes[j]),node.center));
+				assertTrue(d <= node.radius + 1e-8);
+				farthest = Math.max(farthest,d);
+			}
+			assertEquals(farthest, node.radius, 1e-8);
+		}
+	}
+
+	private KMeansTreeConstructor<double[]> createAlg( int branchFactor , int maxLeafSize ) {
+		StandardKMeans_F64 kmeans = new StandardKMeans_F64(20,20,1e-4,new InitializePlusPlus());
+		return new KMeansTreeConstructor<>(distance,branchFactor,maxLeafSize,kmeans,234);
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestKdTreeConstructor_MT {
+
+	Random rand = new Random(234);
+
+	KdTreeDistance<double[]> distance = new KdTreeEuclideanSq_F64(3);
+
+	/**
+	 * The constructed tree should be identical to the single threaded version
+	 */
+	@Test
+	public void compareToSingleThread() {
+		for( boolean trackIndexes : new boolean[]{false,true}) {
+			for (int numPoints : new int[]{0, 1, 2, 3, 50, 501}) {
+				List<double[]> points = new ArrayList<>();
+				for (int i = 0; i < numPoints; i++) {
+					points.add(new double[]{rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian()});
+				}
+				// add duplicates
+				for (int i = 0; i < numPoints/10; i++) {
+					points.add(points.get(rand.nextInt(numPoints)).clone());
+				}
+
+				KdTreeConstructor<double[]> expected = new KdTreeConstructor<>(distance);
+				KdTreeConstructor_MT<double[]> alg = new KdTreeConstructor_MT<>(distance);
+				// make sure it will use multiple threads
+				alg.minimumConcurrent = 20;
+
+				KdTree treeExpected = expected.construct(points, trackIndexes);
+				KdTree found = alg.construct(points, trackIndexes);
+
+				assertEquals(treeExpected.N, found.N);
+				compareNodes(treeExpected.root, found.root);
+			}
+		}
+	}
+
+	/**
+	 * Makes sure the input list isn't modified
+	 */
+	@Test
+	public void inputNotModified() {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			points.add(new double[]{rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian()});
+		}
+		List<double[]> copy = new ArrayList<>(points);
+
+		KdTreeConstructor_MT<double[]> alg = new KdTreeConstructor_MT<>(distance);
+		alg.minimumConcurrent = 10;
+		alg.construct(points,true);
+
+		for (int i = 0; i < points.size(); i++) {
+			assertSame(copy.get(i), points.get(i));
+		}
+	}
+
+	private void compareNodes( KdTree.Node expected , KdTree.Node found ) {
+		if( expected == null ) {
+			assertNull(found);
+			return;
+		}
+		assertNotNull(found);
+		assertSame(expected.point, found.point);
+		assertEquals(expected.index, found.index);
+		assertEquals(expected.split, found.split);
+		compareNodes(expected.left, found.left);
+		compareNodes(expected.right, found.right);
+	}
+}
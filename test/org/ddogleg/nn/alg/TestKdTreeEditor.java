@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestKdTreeEditor {
+
+	Random rand = new Random(234);
+	KdTreeDistance<double[]> distance = new KdTreeEuclideanSq_F64(2);
+
+	@Test
+	void add_emptyTree() {
+		KdTreeMemory<double[]> memory = new KdTreeMemory<>();
+		KdTreeEditor<double[]> alg = new KdTreeEditor<>(distance,memory);
+		KdTree tree = memory.requestTree(2);
+		alg.setTree(tree,0);
+
+		for (int i = 0; i < 200; i++) {
+			assertEquals(i, alg.add(randomPoint()));
+		}
+		assertEquals(200, alg.size());
+		checkTree(alg);
+	}
+
+	@Test
+	void add_existingTree() {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			points.add(randomPoint());
+		}
+		KdTreeMemory<double[]> memory = new KdTreeMemory<>();
+		KdTreeConstructor<double[]> constructor = new KdTreeConstructor<>(memory,new AxisSplitterMedian<>(distance));
+		KdTree tree = constructor.construct(points,true);
+
+		KdTreeEditor<double[]> alg = new KdTreeEditor<>(distance,memory);
+		alg.setTree(tree,points.size());
+		assertEquals(50, alg.size());
+		for (int i = 0; i < 50; i++) {
+			assertSame(points.get(i), alg.getNode(i).point);
+		}
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(50+i, alg.add(randomPoint()));
+		}
+		assertEquals(150, alg.size());
+		checkTree(alg);
+	}
+
+	/**
+	 * Randomly add and remove points. Points have integer values so that there are many duplicates along an axis
+	 */
+	@Test
+	void addRemove_random() {
+		KdTreeMemory<double[]> memory = new KdTreeMemory<>();
+		KdTreeEditor<double[]> alg = new KdTreeEditor<>(distance,memory);
+		KdTree tree = memory.requestTree(2);
+		alg.setTree(tree,0);
+
+		List<Integer> present = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			if( present.isEmpty() || rand.nextDouble() < 0.6 ) {
+				double[] p = new double[]{rand.nextInt(10),rand.nextInt(10)};
+				present.add(alg.add(p));
+			} else {
+				int index = present.remove(rand.nextInt(present.size()));
+				assertTrue(alg.remove(index));
+				assertNull(alg.getNode(index));
+				// removing it again should fail
+				assertFalse(alg.remove(index));
+			}
+			assertEquals(present.size(), alg.size());
+		}
+		checkTree(alg);
+
+		// remove everything
+		while( !present.isEmpty() ) {
+			assertTrue(alg.remove(present.remove(present.size()-1)));
+		}
+		assertNull(tree.root);
+		assertEquals(0, alg.size());
+	}
+
+	@Test
+	void remove_unknown() {
+		KdTreeMemory<double[]> memory = new KdTreeMemory<>();
+		KdTreeEditor<double[]> alg = new KdTreeEditor<>(distance,memory);
+		alg.setTree(memory.requestTree(2),0);
+		alg.add(randomPoint());
+
+		assertFalse(alg.remove(-1));
+		assertFalse(alg.remove(1));
+		assertTrue(alg.remove(0));
+		assertFalse(alg.remove(0));
+	}
+
+	/**
+	 * Makes sure nodes are split correctly and the look up table is consistent with the tree
+	 */
+	private void checkTree( KdTreeEditor<double[]> alg ) {
+		List<KdTree.Node> open = new ArrayList<>();
+		if( alg.getTree().root != null )
+			open.add(alg.getTree().root);
+		int count = 0;
+		while( !open.isEmpty() ) {
+			KdTree.Node n = open.remove(open.size()-1);
+			count++;
+			assertSame(n, alg.getNode(n.index));
+			if( n.isLeaf() ) {
+				assertNull(n.left);
+				assertNull(n.right);
+				continue;
+			}
+			assertTrue(n.left != null || n.right != null);
+			double splitValue = ((double[])n.point)[n.split];
+			checkSide(n.left,n.split,splitValue,true);
+			checkSide(n.right,n.split,splitValue,false);
+			if( n.left != null )
+				open.add(n.left);
+			if( n.right != null )
+				open.add(n.right);
+		}
+		assertEquals(alg.size(), count);
+	}
+
+	private void checkSide( KdTree.Node node , int axis , double splitValue , boolean left ) {
+		if( node == null )
+			return;
+		double v = ((double[])node.point)[axis];
+		if( left )
+			assertTrue(v <= splitValue);
+		else
+			assertTrue(v >= splitValue);
+		checkSide(node.left,axis,splitValue,left);
+		checkSide(node.right,axis,splitValue,left);
+	}
+
+	private double[] randomPoint() {
+		return new double[]{rand.nextGaussian(),rand.nextGaussian()};
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.nn.alg.distance.PackedEuclideanSq_F64;
+import org.ddogleg.struct.PackedTupleArray_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestKdTreeFlatConstructor {
+
+	Random rand = new Random(234);
+
+	KdTreeDistance<double[]> distance = new KdTreeEuclideanSq_F64(2);
+
+	/**
+	 * Basic tests to see if it can handle different sized input lists.
+	 */
+	@Test
+	public void construct_sizes() {
+		KdTreeFlatConstructor<double[]> alg = new KdTreeFlatConstructor<>(distance);
+
+		List<double[]> points = new ArrayList<>();
+		KdTreeFlat tree = alg.construct(points);
+		assertEquals(0, tree.size);
+		assertEquals(-1, tree.getRoot());
+
+		points.add(new double[]{1,2});
+		tree = alg.construct(points);
+		assertEquals(1, tree.size);
+		assertTrue(tree.isLeaf(0));
+		assertEquals(0, tree.indexes[0]);
+
+		points.add(new double[]{3,5});
+		tree = alg.construct(points);
+		assertEquals(2, tree.size);
+		assertFalse(tree.isLeaf(0));
+		assertEquals(1, tree.split[0]);
+		assertEquals(-1, tree.right[0]);
+		assertTrue(tree.isLeaf(1));
+	}
+
+	/**
+	 * Constructs a tree from random points and checks the structural invariants
+	 */
+	@Test
+	public void construct_random() {
+		KdTreeFlatConstructor<double[]> alg = new KdTreeFlatConstructor<>(distance);
+
+		for (int numPoints = 3; numPoints < 60; numPoints += 7) {
+			List<double[]> points = new ArrayList<>();
+			for (int i = 0; i < numPoints; i++) {
+				points.add(new double[]{rand.nextGaussian(), rand.nextGaussian()});
+			}
+
+			KdTreeFlat tree = alg.construct(points);
+			assertEquals(numPoints, tree.size);
+
+			// every point should be in the tree once
+			boolean[] found = new boolean[numPoints];
+			for (int i = 0; i < tree.size; i++) {
+				assertFalse(found[tree.indexes[i]]);
+				found[tree.indexes[i]] = true;
+			}
+
+			// the number of nodes in the sub tree should match
+			assertEquals(numPoints, checkNode(points,tree,0));
+		}
+	}
+
+	/**
+	 * A tree constructed from packed points should be identical to one constructed from a list
+	 */
+	@Test
+	public void construct_packed() {
+		KdTreeFlatConstructor<double[]> alg = new KdTreeFlatConstructor<>(distance);
+
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			points.add(new double[]{rand.nextGaussian(), rand.nextGaussian()});
+		}
+		PackedTupleArray_F64 packed = new PackedTupleArray_F64(2);
+		packed.setTo(points);
+
+		KdTreeFlat expected = alg.construct(points);
+		KdTreeFlat found = new KdTreeFlat();
+		alg.construct(new PackedEuclideanSq_F64(packed),found);
+
+		assertEquals(expected.size, found.size);
+		for (int i = 0; i < expected.size; i++) {
+			assertEquals(expected.indexes[i], found.indexes[i]);
+			assertEquals(expected.split[i], found.split[i]);
+			assertEquals(expected.right[i], found.right[i]);
+			assertEquals(expected.splitValue[i], found.splitValue[i]);
+		}
+	}
+
+	/**
+	 * Recursively checks to see if all the points in the left and right sub-trees are on the correct side
+	 * of the split
+	 *
+	 * @return number of nodes in the sub-tree
+	 */
+	private int checkNode( List<double[]> points , KdTreeFlat tree , int node ) {
+		if( tree.isLeaf(node) )
+			return 1;
+
+		int split = tree.split[node];
+		double value = points.get(tree.indexes[node])[split];
+		assertEquals(value, tree.splitValue[node]);
+
+		int total = 1;
+		int left = node+1;
+		int right = tree.right[node];
+		int numLeft = checkNode(points,tree,left);
+		checkSide(points,tree,left,numLeft,split,value,true);
+		total += numLeft;
+		if( right != -1 ) {
+			// the right child should be after the left sub-tree
+			assertEquals(left+numLeft, right);
+			int numRight = checkNode(points,tree,right);
+			checkSide(points,tree,right,numRight,split,value,false);
+			total += numRight;
+		}
+		return total;
+	}
+
+	private void checkSide( List<double[]> points , KdTreeFlat tree , int first , int length , int split , double value , boolean left ) {
+		for (int i = first; i < first+length; i++) {
+			double v = points.get(tree.indexes[i])[split];
+			if( left )
+				assertTrue(v <= value);
+			else
+				assertTrue(v >= value);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.alg.distance.BufferEuclideanSq_F64;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.nn.alg.distance.PointSetDistanceList;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestKdTreeFlatIO {
+	Random rand = new Random(234);
+
+	/**
+	 * Save then load and see if the tree and points are the same. Even and odd number of nodes are tested
+	 * since the padding is different.
+	 */
+	@Test
+	void saveLoad() throws IOException {
+		for( int numPoints : new int[]{0,1,2,5000,5001} ) {
+			List<double[]> points = new ArrayList<>();
+			for (int i = 0; i < numPoints; i++) {
+				points.add(new double[]{rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian()});
+			}
+			KdTreeEuclideanSq_F64 distance = new KdTreeEuclideanSq_F64(3);
+			PointSetDistanceList<double[]> pointSet = new PointSetDistanceList<>(distance);
+			pointSet.setPoints(points);
+			KdTreeFlat expected = new KdTreeFlatConstructor<>(distance,new AxisSplitRuleMax()).construct(points);
+
+			File file = createTempFile();
+			KdTreeFlatIO.save(expected,pointSet,file);
+
+			KdTreeFlat found = new KdTreeFlat();
+			BufferEuclideanSq_F64 foundPoints = KdTreeFlatIO.load(file,found);
+
+			assertEquals(3, found.N);
+			assertEquals(expected.size, found.size);
+			for (int i = 0; i < expected.size; i++) {
+				assertEquals(expected.split[i], found.split[i]);
+				assertEquals(expected.right[i], found.right[i]);
+				assertEquals(expected.indexes[i], found.indexes[i]);
+				assertEquals(expected.splitValue[i], found.splitValue[i]);
+			}
+
+			assertEquals(numPoints, foundPoints.size());
+			assertEquals(3, foundPoints.length());
+			for (int i = 0; i < numPoints; i++) {
+				for (int j = 0; j < 3; j++) {
+					assertEquals(points.get(i)[j], foundPoints.valueAt(i,j));
+				}
+			}
+		}
+	}
+
+	@Test
+	void load_notTree() throws IOException {
+		File file = createTempFile();
+		try( RandomAccessFile raf = new RandomAccessFile(file,"rw") ) {
+			for (int i = 0; i < 10; i++) {
+				raf.writeInt(i);
+			}
+		}
+		assertThrows(IOException.class, () -> KdTreeFlatIO.load(file, new KdTreeFlat()));
+	}
+
+	private static File createTempFile() throws IOException {
+		File file = File.createTempFile("kdtree", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+}
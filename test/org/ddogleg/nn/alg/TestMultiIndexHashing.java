@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.struct.FastQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestMultiIndexHashing {
+
+	Random rand = new Random(234);
+
+	@Test
+	void substrings() {
+		MultiIndexHashing alg = new MultiIndexHashing(12);
+		alg.setPoints(TestExhaustiveHamming_I64.createDescriptors(rand,10,2),true);
+
+		// 128 bits is not evenly divisible so the last substring is shorter
+		assertEquals(11, alg.getNumSubstrings());
+		assertEquals(120, alg.subStart[10]);
+		assertEquals(8, alg.subLength[10]);
+		assertEquals(8, alg.minSubLength);
+
+		// a substring which crosses the boundary between two longs
+		long[] d = new long[]{0xF000_0000_0000_0000L, 0b1010L};
+		// substring 5 is bits 60 to 71
+		assertEquals(0b1010_1111, alg.extract(d,0,5));
+	}
+
+	/**
+	 * The number of elements in the packed array would overflow an int. This should be caught before anything
+	 * is allocated.
+	 */
+	@Test
+	void setPoints_tooLarge() {
+		long[] descriptor = new long[16];
+		List<long[]> points = new AbstractList<long[]>() {
+			@Override
+			public long[] get( int index ) {
+				return descriptor;
+			}
+
+			@Override
+			public int size() {
+				return 1 << 28;
+			}
+		};
+
+		MultiIndexHashing alg = new MultiIndexHashing(12);
+		assertThrows(IllegalArgumentException.class, () -> alg.setPoints(points,true));
+	}
+
+	/**
+	 * Results should be the same as an exhaustive search. Tested with random descriptors, where almost every
+	 * descriptor is checked, and with clusters of similar descriptors, where only a few are checked.
+	 */
+	@Test
+	void compareToExhaustive() {
+		List<long[]> random = TestExhaustiveHamming_I64.createDescriptors(rand,500,4);
+		List<long[]> clustered = createClustered(500,4);
+
+		for( List<long[]> points : Arrays.asList(random,clustered) ) {
+			for( int substringBits : new int[]{4,12,16} ) {
+				MultiIndexHashing alg = new MultiIndexHashing(substringBits);
+				alg.setPoints(points,true);
+				ExhaustiveHamming_I64 exhaustive = new ExhaustiveHamming_I64();
+				exhaustive.setPoints(points,true);
+
+				checkSameResults(points, alg.createSearch(), exhaustive.createSearch());
+			}
+		}
+	}
+
+	private void checkSameResults( List<long[]> points , NearestNeighbor.Search<long[]> alg ,
+								   NearestNeighbor.Search<long[]> exhaustive ) {
+		NnData<long[]> expected1 = new NnData<>();
+		NnData<long[]> found1 = new NnData<>();
+		FastQueue<NnData<long[]>> expected = new FastQueue<>(NnData::new);
+		FastQueue<NnData<long[]>> found = new FastQueue<>(NnData::new);
+
+		for (int trial = 0; trial < 30; trial++) {
+			// queries which are similar to a point and queries which are random
+			long[] query = trial%2 == 0 ? flip(points.get(trial),3) : TestExhaustiveHamming_I64.createDescriptors(rand,1,4).get(0);
+
+			for( double maxDistance : new double[]{-1,5,100} ) {
+				boolean success = exhaustive.findNearest(query,maxDistance,expected1);
+				assertEquals(success, alg.findNearest(query,maxDistance,found1));
+				if( success )
+					assertEquals(expected1.distance, found1.distance);
+
+				// ties can be broken differently so only compare distances
+				exhaustive.findNearest(query,maxDistance,7,expected);
+				alg.findNearest(query,maxDistance,7,found);
+				assertEquals(expected.size, found.size);
+				for (int i = 0; i < found.size; i++) {
+					assertEquals(expected.get(i).distance, found.get(i).distance);
+					assertSame(points.get(found.get(i).index), found.get(i).point);
+				}
+
+				exhaustive.findWithinDistance(query,maxDistance,expected);
+				alg.findWithinDistance(query,maxDistance,found);
+				assertEquals(expected.size, found.size);
+			}
+		}
+	}
+
+	private List<long[]> createClustered( int count , int words ) {
+		List<long[]> seeds = TestExhaustiveHamming_I64.createDescriptors(rand,20,words);
+		List<long[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			points.add(flip(seeds.get(rand.nextInt(seeds.size())),rand.nextInt(10)));
+		}
+		return points;
+	}
+
+	/**
+	 * Creates a copy of the descriptor with randomly flipped bits
+	 */
+	private long[] flip( long[] d , int numFlips ) {
+		long[] c = d.clone();
+		for (int i = 0; i < numFlips; i++) {
+			int bit = rand.nextInt(c.length*64);
+			c[bit/64] ^= 1L << (bit%64);
+		}
+		return c;
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg;
+
+import org.ddogleg.clustering.kmeans.InitializePlusPlus;
+import org.ddogleg.clustering.kmeans.StandardKMeans_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestProductQuantizer {
+	Random rand = new Random(234);
+
+	@Test
+	void subspaces() {
+		ProductQuantizer alg = new ProductQuantizer(10, 3, createKMeans());
+		assertArrayEquals(new int[]{0,3,6,10}, alg.subStart);
+		assertEquals(3, alg.getCodeLength());
+
+		assertThrows(IllegalArgumentException.class, () -> new ProductQuantizer(10, 11, createKMeans()));
+		assertThrows(IllegalArgumentException.class, () -> new ProductQuantizer(10, 0, createKMeans()));
+	}
+
+	/**
+	 * If there are fewer training points than centroids then every point should be encoded perfectly
+	 */
+	@Test
+	void encode_decode_perfect() {
+		List<double[]> points = createPoints(100, 6);
+
+		ProductQuantizer alg = new ProductQuantizer(6, 2, createKMeans());
+		alg.train(points, 256, 234);
+		assertEquals(100, alg.getNumCentroids());
+
+		byte[] code = new byte[3];
+		double[] found = new double[6];
+		for (double[] p : points) {
+			alg.encode(p, code, 1);
+			alg.decode(code, 1, found);
+			assertArrayEquals(p, found, 1e-8);
+		}
+	}
+
+	/**
+	 * Distance computed with the table should be the same as the distance to the decoded vector
+	 */
+	@Test
+	void distance_table() {
+		List<double[]> points = createPoints(300, 7);
+
+		ProductQuantizer alg = new ProductQuantizer(7, 3, createKMeans());
+		alg.train(points, 16, 234);
+		assertEquals(3*16, alg.getTableLength());
+
+		byte[] code = new byte[3];
+		double[] decoded = new double[7];
+		double[] table = new double[alg.getTableLength()];
+		for (int trial = 0; trial < 20; trial++) {
+			double[] query = createPoints(1, 7).get(0);
+			alg.computeTable(query, table);
+
+			double[] p = points.get(trial);
+			alg.encode(p, code, 0);
+			alg.decode(code, 0, decoded);
+
+			double expected = 0;
+			for (int i = 0; i < 7; i++) {
+				expected += (query[i]-decoded[i])*(query[i]-decoded[i]);
+			}
+			assertEquals(expected, alg.distance(table, code, 0), 1e-8);
+		}
+	}
+
+	/**
+	 * The closest centroid should be selected in each sub-space
+	 */
+	@Test
+	void encode_closest() {
+		List<double[]> points = createPoints(300, 4);
+
+		ProductQuantizer alg = new ProductQuantizer(4, 2, createKMeans());
+		alg.train(points, 10, 234);
+
+		byte[] code = new byte[2];
+		double[] table = new double[alg.getTableLength()];
+		for (int trial = 0; trial < 20; trial++) {
+			double[] p = points.get(trial);
+			alg.encode(p, code, 0);
+
+			// distance to the selected centroid should be the smallest in the table
+			alg.computeTable(p, table);
+			for (int sub = 0; sub < 2; sub++) {
+				double selected = table[sub*10 + (code[sub] & 0xFF)];
+				for (int i = 0; i < 10; i++) {
+					assertTrue(selected <= table[sub*10+i]);
+				}
+			}
+		}
+	}
+
+	private List<double[]> createPoints( int count , int dof ) {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			double[] p = new double[dof];
+			for (int j = 0; j < dof; j++) {
+				p[j] = rand.nextGaussian();
+			}
+			points.add(p);
+		}
+		return points;
+	}
+
+	private StandardKMeans_F64 createKMeans() {
+		return new StandardKMeans_F64(20,20,1e-4,new InitializePlusPlus());
+	}
+}
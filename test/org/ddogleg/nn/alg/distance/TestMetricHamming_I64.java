@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.distance;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestMetricHamming_I64 {
+	@Test
+	public void distance() {
+		long[] a = {0b1011L, -1L};
+		long[] b = {0b0010L, 0L};
+
+		MetricHamming_I64 alg = new MetricHamming_I64();
+		assertEquals(2+64, alg.distance(a,b), 0.0);
+		assertEquals(0, alg.distance(a,a), 0.0);
+		assertEquals(2+64, MetricHamming_I64.hamming(a,b));
+
+		long[] packed = {5L, 0b1011L, -1L};
+		assertEquals(0, MetricHamming_I64.hamming(a,packed,1));
+	}
+}
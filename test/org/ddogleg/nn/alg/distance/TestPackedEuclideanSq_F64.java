@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.alg.distance;
+
+import org.ddogleg.struct.PackedTupleArray_F64;
+import org.ejml.UtilEjml;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestPackedEuclideanSq_F64 {
+	double a[] = {1,2,3,210};
+	double b[] = {1,2,3,213};
+
+	@Test
+	public void distance() {
+		PackedTupleArray_F64 points = new PackedTupleArray_F64(4);
+		points.append(a);
+		points.append(b);
+
+		PackedEuclideanSq_F64 alg = new PackedEuclideanSq_F64(points);
+		assertEquals(2, alg.size());
+		assertEquals(4, alg.length());
+		assertEquals( 9,alg.distance(a,b) , UtilEjml.TEST_F64);
+		assertEquals( 9,alg.distance(0,b) , UtilEjml.TEST_F64);
+		assertEquals( 0,alg.distance(1,b) , UtilEjml.TEST_F64);
+		assertEquals( 9,alg.distance(0,1) , UtilEjml.TEST_F64);
+	}
+
+	@Test
+	public void valueAt() {
+		PackedTupleArray_F64 points = new PackedTupleArray_F64(4);
+		points.append(b);
+		points.append(a);
+
+		PackedEuclideanSq_F64 alg = new PackedEuclideanSq_F64(points);
+		for (int i = 0; i < 3; i++) {
+			assertEquals( i+1,alg.valueAt(a,i) , UtilEjml.TEST_F64);
+			assertEquals( i+1,alg.valueAt(1,i) , UtilEjml.TEST_F64);
+		}
+		assertEquals(210,alg.valueAt(a,3) , UtilEjml.TEST_F64);
+		assertEquals(210,alg.valueAt(1,3) , UtilEjml.TEST_F64);
+	}
+}
@@ -136,6 +136,36 @@ public abstract class StandardKdTreeSearchNTests {
 		}
 	}
 
+	/**
+	 * Find all points within a random distance and compare against brute force
+	 */
+	@Test
+	public void findWithinDistance() {
+		KdTreeSearchN<double[]> alg = createAlg();
+
+		KdTree tree = StandardKdTreeSearch1Tests.createTreeA();
+		setTree(alg,tree);
+
+		List<double[]> data = new ArrayList<double[]>();
+		flattenTree(tree.root,data);
+
+		for( int i = 0; i < 100; i++ ) {
+			double[] target = data.get( rand.nextInt(data.size()));
+			double maxDistance = rand.nextDouble()*10;
+
+			List<double[]> expected = findNeighbors(data,target,maxDistance,data.size());
+
+			found.reset();
+			alg.setMaxDistance(maxDistance);
+			alg.findWithinDistance(target, found);
+			assertEquals(expected.size(),found.size);
+
+			for( int j = 0; j < expected.size(); j++ ) {
+				checkContains(expected.get(j));
+			}
+		}
+	}
+
 	/**
 	 * The tree is empty and it should always fail
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,11 +18,23 @@
 
 package org.ddogleg.nn.alg.searches;
 
+import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
 import org.ddogleg.nn.alg.KdTree;
 import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.struct.FastQueue;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * @author Peter Abeles
@@ -67,6 +79,64 @@ public class TestKdTreeSearchBestBinFirst {
 		assertTrue(found==forest[1].root);
 	}
 
+	/**
+	 * After the internal data structures have grown to their final size searches should not create any objects
+	 */
+	@Test
+	public void noAllocations() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+		assumeTrue(sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled());
+
+		Random rand = new Random(234);
+		int dof = 8;
+		List<double[]> points = new ArrayList<>();
+		List<double[]> targets = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			points.add(randomPoint(rand,dof));
+		}
+		for (int i = 0; i < 200; i++) {
+			targets.add(randomPoint(rand,dof));
+		}
+
+		NearestNeighbor<double[]> alg = FactoryNearestNeighbor.kdRandomForest(
+				new KdTreeEuclideanSq_F64(dof),200,5,5,234);
+		alg.setPoints(points,true);
+		NearestNeighbor.Search<double[]> search = alg.createSearch();
+		NnData<double[]> result = new NnData<>();
+		FastQueue<NnData<double[]>> results = new FastQueue<>(NnData::new);
+
+		// warm up so that all the internal arrays have grown
+		for (int trial = 0; trial < 2; trial++) {
+			for( double[] t : targets ) {
+				search.findNearest(t,-1,result);
+				search.findNearest(t,-1,5,results);
+			}
+		}
+
+		long threadId = Thread.currentThread().getId();
+		// call once so that any lazy initialization is done
+		sunBean.getThreadAllocatedBytes(threadId);
+		long before = sunBean.getThreadAllocatedBytes(threadId);
+		// an indexed loop is used since an iterator would be an allocation
+		for (int i = 0; i < targets.size(); i++) {
+			search.findNearest(targets.get(i),-1,result);
+			search.findNearest(targets.get(i),-1,5,results);
+		}
+		long after = sunBean.getThreadAllocatedBytes(threadId);
+
+		assertEquals(0, after-before);
+	}
+
+	private static double[] randomPoint( Random rand , int dof ) {
+		double[] p = new double[dof];
+		for (int i = 0; i < dof; i++) {
+			p[i] = rand.nextGaussian();
+		}
+		return p;
+	}
+
 	private static class BBF extends KdTreeSearchBestBinFirst<double[]> {
 
 		// the best node so far
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.StandardNearestNeighborTests;
+import org.ddogleg.nn.alg.ConfigHnsw;
+import org.ddogleg.nn.alg.HnswGraph;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F32;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestHnswNearestNeighbor extends StandardNearestNeighborTests {
+
+	public TestHnswNearestNeighbor() {
+		// with a large ef the search is exact for the small sets used in the standard tests
+		setAlg(FactoryNearestNeighbor.hnsw(new KdTreeEuclideanSq_F64(N),createConfig()));
+	}
+
+	private static ConfigHnsw createConfig() {
+		ConfigHnsw config = new ConfigHnsw();
+		config.M = 4;
+		config.efSearch = 100;
+		return config;
+	}
+
+	@Test
+	void packedPoints() {
+		HnswNearestNeighbor<double[]> packedAlg =
+				FactoryNearestNeighbor.hnsw(new KdTreeEuclideanSq_F64(N),createConfig());
+		checkPackedPoints(packedAlg, packedAlg::setPoints);
+	}
+
+	@Test
+	void float32() {
+		checkFloatAgainstExhaustive(FactoryNearestNeighbor.hnsw(new KdTreeEuclideanSq_F32(5),createConfig()),5);
+	}
+
+	/**
+	 * Number of connections a node has should never exceed the maximum
+	 */
+	@Test
+	void maximumConnections() {
+		ConfigHnsw config = createConfig();
+		HnswNearestNeighbor<double[]> alg = FactoryNearestNeighbor.hnsw(new KdTreeEuclideanSq_F64(3),config);
+		alg.setPoints(createPoints(new Random(234),500,3),true);
+
+		HnswGraph<double[]> graph = alg.getGraph();
+		assertEquals(500, graph.nodes.size);
+		int maxLevelFound = 0;
+		for (int i = 0; i < graph.nodes.size; i++) {
+			HnswGraph.Node n = graph.nodes.get(i);
+			maxLevelFound = Math.max(maxLevelFound,n.getLevel());
+			assertTrue(n.connections[0].size > 0);
+			assertTrue(n.connections[0].size <= 2*config.M);
+			for (int level = 1; level < n.connections.length; level++) {
+				assertTrue(n.connections[level].size <= config.M);
+			}
+		}
+		assertEquals(maxLevelFound, graph.maxLevel);
+		assertTrue(graph.maxLevel > 0);
+	}
+
+	/**
+	 * Points are added one at a time and the results should be the same as when they are all added at once
+	 */
+	@Test
+	void addPoint() {
+		Random rand = new Random(234);
+		int dof = 4;
+		List<double[]> points = createPoints(rand,300,dof);
+
+		HnswNearestNeighbor<double[]> alg = FactoryNearestNeighbor.hnsw(new KdTreeEuclideanSq_F64(dof),createConfig());
+		NearestNeighbor<double[]> exact = FactoryNearestNeighbor.exhaustive(new KdTreeEuclideanSq_F64(dof));
+
+		// start with half the points then add the rest
+		alg.setPoints(points.subList(0,150),true);
+		for (int i = 150; i < points.size(); i++) {
+			alg.addPoint(points.get(i));
+		}
+		exact.setPoints(points,true);
+
+		NearestNeighbor.Search<double[]> searchAlg = alg.createSearch();
+		NearestNeighbor.Search<double[]> searchExact = exact.createSearch();
+		NnData<double[]> expected = new NnData<>();
+		NnData<double[]> found = new NnData<>();
+
+		for (int trial = 0; trial < 50; trial++) {
+			double[] target = createPoints(rand,1,dof).get(0);
+			assertTrue(searchExact.findNearest(target,-1,expected));
+			assertTrue(searchAlg.findNearest(target,-1,found));
+			assertEquals(expected.index, found.index);
+			assertSame(points.get(found.index), found.point);
+		}
+	}
+
+	/**
+	 * Adding points to an empty graph
+	 */
+	@Test
+	void addPoint_empty() {
+		HnswNearestNeighbor<double[]> alg = FactoryNearestNeighbor.hnsw(new KdTreeEuclideanSq_F64(2),createConfig());
+		alg.addPoint(new double[]{1,2});
+		alg.addPoint(new double[]{4,2});
+
+		NnData<double[]> found = new NnData<>();
+		assertTrue(alg.createSearch().findNearest(new double[]{3.9,2},-1,found));
+		assertEquals(1, found.index);
+	}
+
+	/**
+	 * With the default configuration most of the results should be correct with high dimensional data
+	 */
+	@Test
+	void approximate() {
+		Random rand = new Random(234);
+		int dof = 20;
+		List<double[]> points = createPoints(rand,2000,dof);
+
+		NearestNeighbor<double[]> exact = FactoryNearestNeighbor.exhaustive(new KdTreeEuclideanSq_F64(dof));
+		NearestNeighbor<double[]> approx = FactoryNearestNeighbor.hnsw(new KdTreeEuclideanSq_F64(dof),null);
+		exact.setPoints(points,true);
+		approx.setPoints(points,true);
+
+		NearestNeighbor.Search<double[]> searchExact = exact.createSearch();
+		NearestNeighbor.Search<double[]> searchApprox = approx.createSearch();
+		NnData<double[]> expected = new NnData<>();
+		NnData<double[]> found = new NnData<>();
+
+		int correct = 0;
+		int trials = 200;
+		for (int trial = 0; trial < trials; trial++) {
+			double[] target = createPoints(rand,1,dof).get(0);
+			assertTrue(searchExact.findNearest(target,-1,expected));
+			assertTrue(searchApprox.findNearest(target,-1,found));
+			if( expected.index == found.index )
+				correct++;
+		}
+		assertTrue(correct >= trials*0.9, "correct = "+correct);
+	}
+
+	private static List<double[]> createPoints( Random rand , int count , int dof ) {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			double[] p = new double[dof];
+			for (int j = 0; j < dof; j++) {
+				p[j] = rand.nextGaussian();
+			}
+			points.add(p);
+		}
+		return points;
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.ConfigIvfPq;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.struct.FastQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestIvfPqNearestNeighbor {
+	Random rand = new Random(234);
+	int N = 8;
+	KdTreeEuclideanSq_F64 distance = new KdTreeEuclideanSq_F64(N);
+
+	@Test
+	void empty() {
+		IvfPqNearestNeighbor<double[]> alg = FactoryNearestNeighbor.ivfpq(distance, null);
+		alg.setPoints(new ArrayList<>(), true);
+		assertEquals(0, alg.size());
+		assertFalse(alg.createSearch().findNearest(new double[N], -1, new NnData<>()));
+	}
+
+	/**
+	 * With one element per sub-space and every list probed the encoding is almost perfect and the results
+	 * should almost always match an exhaustive search
+	 */
+	@Test
+	void compareToExhaustive() {
+		List<double[]> points = createPoints(2000);
+		IvfPqNearestNeighbor<double[]> alg = FactoryNearestNeighbor.ivfpq(distance, createConfig());
+		alg.setPoints(points, true);
+		assertEquals(2000, alg.size());
+		assertEquals(2000*(N+4), alg.getStorageBytes());
+
+		checkRecall(points, alg, 0.95);
+	}
+
+	/**
+	 * Points are added in batches after training
+	 */
+	@Test
+	void addPoints_batches() {
+		List<double[]> points = createPoints(2000);
+		IvfPqNearestNeighbor<double[]> alg = FactoryNearestNeighbor.ivfpq(distance, createConfig());
+		alg.setPoints(points.subList(0,500), true);
+		alg.addPoints(points.subList(500,1200));
+		alg.addPoints(points.subList(1200,2000));
+		assertEquals(2000, alg.size());
+
+		checkRecall(points, alg, 0.90);
+
+		alg.removeAllPoints();
+		assertEquals(0, alg.size());
+		assertFalse(alg.createSearch().findNearest(points.get(0), -1, new NnData<>()));
+	}
+
+	/**
+	 * The codes for the batch would overflow an int. This should be caught before anything is allocated.
+	 */
+	@Test
+	void addPoints_tooLarge() {
+		IvfPqNearestNeighbor<double[]> alg = FactoryNearestNeighbor.ivfpq(distance, createConfig());
+		alg.setPoints(createPoints(200), true);
+
+		double[] point = new double[N];
+		List<double[]> points = new AbstractList<double[]>() {
+			@Override
+			public double[] get( int index ) {
+				return point;
+			}
+
+			@Override
+			public int size() {
+				return 1 << 28;
+			}
+		};
+		assertThrows(IllegalArgumentException.class, () -> alg.addPoints(points));
+		assertEquals(200, alg.size());
+	}
+
+	@Test
+	void findNearest_N() {
+		List<double[]> points = createPoints(1000);
+		IvfPqNearestNeighbor<double[]> alg = FactoryNearestNeighbor.ivfpq(distance, createConfig());
+		alg.setPoints(points, true);
+
+		NearestNeighbor.Search<double[]> search = alg.createSearch();
+		FastQueue<NnData<double[]>> found = new FastQueue<>(NnData::new);
+		search.findNearest(points.get(3), -1, 10, found);
+		assertEquals(10, found.size);
+		assertEquals(3, found.get(0).index);
+		for (int i = 1; i < found.size; i++) {
+			assertTrue(found.get(i-1).distance <= found.get(i).distance);
+			assertNotEquals(found.get(i-1).index, found.get(i).index);
+		}
+
+		// max distance should be enforced
+		double maxDistance = found.get(4).distance;
+		search.findNearest(points.get(3), maxDistance, 10, found);
+		assertTrue(found.size >= 5 && found.size < 10);
+		search.findWithinDistance(points.get(3), maxDistance, found);
+		assertTrue(found.size >= 5 && found.size < 10);
+		for (int i = 0; i < found.size; i++) {
+			assertTrue(found.get(i).distance <= maxDistance);
+			assertNull(found.get(i).point);
+		}
+	}
+
+	private void checkRecall( List<double[]> points , IvfPqNearestNeighbor<double[]> alg , double minRecall ) {
+		NearestNeighbor.Search<double[]> search = alg.createSearch();
+		NnData<double[]> found = new NnData<>();
+		int correct = 0;
+		int total = 200;
+		for (int trial = 0; trial < total; trial++) {
+			double[] target = createPoints(1).get(0);
+			assertTrue(search.findNearest(target, -1, found));
+			if( found.index == closest(points, target) )
+				correct++;
+		}
+		assertTrue(correct >= minRecall*total, "correct = "+correct);
+	}
+
+	private int closest( List<double[]> points , double[] target ) {
+		int best = -1;
+		double bestDistance = Double.MAX_VALUE;
+		for (int i = 0; i < points.size(); i++) {
+			double d = distance.distance(points.get(i), target);
+			if( d < bestDistance ) {
+				bestDistance = d;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	private ConfigIvfPq createConfig() {
+		ConfigIvfPq config = new ConfigIvfPq();
+		config.numLists = 16;
+		config.numProbe = 16;
+		config.numSubspaces = N;
+		config.kmeansIterations = 10;
+		return config;
+	}
+
+	private List<double[]> createPoints( int count ) {
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			double[] p = new double[N];
+			for (int j = 0; j < N; j++) {
+				p[j] = rand.nextGaussian();
+			}
+			points.add(p);
+		}
+		return points;
+	}
+}
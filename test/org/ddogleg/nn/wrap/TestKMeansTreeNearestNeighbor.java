@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.StandardNearestNeighborTests;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F32;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestKMeansTreeNearestNeighbor extends StandardNearestNeighborTests {
+
+	public TestKMeansTreeNearestNeighbor() {
+		// search is exact when there is no limit on the number of leaves
+		setAlg(FactoryNearestNeighbor.kmeansTree(new KdTreeEuclideanSq_F64(N),4,-1,234));
+	}
+
+	@Test
+	void packedPoints() {
+		KMeansTreeNearestNeighbor<double[]> packedAlg = (KMeansTreeNearestNeighbor<double[]>)
+				FactoryNearestNeighbor.kmeansTree(new KdTreeEuclideanSq_F64(N),4,-1,234);
+		checkPackedPoints(packedAlg, packedAlg::setPoints);
+	}
+
+	@Test
+	void float32() {
+		checkFloatAgainstExhaustive(FactoryNearestNeighbor.kmeansTree(new KdTreeEuclideanSq_F32(5),4,-1,234),5);
+	}
+
+	/**
+	 * When the number of leaves is limited most of the results should still be correct
+	 */
+	@Test
+	void approximate() {
+		Random rand = new Random(234);
+		int dof = 10;
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			double[] p = new double[dof];
+			for (int j = 0; j < dof; j++) {
+				p[j] = rand.nextGaussian();
+			}
+			points.add(p);
+		}
+
+		NearestNeighbor<double[]> exact = FactoryNearestNeighbor.exhaustive(new KdTreeEuclideanSq_F64(dof));
+		NearestNeighbor<double[]> approx = FactoryNearestNeighbor.kmeansTree(new KdTreeEuclideanSq_F64(dof),8,20,234);
+		exact.setPoints(points,true);
+		approx.setPoints(points,true);
+
+		NearestNeighbor.Search<double[]> searchExact = exact.createSearch();
+		NearestNeighbor.Search<double[]> searchApprox = approx.createSearch();
+		NnData<double[]> expected = new NnData<>();
+		NnData<double[]> found = new NnData<>();
+
+		int correct = 0;
+		int trials = 200;
+		for (int trial = 0; trial < trials; trial++) {
+			// search near an existing point so that there is a clear answer
+			double[] target = points.get(rand.nextInt(points.size())).clone();
+			for (int j = 0; j < dof; j++) {
+				target[j] += rand.nextGaussian()*0.1;
+			}
+			assertTrue(searchExact.findNearest(target,-1,expected));
+			assertTrue(searchApprox.findNearest(target,-1,found));
+			if( expected.index == found.index )
+				correct++;
+		}
+		assertTrue(correct >= trials*0.8, "correct = "+correct);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.concurrency.ConcurrencyOps;
+import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.StandardNearestNeighborTests;
+import org.ddogleg.nn.alg.KdTree;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestKdForestBbfNearestNeighbor_MT extends StandardNearestNeighborTests {
+
+	public TestKdForestBbfNearestNeighbor_MT() {
+		// set the max nodes so it that it will produce perfect results
+		setAlg(FactoryNearestNeighbor.kdRandomForest_MT(new KdTreeEuclideanSq_F64(N),10000,5,1,234));
+	}
+
+	/**
+	 * The forest should be the same as the single threaded version for any number of threads
+	 */
+	@Test
+	void sameForestForAnyThreads() {
+		Random rand = new Random(2345);
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			points.add(new double[]{rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian()});
+		}
+
+		KdTreeEuclideanSq_F64 distance = new KdTreeEuclideanSq_F64(4);
+		KdForestBbfNearestNeighbor<double[]> expected =
+				(KdForestBbfNearestNeighbor<double[]>)FactoryNearestNeighbor.kdRandomForest(distance,100,6,2,99);
+		expected.setPoints(points,true);
+
+		int maxThreads = ConcurrencyOps.getMaxThreads();
+		try {
+			for (int numThreads : new int[]{1, 2, 4}) {
+				ConcurrencyOps.setMaxThreads(numThreads);
+				KdForestBbfNearestNeighbor<double[]> found =
+						(KdForestBbfNearestNeighbor<double[]>)FactoryNearestNeighbor.kdRandomForest_MT(distance,100,6,2,99);
+				found.setPoints(points,true);
+
+				assertEquals(expected.getForest().length, found.getForest().length);
+				for (int i = 0; i < found.getForest().length; i++) {
+					checkSame(expected.getForest()[i].root, found.getForest()[i].root);
+				}
+			}
+		} finally {
+			ConcurrencyOps.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * Trees in the forest should not all be identical since each has its own seed
+	 */
+	@Test
+	void treesAreDifferent() {
+		Random rand = new Random(2345);
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			points.add(new double[]{rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian()});
+		}
+
+		KdForestBbfNearestNeighbor<double[]> alg = (KdForestBbfNearestNeighbor<double[]>)
+				FactoryNearestNeighbor.kdRandomForest_MT(new KdTreeEuclideanSq_F64(4),100,4,2,99);
+		alg.setPoints(points,true);
+
+		KdTree[] forest = alg.getForest();
+		boolean allSame = true;
+		for (int i = 1; i < forest.length; i++) {
+			allSame &= isSame(forest[0].root, forest[i].root);
+		}
+		assertFalse(allSame);
+	}
+
+	private static void checkSame( KdTree.Node a , KdTree.Node b ) {
+		if( a == null ) {
+			assertNull(b);
+			return;
+		}
+		assertNotNull(b);
+		assertSame(a.point, b.point);
+		assertEquals(a.index, b.index);
+		assertEquals(a.split, b.split);
+		checkSame(a.left, b.left);
+		checkSame(a.right, b.right);
+	}
+
+	private static boolean isSame( KdTree.Node a , KdTree.Node b ) {
+		if( a == null || b == null )
+			return a == b;
+		return a.point == b.point && a.split == b.split && isSame(a.left, b.left) && isSame(a.right, b.right);
+	}
+}
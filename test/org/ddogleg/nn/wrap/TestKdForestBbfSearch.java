@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -18,14 +18,24 @@
 
 package org.ddogleg.nn.wrap;
 
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NearestNeighborStats;
+import org.ddogleg.nn.NnData;
 import org.ddogleg.nn.StandardNearestNeighborTests;
 import org.ddogleg.nn.alg.AxisSplitRule;
 import org.ddogleg.nn.alg.AxisSplitRuleRandomK;
 import org.ddogleg.nn.alg.AxisSplitterMedian;
 import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
 
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 /**
  * @author Peter Abeles
  */
@@ -38,4 +48,67 @@ public class TestKdForestBbfSearch extends StandardNearestNeighborTests {
 		setAlg(new KdForestBbfNearestNeighbor<>(5,10000,distance,
 				new AxisSplitterMedian<>(distance,rule)));
 	}
+
+	/**
+	 * Searches which hit the node limit should be recorded as early terminations
+	 */
+	@Test
+	void stats_earlyTermination() {
+		Random rand = new Random(234);
+		KdTreeEuclideanSq_F64 distance = new KdTreeEuclideanSq_F64(N);
+		KdForestBbfNearestNeighbor<double[]> alg = new KdForestBbfNearestNeighbor<>(2,5,distance,
+				new AxisSplitterMedian<>(distance,new AxisSplitRuleRandomK(rand,1)));
+
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			points.add(new double[]{rand.nextDouble(),rand.nextDouble()});
+		}
+		alg.setPoints(points,true);
+
+		NearestNeighborStats stats = new NearestNeighborStats();
+		NearestNeighbor.Search<double[]> search = alg.createSearch();
+		search.setStats(stats);
+		NnData<double[]> result = new NnData<>();
+		for (int i = 0; i < 50; i++) {
+			search.findNearest(new double[]{rand.nextDouble(),rand.nextDouble()},-1,result);
+		}
+
+		assertEquals(50, stats.queries);
+		assertTrue(stats.earlyTerminations > 0);
+		assertTrue(stats.heapPushes > 0);
+		assertTrue(stats.leafHits > 0);
+		assertTrue(stats.nodesVisited >= stats.leafHits);
+		assertEquals(stats.nodesVisited, stats.distanceEvaluations);
+	}
+
+	/**
+	 * If the node limit is hit but none of the remaining nodes can improve the solution then it should not be
+	 * recorded as an early termination. Searching for a point in the set finds it at distance zero, after which
+	 * nothing can be closer.
+	 */
+	@Test
+	void stats_earlyTermination_cannotImprove() {
+		Random rand = new Random(234);
+		KdTreeEuclideanSq_F64 distance = new KdTreeEuclideanSq_F64(N);
+		KdForestBbfNearestNeighbor<double[]> alg = new KdForestBbfNearestNeighbor<>(2,5,distance,
+				new AxisSplitterMedian<>(distance,new AxisSplitRuleRandomK(rand,1)));
+
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			points.add(new double[]{rand.nextDouble(),rand.nextDouble()});
+		}
+		alg.setPoints(points,true);
+
+		NearestNeighborStats stats = new NearestNeighborStats();
+		NearestNeighbor.Search<double[]> search = alg.createSearch();
+		search.setStats(stats);
+		NnData<double[]> result = new NnData<>();
+		for (int i = 0; i < 50; i++) {
+			assertTrue(search.findNearest(points.get(i*10),-1,result));
+			assertEquals(0, result.distance);
+		}
+
+		assertEquals(50, stats.queries);
+		assertEquals(0, stats.earlyTerminations);
+	}
 }
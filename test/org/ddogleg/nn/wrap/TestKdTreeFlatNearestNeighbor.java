@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.StandardNearestNeighborTests;
+import org.ddogleg.nn.alg.KdTreeFlat;
+import org.ddogleg.nn.alg.KdTreeFlatIO;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F32;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestKdTreeFlatNearestNeighbor extends StandardNearestNeighborTests {
+
+	public TestKdTreeFlatNearestNeighbor() {
+		setAlg(FactoryNearestNeighbor.kdtreeFlat(new KdTreeEuclideanSq_F64(N)));
+	}
+
+	@Test
+	void packedPoints() {
+		KdTreeFlatNearestNeighbor<double[]> packedAlg = new KdTreeFlatNearestNeighbor<>(new KdTreeEuclideanSq_F64(N));
+		checkPackedPoints(packedAlg, packedAlg::setPoints);
+	}
+
+	/**
+	 * Save the tree then search the memory mapped file
+	 */
+	@Test
+	void saveLoad() {
+		KdTreeFlatNearestNeighbor<double[]> loadedAlg = new KdTreeFlatNearestNeighbor<>(new KdTreeEuclideanSq_F64(N));
+		checkPackedPoints(loadedAlg, packed -> {
+			try {
+				File file = File.createTempFile("kdtree", ".bin");
+				file.deleteOnExit();
+				KdTreeFlatNearestNeighbor<double[]> original = new KdTreeFlatNearestNeighbor<>(new KdTreeEuclideanSq_F64(N));
+				original.setPoints(packed);
+				original.save(file);
+
+				KdTreeFlat tree = new KdTreeFlat();
+				loadedAlg.setTree(tree,KdTreeFlatIO.load(file,tree));
+			} catch( IOException e ) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	@Test
+	void float32() {
+		checkFloatAgainstExhaustive(FactoryNearestNeighbor.kdtreeFlat(new KdTreeEuclideanSq_F32(5)),5);
+	}
+}
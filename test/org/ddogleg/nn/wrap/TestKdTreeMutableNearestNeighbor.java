@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.StandardNearestNeighborTests;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.struct.FastQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestKdTreeMutableNearestNeighbor extends StandardNearestNeighborTests {
+
+	Random rand = new Random(234);
+
+	public TestKdTreeMutableNearestNeighbor() {
+		setAlg(FactoryNearestNeighbor.kdtreeMutable(new KdTreeEuclideanSq_F64(N)));
+	}
+
+	/**
+	 * Randomly add and remove points then compare the results against an exhaustive search
+	 */
+	@Test
+	void addRemove_compareToExhaustive() {
+		for( double rebuildFraction : new double[]{0,0.5} ) {
+			KdTreeMutableNearestNeighbor<double[]> alg = FactoryNearestNeighbor.kdtreeMutable(new KdTreeEuclideanSq_F64(2));
+			alg.rebuildFraction = rebuildFraction;
+
+			List<double[]> points = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				points.add(randomPoint());
+			}
+			alg.setPoints(points,false);
+
+			// index of each point in the mutable set
+			List<double[]> all = new ArrayList<>(points);
+			List<Integer> present = new ArrayList<>();
+			for (int i = 0; i < points.size(); i++) {
+				present.add(i);
+			}
+
+			for (int iteration = 0; iteration < 20; iteration++) {
+				for (int i = 0; i < 10; i++) {
+					double[] p = randomPoint();
+					assertEquals(all.size(), alg.addPoint(p));
+					present.add(all.size());
+					all.add(p);
+				}
+				for (int i = 0; i < 8; i++) {
+					assertTrue(alg.removePoint(present.remove(rand.nextInt(present.size()))));
+				}
+				assertEquals(present.size(), alg.size());
+				compareToExhaustive(alg, all, present);
+			}
+
+			// the original list should not have been modified
+			assertEquals(100, points.size());
+		}
+	}
+
+	@Test
+	void rebalance() {
+		KdTreeMutableNearestNeighbor<double[]> alg = FactoryNearestNeighbor.kdtreeMutable(new KdTreeEuclideanSq_F64(2));
+		alg.rebuildFraction = 0;
+
+		List<double[]> all = new ArrayList<>();
+		List<Integer> present = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			double[] p = randomPoint();
+			present.add(alg.addPoint(p));
+			all.add(p);
+		}
+		for (int i = 0; i < 50; i++) {
+			assertTrue(alg.removePoint(present.remove(rand.nextInt(present.size()))));
+		}
+
+		alg.rebalance();
+		assertEquals(150, alg.size());
+		compareToExhaustive(alg, all, present);
+
+		// new points should be assigned the next index after rebalancing
+		assertEquals(200, alg.addPoint(randomPoint()));
+	}
+
+	@Test
+	void removePoint_unknown() {
+		KdTreeMutableNearestNeighbor<double[]> alg = FactoryNearestNeighbor.kdtreeMutable(new KdTreeEuclideanSq_F64(2));
+		assertFalse(alg.removePoint(0));
+		alg.addPoint(randomPoint());
+		assertTrue(alg.removePoint(0));
+		assertFalse(alg.removePoint(0));
+		assertEquals(0, alg.size());
+	}
+
+	private void compareToExhaustive( NearestNeighbor<double[]> alg , List<double[]> all , List<Integer> present ) {
+		NearestNeighbor.Search<double[]> search = alg.createSearch();
+		NnData<double[]> found = new NnData<>();
+		FastQueue<NnData<double[]>> foundN = new FastQueue<>(NnData::new);
+
+		for (int trial = 0; trial < 20; trial++) {
+			double[] target = randomPoint();
+
+			// find the closest with brute force
+			int best = -1;
+			double bestDistance = Double.MAX_VALUE;
+			for( int index : present ) {
+				double[] p = all.get(index);
+				double d = (p[0]-target[0])*(p[0]-target[0]) + (p[1]-target[1])*(p[1]-target[1]);
+				if( d < bestDistance ) {
+					bestDistance = d;
+					best = index;
+				}
+			}
+
+			assertTrue(search.findNearest(target,-1,found));
+			assertEquals(best, found.index);
+			assertSame(all.get(best), found.point);
+			assertEquals(bestDistance, found.distance, 1e-8);
+
+			search.findNearest(target,-1,5,foundN);
+			assertEquals(Math.min(5,present.size()), foundN.size);
+			for (int i = 0; i < foundN.size; i++) {
+				assertTrue(present.contains(foundN.get(i).index));
+			}
+		}
+	}
+
+	private double[] randomPoint() {
+		return new double[]{rand.nextGaussian(),rand.nextGaussian()};
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -19,8 +19,18 @@
 package org.ddogleg.nn.wrap;
 
 import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
 import org.ddogleg.nn.StandardNearestNeighborTests;
+import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F32;
 import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.ddogleg.struct.FastQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Abeles
@@ -31,4 +41,44 @@ public class TestKdTreeNearestNeighbor extends StandardNearestNeighborTests {
 		setAlg(FactoryNearestNeighbor.kdtree(new KdTreeEuclideanSq_F64(N)));
 	}
 
+	@Test
+	void float32() {
+		checkFloatAgainstExhaustive(FactoryNearestNeighbor.kdtree(new KdTreeEuclideanSq_F32(5)),5);
+	}
+
+	/**
+	 * A max distance of zero is not unlimited. Only exact duplicates should be found by every search
+	 */
+	@Test
+	void maxDistance_zero() {
+		List<double[]> points = new ArrayList<>();
+		points.add(new double[]{1,2});
+		points.add(new double[]{1,2.1});
+		points.add(new double[]{1,2});
+		points.add(new double[]{5,2});
+
+		NearestNeighbor<double[]> alg = FactoryNearestNeighbor.kdtree(new KdTreeEuclideanSq_F64(2));
+		alg.setPoints(points,true);
+		NearestNeighbor.Search<double[]> search = alg.createSearch();
+
+		NnData<double[]> result = new NnData<>();
+		assertTrue(search.findNearest(new double[]{1,2},0,result));
+		assertEquals(0, result.distance);
+		assertFalse(search.findNearest(new double[]{1,2.05},0,result));
+
+		FastQueue<NnData<double[]>> found = new FastQueue<>(NnData::new);
+		search.findNearest(new double[]{1,2},0,4,found);
+		checkDuplicates(found);
+		search.findWithinDistance(new double[]{1,2},0,found);
+		checkDuplicates(found);
+	}
+
+	private void checkDuplicates( FastQueue<NnData<double[]>> found ) {
+		assertEquals(2, found.size);
+		for (int i = 0; i < found.size; i++) {
+			NnData<double[]> r = found.get(i);
+			assertTrue(r.index == 0 || r.index == 2);
+			assertEquals(0, r.distance);
+		}
+	}
 }
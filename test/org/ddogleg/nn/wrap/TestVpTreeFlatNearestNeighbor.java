@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.StandardNearestNeighborTests;
+import org.ddogleg.nn.alg.MetricDistance;
+import org.ddogleg.nn.alg.distance.MetricEuclidean_F64;
+import org.ddogleg.struct.FastQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestVpTreeFlatNearestNeighbor extends StandardNearestNeighborTests {
+	public TestVpTreeFlatNearestNeighbor() {
+		// small buckets so that branches are also tested with the small data sets
+		setAlg(FactoryNearestNeighbor.vptree(new MetricEuclidean_F64(),2,345345));
+	}
+
+	/**
+	 * Use a metric other than Euclidean and compare against brute force
+	 */
+	@Test
+	void manhattan() {
+		Random rand = new Random(234);
+		MetricDistance<double[]> metric = ( a , b ) -> {
+			double sum = 0;
+			for (int i = 0; i < a.length; i++) {
+				sum += Math.abs(a[i]-b[i]);
+			}
+			return sum;
+		};
+
+		List<double[]> points = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			points.add(new double[]{rand.nextDouble(),rand.nextDouble(),rand.nextDouble()});
+		}
+
+		for (int bucketSize : new int[]{1, 10, 50}) {
+			NearestNeighbor<double[]> alg = FactoryNearestNeighbor.vptree(metric,bucketSize,234);
+			alg.setPoints(points,true);
+			NearestNeighbor.Search<double[]> search = alg.createSearch();
+
+			FastQueue<NnData<double[]>> found = new FastQueue<>(NnData::new);
+			NnData<double[]> found1 = new NnData<>();
+			for (int trial = 0; trial < 50; trial++) {
+				double[] target = new double[]{rand.nextDouble(),rand.nextDouble(),rand.nextDouble()};
+
+				// find the true distances
+				double[] sorted = new double[points.size()];
+				for (int i = 0; i < points.size(); i++) {
+					sorted[i] = metric.distance(target,points.get(i));
+				}
+				Arrays.sort(sorted);
+
+				search.findNearest(target,-1,found1);
+				assertEquals(sorted[0], found1.distance, 1e-8);
+				assertEquals(sorted[0], metric.distance(target,points.get(found1.index)), 1e-8);
+
+				search.findNearest(target,-1,7,found);
+				assertEquals(7, found.size);
+				for (int i = 0; i < found.size; i++) {
+					assertEquals(sorted[i], found.get(i).distance, 1e-8);
+				}
+
+				double radius = sorted[20];
+				search.findWithinDistance(target,radius,found);
+				int expected = 0;
+				while( expected < sorted.length && sorted[expected] <= radius )
+					expected++;
+				assertEquals(expected, found.size);
+				for (int i = 0; i < found.size; i++) {
+					NnData<double[]> r = found.get(i);
+					assertEquals(metric.distance(target,r.point), r.distance, 1e-8);
+				}
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2014, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -20,6 +20,8 @@ package org.ddogleg.nn.wrap;
 
 import org.ddogleg.nn.FactoryNearestNeighbor;
 import org.ddogleg.nn.StandardNearestNeighborTests;
+import org.ddogleg.nn.alg.VpTree;
+import org.junit.jupiter.api.Test;
 
 /**
  * @author Karel Petránek
@@ -28,4 +30,10 @@ public class TestVpTreeNearestNeighbor extends StandardNearestNeighborTests {
 	public TestVpTreeNearestNeighbor() {
 		setAlg(FactoryNearestNeighbor.<Double>vptree(345345));
 	}
+
+	@Test
+	void packedPoints() {
+		VpTree packedAlg = new VpTree(345345);
+		checkPackedPoints(packedAlg, packedAlg::setPoints);
+	}
 }
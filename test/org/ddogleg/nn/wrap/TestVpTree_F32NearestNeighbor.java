@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.nn.wrap;
+
+import org.ddogleg.nn.FactoryNearestNeighbor;
+import org.ddogleg.nn.NearestNeighbor;
+import org.ddogleg.nn.NnData;
+import org.ddogleg.nn.alg.VpTree_F32;
+import org.ddogleg.nn.alg.distance.PackedEuclideanSq_F32;
+import org.ddogleg.struct.PackedTupleArray_F32;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.ddogleg.nn.StandardNearestNeighborTests.checkFloatAgainstExhaustive;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestVpTree_F32NearestNeighbor {
+	@Test
+	void compareToExhaustive() {
+		checkFloatAgainstExhaustive(FactoryNearestNeighbor.vptree_F32(345345),2);
+		checkFloatAgainstExhaustive(FactoryNearestNeighbor.vptree_F32(345345),5);
+	}
+
+	@Test
+	void packedPoints() {
+		Random rand = new Random(234);
+		List<float[]> points = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			points.add(new float[]{(float)rand.nextGaussian(),(float)rand.nextGaussian()});
+		}
+		PackedTupleArray_F32 packed = new PackedTupleArray_F32(2);
+		packed.setTo(points);
+
+		VpTree_F32 listAlg = new VpTree_F32(345345);
+		VpTree_F32 packedAlg = new VpTree_F32(345345);
+		listAlg.setPoints(points,true);
+		packedAlg.setPoints(new PackedEuclideanSq_F32(packed));
+
+		NearestNeighbor.Search<float[]> searchList = listAlg.createSearch();
+		NearestNeighbor.Search<float[]> searchPacked = packedAlg.createSearch();
+		NnData<float[]> expected = new NnData<>();
+		NnData<float[]> found = new NnData<>();
+
+		for (int trial = 0; trial < 50; trial++) {
+			float[] target = new float[]{(float)rand.nextGaussian(),(float)rand.nextGaussian()};
+			assertTrue(searchList.findNearest(target,-1,expected));
+			assertTrue(searchPacked.findNearest(target,-1,found));
+			assertEquals(expected.index, found.index);
+			assertEquals(expected.distance, found.distance, 1e-4);
+			assertNull(found.point);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012-2018, Peter Abeles. All Rights Reserved.
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
  *
  * This file is part of DDogleg (http://ddogleg.org).
  *
@@ -21,6 +21,7 @@ package org.ddogleg.nn.wrap;
 import org.ddogleg.nn.FactoryNearestNeighbor;
 import org.ddogleg.nn.StandardNearestNeighborTests;
 import org.ddogleg.nn.alg.distance.KdTreeEuclideanSq_F64;
+import org.junit.jupiter.api.Test;
 
 /**
  * @author Peter Abeles
@@ -31,4 +32,9 @@ public class TestWrapExhaustiveNeighbor extends StandardNearestNeighborTests {
 		setAlg(FactoryNearestNeighbor.exhaustive(new KdTreeEuclideanSq_F64(N)));
 	}
 
+	@Test
+	void packedPoints() {
+		WrapExhaustiveNeighbor<double[]> packedAlg = new WrapExhaustiveNeighbor<>(new KdTreeEuclideanSq_F64(N));
+		checkPackedPoints(packedAlg, packedAlg::setPoints);
+	}
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.struct;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestBinaryHeap_F64I32 {
+	Random rand = new Random(234);
+
+	@Test
+	void pushPop_sorted() {
+		BinaryHeap_F64I32 alg = new BinaryHeap_F64I32(2);
+
+		for (int trial = 0; trial < 5; trial++) {
+			alg.reset();
+			int N = 5 + rand.nextInt(100);
+			double[] keys = new double[N];
+			for (int i = 0; i < N; i++) {
+				keys[i] = rand.nextDouble();
+				alg.push(keys[i], i);
+			}
+			assertEquals(N, alg.size());
+			Arrays.sort(keys);
+
+			for (int i = 0; i < N; i++) {
+				assertEquals(keys[i], alg.peekKey());
+				int value = alg.peekValue();
+				assertEquals(value, alg.pop());
+			}
+			assertTrue(alg.isEmpty());
+		}
+	}
+
+	/**
+	 * Values should stay associated with their keys
+	 */
+	@Test
+	void valuesFollowKeys() {
+		BinaryHeap_F64I32 alg = new BinaryHeap_F64I32();
+		for (int i = 20; i > 0; i--) {
+			alg.push(i*2.0, i);
+		}
+		for (int i = 1; i <= 20; i++) {
+			assertEquals(i*2.0, alg.peekKey());
+			assertEquals(i, alg.pop());
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012-2020, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of DDogleg (http://ddogleg.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.ddogleg.struct;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Peter Abeles
+ */
+class TestPackedTupleArray_F64 {
+	@Test
+	void append_get() {
+		PackedTupleArray_F64 alg = new PackedTupleArray_F64(3);
+		for (int i = 0; i < 25; i++) {
+			alg.append(create(i));
+		}
+		assertEquals(25, alg.size());
+		for (int i = 0; i < 25; i++) {
+			for (int j = 0; j < 3; j++) {
+				assertEquals(i*3+j+0.5, alg.get(i,j));
+			}
+			assertArrayEquals(create(i), alg.getCopy(i,null));
+		}
+	}
+
+	@Test
+	void reserve() {
+		PackedTupleArray_F64 alg = new PackedTupleArray_F64(3);
+		alg.append(create(0));
+		alg.reserve(20);
+		assertEquals(60, alg.data.length);
+		assertEquals(1, alg.size);
+		assertArrayEquals(create(0), alg.getCopy(0,null));
+
+		// it should not shrink
+		alg.reserve(2);
+		assertEquals(60, alg.data.length);
+	}
+
+	/**
+	 * The number of elements would overflow an int
+	 */
+	@Test
+	void reserve_tooLarge() {
+		PackedTupleArray_F64 alg = new PackedTupleArray_F64(3);
+		assertThrows(IllegalArgumentException.class, () -> alg.reserve(Integer.MAX_VALUE/2));
+		assertEquals(0, alg.data.length);
+	}
+
+	@Test
+	void set() {
+		PackedTupleArray_F64 alg = new PackedTupleArray_F64(3);
+		alg.append(create(0));
+		alg.append(create(1));
+		alg.set(0,create(5));
+		assertArrayEquals(create(5), alg.getCopy(0,null));
+		assertArrayEquals(create(1), alg.getCopy(1,null));
+	}
+
+	@Test
+	void setTo() {
+		List<double[]> list = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			list.add(create(i));
+		}
+		PackedTupleArray_F64 alg = new PackedTupleArray_F64(3);
+		alg.append(create(9));
+		alg.setTo(list);
+		assertEquals(7, alg.size);
+		for (int i = 0; i < 7; i++) {
+			assertArrayEquals(list.get(i), alg.getCopy(i,null));
+		}
+	}
+
+	private static double[] create( int i ) {
+		double[] tuple = new double[3];
+		for (int j = 0; j < 3; j++) {
+			tuple[j] = i*3+j+0.5;
+		}
+		return tuple;
+	}
+}